@@ -39,12 +39,12 @@ public class Destination {
         else if (model instanceof BackgroundModel) {
             destinationStack = ((BackgroundModel) model).getStackModel();
             destinationIndex = destinationStack.getIndexOfBackground(model.getId());
-            return new Destination(destinationStack, destinationStack.getCardModels().get(destinationIndex).getId());
+            return new Destination(destinationStack, destinationStack.getCardModel(destinationIndex).getId());
         }
 
         // Part is the stack itself
         else if (model instanceof StackModel) {
-            return new Destination((StackModel) model, ((StackModel) model).getCardModels().get(((StackModel) model).getCurrentCardIndex()).getId());
+            return new Destination((StackModel) model, ((StackModel) model).getCardModel(((StackModel) model).getCurrentCardIndex()).getId());
         }
 
         // Part model was null or otherwise can't resolve destination
@@ -54,7 +54,7 @@ public class SaveStackCmd extends Command {
     private File evaluateAsStackFile(ExecutionContext context, Expression expr) throws HtException {
         String fileName = expr.evaluate(context).toString();
 
-        if (!fileName.endsWith(StackModel.FILE_EXTENSION)) {
+        if (!StackModel.isStackFileName(fileName)) {
             fileName = fileName + StackModel.FILE_EXTENSION;
         }
 
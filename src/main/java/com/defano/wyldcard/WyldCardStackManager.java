@@ -9,6 +9,7 @@ import com.defano.wyldcard.aspect.RunOnDispatch;
 import com.defano.wyldcard.message.SystemMessage;
 import com.defano.wyldcard.part.card.CardModel;
 import com.defano.wyldcard.part.card.CardPart;
+import com.defano.wyldcard.part.card.CardThumbnailCache;
 import com.defano.wyldcard.part.stack.StackModel;
 import com.defano.wyldcard.part.stack.StackNavigationObserver;
 import com.defano.wyldcard.part.stack.StackPart;
@@ -18,7 +19,8 @@ import com.defano.wyldcard.runtime.manager.IdleObserver;
 import com.defano.wyldcard.runtime.manager.PaintManager;
 import com.defano.wyldcard.runtime.manager.PartToolManager;
 import com.defano.wyldcard.runtime.manager.PeriodicMessageManager;
-import com.defano.wyldcard.serializer.Serializer;
+import com.defano.wyldcard.serializer.StackAutosaver;
+import com.defano.wyldcard.serializer.StackSerializer;
 import com.defano.wyldcard.thread.Invoke;
 import com.defano.wyldcard.util.ImageLayerUtils;
 import com.defano.wyldcard.util.ProxyObservable;
@@ -36,6 +38,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -51,6 +54,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
 
     private final ArrayList<StackPart> openedStacks = new ArrayList<>();
     private final ConcurrentLinkedQueue<Runnable> disposeQueue = new ConcurrentLinkedQueue<>();
+    private final StackAutosaver autosaver = new StackAutosaver();
 
     private final BehaviorSubject<StackPart> focusedStack = BehaviorSubject.create();
     private final ProxyObservable<Integer> cardCount = new ProxyObservable<>(BehaviorSubject.createDefault(1));
@@ -69,6 +73,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
 
     public void start() {
         periodicMessageManager.addIdleObserver(this);
+        autosaver.start();
     }
 
     /**
@@ -88,7 +93,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
         LOG.debug("De-serializing stack file {}.", stackFile.getName());
 
         try {
-            return Serializer.deserialize(stackFile, StackModel.class);
+            return StackSerializer.deserialize(stackFile);
         } catch (Exception e) {
             return null;
         }
@@ -129,7 +134,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
     public StackPart findAndOpenStack(ExecutionContext context, boolean inNewWindow, String title) {
         FileDialog fd = new FileDialog(windowManager.getWindowForStack(context, context.getCurrentStack()).getWindow(), title, FileDialog.LOAD);
         fd.setMultipleMode(false);
-        fd.setFilenameFilter((dir, name) -> name.endsWith(StackModel.FILE_EXTENSION));
+        fd.setFilenameFilter((dir, name) -> StackModel.isStackFileName(name));
         fd.setVisible(true);
 
         if (fd.getFiles().length > 0) {
@@ -191,7 +196,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
         fd.setVisible(true);
         if (fd.getFiles().length > 0) {
             File f = fd.getFiles()[0];
-            String path = f.getAbsolutePath().endsWith(StackModel.FILE_EXTENSION) ?
+            String path = StackModel.isStackFileName(f.getAbsolutePath()) ?
                     f.getAbsolutePath() :
                     f.getAbsolutePath() + StackModel.FILE_EXTENSION;
 
@@ -221,8 +226,9 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
             try {
                 LOG.debug("Serializing stack {} to file {}.", stackModel, file.getName());
 
-                Serializer.serialize(file, stackModel);
+                StackSerializer.serialize(file, stackModel);
                 stackModel.setSavedStackFile(context, file);
+                autosaver.discard(stackModel);
                 context.setResult(new Value());
             } catch (IOException e) {
                 context.setResult(new Value("An error occurred saving the file " + file.getAbsolutePath()));
@@ -448,6 +454,7 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
             StackWindow window = windowManager.createWindowForStack(context, stack, false);
             stack.bindToWindow(window);
             openedStacks.add(stack);
+            autosaver.add(stack.getStackModel());
             stack.addNavigationObserver(this);
             stack.partOpened(context);
 
@@ -499,6 +506,13 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
 
                 // Forget about it...
                 openedStacks.remove(stack);
+                autosaver.remove(stack.getStackModel());
+                try {
+                    StackSerializer.close(stack.getStackModel());
+                } catch (IOException e) {
+                    LOG.warn("Failed to close the file of stack id {}.", stack.getId(context), e);
+                }
+                CardThumbnailCache.getInstance().invalidate(stack.getStackModel());
 
                 // Finally, quit application when last stack window has closed
                 if (openedStacks.isEmpty()) {
@@ -556,8 +570,11 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
         }
 
         try {
-            StackModel model = Serializer.deserialize(stackFile, StackModel.class);
-            model.setSavedStackFile(context, stackFile);
+            StackModel model = recoverStack(context, stackFile);
+            if (model == null) {
+                model = StackSerializer.deserialize(stackFile);
+                model.setSavedStackFile(context, stackFile);
+            }
             return openStack(context, model, inNewWindow);
         } catch (Exception e) {
             LOG.warn("An error occurred opening the stack.", e);
@@ -566,6 +583,43 @@ public class WyldCardStackManager implements StackNavigationObserver, StackManag
         return null;
     }
 
+    /**
+     * If the given stack file has unsaved changes that were autosaved (see {@link StackAutosaver}), prompts the user
+     * to recover them. Recovered changes remain unsaved until the user saves the stack; declined changes are deleted.
+     *
+     * @param context   The current execution context
+     * @param stackFile The stack file being opened
+     * @return The recovered stack, or null if there was nothing to recover or the user chose not to recover it
+     * @throws IOException Thrown if the recovery file cannot be read
+     */
+    private StackModel recoverStack(ExecutionContext context, File stackFile) throws IOException {
+        File recoveryFile = StackAutosaver.getRecoveryFile(stackFile);
+        if (!StackAutosaver.isRecoverable(stackFile)) {
+            return null;
+        }
+
+        if (!promptToRecover(stackFile)) {
+            Files.deleteIfExists(recoveryFile.toPath());
+            return null;
+        }
+
+        return autosaver.recover(context, stackFile);
+    }
+
+    /**
+     * Asks the user whether to recover the autosaved changes to the given stack file.
+     *
+     * @param stackFile The stack file being opened
+     * @return True if the user chose to recover the changes
+     */
+    private boolean promptToRecover(File stackFile) {
+        return Invoke.onDispatch(() -> JOptionPane.showConfirmDialog(
+                null,
+                "WyldCard found changes to " + stackFile.getName() + " that were never saved. Recover them?",
+                "Recover",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION);
+    }
+
     /**
      * Executes each time the HyperTalk script interpreter is "idle" (no more scripts waiting to execute).
      */
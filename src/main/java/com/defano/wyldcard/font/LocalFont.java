@@ -11,6 +11,7 @@ public enum LocalFont {
 
     public final String resource;
     public final List<String> familyNames;
+    private Font font;      // Read from the resource once; every size and style is derived from it
 
     LocalFont(String resource, String... familyNames) {
         this.resource = resource;
@@ -31,14 +32,16 @@ public enum LocalFont {
         return forName(name) != null;
     }
 
-    public Font load(int style, float size) {
-        try {
-            InputStream is = FontUtils.class.getResourceAsStream(resource);
-            Font font = Font.createFont(Font.TRUETYPE_FONT, is);
-            return font.deriveFont(size).deriveFont(style);
-        } catch (FontFormatException | IOException e) {
-            throw new IllegalStateException("An error occurred trying to load font.", e);
+    public synchronized Font load(int style, float size) {
+        if (font == null) {
+            try (InputStream is = FontUtils.class.getResourceAsStream(resource)) {
+                font = Font.createFont(Font.TRUETYPE_FONT, is);
+            } catch (FontFormatException | IOException e) {
+                throw new IllegalStateException("An error occurred trying to load font.", e);
+            }
         }
+
+        return font.deriveFont(size).deriveFont(style);
     }
 
 }
@@ -9,6 +9,7 @@ import com.defano.wyldcard.part.card.CardModel;
 import com.defano.wyldcard.part.field.FieldModel;
 import com.defano.wyldcard.part.stack.StackModel;
 import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.SerializerPool;
 import com.defano.wyldcard.stackreader.HyperCardStack;
 import com.defano.wyldcard.stackreader.block.*;
 import com.defano.wyldcard.stackreader.enums.*;
@@ -19,9 +20,19 @@ import com.defano.wyldcard.thread.Invoke;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Arrays;
-import java.util.List;
-
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * Converts a HyperCard stack file into a WyldCard stack.
+ * <p>
+ * Conversion proceeds in stages: the stack file is parsed into blocks; each background, and then each card, is built
+ * into a model (decoding its bitmap and applying its text styles) in parallel on the {@link SerializerPool}; and the
+ * models are added to the stack in the order they appear in the HyperCard stack. Cards share their background's
+ * parts, so the card contents belonging to background parts are applied as cards are added, one card at a time. The
+ * resulting stack does not depend on the pool's parallelism.
+ */
 public class StackFormatConverter {
 
     private final ConversionStatusObserver status;
@@ -61,7 +72,7 @@ public class StackFormatConverter {
         }
     }
 
-    private StackModel buildStack(ExecutionContext context, String name, HyperCardStack hcStack) {
+    private StackModel buildStack(ExecutionContext context, String name, HyperCardStack hcStack) throws IOException {
 
         List<CardBlock> cardBlocks = hcStack.getCardBlocks();
 
@@ -73,15 +84,42 @@ public class StackFormatConverter {
                 .withScript(stackBlock.getStackScript())
                 .build();
 
+        // Backgrounds are added in the order in which cards first refer to them
+        Map<Integer, BackgroundBlock> backgroundBlocks = new LinkedHashMap<>();
+        for (CardBlock cardBlock : cardBlocks) {
+            backgroundBlocks.putIfAbsent(cardBlock.getBkgndId(), cardBlock.getBkgndBlock());
+        }
+
+        List<Future<BackgroundModel>> backgrounds = new ArrayList<>();
+        for (BackgroundBlock backgroundBlock : backgroundBlocks.values()) {
+            backgrounds.add(SerializerPool.submit(() -> buildBackground(backgroundBlock, stackModel)));
+        }
+
+        for (Future<BackgroundModel> background : backgrounds) {
+            stackModel.addBackground(SerializerPool.await(background));
+        }
+
+        List<Future<CardModel>> cards = new ArrayList<>();
+        for (CardBlock cardBlock : cardBlocks) {
+            cards.add(SerializerPool.submit(() -> buildCard(new ExecutionContext(), cardBlock, stackModel)));
+        }
+
         for (int cardIdx = 0; cardIdx < cardBlocks.size(); cardIdx++) {
-            buildCard(context, cardBlocks.get(cardIdx), stackModel);
+            CardModel cardModel = SerializerPool.await(cards.get(cardIdx));
+            applyBackgroundContents(context, cardBlocks.get(cardIdx), cardModel);
+            stackModel.addCard(cardModel);
+
             progress.onConversionProgressUpdate(cardIdx + 1, cardBlocks.size(), "Importing card " + (cardIdx + 1) + " of " + cardBlocks.size() + ".");
         }
 
         return stackModel;
     }
 
-    private void buildCard(ExecutionContext context, CardBlock cardBlock, StackModel stackModel) {
+    /**
+     * Builds a card and its parts, applying the contents of its card parts. The contents of its background parts are
+     * not applied; see {@link #applyBackgroundContents(ExecutionContext, CardBlock, CardModel)}.
+     */
+    private CardModel buildCard(ExecutionContext context, CardBlock cardBlock, StackModel stackModel) {
 
         CardModel cardModel = new CardModelBuilder(stackModel)
                 .withId(cardBlock.getBlockId())
@@ -95,22 +133,34 @@ public class StackFormatConverter {
                 .withScript(cardBlock.getScript())
                 .build();
 
-        buildBackground(cardBlock.getBkgndBlock(), stackModel);
-
         buildParts(cardBlock.getParts(), cardModel, cardBlock);
 
         for (PartContentRecord pcr : cardBlock.getContents()) {
-            applyUnsharedButtonHilite(context, pcr, cardModel);
-            applyTextContents(context, pcr, cardModel, false);
-            applyTextStyles(context, pcr, cardModel, cardBlock, false);
+            if (!pcr.isBackgroundPart()) {
+                applyTextStyles(context, pcr, cardModel, cardBlock, false);
+            }
+        }
+
+        return cardModel;
+    }
+
+    /**
+     * Applies the card-specific contents of a card's background parts. Background parts are shared by every card of
+     * the background, so the contents of one card are applied at a time.
+     */
+    private void applyBackgroundContents(ExecutionContext context, CardBlock cardBlock, CardModel cardModel) {
+        for (PartContentRecord pcr : cardBlock.getContents()) {
+            if (pcr.isBackgroundPart()) {
+                applyUnsharedButtonHilite(context, pcr, cardModel);
+                applyTextContents(context, pcr, cardModel, false);
+                applyTextStyles(context, pcr, cardModel, cardBlock, false);
+            }
         }
 
         for (PartContentRecord pcr : cardBlock.getBkgndBlock().getContents()) {
             applyTextContents(context, pcr, cardModel, true);
             applyTextStyles(context, pcr, cardModel, cardBlock, true);
         }
-
-        stackModel.addCard(cardModel);
     }
 
     private void applyTextStyles(ExecutionContext context, PartContentRecord pcr, CardModel cardModel, CardLayerBlock cardBlock, boolean sharedText) {
@@ -163,13 +213,9 @@ public class StackFormatConverter {
         }
     }
 
-    private void buildBackground(BackgroundBlock backgroundBlock, StackModel stackModel) {
+    private BackgroundModel buildBackground(BackgroundBlock backgroundBlock, StackModel stackModel) {
         int backgroundId = backgroundBlock.getBlockId();
 
-        if (stackModel.getBackground(backgroundId) != null) {
-            return;
-        }
-
         BackgroundModel backgroundModel = new BackgroundModelBuilder(stackModel)
                 .withName(backgroundBlock.getName())
                 .withId(backgroundId)
@@ -182,7 +228,7 @@ public class StackFormatConverter {
 
         buildParts(backgroundBlock.getParts(), backgroundModel, backgroundBlock);
 
-        stackModel.addBackground(backgroundModel);
+        return backgroundModel;
     }
 
     private void buildParts(PartRecord[] parts, CardLayer parent, CardLayerBlock block) {
@@ -289,15 +335,8 @@ public class StackFormatConverter {
     }
 
     private boolean isCardMarked(int cardId, HyperCardStack stack) {
-        for (PageBlock thisPage : stack.getBlocks(PageBlock.class)) {
-            for (PageEntryRecord thisEntry : thisPage.getPageEntries()) {
-                if (thisEntry.getCardId() == cardId) {
-                    return Arrays.stream(thisEntry.getFlags()).anyMatch(f -> f == PageFlag.MARKED_CARD);
-                }
-            }
-        }
-
-        return false;
+        PageEntryRecord entry = stack.getPageEntry(cardId);
+        return entry != null && Arrays.stream(entry.getFlags()).anyMatch(f -> f == PageFlag.MARKED_CARD);
     }
 
 }
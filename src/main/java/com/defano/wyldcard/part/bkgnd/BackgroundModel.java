@@ -13,6 +13,8 @@ import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.part.stack.StackModel;
 import com.defano.wyldcard.runtime.ExecutionContext;
 import com.defano.wyldcard.serializer.BufferedImageSerializer;
+import com.defano.wyldcard.serializer.Detached;
+import com.defano.wyldcard.serializer.LazyImage;
 import com.defano.hypertalk.ast.model.enums.Owner;
 import com.defano.hypertalk.ast.model.enums.PartType;
 import com.defano.hypertalk.ast.model.Value;
@@ -39,7 +41,7 @@ public class BackgroundModel extends PartModel implements LayeredPartFinder, Car
     public static final String PROP_ABBREVNAME = "abbreviated name";
     public static final String PROP_LONGNAME = "long name";
 
-    private BufferedImage backgroundImage;
+    @Detached private LazyImage backgroundImage;
     private final Collection<ButtonModel> buttonModels = new ArrayList<>();
     private final Collection<FieldModel> fieldModels = new ArrayList<>();
 
@@ -137,13 +139,17 @@ public class BackgroundModel extends PartModel implements LayeredPartFinder, Car
     }
 
     private void addFieldModel(FieldModel model) {
-        model.setParentPartModel(this);
-        this.fieldModels.add(model);
+        modify(model, () -> {
+            model.setParentPartModel(this);
+            this.fieldModels.add(model);
+        });
     }
 
     private void addButtonModel(ButtonModel model) {
-        model.setParentPartModel(this);
-        this.buttonModels.add(model);
+        modify(model, () -> {
+            model.setParentPartModel(this);
+            this.buttonModels.add(model);
+        });
     }
 
     @Override
@@ -151,25 +157,35 @@ public class BackgroundModel extends PartModel implements LayeredPartFinder, Car
     public void removePartModel(ExecutionContext context, PartModel model) {
         switch (model.getType()) {
             case FIELD:
-                fieldModels.remove(model);
+                modify(null, () -> fieldModels.remove(model));
                 break;
             case BUTTON:
-                buttonModels.remove(model);
+                modify(null, () -> buttonModels.remove(model));
                 break;
             default:
                 throw new IllegalArgumentException("Bug! Can't delete this kind of part from a background: " + model.getType());
         }
     }
 
+    /**
+     * Sets the image representing this background's graphics. The image must not be drawn into once set; it may be
+     * shared with copies of this background. Replace it with a new image instead.
+     * <p>
+     * An image that is entirely black, white and transparent is held packed once it has been saved; see
+     * {@link LazyImage}.
+     *
+     * @param image The background image.
+     */
     public void setBackgroundImage(BufferedImage image) {
-        this.backgroundImage = image;
+        this.backgroundImage = LazyImage.of(image);
+        markModified();
     }
 
     public BufferedImage getBackgroundImage(Dimension dimension) {
         if (this.backgroundImage == null) {
             return BufferedImageSerializer.emptyImage(dimension);
         } else {
-            return this.backgroundImage;
+            return this.backgroundImage.get();
         }
     }
 
@@ -177,6 +193,25 @@ public class BackgroundModel extends PartModel implements LayeredPartFinder, Car
         return this.backgroundImage != null;
     }
 
+    /**
+     * Returns this background's image as stored, without decoding it.
+     *
+     * @return The background image, or null if this background has no graphics.
+     */
+    public LazyImage getStoredBackgroundImage() {
+        return this.backgroundImage;
+    }
+
+    /**
+     * Sets this background's image as read from a stack file. Unlike {@link #setBackgroundImage(BufferedImage)}, this
+     * does not mark the background as modified.
+     *
+     * @param image The background image.
+     */
+    public void setStoredBackgroundImage(LazyImage image) {
+        this.backgroundImage = image;
+    }
+
     public boolean hasName() {
         try {
             return !findProperty(PROP_NAME).value().get(new ExecutionContext(), null).isEmpty();
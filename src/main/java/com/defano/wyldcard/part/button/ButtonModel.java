@@ -120,6 +120,18 @@ public class ButtonModel extends CardLayerPartModel implements PropertyChangeObs
         }
     }
 
+    /**
+     * Determines if this button is hilited on the given card, without binding this button to that card (see
+     * {@link #setCurrentCardId(int)}).
+     *
+     * @param context   The execution context.
+     * @param forCardId The id of the card on which the button's hilite is wanted.
+     * @return True if the button is hilited on the card.
+     */
+    public boolean isHilited(ExecutionContext context, int forCardId) {
+        return getHilite(context, forCardId).booleanValue();
+    }
+
     private boolean isSharedHilite(ExecutionContext context) {
         return getOwner() == Owner.CARD || get(context, ButtonModel.PROP_SHAREDHILITE).booleanValue();
     }
@@ -0,0 +1,278 @@
+package com.defano.wyldcard.part.button;
+
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.wyldcard.font.FontUtils;
+import com.defano.wyldcard.icon.ButtonIcon;
+import com.defano.wyldcard.icon.IconDatabase;
+import com.defano.wyldcard.part.card.CardRenderer;
+import com.defano.wyldcard.runtime.ExecutionContext;
+
+import java.awt.*;
+import java.awt.geom.*;
+
+/**
+ * Draws a button from its model, as {@link ButtonPart} displays it, without a Swing component; see
+ * {@link CardRenderer}. Each style is drawn with the geometry of its Swing counterpart (in
+ * {@link com.defano.wyldcard.part.button.styles}); native-looking styles (native buttons and popup menus) are drawn
+ * as a classic button and a rectangle, respectively.
+ */
+public class ButtonPainter {
+
+    private static final int CLASSIC_ARC_DIAMETER = 6;
+    private static final int ROUND_RECT_ARC_DIAMETER = 14;
+    private static final int SHADOW_WIDTH = 2;
+    private static final int SHADOW_INSET = 5;
+    private static final int CHECK_SIZE = 12;
+    private static final int ICON_TEXT_GAP = 1;
+
+    private ButtonPainter() {
+    }
+
+    /**
+     * Draws a button into the given graphics context, whose origin is the top-left corner of the button.
+     *
+     * @param context The execution context
+     * @param button  The button to draw
+     * @param cardId  The id of the card on which the button is drawn (a background button's hilite may differ on each
+     *                card); the button is not bound to the card, so any thread may draw any card
+     * @param g       The graphics context
+     */
+    public static void paint(ExecutionContext context, ButtonModel button, int cardId, Graphics2D g) {
+        Rectangle rect = button.getRect(context);
+        int width = rect.width, height = rect.height;
+        boolean enabled = button.get(context, ButtonModel.PROP_ENABLED).booleanValue();
+        boolean hilite = button.isHilited(context, cardId);
+        ButtonIcon icon = getIcon(button.get(context, ButtonModel.PROP_ICON));
+
+        // As in Swing, a button with an icon inverts only its icon
+        boolean hilited = enabled && hilite;
+        boolean inverted = hilited && icon == null;
+        Color frame = enabled ? Color.BLACK : Color.LIGHT_GRAY;
+        Color textColor = inverted ? Color.WHITE : enabled ? Color.BLACK : Color.GRAY;
+        Rectangle content = new Rectangle(0, 0, width, height);
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(new BasicStroke(1));
+
+        ButtonStyle style = ButtonStyle.fromName(button.get(context, ButtonModel.PROP_STYLE).toString());
+        switch (style) {
+            case TRANSPARENT:
+            case OVAL:
+                Shape shape = style == ButtonStyle.OVAL ? new Ellipse2D.Double(0, 0, width, height) : content;
+                if (inverted) {
+                    invert(g, shape);
+                }
+                if (!enabled) {
+                    g.setColor(frame);
+                    g.draw(style == ButtonStyle.OVAL ? new Ellipse2D.Double(0.5, 0.5, width - 1, height - 1) : new Rectangle(0, 0, width - 1, height - 1));
+                }
+                break;
+
+            case OPAQUE:
+                g.setColor(inverted ? Color.BLACK : Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                if (!enabled) {
+                    g.setColor(frame);
+                    g.drawRect(0, 0, width - 1, height - 1);
+                }
+                break;
+
+            case RECTANGULAR:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                if (inverted) {
+                    g.setColor(Color.BLACK);
+                    g.fillRect(1, 1, width - 2, height - 2);
+                }
+                g.setColor(frame);
+                g.drawRect(0, 0, width - 1, height - 1);
+                break;
+
+            case SHADOW:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width - SHADOW_WIDTH, height - SHADOW_WIDTH);
+                if (inverted) {
+                    g.setColor(Color.BLACK);
+                    g.fillRect(1, 1, width - SHADOW_WIDTH - 2, height - SHADOW_WIDTH - 2);
+                }
+                paintDropShadow(g, frame, width, height);
+                content = new Rectangle(1, 1, width - SHADOW_WIDTH - 2, height - SHADOW_WIDTH - 2);
+                break;
+
+            case ROUND_RECT:
+                RoundRectangle2D roundRect = new RoundRectangle2D.Double(0.5, 0.5, width - SHADOW_WIDTH - 1, height - SHADOW_WIDTH - 1, ROUND_RECT_ARC_DIAMETER, ROUND_RECT_ARC_DIAMETER);
+                g.setColor(inverted ? Color.BLACK : Color.WHITE);
+                g.fill(roundRect);
+                g.setColor(frame);
+                g.draw(roundRect);
+                g.setStroke(new BasicStroke(SHADOW_WIDTH, BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL));
+                g.draw(new Line2D.Double(ROUND_RECT_ARC_DIAMETER / 2.0, height - 2, width - ROUND_RECT_ARC_DIAMETER / 2.0 - SHADOW_WIDTH, height - 2));
+                g.draw(new Line2D.Double(width - 2, ROUND_RECT_ARC_DIAMETER / 2.0, width - 2, height - ROUND_RECT_ARC_DIAMETER / 2.0 - SHADOW_WIDTH));
+                content = new Rectangle(1, 1, width - SHADOW_WIDTH - 2, height - SHADOW_WIDTH - 2);
+                break;
+
+            case DEFAULT:
+                g.setColor(frame);
+                g.setStroke(new BasicStroke(4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g.draw(new RoundRectangle2D.Double(2, 2, width - 4, height - 4, CLASSIC_ARC_DIAMETER * 2, CLASSIC_ARC_DIAMETER * 2));
+                g.setStroke(new BasicStroke(1));
+                content = new Rectangle(6, 6, width - 12, height - 12);
+                paintClassicButton(g, content, inverted, frame);
+                break;
+
+            case POPUP:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.setColor(frame);
+                g.drawRect(0, 0, width - 1, height - 1);
+                paintPopupArrow(g, frame, width, height);
+                paintLabel(context, button, g, new Rectangle(4, 0, width - height - 4, height),
+                        button.get(context, ButtonModel.PROP_SELECTEDTEXT).toString(), null, false, enabled ? Color.BLACK : Color.GRAY, true);
+                return;
+
+            case CHECKBOX:
+            case RADIO:
+                paintCheck(g, style, hilite, frame, height);
+                paintLabel(context, button, g, new Rectangle(CHECK_SIZE + 6, 0, width - CHECK_SIZE - 6, height),
+                        getName(context, button), null, false, enabled ? Color.BLACK : Color.GRAY, true);
+                return;
+
+            case NATIVE:
+            case CLASSIC:
+            default:
+                paintClassicButton(g, content, inverted, frame);
+                break;
+        }
+
+        paintLabel(context, button, g, content, getName(context, button), icon, hilited, textColor, false);
+    }
+
+    private static void paintClassicButton(Graphics2D g, Rectangle bounds, boolean inverted, Color frame) {
+        RoundRectangle2D roundRect = new RoundRectangle2D.Double(bounds.x + 0.5, bounds.y + 0.5, bounds.width - 1, bounds.height - 1, CLASSIC_ARC_DIAMETER, CLASSIC_ARC_DIAMETER);
+        g.setColor(inverted ? Color.BLACK : Color.WHITE);
+        g.fill(roundRect);
+        g.setColor(frame);
+        g.draw(roundRect);
+    }
+
+    private static void paintDropShadow(Graphics2D g, Color frame, int width, int height) {
+        g.setColor(frame);
+        g.draw(new Rectangle2D.Double(0.5, 0.5, width - SHADOW_WIDTH - 1, height - SHADOW_WIDTH - 1));
+        g.setStroke(new BasicStroke(SHADOW_WIDTH));
+        g.draw(new Line2D.Double(SHADOW_INSET, height - 1, width, height - 1));
+        g.draw(new Line2D.Double(width - 1, height - 1, width - 1, SHADOW_INSET));
+        g.setStroke(new BasicStroke(1));
+    }
+
+    private static void paintPopupArrow(Graphics2D g, Color frame, int width, int height) {
+        int size = Math.max(4, Math.min(height / 3, 8));
+        int x = width - height / 2 - size / 2;
+        int y = (height - size / 2) / 2;
+
+        g.setColor(frame);
+        g.fill(new Polygon(new int[]{x, x + size, x + size / 2}, new int[]{y, y, y + size / 2}, 3));
+    }
+
+    private static void paintCheck(Graphics2D g, ButtonStyle style, boolean checked, Color frame, int height) {
+        int y = (height - CHECK_SIZE) / 2;
+
+        if (style == ButtonStyle.RADIO) {
+            Ellipse2D circle = new Ellipse2D.Double(2.5, y + 0.5, CHECK_SIZE - 1, CHECK_SIZE - 1);
+            g.setColor(Color.WHITE);
+            g.fill(circle);
+            g.setColor(frame);
+            g.draw(circle);
+            if (checked) {
+                g.fill(new Ellipse2D.Double(5.5, y + 3.5, CHECK_SIZE - 7, CHECK_SIZE - 7));
+            }
+        } else {
+            g.setColor(Color.WHITE);
+            g.fillRect(2, y, CHECK_SIZE, CHECK_SIZE);
+            g.setColor(frame);
+            g.drawRect(2, y, CHECK_SIZE - 1, CHECK_SIZE - 1);
+            if (checked) {
+                g.drawLine(2, y, CHECK_SIZE + 1, y + CHECK_SIZE - 1);
+                g.drawLine(2, y + CHECK_SIZE - 1, CHECK_SIZE + 1, y);
+            }
+        }
+    }
+
+    /**
+     * Draws a button's name and icon, centered vertically in the given bounds and aligned horizontally per the
+     * button's text alignment (or to the left), as a {@link javax.swing.JLabel} lays them out.
+     */
+    private static void paintLabel(ExecutionContext context, ButtonModel button, Graphics2D g, Rectangle bounds, String text, ButtonIcon icon, boolean hilited, Color textColor, boolean alignLeft) {
+        boolean hasText = text != null && !text.isEmpty();
+        if (!hasText && icon == null) {
+            return;
+        }
+
+        Font font = FontUtils.getFontByNameStyleSize(
+                button.get(context, ButtonModel.PROP_TEXTFONT).toString(),
+                FontUtils.getFontStyleForValue(context, button.get(context, ButtonModel.PROP_TEXTSTYLE)),
+                button.get(context, ButtonModel.PROP_TEXTSIZE).integerValue());
+        FontMetrics metrics = g.getFontMetrics(font);
+
+        int textWidth = hasText ? metrics.stringWidth(text) : 0;
+        int textHeight = hasText ? metrics.getHeight() : 0;
+        String iconAlign = button.get(context, ButtonModel.PROP_ICONALIGN).toString().toLowerCase();
+        boolean iconBeside = icon != null && hasText && (iconAlign.equals("left") || iconAlign.equals("right"));
+        int gap = icon != null && hasText ? ICON_TEXT_GAP : 0;
+        int iconSize = icon == null ? 0 : ButtonIcon.ICON_WIDTH;
+
+        int labelWidth = iconBeside ? iconSize + gap + textWidth : Math.max(iconSize, textWidth);
+        int labelHeight = iconBeside ? Math.max(iconSize, textHeight) : iconSize + gap + textHeight;
+
+        int x;
+        switch (alignLeft ? "left" : button.get(context, ButtonModel.PROP_TEXTALIGN).toString().trim().toLowerCase()) {
+            case "left":
+                x = bounds.x;
+                break;
+            case "right":
+                x = bounds.x + bounds.width - labelWidth;
+                break;
+            default:
+                x = bounds.x + (bounds.width - labelWidth) / 2;
+        }
+        int y = bounds.y + (bounds.height - labelHeight) / 2;
+
+        int iconX = x + (labelWidth - iconSize) / 2, iconY = y;
+        int textX = x + (labelWidth - textWidth) / 2, textY = y + iconSize + gap;
+
+        if (iconBeside) {
+            iconY = y + (labelHeight - iconSize) / 2;
+            textY = y + (labelHeight - textHeight) / 2;
+            iconX = iconAlign.equals("left") ? x : x + textWidth + gap;
+            textX = iconAlign.equals("left") ? x + iconSize + gap : x;
+        } else if (icon != null && iconAlign.equals("bottom")) {
+            textY = y;
+            iconY = y + textHeight + gap;
+        }
+
+        if (icon != null) {
+            g.drawImage((hilited ? icon.getInvertedIcon() : icon.getIcon()).getImage(), iconX, iconY, null);
+        }
+
+        if (hasText) {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(font);
+            g.setColor(textColor);
+            g.drawString(text, textX, textY + metrics.getAscent());
+        }
+    }
+
+    private static void invert(Graphics2D g, Shape shape) {
+        g.setXORMode(Color.WHITE);
+        g.setColor(Color.BLACK);
+        g.fill(shape);
+        g.setPaintMode();
+    }
+
+    private static String getName(ExecutionContext context, ButtonModel button) {
+        return button.get(context, ButtonModel.PROP_SHOWNAME).booleanValue() ? button.get(context, ButtonModel.PROP_NAME).toString() : "";
+    }
+
+    private static ButtonIcon getIcon(Value icon) {
+        return icon == null || icon.isEmpty() ? null : IconDatabase.getInstance().findIconForValue(icon);
+    }
+}
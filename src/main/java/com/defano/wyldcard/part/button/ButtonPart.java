@@ -248,9 +248,11 @@ public class ButtonPart extends StyleableButton implements CardLayerPart<ButtonM
             case ButtonModel.PROP_LEFT:
             case ButtonModel.PROP_WIDTH:
             case ButtonModel.PROP_HEIGHT:
+                // Repaint where the part was and where it is, together with the card's other damage
+                Rectangle oldBounds = getButtonComponent().getBounds();
                 getButtonComponent().setBounds(partModel.getRect(context));
                 getButtonComponent().validate();
-                getButtonComponent().repaint();
+                getCard().repaint(oldBounds.union(getButtonComponent().getBounds()));
                 break;
             case ButtonModel.PROP_ENABLED:
                 setEnabledOnCard(context, newValue.booleanValue());
@@ -15,6 +15,8 @@ import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.part.stack.StackModel;
 import com.defano.wyldcard.runtime.ExecutionContext;
 import com.defano.wyldcard.serializer.BufferedImageSerializer;
+import com.defano.wyldcard.serializer.Detached;
+import com.defano.wyldcard.serializer.LazyImage;
 import com.defano.wyldcard.serializer.Serializer;
 import com.defano.wyldcard.thread.Invoke;
 
@@ -50,7 +52,7 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
     private final Collection<FieldModel> fields = new ArrayList<>();
     private final Collection<ButtonModel> buttons = new ArrayList<>();
     private int backgroundId;
-    private BufferedImage cardImage;
+    @Detached private LazyImage cardImage;
 
     private transient CardModelObserver observer;
 
@@ -129,13 +131,13 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
             if (partModel.getOwner() == Owner.BACKGROUND) {
                 getBackgroundModel().removePartModel(context, partModel);
             } else {
-                fields.remove(partModel);
+                modify(null, () -> fields.remove(partModel));
             }
         } else if (partModel instanceof ButtonModel) {
             if (partModel.getOwner() == Owner.BACKGROUND) {
                 getBackgroundModel().removePartModel(context, partModel);
             } else {
-                buttons.remove(partModel);
+                modify(null, () -> buttons.remove(partModel));
             }
         } else {
             throw new IllegalArgumentException("Bug! Can't delete this kind of part from a card: " + partModel.getType());
@@ -146,15 +148,19 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
 
     @Override
     public void addPartModel(PartModel partModel) {
-        if (partModel instanceof FieldModel) {
-            fields.add((FieldModel) partModel);
-        } else if (partModel instanceof ButtonModel) {
-            buttons.add((ButtonModel) partModel);
-        } else {
+        if (!(partModel instanceof FieldModel) && !(partModel instanceof ButtonModel)) {
             throw new IllegalArgumentException("Bug! Can't add this kind of part to a card: " + partModel.getType());
         }
 
-        partModel.setParentPartModel(this);
+        modify(partModel, () -> {
+            if (partModel instanceof FieldModel) {
+                fields.add((FieldModel) partModel);
+            } else {
+                buttons.add((ButtonModel) partModel);
+            }
+
+            partModel.setParentPartModel(this);
+        });
     }
 
     /**
@@ -168,6 +174,7 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
 
     public void setBackgroundId(int backgroundId) {
         this.backgroundId = backgroundId;
+        markModified();
     }
 
     public BackgroundModel getBackgroundModel() {
@@ -179,12 +186,17 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
     }
 
     /**
-     * Sets the image representing this card's foreground graphics.
+     * Sets the image representing this card's foreground graphics. The image must not be drawn into once set; it may
+     * be shared with copies of this card. Replace it with a new image instead.
+     * <p>
+     * An image that is entirely black, white and transparent is held packed once it has been saved; see
+     * {@link LazyImage}.
      *
      * @param image The card image.
      */
     public void setCardImage(BufferedImage image) {
-        this.cardImage = image;
+        this.cardImage = LazyImage.of(image);
+        markModified();
     }
 
     /**
@@ -196,7 +208,7 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
         if (cardImage == null) {
             return BufferedImageSerializer.emptyImage(dimension);
         } else {
-            return this.cardImage;
+            return this.cardImage.get();
         }
     }
 
@@ -204,6 +216,25 @@ public class CardModel extends PartModel implements LayeredPartFinder, NamedPart
         return cardImage != null;
     }
 
+    /**
+     * Returns the image of this card's foreground as stored, without decoding it.
+     *
+     * @return The foreground image, or null if this card has no graphics.
+     */
+    public LazyImage getStoredCardImage() {
+        return cardImage;
+    }
+
+    /**
+     * Sets the image of this card's foreground as read from a stack file. Unlike {@link #setCardImage(BufferedImage)},
+     * this does not mark the card as modified.
+     *
+     * @param image The foreground image.
+     */
+    public void setStoredCardImage(LazyImage image) {
+        this.cardImage = image;
+    }
+
     /**
      * Create's a deep copy of this card.
      *
@@ -31,10 +31,13 @@ import com.defano.wyldcard.part.field.FieldPart;
 import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.part.model.PropertyChangeObserver;
 import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.part.stack.StackPart;
 import com.defano.wyldcard.part.util.TextArrowsMessageCompletionObserver;
 import com.defano.wyldcard.property.PropertiesModel;
 import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.LazyImage;
 import com.defano.wyldcard.thread.Invoke;
+import com.defano.wyldcard.util.MonochromeImageUtils;
 import io.reactivex.disposables.Disposable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +48,13 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -56,6 +65,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <p>
  * See {@link CardLayeredPane} for the view object, a Swing component.
  * See {@link CardModel} and {@link BackgroundModel} for the model object.
+ * <p>
+ * A card may be closed retaining its background layer (see {@link #partClosed(ExecutionContext, boolean)}) and then
+ * reopened on another card of the same background (see {@link #reopen(ExecutionContext, CardModel)}), reusing its
+ * background graphics, buttons and fields rather than building them again.
  */
 public class CardPart extends CardLayeredPane implements Part<CardModel>, CanvasCommitObserver, CanvasTransferDelegate, MouseListenable, KeyListener, PropertyChangeObserver {
 
@@ -68,12 +81,18 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
     private final ForegroundScaleObserver foregroundScaleObserver = new ForegroundScaleObserver(this);
     private final BackgroundScaleObserver backgroundScaleObserver = new BackgroundScaleObserver(this);
     private final CardModelObserver cardModelObserver = new CardPartModelObserver(this);
+    private final DirtyRegionTracker dirtyRegionTracker = new DirtyRegionTracker(this::repaintNow, this::isScreenLocked);
 
     // Sanity flag: card must be opened exactly once and closed exactly once; bad things happen if this constraint
     // is violated.
     private final AtomicBoolean isOpened = new AtomicBoolean(false);
 
+    // Of each background part retained when the card was closed, as it was when closed
+    private final Map<PartModel, Long> retainedGenerations = new IdentityHashMap<>();
+
     private CardModel cardModel;
+    private LazyImage backgroundCanvasImage;        // Background image shown on the background canvas
+    private Dimension backgroundCanvasSize;
     private Disposable editingBackgroundSubscription;
     private Disposable foregroundScaleSubscription;
     private Disposable backgroundScaleSubscription;
@@ -385,6 +404,70 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         });
     }
 
+    /**
+     * Gets the tracker of this card's damaged regions, from which the number and area of its repaints may be read.
+     *
+     * @return This card's dirty region tracker
+     */
+    public DirtyRegionTracker getDirtyRegionTracker() {
+        return dirtyRegionTracker;
+    }
+
+    /**
+     * Marks a region of this card as damaged; it is repainted (together with any other damage) when the current frame
+     * ends, or when the screen is unlocked. See {@link DirtyRegionTracker}.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // Swing repaints this component as it is constructed, before the tracker exists
+        if (dirtyRegionTracker == null) {
+            super.repaint(tm, x, y, width, height);
+        } else {
+            dirtyRegionTracker.damage(new Rectangle(x, y, width, height));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void paint(Graphics g) {
+        // The card is hidden beneath the screen curtain; paint it once revealed (but never skip a screenshot)
+        if (!isPaintingForPrint() && isScreenLocked()) {
+            Rectangle clip = g.getClipBounds();
+            dirtyRegionTracker.damage(clip == null ? new Rectangle(getSize()) : clip);
+            return;
+        }
+
+        super.paint(g);
+    }
+
+    private void repaintNow(Rectangle region) {
+        super.repaint(0, region.x, region.y, region.width, region.height);
+    }
+
+    private boolean isScreenLocked() {
+        StackPart stack = cardModel == null ? null : getOwningStack();
+        return stack != null && stack.getCurtainManager().isScreenLocked();
+    }
+
+    /**
+     * Creates a paint canvas whose repaints are made by this card (as damage to the region of the card it occupies),
+     * so that edits to the canvas are repainted with the card's other damage.
+     */
+    private JMonetCanvas newCanvas(BufferedImage image) {
+        return new JMonetCanvas(image, CANVAS_UNDO_DEPTH) {
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+                if (SwingUtilities.isDescendingFrom(this, CardPart.this)) {
+                    CardPart.this.repaint(SwingUtilities.convertRectangle(this, new Rectangle(x, y, width, height), CardPart.this));
+                } else {
+                    super.repaint(tm, x, y, width, height);
+                }
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -394,6 +477,7 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         // Save the modified canvas image to the card or background model
         if (WyldCard.getInstance().getPaintManager().isEditingBackground()) {
             cardModel.getBackgroundModel().setBackgroundImage(canvasImage);
+            backgroundCanvasImage = cardModel.getBackgroundModel().getStoredBackgroundImage();
         } else {
             cardModel.setCardImage(canvasImage);
         }
@@ -487,9 +571,10 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
      */
     @RunOnDispatch
     private void removeSwingComponent(Component component) {
+        Rectangle bounds = component.getBounds();
         remove(component);
         revalidate();
-        repaint();
+        repaint(bounds);
     }
 
     /**
@@ -504,7 +589,7 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         addToCardLayer(component, layer);
         moveToFront(component);
         revalidate();
-        repaint();
+        repaint(component.getBounds());
     }
 
     /**
@@ -529,6 +614,123 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
     @Override
     @RunOnDispatch
     public void partOpened(ExecutionContext context) {
+        open(context, Collections.emptySet());
+    }
+
+    /**
+     * Determines whether this card, having been closed with its background layer retained, can be reopened on the
+     * given card. A card can be reopened on any card of the same background, provided that neither the background's
+     * graphics nor the size of the stack have changed since it was closed.
+     *
+     * @param context The execution context.
+     * @param model   The card on which to reopen this card.
+     * @return True if {@link #reopen(ExecutionContext, CardModel)} may be called with the given card
+     */
+    public boolean canReopen(ExecutionContext context, CardModel model) {
+        return !isOpened.get() &&
+                getBackgroundCanvas() != null &&
+                model.getBackgroundModel() == cardModel.getBackgroundModel() &&
+                model.getBackgroundModel().getStoredBackgroundImage() == backgroundCanvasImage &&
+                model.getStackModel().getSize(context).equals(backgroundCanvasSize);
+    }
+
+    /**
+     * Reopens this card, closed with its background layer retained, on another card of the same background.
+     * <p>
+     * Background buttons and fields are rebound to the given card and opened again, reusing their Swing components;
+     * those that were changed, added or deleted since this card was closed are rebuilt. Card buttons and fields, and
+     * the card graphics, are built for the given card as {@link #fromModel(ExecutionContext, CardModel)} builds them.
+     * Sends 'openCard' to the given card, as {@link #partOpened(ExecutionContext)} does.
+     *
+     * @param context The execution context.
+     * @param model   The card on which to reopen this card.
+     * @throws IllegalStateException Thrown if this card cannot be reopened on the given card; see
+     *                               {@link #canReopen(ExecutionContext, CardModel)}
+     */
+    @RunOnDispatch
+    public void reopen(ExecutionContext context, CardModel model) {
+        if (!canReopen(context, model)) {
+            throw new IllegalStateException("Bug! Card cannot be reopened on " + model);
+        }
+
+        cardModel = model;
+
+        Set<CardLayerPart> reusedParts = rebindBackgroundParts(context);
+        for (PartModel thisPart : model.getPartModels(context)) {
+            addPartToView(context, thisPart);
+        }
+
+        open(context, reusedParts);
+    }
+
+    /**
+     * Releases the background layer retained when this card was closed. A card closed with its background layer
+     * retained that will not be reopened must be discarded.
+     */
+    @RunOnDispatch
+    public void discard() {
+        if (!isOpened.get() && getBackgroundCanvas() != null) {
+            buttons.getAll().clear();
+            fields.getAll().clear();
+            retainedGenerations.clear();
+            backgroundCanvasImage = null;
+
+            super.dispose();
+        }
+    }
+
+    /**
+     * Rebinds the background parts retained when this card was closed to the current card model, rebuilding those
+     * which have since been changed, and adding those which have since been added to the background.
+     *
+     * @param context The execution context.
+     * @return The retained parts that were rebound, which are to be opened without being rebuilt
+     */
+    private Set<CardLayerPart> rebindBackgroundParts(ExecutionContext context) {
+        Set<CardLayerPart> reusedParts = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<PartModel> backgroundParts = Collections.newSetFromMap(new IdentityHashMap<>());
+        backgroundParts.addAll(cardModel.getBackgroundModel().getPartModels(context));
+
+        List<CardLayerPart> retainedParts = new ArrayList<>(buttons.getAll());
+        retainedParts.addAll(fields.getAll());
+
+        for (CardLayerPart thisPart : retainedParts) {
+            PartModel thisModel = thisPart.getPartModel();
+            Long generation = retainedGenerations.get(thisModel);
+
+            if (backgroundParts.contains(thisModel) && generation != null && generation == thisModel.getGeneration()) {
+                ((CardLayerPartModel) thisModel).setCurrentCardId(cardModel.getId());
+                reusedParts.add(thisPart);
+            } else {
+                removeRetainedPart(thisPart);
+            }
+        }
+
+        for (PartModel thisPart : cardModel.getBackgroundModel().getPartModels(context)) {
+            if (buttons.get(thisPart) == null && fields.get(thisPart) == null) {
+                addPartToView(context, thisPart);
+            }
+        }
+
+        retainedGenerations.clear();
+        return reusedParts;
+    }
+
+    private void removeRetainedPart(CardLayerPart part) {
+        if (part instanceof ButtonPart) {
+            buttons.remove((ButtonPart) part);
+        } else if (part instanceof FieldPart) {
+            fields.remove((FieldPart) part);
+        }
+
+        remove(part.getComponent());
+    }
+
+    /**
+     * Opens this card, drawing each of its parts in its initial state; parts reused from when this card was last open
+     * are opened as they are.
+     */
+    private void open(ExecutionContext context, Set<CardLayerPart> reusedParts) {
         if (isOpened.get()) {
             throw new IllegalStateException("Bug! Card is already opened.");
         }
@@ -539,22 +741,27 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         // Setup part cut, copy and paste
         setTransferHandler(new CardPartTransferHandler(this));
 
-        // Setup the foreground paint canvas
-        BufferedImage cardImage = cardModel.getCardImage(dimension);
-        setForegroundCanvas(new JMonetScrollPane(new JMonetCanvas(cardImage, CANVAS_UNDO_DEPTH)));
+        // Setup the foreground paint canvas (painting into an ARGB copy of a packed image)
+        BufferedImage cardImage = MonochromeImageUtils.toArgb(cardModel.getCardImage(dimension));
+        setForegroundCanvas(new JMonetScrollPane(newCanvas(cardImage)));
         getForegroundCanvas().addCanvasCommitObserver(this);
         getForegroundCanvas().setTransferHandler(new CanvasTransferHandler(getForegroundCanvas(), this));
         getForegroundCanvas().setCanvasSize(stack.getSize(context));
         getForegroundCanvas().setSize(stack.getWidth(context), stack.getHeight(context));
 
-        // Setup the background paint canvas
-        BufferedImage backgroundImage = getPartModel().getBackgroundModel().getBackgroundImage(dimension);
-        setBackgroundCanvas(new JMonetScrollPane(new JMonetCanvas(backgroundImage, CANVAS_UNDO_DEPTH)));
-        getBackgroundCanvas().addCanvasCommitObserver(this);
-        getBackgroundCanvas().setTransferHandler(new CanvasTransferHandler(getBackgroundCanvas(), this));
-        getBackgroundCanvas().setCanvasSize(stack.getSize(context));
-        getBackgroundCanvas().setSize(stack.getWidth(context), stack.getHeight(context));
-        getBackgroundCanvas().setCanvasBackground(Color.WHITE);
+        // Setup the background paint canvas, unless retained from when this card was last open
+        if (getBackgroundCanvas() == null) {
+            BufferedImage backgroundImage = MonochromeImageUtils.toArgb(getPartModel().getBackgroundModel().getBackgroundImage(dimension));
+            setBackgroundCanvas(new JMonetScrollPane(newCanvas(backgroundImage)));
+            getBackgroundCanvas().addCanvasCommitObserver(this);
+            getBackgroundCanvas().setTransferHandler(new CanvasTransferHandler(getBackgroundCanvas(), this));
+            getBackgroundCanvas().setCanvasSize(stack.getSize(context));
+            getBackgroundCanvas().setSize(stack.getWidth(context), stack.getHeight(context));
+            getBackgroundCanvas().setCanvasBackground(Color.WHITE);
+
+            backgroundCanvasImage = getPartModel().getBackgroundModel().getStoredBackgroundImage();
+            backgroundCanvasSize = dimension;
+        }
 
         // Resize card (Swing) component
         setMaximumSize(stack.getSize(context));
@@ -562,11 +769,24 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
 
         // Fire property change observers on the parts (so that they can draw themselves in their correct initial state)
         for (ButtonPart thisButton : buttons.getAll()) {
-            thisButton.getPartModel().notifyPropertyChangedObserver(context, thisButton, true);
+            if (reusedParts.contains(thisButton)) {
+                thisButton.partOpened(context);
+            } else {
+                thisButton.getPartModel().notifyPropertyChangedObserver(context, thisButton, true);
+            }
         }
 
         for (FieldPart thisField : fields.getAll()) {
-            thisField.getPartModel().notifyPropertyChangedObserver(context, thisField, true);
+            if (reusedParts.contains(thisField)) {
+                thisField.partOpened(context);
+                thisField.clearSearchHilites();
+            } else {
+                thisField.getPartModel().notifyPropertyChangedObserver(context, thisField, true);
+            }
+        }
+
+        if (!reusedParts.isEmpty()) {
+            invalidatePartsZOrder(context);
         }
 
         editingBackgroundSubscription = WyldCard.getInstance().getPaintManager().isEditingBackgroundProvider().subscribe(editingBackgroundObserver);
@@ -599,6 +819,20 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
     @Override
     @RunOnDispatch
     public void partClosed(ExecutionContext context) {
+        partClosed(context, false);
+    }
+
+    /**
+     * Closes this card, optionally retaining its background layer (its background graphics, buttons and fields) so
+     * that it may be reopened on another card of the same background with
+     * {@link #reopen(ExecutionContext, CardModel)}. A card closed with its background layer retained must then either
+     * be reopened or discarded (see {@link #discard()}).
+     *
+     * @param context          The execution context.
+     * @param retainBackground True to retain the background layer; false to dispose of the card entirely
+     */
+    @RunOnDispatch
+    public void partClosed(ExecutionContext context, boolean retainBackground) {
         if (!isOpened.get()) {
             LOG.error("Bug!", new IllegalStateException("Card is not open for closing."));
             return;
@@ -615,8 +849,19 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
             p.partClosed(context);
         }
 
-        // Remove their Swing components from the card to free memory
-        removeAll();
+        if (retainBackground) {
+            // Card parts belong to this card alone; background parts are kept (closed) to be reopened
+            for (ButtonPart p : buttons.getAll()) {
+                retainOrRemove(p);
+            }
+
+            for (FieldPart p : fields.getAll()) {
+                retainOrRemove(p);
+            }
+        } else {
+            // Remove their Swing components from the card to free memory
+            removeAll();
+        }
 
         editingBackgroundSubscription.dispose();
         foregroundScaleSubscription.dispose();
@@ -626,7 +871,9 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         getForegroundCanvas().removeKeyListener(this);
 
         getForegroundCanvas().dispose();
-        getBackgroundCanvas().dispose();
+        if (!retainBackground) {
+            getBackgroundCanvas().dispose();
+        }
 
         setTransferHandler(null);
         getPartModel().setObserver(null);
@@ -634,11 +881,22 @@ public class CardPart extends CardLayeredPane implements Part<CardModel>, Canvas
         getPartModel().removePropertyChangedObserver(this);
         getPartModel().getBackgroundModel().removePropertyChangedObserver(this);
 
-        super.dispose();
+        if (!retainBackground) {
+            super.dispose();
+        }
 
+        dirtyRegionTracker.clear();
         isOpened.set(false);
     }
 
+    private void retainOrRemove(CardLayerPart part) {
+        if (part.getPartModel().getOwner() == Owner.BACKGROUND) {
+            retainedGenerations.put(part.getPartModel(), part.getPartModel().getGeneration());
+        } else {
+            removeRetainedPart(part);
+        }
+    }
+
     /**
      * Returns the button or field represented by the given PartModel.
      *
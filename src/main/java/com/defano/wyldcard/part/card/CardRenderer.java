@@ -0,0 +1,140 @@
+package com.defano.wyldcard.part.card;
+
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.button.ButtonModel;
+import com.defano.wyldcard.part.button.ButtonPainter;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.field.FieldPainter;
+import com.defano.wyldcard.part.finder.LayeredPartFinder;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.LazyImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a card from its model alone, without a {@link CardPart} or any other Swing component, on any thread (including
+ * in a headless environment).
+ * <p>
+ * {@link CardPart#getScreenshot()} draws a card by laying out its Swing components (in a hidden window, if the card is
+ * not displayed) on the dispatch thread. This draws the same layers in the same order (the background's graphics,
+ * the background's buttons and fields, the card's graphics, then the card's buttons and fields), drawing each button
+ * and field with a lightweight painter ({@link ButtonPainter}, {@link FieldPainter}) instead of a component. Neither
+ * the card's field documents nor its Swing components are built, and no message is sent to the card.
+ * <p>
+ * The result is a close likeness of the card as browsed, not a pixel-exact copy of the Swing rendering: native
+ * button and popup menu styles are drawn in the classic style, scroll bars are drawn as empty tracks, and any text
+ * selection or search hilite is not drawn. The displayed card, as it appears on the screen, remains the province of
+ * {@link CardPart#getScreenshot()}.
+ */
+public class CardRenderer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardRenderer.class);
+
+    private CardRenderer() {
+    }
+
+    /**
+     * Renders a card at the size of its stack.
+     *
+     * @param context The execution context
+     * @param card    The card to render
+     * @return An image of the card
+     */
+    public static BufferedImage render(ExecutionContext context, CardModel card) {
+        Dimension size = card.getStackModel().getSize(context);
+        return render(context, card, size.width, size.height);
+    }
+
+    /**
+     * Renders a card scaled to the given size.
+     *
+     * @param context The execution context
+     * @param card    The card to render
+     * @param width   The width of the image
+     * @param height  The height of the image
+     * @return An image of the card
+     */
+    public static BufferedImage render(ExecutionContext context, CardModel card, int width, int height) {
+        Dimension size = card.getStackModel().getSize(context);
+        BufferedImage image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = image.createGraphics();
+        try {
+            if (size.width > 0 && size.height > 0 && (size.width != width || size.height != height)) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.scale((double) width / size.width, (double) height / size.height);
+            }
+
+            paint(context, card, g, size);
+        } finally {
+            g.dispose();
+        }
+
+        return image;
+    }
+
+    /**
+     * Draws a card into the given graphics context, whose origin is the top-left corner of the card.
+     *
+     * @param context The execution context
+     * @param card    The card to draw
+     * @param g       The graphics context
+     * @param size    The size of the card
+     */
+    public static void paint(ExecutionContext context, CardModel card, Graphics2D g, Dimension size) {
+        BackgroundModel background = card.getBackgroundModel();
+
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, size.width, size.height);
+
+        if (background.get(context, BackgroundModel.PROP_SHOWPICT).booleanValue()) {
+            paintImage(g, background.getStoredBackgroundImage());
+        }
+
+        paintParts(context, background, Owner.BACKGROUND, card.getId(), g);
+
+        if (card.get(context, CardModel.PROP_SHOWPICT).booleanValue()) {
+            paintImage(g, card.getStoredCardImage());
+        }
+
+        paintParts(context, card, Owner.CARD, card.getId(), g);
+    }
+
+    private static void paintImage(Graphics2D g, LazyImage image) {
+        if (image != null) {
+            g.drawImage(image.get(), 0, 0, null);
+        }
+    }
+
+    private static void paintParts(ExecutionContext context, LayeredPartFinder layer, Owner owner, int cardId, Graphics2D g) {
+        for (PartModel part : layer.getPartsInDisplayOrder(context, owner)) {
+            if (!part.get(context, PartModel.PROP_VISIBLE).booleanValue()) {
+                continue;
+            }
+
+            Rectangle rect = part.getRect(context);
+            if (rect.width <= 0 || rect.height <= 0) {
+                continue;
+            }
+
+            Graphics2D partGraphics = (Graphics2D) g.create(rect.x, rect.y, rect.width, rect.height);
+            try {
+                if (part instanceof ButtonModel) {
+                    ButtonPainter.paint(context, (ButtonModel) part, cardId, partGraphics);
+                } else if (part instanceof FieldModel) {
+                    FieldPainter.paint(context, (FieldModel) part, cardId, partGraphics);
+                }
+            } catch (RuntimeException e) {
+                // A part that cannot be drawn should not prevent the rest of the card from being drawn
+                LOG.warn("Failed to render part {}.", part.getId(), e);
+            } finally {
+                partGraphics.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.defano.wyldcard.part.card;
+
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of card thumbnails, rendered from the card's model (see {@link CardRenderer}) on background threads at the
+ * thumbnail's own size.
+ * <p>
+ * Each thumbnail is kept with the generations of the card, its background and its stack at the time it was rendered
+ * (see {@link com.defano.wyldcard.part.model.PartModel#getGeneration()}); any change to the card, to its background
+ * (including a background field's text on the card) or to the stack's own properties advances one of them, so a
+ * thumbnail of a card that has since changed is never returned, but rendered anew. Thumbnails are evicted, least
+ * recently used first, once together they hold more than {@value #MAX_BYTES} bytes of pixels, and a closed stack's
+ * thumbnails are discarded with it.
+ */
+public class CardThumbnailCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardThumbnailCache.class);
+    private static final long MAX_BYTES = 16 * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final CardThumbnailCache instance = new CardThumbnailCache(MAX_BYTES);
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+        Thread thread = new Thread(runnable, "card-thumbnail-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final long maxBytes;
+    private final Map<CardModel, Thumbnail> thumbnails = new LinkedHashMap<>(16, .75f, true);
+    private long bytes;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    CardThumbnailCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static CardThumbnailCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets a thumbnail of a card, rendering it on a background thread if no thumbnail of the card as it is now, at
+     * this size, is cached (or being rendered).
+     *
+     * @param context The execution context
+     * @param card    The card
+     * @param width   The width of the thumbnail
+     * @param height  The height of the thumbnail
+     * @return The thumbnail, completed on a background thread (or already complete, when cached)
+     */
+    public CompletableFuture<BufferedImage> getThumbnail(ExecutionContext context, CardModel card, int width, int height) {
+        long[] version = getVersion(card);
+        requestCount.incrementAndGet();
+
+        Thumbnail thumbnail;
+        synchronized (this) {
+            thumbnail = thumbnails.get(card);
+            if (thumbnail != null && thumbnail.isOf(version, width, height)) {
+                hitCount.incrementAndGet();
+                return thumbnail.image;
+            }
+
+            remove(card);
+            thumbnail = new Thumbnail(version, width, height, new CompletableFuture<>());
+            thumbnails.put(card, thumbnail);
+            bytes += thumbnail.getBytes();
+            evict();
+        }
+
+        Thumbnail rendering = thumbnail;
+        executor.submit(() -> render(context, card, rendering));
+        return thumbnail.image;
+    }
+
+    /**
+     * Discards the thumbnails of every card in the given stack.
+     *
+     * @param stack The stack whose thumbnails should be discarded
+     */
+    public synchronized void invalidate(StackModel stack) {
+        for (Iterator<Map.Entry<CardModel, Thumbnail>> entries = thumbnails.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<CardModel, Thumbnail> entry = entries.next();
+            if (entry.getKey().getStackModel() == stack) {
+                bytes -= entry.getValue().getBytes();
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bytes of pixels held by the cached thumbnails (including those being rendered).
+     *
+     * @return The size of the cache, in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the fraction of thumbnails requested that were cached.
+     *
+     * @return The hit rate, from 0 to 1, or 0 if no thumbnail has been requested
+     */
+    public double getHitRate() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0 : (double) hitCount.get() / requests;
+    }
+
+    private void render(ExecutionContext context, CardModel card, Thumbnail thumbnail) {
+        try {
+            long startedAt = System.nanoTime();
+            thumbnail.image.complete(CardRenderer.render(context, card, thumbnail.width, thumbnail.height));
+            LOG.debug("Rendered {}x{} thumbnail of card id {} in {} ms.", thumbnail.width, thumbnail.height, card.getId(),
+                    String.format("%.1f", (System.nanoTime() - startedAt) / 1e6));
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to render thumbnail of card id {}.", card.getId(), e);
+
+            // Don't cache the failure; the next request will try again
+            synchronized (this) {
+                if (thumbnails.get(card) == thumbnail) {
+                    remove(card);
+                }
+            }
+
+            thumbnail.image.completeExceptionally(e);
+        }
+    }
+
+    private void remove(CardModel card) {
+        Thumbnail thumbnail = thumbnails.remove(card);
+        if (thumbnail != null) {
+            bytes -= thumbnail.getBytes();
+        }
+    }
+
+    /**
+     * Evicts least recently used thumbnails until the cache is within its bound (but never the most recently used,
+     * however large it is).
+     */
+    private void evict() {
+        Iterator<Thumbnail> eldest = thumbnails.values().iterator();
+        while (bytes > maxBytes && thumbnails.size() > 1) {
+            bytes -= eldest.next().getBytes();
+            eldest.remove();
+        }
+    }
+
+    private static long[] getVersion(CardModel card) {
+        BackgroundModel background = card.getBackgroundModel();
+        StackModel stack = card.getStackModel();
+        return new long[]{card.getGeneration(), background.getGeneration(), stack.getLocalGeneration()};
+    }
+
+    private static class Thumbnail {
+        private final long[] version;
+        private final int width;
+        private final int height;
+        private final CompletableFuture<BufferedImage> image;
+
+        private Thumbnail(long[] version, int width, int height, CompletableFuture<BufferedImage> image) {
+            this.version = version;
+            this.width = width;
+            this.height = height;
+            this.image = image;
+        }
+
+        private boolean isOf(long[] version, int width, int height) {
+            return this.width == width && this.height == height && Arrays.equals(this.version, version);
+        }
+
+        private long getBytes() {
+            return (long) Math.max(1, width) * Math.max(1, height) * BYTES_PER_PIXEL;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.defano.wyldcard.part.card;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Accumulates the regions of a card that need to be repainted (its damage) and repaints them together, at most once
+ * each frame, rather than as each is damaged.
+ * <p>
+ * A script moving a part or changing its properties in a loop damages the card many times between frames; repainting
+ * the card as each change is made paints frames no one sees. Damage is instead coalesced into a few rectangles
+ * (overlapping rectangles are merged, and when there are more than {@value #MAX_REGIONS} they are merged into one)
+ * and repainted when the frame ends. While the screen is locked the card is hidden beneath the screen curtain and
+ * nothing is repainted; damage accumulates until the screen is unlocked.
+ */
+public class DirtyRegionTracker {
+
+    private static final int FRAME_MS = 16;
+    private static final int MAX_REGIONS = 8;
+
+    private final Consumer<Rectangle> repainter;
+    private final BooleanSupplier screenLocked;
+    private final Timer frameTimer;
+    private final List<Rectangle> regions = new ArrayList<>();
+
+    private long damageCount;
+    private long frameCount;
+    private long repaintCount;
+    private long repaintedArea;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param repainter    Repaints a region of the card, immediately
+     * @param screenLocked Determines whether the screen is locked
+     */
+    public DirtyRegionTracker(Consumer<Rectangle> repainter, BooleanSupplier screenLocked) {
+        this(repainter, screenLocked, FRAME_MS);
+    }
+
+    /**
+     * Creates a tracker with frames of the given length.
+     *
+     * @param repainter    Repaints a region of the card, immediately
+     * @param screenLocked Determines whether the screen is locked
+     * @param frameMs      The length of a frame, in milliseconds; zero to repaint only when {@link #flush()} is invoked
+     */
+    DirtyRegionTracker(Consumer<Rectangle> repainter, BooleanSupplier screenLocked, int frameMs) {
+        this.repainter = repainter;
+        this.screenLocked = screenLocked;
+
+        if (frameMs > 0) {
+            this.frameTimer = new Timer(frameMs, e -> flush());
+            this.frameTimer.setRepeats(false);
+        } else {
+            this.frameTimer = null;
+        }
+    }
+
+    /**
+     * Marks a region of the card as needing to be repainted when the current frame ends. May be invoked on any
+     * thread.
+     *
+     * @param region The damaged region, in the card's coordinates
+     */
+    public void damage(Rectangle region) {
+        if (region == null || region.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            damageCount++;
+            add(new Rectangle(region));
+        }
+
+        if (frameTimer != null && !frameTimer.isRunning()) {
+            frameTimer.start();
+        }
+    }
+
+    /**
+     * Repaints every damaged region now (unless the screen is locked, in which case they remain damaged until it is
+     * not). Invoked on the dispatch thread when each frame ends.
+     */
+    void flush() {
+        List<Rectangle> damaged;
+
+        synchronized (this) {
+            if (regions.isEmpty()) {
+                return;
+            }
+
+            // Check again next frame; the curtain covers the card until then
+            if (screenLocked.getAsBoolean()) {
+                if (frameTimer != null) {
+                    frameTimer.restart();
+                }
+                return;
+            }
+
+            damaged = new ArrayList<>(regions);
+            regions.clear();
+
+            frameCount++;
+            repaintCount += damaged.size();
+            for (Rectangle region : damaged) {
+                repaintedArea += (long) region.width * region.height;
+            }
+        }
+
+        for (Rectangle region : damaged) {
+            repainter.accept(region);
+        }
+    }
+
+    /**
+     * Discards any damage not yet repainted (for example, because the whole card is about to be repainted anyway).
+     */
+    public synchronized void clear() {
+        regions.clear();
+
+        if (frameTimer != null) {
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * Gets the number of times a region was damaged.
+     *
+     * @return The number of damaged regions reported
+     */
+    public synchronized long getDamageCount() {
+        return damageCount;
+    }
+
+    /**
+     * Gets the number of frames in which any region was repainted.
+     *
+     * @return The number of frames repainted
+     */
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Gets the number of regions repainted, once coalesced.
+     *
+     * @return The number of repaints
+     */
+    public synchronized long getRepaintCount() {
+        return repaintCount;
+    }
+
+    /**
+     * Gets the total area, in pixels, of the regions repainted.
+     *
+     * @return The area repainted
+     */
+    public synchronized long getRepaintedArea() {
+        return repaintedArea;
+    }
+
+    /**
+     * Gets the regions damaged and not yet repainted.
+     *
+     * @return A copy of the damaged regions
+     */
+    synchronized List<Rectangle> getDamagedRegions() {
+        List<Rectangle> copy = new ArrayList<>();
+        for (Rectangle region : regions) {
+            copy.add(new Rectangle(region));
+        }
+        return copy;
+    }
+
+    private void add(Rectangle region) {
+        // Merge with every damaged region it overlaps (or abuts); a merge may grow it to overlap others
+        for (boolean merged = true; merged; ) {
+            merged = false;
+            for (Iterator<Rectangle> iterator = regions.iterator(); iterator.hasNext(); ) {
+                Rectangle existing = iterator.next();
+                if (existing.contains(region)) {
+                    return;
+                }
+
+                if (overlaps(existing, region)) {
+                    region = region.union(existing);
+                    iterator.remove();
+                    merged = true;
+                }
+            }
+        }
+
+        regions.add(region);
+
+        if (regions.size() > MAX_REGIONS) {
+            Rectangle union = new Rectangle(regions.get(0));
+            for (Rectangle existing : regions) {
+                union = union.union(existing);
+            }
+
+            regions.clear();
+            regions.add(union);
+        }
+    }
+
+    private static boolean overlaps(Rectangle a, Rectangle b) {
+        return a.x <= b.x + b.width && b.x <= a.x + a.width && a.y <= b.y + b.height && b.y <= a.y + a.height;
+    }
+}
@@ -15,12 +15,15 @@ import com.defano.wyldcard.part.model.LogicalLinkObserver;
 import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.part.util.FieldUtilities;
 import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.LazyDocument;
+import com.defano.wyldcard.serializer.StyledParagraph;
 import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
 
 import javax.annotation.PostConstruct;
 import javax.swing.*;
 import javax.swing.text.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A data model representing a field. See {@link FieldPart} for the associated controller object. This model is a mess.
@@ -37,6 +40,10 @@ import java.util.*;
  * necessitates the {@link #sharedText} and {@link #unsharedText} properties. Foreground-layer fields always use the
  * {@link #sharedText} value. This same sharing behavior applies to auto-selection (list fields).
  * <p>
+ * Two-and-a-half: Swing documents are large, so they are built only for the text being displayed, edited or
+ * styled; text on other cards is held as RTF or as a plain string with a table of style runs ({@link LazyDocument}).
+ * Reading a field's plain text (as a script or the 'find' command does) never builds a document.
+ * <p>
  * Third: TextAlign is a separate, managed property of the field and not of the document model because Java's
  * RTFEditorKit doesn't support saving text alignment. Ugh! That's okay though, because HyperCard supports only a
  * single alignment per field, which we can model as a standard read/writable property in the
@@ -77,10 +84,11 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     public static final String PROP_TEXTHEIGHT = "textheight";
     public static final String PROP_FIXEDLINEHEIGHT = "fixedlineheight";
 
-    private final Map<Integer, StyledDocument> unsharedText = new HashMap<>();
+    // Text is read off the dispatch thread (to prefetch, render, print, search and save cards)
+    private final ConcurrentHashMap<Integer, LazyDocument> unsharedText = new ConcurrentHashMap<>();
     private final Set<Integer> sharedAutoSelection = new HashSet<>();
     private final Map<Integer, Set<Integer>> unsharedAutoSelection = new HashMap<>();
-    private StyledDocument sharedText;
+    private volatile LazyDocument sharedText;
 
     private transient FieldModelObserver observer;
     private transient Range selection;
@@ -176,19 +184,52 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     }
 
     private StyledDocument getUnsharedText(ExecutionContext context, int cardId) {
-        if (!unsharedText.containsKey(cardId)) {
-            unsharedText.put(cardId, getNewDocument(context));
+        return unsharedText.computeIfAbsent(cardId, id -> LazyDocument.of(getNewDocument(context))).get();
+    }
+
+    private StyledDocument getSharedText(ExecutionContext context) {
+        LazyDocument text = sharedText;
+        if (text == null) {
+            text = LazyDocument.of(getNewDocument(context));
+            sharedText = text;
         }
 
-        return unsharedText.get(cardId);
+        return text.get();
     }
 
-    private StyledDocument getSharedText(ExecutionContext context) {
-        if (sharedText == null) {
-            sharedText = getNewDocument(context);
+    /**
+     * Prepares this field's text on the given card to be displayed, without building its document; see
+     * {@link LazyDocument#prepare()}. May be called from any thread.
+     *
+     * @param context   The execution context.
+     * @param forCardId The id of the card whose text of this field is to be prepared.
+     */
+    public void prepareText(ExecutionContext context, int forCardId) {
+        LazyDocument document = getLazyDocument(context, forCardId);
+        if (document != null) {
+            document.prepare();
         }
+    }
 
-        return sharedText;
+    /**
+     * Gets this field's text and styles on the given card, paragraph by paragraph, without building its document; see
+     * {@link LazyDocument#getParagraphs()}. May be called from any thread.
+     *
+     * @param context   The execution context.
+     * @param forCardId The id of the card whose text of this field is to be returned.
+     * @return The paragraphs of this field's text; empty if the field has no text on the card.
+     */
+    public List<StyledParagraph> getParagraphs(ExecutionContext context, int forCardId) {
+        LazyDocument document = getLazyDocument(context, forCardId);
+        return document == null ? Collections.emptyList() : document.getParagraphs();
+    }
+
+    /**
+     * Gets the document holding this field's text on the given card, without building it, or null if the field has
+     * no text there.
+     */
+    private LazyDocument getLazyDocument(ExecutionContext context, int forCardId) {
+        return isSharedText(context) ? sharedText : unsharedText.get(forCardId);
     }
 
     private StyledDocument getNewDocument(ExecutionContext context) {
@@ -213,10 +254,46 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
      * @param doc     The styled document data to persist into the model.
      */
     public void setStyledDocument(ExecutionContext context, StyledDocument doc) {
-        if (isSharedText(context)) {
-            sharedText = doc;
-        } else {
-            unsharedText.put(getCurrentCardId(context), doc);
+        LazyDocument existing = getLazyDocument(context, getCurrentCardId(context));
+
+        // Changes made to the existing document in place are recorded by whoever made them
+        if (existing != null && existing.isDecoded() && existing.get() == doc) {
+            return;
+        }
+
+        modify(() -> {
+            if (isSharedText(context)) {
+                sharedText = LazyDocument.of(doc);
+            } else {
+                unsharedText.put(getCurrentCardId(context), LazyDocument.of(doc));
+            }
+        });
+    }
+
+    /**
+     * Determines if the given document, once this field's text on the current card, has since been replaced by another
+     * (as by {@link #replaceRanges(ExecutionContext, int, List, String)}). The view displaying the field is notified of
+     * a replacement on the dispatch thread some time after it is made, and until then displays the replaced document.
+     *
+     * @param context The execution context.
+     * @param doc     The document displayed by the view.
+     * @return True if the field's text is held by a different document; false otherwise.
+     */
+    public boolean isReplacedDocument(ExecutionContext context, StyledDocument doc) {
+        LazyDocument current = getLazyDocument(context, getCurrentCardId(context));
+        return current != null && !(current.isDecoded() && current.get() == doc);
+    }
+
+    /**
+     * Discards the Swing document representing this field's text on the current card, if one has been built, keeping
+     * only its text and styles. Invoked when the field is no longer displayed; the document must no longer be used.
+     *
+     * @param context The execution context.
+     */
+    public void releaseStyledDocument(ExecutionContext context) {
+        LazyDocument doc = getLazyDocument(context, getCurrentCardId(context));
+        if (doc != null) {
+            doc.release();
         }
     }
 
@@ -242,27 +319,29 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     }
 
     public String getText(ExecutionContext context, int forCardId) {
-        StyledDocument doc = getStyledDocument(context, forCardId);
-        try {
-            return doc.getText(0, doc.getLength());
-        } catch (BadLocationException e) {
-            return "";
-        }
+        LazyDocument doc = getLazyDocument(context, forCardId);
+        return doc == null ? "" : doc.getText();
     }
 
     public void applyFont(ExecutionContext context, int forCardId, int start, String fontFamily) {
-        StyledDocument doc = getStyledDocument(context, forCardId);
-        doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontFamily(fontFamily).toAttributeSet(), false);
+        modify(() -> {
+            StyledDocument doc = getStyledDocument(context, forCardId);
+            doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontFamily(fontFamily).toAttributeSet(), false);
+        });
     }
 
     public void applyFontSize(ExecutionContext context, int forCardId, int start, int fontSize) {
-        StyledDocument doc = getStyledDocument(context, forCardId);
-        doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontSize(fontSize).toAttributeSet(), false);
+        modify(() -> {
+            StyledDocument doc = getStyledDocument(context, forCardId);
+            doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontSize(fontSize).toAttributeSet(), false);
+        });
     }
 
     public void applyFontStyle(ExecutionContext context, int forCardId, int start, Value style) {
-        StyledDocument doc = getStyledDocument(context, forCardId);
-        doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontStyle(style).toAttributeSet(), false);
+        modify(() -> {
+            StyledDocument doc = getStyledDocument(context, forCardId);
+            doc.setCharacterAttributes(start, doc.getLength() - start, TextStyleSpecifier.fromFontStyle(style).toAttributeSet(), false);
+        });
     }
 
     /**
@@ -272,9 +351,12 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
      * It is not possible to correctly restyle the new text in every case. This is a result of the {@link FieldModel}
      * not being able to notify us of insert/delete operations.
      * <p>
-     * This method invokes Google's DiffMatchPatch utility to generate a change set, then attempts to apply each change
-     * independently to let the {@link StyledDocument} model best preserve its formatting.
-     * <p>
+     * Most changes made by a script (putting text into, before or after a chunk of the field, or replacing its text
+     * entirely) alter a single range of the text. That range is found by trimming the text common to the start and
+     * end of the existing and new values; an insertion or deletion is applied to the document directly, and only
+     * when text is both removed and inserted is Google's DiffMatchPatch utility used to generate a change set (of the
+     * changed range alone), each change of which is applied independently to let the {@link StyledDocument} model
+     * best preserve its formatting.
      *
      * @param context The execution context.
      * @param newText The text with which to replace the field's existing contents.
@@ -287,38 +369,152 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
             return;
         }
 
-        int changePosition = 0;
+        int prefix = getCommonPrefixLength(existingText, newText);
+        int suffix = getCommonSuffixLength(existingText, newText, prefix);
+        String removed = existingText.substring(prefix, existingText.length() - suffix);
+        String inserted = newText.substring(prefix, newText.length() - suffix);
+
         StyledDocument document = getStyledDocument(context);
 
-        AttributeSet style = document.getLength() == 0 ?
-                WyldCard.getInstance().getFontManager().getFocusedTextStyle().toAttributeSet() :
-                document.getCharacterElement(0).getAttributes();
-
-        try {
-            for (DiffMatchPatch.Diff thisDiff : getTextDifferences(existingText, newText)) {
-                switch (thisDiff.operation) {
-                    case EQUAL:
-                        style = document.getCharacterElement(changePosition).getAttributes();
-                        changePosition += thisDiff.text.length();
-                        break;
-                    case DELETE:
-                        style = document.getCharacterElement(changePosition).getAttributes();
-                        document.remove(changePosition, thisDiff.text.length());
-                        break;
-                    case INSERT:
-                        document.insertString(changePosition, thisDiff.text, style);
-                        changePosition += thisDiff.text.length();
-                        break;
+        // Each difference is applied separately; the field is being modified until all have been
+        modify(() -> {
+            try {
+                if (removed.isEmpty()) {
+                    document.insertString(prefix, inserted, getInsertionStyle(document, prefix));
+                } else if (inserted.isEmpty()) {
+                    document.remove(prefix, removed.length());
+                } else {
+                    applyTextDifferences(document, prefix, getTextDifferences(removed, inserted));
                 }
+            } catch (BadLocationException e) {
+                throw new RuntimeException("An error occurred updating field text.", e);
             }
-        } catch (BadLocationException e) {
-            throw new RuntimeException("An error occurred updating field text.", e);
-        }
 
-        setStyledDocument(context, document);              // Save our changes
+            setStyledDocument(context, document);          // Save our changes
+        });
         fireDocumentChangeObserver(context, document);     // ... and let the view know know about 'em
     }
 
+    /**
+     * Replaces each of the given ranges of this field's text on the given card with the given replacement, as a single
+     * change to the field: however many ranges are replaced, the field's document is replaced once (see
+     * {@link LazyDocument#replace(List, String)}) and the view, if the field is displayed, is notified once. Each
+     * replacement takes the style of the first character it replaces.
+     *
+     * @param context     The execution context.
+     * @param forCardId   The id of the card whose text is to be changed.
+     * @param ranges      The ranges of text to replace, in ascending order, not overlapping and not empty.
+     * @param replacement The text with which to replace each range.
+     * @return The field's document prior to the change; see {@link #restoreDocument(ExecutionContext, int, LazyDocument)}
+     */
+    public LazyDocument replaceRanges(ExecutionContext context, int forCardId, List<Range> ranges, String replacement) {
+        LazyDocument existing = getLazyDocument(context, forCardId);
+        if (existing == null || ranges.isEmpty()) {
+            return existing;
+        }
+
+        putLazyDocument(context, forCardId, existing.replace(ranges, replacement));
+        return existing;
+    }
+
+    /**
+     * Restores a document previously returned by {@link #replaceRanges(ExecutionContext, int, List, String)}, undoing
+     * the replacement (and any change made since).
+     *
+     * @param context   The execution context.
+     * @param forCardId The id of the card whose text is to be restored.
+     * @param document  The document to restore.
+     */
+    public void restoreDocument(ExecutionContext context, int forCardId, LazyDocument document) {
+        putLazyDocument(context, forCardId, document);
+    }
+
+    private void putLazyDocument(ExecutionContext context, int forCardId, LazyDocument document) {
+        boolean isSharedText = isSharedText(context);
+        modify(() -> {
+            if (isSharedText) {
+                sharedText = document;
+            } else if (document == null) {
+                unsharedText.remove(forCardId);
+            } else {
+                unsharedText.put(forCardId, document);
+            }
+        });
+
+        if (observer != null && document != null && (isSharedText || forCardId == context.getCurrentCard().getId(context))) {
+            StyledDocument displayed = document.get();
+            SwingUtilities.invokeLater(() -> observer.onStyledDocumentChanged(displayed));
+        }
+    }
+
+    /**
+     * Applies a set of differences to the document, beginning at the given position; inserted text takes the style
+     * of the text it follows or replaces.
+     *
+     * @param document       The document to change
+     * @param changePosition The position in the document at which the differences begin
+     * @param diffs          The differences to apply
+     * @throws BadLocationException Thrown if the differences do not describe the document's text
+     */
+    private void applyTextDifferences(StyledDocument document, int changePosition, List<DiffMatchPatch.Diff> diffs) throws BadLocationException {
+        AttributeSet style = getInsertionStyle(document, changePosition);
+
+        for (DiffMatchPatch.Diff thisDiff : diffs) {
+            switch (thisDiff.operation) {
+                case EQUAL:
+                    style = document.getCharacterElement(changePosition).getAttributes();
+                    changePosition += thisDiff.text.length();
+                    break;
+                case DELETE:
+                    style = document.getCharacterElement(changePosition).getAttributes();
+                    document.remove(changePosition, thisDiff.text.length());
+                    break;
+                case INSERT:
+                    document.insertString(changePosition, thisDiff.text, style);
+                    changePosition += thisDiff.text.length();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Gets the style to be given to text inserted at the given position: that of the character preceding it, or of
+     * the first character when inserting at the start of the document, or the focused text style when the document is
+     * empty.
+     *
+     * @param document The document into which text is being inserted
+     * @param position The position of the insertion
+     * @return The style of the inserted text
+     */
+    private AttributeSet getInsertionStyle(StyledDocument document, int position) {
+        if (document.getLength() == 0) {
+            return WyldCard.getInstance().getFontManager().getFocusedTextStyle().toAttributeSet();
+        }
+
+        return document.getCharacterElement(Math.max(0, position - 1)).getAttributes();
+    }
+
+    private static int getCommonPrefixLength(String existing, String replacement) {
+        int limit = Math.min(existing.length(), replacement.length());
+        int length = 0;
+        while (length < limit && existing.charAt(length) == replacement.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Gets the length of the text common to the end of both strings, not overlapping the given common prefix.
+     */
+    private static int getCommonSuffixLength(String existing, String replacement, int prefix) {
+        int limit = Math.min(existing.length(), replacement.length()) - prefix;
+        int length = 0;
+        while (length < limit && existing.charAt(existing.length() - length - 1) == replacement.charAt(replacement.length() - length - 1)) {
+            length++;
+        }
+        return length;
+    }
+
     /**
      * Produces a set of differences between the existing and replacement strings.
      *
@@ -341,9 +537,10 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     @Override
     public void setTextStyle(ExecutionContext context, TextStyleSpecifier tss) {
         StyledDocument doc = getStyledDocument(context);
-        doc.setCharacterAttributes(0, doc.getLength() + 1, tss.toAttributeSet(), true);
-
-        setStyledDocument(context, doc);
+        modify(() -> {
+            doc.setCharacterAttributes(0, doc.getLength() + 1, tss.toAttributeSet(), true);
+            setStyledDocument(context, doc);
+        });
         fireDocumentChangeObserver(context, doc);
     }
 
@@ -367,20 +564,22 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     public void setTextFontFamily(ExecutionContext context, int startPosition, int length, Value fontFamily) {
         StyledDocument doc = getStyledDocument(context);
 
-        // Special case; zero-length document does not persist prev style, replace with focused style
-        if (doc.getLength() == 0) {
-            TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
-            tss.setFontFamily(fontFamily.toString());
-            doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
-        }
+        modify(() -> {
+            // Special case; zero-length document does not persist prev style, replace with focused style
+            if (doc.getLength() == 0) {
+                TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
+                tss.setFontFamily(fontFamily.toString());
+                doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
+            }
 
-        // Apply font family to document
-        else {
-            TextStyleSpecifier tss = TextStyleSpecifier.fromFontFamily(fontFamily.toString());
-            doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), false);
-        }
+            // Apply font family to document
+            else {
+                TextStyleSpecifier tss = TextStyleSpecifier.fromFontFamily(fontFamily.toString());
+                doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), false);
+            }
 
-        setStyledDocument(context, doc);
+            setStyledDocument(context, doc);
+        });
         fireDocumentChangeObserver(context, doc);
     }
 
@@ -395,20 +594,22 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     public void setTextFontSize(ExecutionContext context, int startPosition, int length, Value fontSize) {
         StyledDocument doc = getStyledDocument(context);
 
-        // Special case; zero-length document does not persist prev style, replace with focused style
-        if (doc.getLength() == 0) {
-            TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
-            tss.setFontSize(fontSize.integerValue());
-            doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
-        }
+        modify(() -> {
+            // Special case; zero-length document does not persist prev style, replace with focused style
+            if (doc.getLength() == 0) {
+                TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
+                tss.setFontSize(fontSize.integerValue());
+                doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
+            }
 
-        // Apply font size to document
-        else {
-            TextStyleSpecifier tss = TextStyleSpecifier.fromFontSize(fontSize.integerValue());
-            doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), false);
-        }
+            // Apply font size to document
+            else {
+                TextStyleSpecifier tss = TextStyleSpecifier.fromFontSize(fontSize.integerValue());
+                doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), false);
+            }
 
-        setStyledDocument(context, doc);
+            setStyledDocument(context, doc);
+        });
         fireDocumentChangeObserver(context, doc);
     }
 
@@ -424,23 +625,25 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     public void setTextFontStyle(ExecutionContext context, int startPosition, int length, Value fontStyle) {
         StyledDocument doc = getStyledDocument(context);
 
-        // Special case; zero-length document does not persist prev style, replace with focused style
-        if (doc.getLength() == 0) {
-            TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
-            tss.setFontStyle(fontStyle);
-            doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
-        }
-
-        // Apply style changes to each character
-        else {
-            for (int index = startPosition; index < startPosition + length; index++) {
-                TextStyleSpecifier tss = TextStyleSpecifier.fromAttributeSet(getStyledDocument(context).getCharacterElement(index).getAttributes());
+        modify(() -> {
+            // Special case; zero-length document does not persist prev style, replace with focused style
+            if (doc.getLength() == 0) {
+                TextStyleSpecifier tss = WyldCard.getInstance().getFontManager().getFocusedTextStyle();
                 tss.setFontStyle(fontStyle);
-                doc.setCharacterAttributes(index, 1, tss.toAttributeSet(), true);
+                doc.setCharacterAttributes(startPosition, length, tss.toAttributeSet(), true);
+            }
+
+            // Apply style changes to each character
+            else {
+                for (int index = startPosition; index < startPosition + length; index++) {
+                    TextStyleSpecifier tss = TextStyleSpecifier.fromAttributeSet(getStyledDocument(context).getCharacterElement(index).getAttributes());
+                    tss.setFontStyle(fontStyle);
+                    doc.setCharacterAttributes(index, 1, tss.toAttributeSet(), true);
+                }
             }
-        }
 
-        setStyledDocument(context, doc);
+            setStyledDocument(context, doc);
+        });
         fireDocumentChangeObserver(context, doc);
     }
 
@@ -671,6 +874,8 @@ public class FieldModel extends CardLayerPartModel implements AddressableSelecti
     }
 
     private void fireDocumentChangeObserver(ExecutionContext context, StyledDocument document) {
+        markModified();
+
         if (observer != null && getCurrentCardIdOrNull() == context.getCurrentCard().getId(context)) {
             SwingUtilities.invokeLater(() -> observer.onStyledDocumentChanged(document));
         }
@@ -0,0 +1,228 @@
+package com.defano.wyldcard.part.field;
+
+import com.defano.wyldcard.font.FontUtils;
+import com.defano.wyldcard.part.card.CardRenderer;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.StyledParagraph;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws a field from its model, as {@link FieldPart} displays it, without a Swing component or document; see
+ * {@link CardRenderer}. The field's text is read paragraph by paragraph (see
+ * {@link FieldModel#getParagraphs(ExecutionContext, int)}) and laid out with a {@link LineBreakMeasurer}, honoring
+ * the field's style, margins, alignment, wrapping, scroll and text lines. A scrolling field's scroll bar is drawn as an
+ * empty track.
+ */
+public class FieldPainter {
+
+    private static final int WIDE_MARGIN_PX = 6;
+    private static final int NARROW_MARGIN_PX = 1;
+    private static final int SHADOW_WIDTH = 2;
+    private static final int SHADOW_INSET = 5;
+    private static final int SCROLLBAR_WIDTH = 15;
+
+    private static final Stroke dottedLine = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1, new float[]{1}, 0);
+
+    private FieldPainter() {
+    }
+
+    /**
+     * Draws a field into the given graphics context, whose origin is the top-left corner of the field.
+     *
+     * @param context The execution context
+     * @param field   The field to draw
+     * @param cardId  The id of the card on which the field is drawn (a background field's text may differ on each
+     *                card); the field is not bound to the card, so any thread may draw any card
+     * @param g       The graphics context
+     */
+    public static void paint(ExecutionContext context, FieldModel field, int cardId, Graphics2D g) {
+        Rectangle rect = field.getRect(context);
+        int width = rect.width, height = rect.height;
+        int margin = field.get(context, FieldModel.PROP_WIDEMARGINS).booleanValue() ? WIDE_MARGIN_PX : NARROW_MARGIN_PX;
+        Insets insets = new Insets(margin, margin, margin, margin);
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(new BasicStroke(1));
+
+        switch (FieldStyle.fromName(field.get(context, FieldModel.PROP_STYLE).toString())) {
+            case TRANSPARENT:
+                break;
+
+            case OPAQUE:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                break;
+
+            case SHADOW:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width - SHADOW_WIDTH, height - SHADOW_WIDTH);
+                g.setColor(Color.BLACK);
+                g.draw(new Rectangle2D.Double(0.5, 0.5, width - SHADOW_WIDTH - 1, height - SHADOW_WIDTH - 1));
+                g.setStroke(new BasicStroke(SHADOW_WIDTH));
+                g.draw(new Line2D.Double(SHADOW_INSET, height - 1, width, height - 1));
+                g.draw(new Line2D.Double(width - 1, height - 1, width - 1, SHADOW_INSET));
+                g.setStroke(new BasicStroke(1));
+                insets = new Insets(margin + 1, margin + 1, margin + SHADOW_WIDTH, margin + SHADOW_WIDTH);
+                break;
+
+            case RECTANGLE:
+            default:
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.setColor(Color.BLACK);
+                g.drawRect(0, 0, width - 1, height - 1);
+                insets = new Insets(margin + 1, margin + 1, margin + 1, margin + 1);
+                break;
+        }
+
+        if (field.get(context, FieldModel.PROP_SCROLLING).booleanValue()) {
+            int trackX = width - insets.right + margin - SCROLLBAR_WIDTH;
+            g.setColor(Color.WHITE);
+            g.fillRect(trackX, insets.top - margin, SCROLLBAR_WIDTH, height - insets.top - insets.bottom + margin * 2);
+            g.setColor(Color.BLACK);
+            g.drawLine(trackX, insets.top - margin, trackX, height - insets.bottom + margin - 1);
+            insets.right += SCROLLBAR_WIDTH;
+        }
+
+        Rectangle textArea = new Rectangle(insets.left, insets.top, width - insets.left - insets.right, height - insets.top - insets.bottom);
+        if (textArea.width > 0 && textArea.height > 0) {
+            Graphics2D textGraphics = (Graphics2D) g.create();
+            textGraphics.clip(textArea);
+            paintText(context, field, cardId, textGraphics, textArea);
+            textGraphics.dispose();
+        }
+    }
+
+    /**
+     * Draws a field's text, and the lines beneath it, into the given area.
+     */
+    private static void paintText(ExecutionContext context, FieldModel field, int cardId, Graphics2D g, Rectangle area) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontRenderContext frc = g.getFontRenderContext();
+
+        String fontFamily = field.get(context, FieldModel.PROP_TEXTFONT).toString();
+        int fontSize = field.get(context, FieldModel.PROP_TEXTSIZE).integerValue();
+        LineMetrics defaultMetrics = FontUtils.getFontByNameStyleSize(fontFamily, Font.PLAIN, fontSize).getLineMetrics(" ", frc);
+        boolean enabled = field.get(context, FieldModel.PROP_ENABLED).booleanValue();
+        boolean wrap = !field.get(context, FieldModel.PROP_DONTWRAP).booleanValue();
+        String align = field.get(context, FieldModel.PROP_TEXTALIGN).toString().trim().toLowerCase();
+
+        Map<AttributeSet, Map<TextAttribute, Object>> styles = new HashMap<>();
+        List<Float> baselines = new ArrayList<>();
+        float lineHeight = defaultMetrics.getHeight();
+        float top = area.y - field.get(context, FieldModel.PROP_SCROLL).integerValue();
+        float y = top;
+        float bottom = area.y + area.height;
+
+        for (StyledParagraph paragraph : field.getParagraphs(context, cardId)) {
+            if (y > bottom) {
+                break;
+            }
+
+            if (paragraph.getText().isEmpty()) {
+                baselines.add(y += defaultMetrics.getAscent());
+                y += defaultMetrics.getDescent() + defaultMetrics.getLeading();
+                lineHeight = defaultMetrics.getHeight();
+                continue;
+            }
+
+            AttributedString text = new AttributedString(paragraph.getText());
+            for (int run = 0, start = 0; run < paragraph.getRunCount(); start += paragraph.getRunLength(run++)) {
+                Map<TextAttribute, Object> style = styles.computeIfAbsent(paragraph.getRunAttributes(run), attributes -> getStyle(attributes, fontFamily, fontSize, enabled));
+                text.addAttributes(style, start, start + paragraph.getRunLength(run));
+            }
+
+            LineBreakMeasurer measurer = new LineBreakMeasurer(text.getIterator(), frc);
+            while (measurer.getPosition() < paragraph.getText().length() && y <= bottom) {
+                TextLayout line = measurer.nextLayout(wrap ? area.width : Float.MAX_VALUE);
+                baselines.add(y += line.getAscent());
+
+                float x;
+                switch (align) {
+                    case "center":
+                        x = area.x + (area.width - line.getVisibleAdvance()) / 2;
+                        break;
+                    case "right":
+                        x = area.x + area.width - line.getVisibleAdvance();
+                        break;
+                    default:
+                        x = area.x;
+                }
+
+                line.draw(g, x, y);
+                y += line.getDescent() + line.getLeading();
+                lineHeight = line.getAscent() + line.getDescent() + line.getLeading();
+            }
+        }
+
+        if (field.get(context, FieldModel.PROP_SHOWLINES).booleanValue()) {
+            paintLines(g, area, baselines, lineHeight, top + defaultMetrics.getAscent());
+        }
+    }
+
+    /**
+     * Draws a dotted line beneath each line of text, then (as a field with too little text to fill it does) at
+     * intervals of the last line's height to the bottom of the field. An empty field's first line is at the given
+     * baseline.
+     */
+    private static void paintLines(Graphics2D g, Rectangle area, List<Float> baselines, float lineHeight, float firstBaseline) {
+        g.setColor(Color.BLACK);
+        g.setStroke(dottedLine);
+
+        int minX = area.x, maxX = area.x + area.width;
+        for (float baseline : baselines) {
+            g.drawLine(minX, (int) baseline, maxX, (int) baseline);
+        }
+
+        float lastBaseline = baselines.isEmpty() ? firstBaseline - (int) lineHeight : baselines.get(baselines.size() - 1);
+        for (float baseline = lastBaseline + (int) lineHeight; baseline <= area.y + area.height; baseline += (int) lineHeight) {
+            g.drawLine(minX, (int) baseline, maxX, (int) baseline);
+        }
+    }
+
+    /**
+     * Gets the text attributes equivalent to a run of a document's character attributes.
+     */
+    private static Map<TextAttribute, Object> getStyle(AttributeSet attributes, String defaultFamily, int defaultSize, boolean enabled) {
+        Map<TextAttribute, Object> style = new HashMap<>();
+
+        String family = attributes.isDefined(StyleConstants.FontFamily) ? StyleConstants.getFontFamily(attributes) : defaultFamily;
+        int size = attributes.isDefined(StyleConstants.FontSize) ? StyleConstants.getFontSize(attributes) : defaultSize;
+        int fontStyle = (StyleConstants.isBold(attributes) ? Font.BOLD : Font.PLAIN) | (StyleConstants.isItalic(attributes) ? Font.ITALIC : Font.PLAIN);
+        Font font = FontUtils.getFontByNameStyleSize(family, fontStyle, size);
+
+        if (StyleConstants.isSuperscript(attributes) || StyleConstants.isSubscript(attributes)) {
+            font = font.deriveFont(Collections.singletonMap(TextAttribute.SUPERSCRIPT,
+                    StyleConstants.isSuperscript(attributes) ? TextAttribute.SUPERSCRIPT_SUPER : TextAttribute.SUPERSCRIPT_SUB));
+        }
+
+        style.put(TextAttribute.FONT, font);
+        style.put(TextAttribute.FOREGROUND, enabled ? StyleConstants.getForeground(attributes) : Color.GRAY);
+
+        if (StyleConstants.isUnderline(attributes)) {
+            style.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON);
+        }
+
+        if (StyleConstants.isStrikeThrough(attributes)) {
+            style.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+        }
+
+        return style;
+    }
+}
@@ -346,9 +346,11 @@ public class FieldPart extends StyleableField implements CardLayerPart<FieldMode
             case FieldModel.PROP_LEFT:
             case FieldModel.PROP_WIDTH:
             case FieldModel.PROP_HEIGHT:
+                // Repaint where the part was and where it is, together with the card's other damage
+                Rectangle oldBounds = getComponent().getBounds();
                 getComponent().setBounds(partModel.getRect(context));
                 getComponent().validate();
-                getComponent().repaint();
+                getCard().repaint(oldBounds.union(getComponent().getBounds()));
                 break;
             case FieldModel.PROP_VISIBLE:
                 setVisibleWhenBrowsing(context, newValue.booleanValue());
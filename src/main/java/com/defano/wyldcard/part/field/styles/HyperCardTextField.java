@@ -69,6 +69,9 @@ public abstract class HyperCardTextField extends JScrollPane implements
     // menu remains useful for text property changes.
     private boolean didLoseFocusToMenu = false;
 
+    // True while the view is being made to match the model; document changes made meanwhile are not user edits
+    private boolean syncingView = false;
+
     public HyperCardTextField(ToolEditablePart toolEditablePart) {
         this.toolEditablePart = toolEditablePart;
 
@@ -130,6 +133,11 @@ public abstract class HyperCardTextField extends JScrollPane implements
     }
 
     private void documentUpdate() {
+        // Edits made to display the model (not to change it) don't modify the field
+        if (!syncingView) {
+            toolEditablePart.getPartModel().markModified();
+        }
+
         syncModelToView(new ExecutionContext());
         textPane.invalidateViewport(getViewport());
         this.textPane.setDirty(true);
@@ -158,6 +166,12 @@ public abstract class HyperCardTextField extends JScrollPane implements
     @Override
     @RunOnDispatch
     public void onPropertyChanged(ExecutionContext context, PropertiesModel model, String property, Value oldValue, Value newValue) {
+        // The model has already recorded the change; displaying it is not another
+        syncView(() -> displayPropertyChange(context, property, newValue));
+    }
+
+    @RunOnDispatch
+    private void displayPropertyChange(ExecutionContext context, String property, Value newValue) {
         switch (property) {
             case FieldModel.PROP_DONTWRAP:
                 textPane.setWrapText(!newValue.booleanValue());
@@ -232,14 +246,16 @@ public abstract class HyperCardTextField extends JScrollPane implements
 
         getVerticalScrollBar().addAdjustmentListener(scrollObserver);
 
-        // Update view with model data
-        displayStyledDocument(model.getStyledDocument(context));
-        toolEditablePart.getPartModel().notifyPropertyChangedObserver(context, this, true);
+        // Update view with model data; opening a field does not modify it
+        syncView(() -> {
+            displayStyledDocument(model.getStyledDocument(context));
+            toolEditablePart.getPartModel().notifyPropertyChangedObserver(context, this, true);
 
-        // Initialize font to system font selection if document is empty
-        if (textPane.getText().length() == 0) {
-            textPane.setCharacterAttributes(WyldCard.getInstance().getFontManager().getFocusedTextStyle().toAttributeSet(), true);
-        }
+            // Initialize font to system font selection if document is empty
+            if (textPane.getText().length() == 0) {
+                textPane.setCharacterAttributes(WyldCard.getInstance().getFontManager().getFocusedTextStyle().toAttributeSet(), true);
+            }
+        });
 
         // And auto-select any
         SwingUtilities.invokeLater(() -> textPane.autoSelectLines(model.getAutoSelectedLines(context)));
@@ -252,8 +268,9 @@ public abstract class HyperCardTextField extends JScrollPane implements
 
         textPane.removeMouseListener(toolEditablePart);
         textPane.removeCaretListener(this);
-        textPane.addKeyListener(autoTabKeyObserver);
+        textPane.removeKeyListener(autoTabKeyObserver);
         textPane.removeMouseListener(autoSelectObserver);
+        textPane.removeMouseMotionListener(autoSelectObserver);
         textPane.removeFocusListener(focusObserver);
 
         getVerticalScrollBar().removeAdjustmentListener(scrollObserver);
@@ -261,6 +278,9 @@ public abstract class HyperCardTextField extends JScrollPane implements
         toolEditablePart.getPartModel().removePropertyChangedObserver(this);
         ((FieldModel) toolEditablePart.getPartModel()).setDocumentObserver(null);
 
+        // Only displayed text is held as a Swing document
+        ((FieldModel) toolEditablePart.getPartModel()).releaseStyledDocument(context);
+
         fontFamilySubscription.dispose();
         fontStyleSubscription.dispose();
         fontSizeSubscription.dispose();
@@ -388,10 +408,30 @@ public abstract class HyperCardTextField extends JScrollPane implements
         textPane.repaint();
     }
 
+    /**
+     * Makes the view match the model; changes made to the displayed document meanwhile do not mark the field modified.
+     */
+    @RunOnDispatch
+    private void syncView(Runnable sync) {
+        boolean wasSyncingView = syncingView;
+        syncingView = true;
+
+        try {
+            sync.run();
+        } finally {
+            syncingView = wasSyncingView;
+        }
+    }
+
     @RunOnDispatch
     private void syncModelToView(ExecutionContext context) {
         FieldModel model = (FieldModel) toolEditablePart.getPartModel();
-        model.setStyledDocument(context, textPane.getStyledDocument());
+        StyledDocument displayed = textPane.getStyledDocument();
+
+        // Don't write a document a script has replaced back over its replacement; the replacement is displayed shortly
+        if (!model.isReplacedDocument(context, displayed)) {
+            model.setStyledDocument(context, displayed);
+        }
     }
 
     @RunOnDispatch
@@ -31,6 +31,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * A base model object for all HyperCard "parts" that Defines properties common to all part objects.
@@ -59,6 +60,8 @@ public abstract class PartModel extends SimplePropertiesModel implements Messaga
     protected static final String ALIAS_BOTTOMRIGHT = "bottomright";
     protected static final String ALIAS_LOCATION = "location";
 
+    private static final AtomicIntegerFieldUpdater<PartModel> MODIFICATIONS = AtomicIntegerFieldUpdater.newUpdater(PartModel.class, "modifications");
+
     private final PartType type;
     private Owner owner;
     private int scriptEditorCaretPosition;
@@ -69,6 +72,8 @@ public abstract class PartModel extends SimplePropertiesModel implements Messaga
     private transient Script compiledScript;
     private transient long deferCompilation = 0;
     private transient long scriptHash;
+    private transient volatile long generation;
+    private transient volatile int modifications;       // Modifications of this part (or its parts) in progress
 
     public PartModel(PartType type, Owner owner, PartModel parentPartModel) {
         super();
@@ -266,6 +271,28 @@ public abstract class PartModel extends SimplePropertiesModel implements Messaga
         return this.compiledScript == null ? new Script() : this.compiledScript;
     }
 
+    /**
+     * Compiles this part's script ahead of its first use, if it has changed since it was last compiled. Unlike
+     * {@link #getScript(ExecutionContext)}, a script that does not compile is not reported here; it is reported when
+     * the script is first used.
+     *
+     * @param context The execution context
+     */
+    public synchronized void precompileScript(ExecutionContext context) {
+        if (isScriptDirty(context)) {
+            try {
+                String scriptText = getScriptText(context);
+                Script script = (Script) ScriptCompiler.blockingCompile(CompilationUnit.SCRIPT, scriptText);
+
+                if (script != null) {
+                    setScript(script, scriptText.hashCode());
+                }
+            } catch (HtException e) {
+                // Nothing to do; reported by getScript()
+            }
+        }
+    }
+
     private synchronized Script setScript(Script script, long scriptHash) {
         this.compiledScript = script;
         this.scriptHash = scriptHash;
@@ -378,6 +405,125 @@ public abstract class PartModel extends SimplePropertiesModel implements Messaga
         this.parentPartModel = parentPartModel;
     }
 
+    /**
+     * Gets this part's generation; a count that increases each time this part, or any part it contains, is modified.
+     * Generations are not persisted; they are meaningful only when compared to an earlier generation of the same part
+     * model object.
+     *
+     * @return The generation of this part
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Records that this part has been modified, advancing its generation and the generation of each of its ancestors.
+     */
+    public void markModified() {
+        markModified(this);
+    }
+
+    /**
+     * Records that a part contained by this part (or this part itself) has been modified.
+     *
+     * @param part The part that was modified, or null if the modification is not attributable to a single part (for
+     *             example, when a child part is removed)
+     */
+    protected void markModified(PartModel part) {
+        generation++;
+
+        if (parentPartModel != null) {
+            parentPartModel.markModified(part);
+        }
+    }
+
+    /**
+     * Determines whether a modification of this part, or of any part it contains, is in progress. A copy of a part
+     * made while it is being modified (or whose generation changed while it was being copied) may be inconsistent;
+     * see {@link #beginModification()}.
+     *
+     * @return True if this part is being modified
+     */
+    public boolean isBeingModified() {
+        return modifications > 0;
+    }
+
+    /**
+     * Makes a modification to this part, recording that it is in progress until it is complete and then advancing
+     * this part's generation. See {@link #beginModification()}.
+     *
+     * @param modification The modification to make
+     */
+    protected void modify(Runnable modification) {
+        modify(this, modification);
+    }
+
+    /**
+     * Makes a modification to this part, recording that it is in progress until it is complete and then advancing
+     * this part's generation. See {@link #beginModification()}.
+     *
+     * @param part         The part that is modified; see {@link #markModified(PartModel)}
+     * @param modification The modification to make
+     */
+    protected void modify(PartModel part, Runnable modification) {
+        beginModification();
+        try {
+            modification.run();
+        } finally {
+            markModified(part);
+            endModification();
+        }
+    }
+
+    /**
+     * Records that a modification of this part (and so of each of its ancestors) has begun. Together with this part's
+     * generation, this forms a sequence lock: a copy of this part is consistent only if the part was not being
+     * modified when the copy began, and was not being modified and had the same generation when the copy ended.
+     * Each invocation must be followed by one of {@link #endModification()}, after the part has been marked modified.
+     */
+    protected void beginModification() {
+        MODIFICATIONS.incrementAndGet(this);
+
+        if (parentPartModel != null) {
+            parentPartModel.beginModification();
+        }
+    }
+
+    /**
+     * Records that a modification begun with {@link #beginModification()} is complete.
+     */
+    protected void endModification() {
+        MODIFICATIONS.decrementAndGet(this);
+
+        if (parentPartModel != null) {
+            parentPartModel.endModification();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onPropertyModified(String propertyName) {
+        markModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onPropertyWriting(String propertyName) {
+        beginModification();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onPropertyWritten(String propertyName) {
+        endModification();
+    }
+
     public StackModel getParentStackModel() {
         if (this instanceof StackModel) {
             return (StackModel) this;
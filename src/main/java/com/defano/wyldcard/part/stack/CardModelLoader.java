@@ -0,0 +1,19 @@
+package com.defano.wyldcard.part.stack;
+
+import com.defano.wyldcard.part.card.CardModel;
+
+/**
+ * A source of card models for stacks whose cards are loaded on demand (i.e., the first time each card is accessed)
+ * rather than when the stack is opened.
+ */
+public interface CardModelLoader {
+
+    /**
+     * Loads the model of the given card.
+     *
+     * @param stub The stand-in for the card to load
+     * @return The loaded card model; never null
+     * @throws IllegalStateException Thrown if the card cannot be loaded
+     */
+    CardModel loadCard(CardStub stub);
+}
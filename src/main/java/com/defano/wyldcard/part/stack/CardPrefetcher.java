@@ -0,0 +1,215 @@
+package com.defano.wyldcard.part.stack;
+
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.LazyImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepares the cards either side of a stack's displayed card while it is being looked at, so that going to the next
+ * or previous card does not wait on work that could have been done in the meantime.
+ * <p>
+ * Once navigation settles (no card having been opened for {@value #SETTLE_DELAY_MS} ms), the next and previous cards
+ * are prepared, one at a time, on a low-priority background thread: each is loaded from the stack file (if it has not
+ * been already), its graphics and its background's are decoded, the text of its fields and its background's fields
+ * is converted from RTF (see {@link FieldModel#prepareText(ExecutionContext, int)}), and the scripts of the card, its
+ * background and their parts are compiled. Nothing is prepared on the dispatch thread.
+ * <p>
+ * Opening another card cancels any preparation in progress, and nothing is prepared while the screen is locked (as it
+ * is when a script is moving through cards). At most two cards are prepared for each card opened, and a prepared card
+ * holds nothing that opening it would not: its images decoded, its text as styled text rather than a Swing document,
+ * and its compiled scripts.
+ */
+public class CardPrefetcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardPrefetcher.class);
+    private static final long SETTLE_DELAY_MS = 150;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final StackPart stack;
+    private final Set<CardModel> prepared = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private final AtomicLong request = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    private final AtomicLong openCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong openNanos = new AtomicLong();
+    private final AtomicLong hitOpenNanos = new AtomicLong();
+
+    CardPrefetcher(StackPart stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * Records that a card has been opened (counting it as a hit if it had been prepared), and schedules the cards
+     * either side of it to be prepared once navigation settles. Cancels any preparation in progress.
+     *
+     * @param context   The execution context
+     * @param card      The card that was opened
+     * @param cardIndex The index of the card in the stack
+     * @param nanos     The time taken to open the card, in nanoseconds
+     */
+    synchronized void onCardOpened(ExecutionContext context, CardModel card, int cardIndex, long nanos) {
+        cancel();
+
+        boolean hit = prepared.remove(card);
+        record(hit, nanos);
+        prepared.clear();
+
+        long thisRequest = request.get();
+        pending = executor.schedule(() -> prefetch(context, thisRequest, cardIndex), SETTLE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels any pending or in-progress preparation; cards already prepared remain so.
+     */
+    synchronized void cancel() {
+        request.incrementAndGet();
+
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Gets the number of cards opened.
+     *
+     * @return The number of cards opened since the stack was opened
+     */
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * Gets the fraction of cards opened that had been prepared ahead of being opened.
+     *
+     * @return The hit rate, from 0 to 1, or 0 if no card has been opened
+     */
+    public double getHitRate() {
+        long opens = openCount.get();
+        return opens == 0 ? 0 : (double) hitCount.get() / opens;
+    }
+
+    /**
+     * Gets the mean time taken to open a card, either of cards that had been prepared or of those that had not.
+     *
+     * @param hit True for cards that had been prepared; false for those that had not
+     * @return The mean time in milliseconds, or 0 if no such card has been opened
+     */
+    public double getMeanOpenMillis(boolean hit) {
+        long opens = hit ? hitCount.get() : openCount.get() - hitCount.get();
+        long nanos = hit ? hitOpenNanos.get() : openNanos.get() - hitOpenNanos.get();
+        return opens == 0 ? 0 : nanos / 1e6 / opens;
+    }
+
+    private void record(boolean hit, long nanos) {
+        openCount.incrementAndGet();
+        openNanos.addAndGet(nanos);
+
+        if (hit) {
+            hitCount.incrementAndGet();
+            hitOpenNanos.addAndGet(nanos);
+        }
+
+        LOG.debug("Opened card in {} ms ({}); hit rate {}%, mean {} ms prepared, {} ms not.",
+                String.format("%.1f", nanos / 1e6), hit ? "prepared" : "not prepared",
+                Math.round(getHitRate() * 100), String.format("%.1f", getMeanOpenMillis(true)), String.format("%.1f", getMeanOpenMillis(false)));
+    }
+
+    private void prefetch(ExecutionContext context, long thisRequest, int cardIndex) {
+        StackModel stackModel = stack.getStackModel();
+
+        // Going next from the last card wraps around to the first, and previous from the first to the last
+        for (int offset : new int[]{1, -1}) {
+            if (isCancelled(thisRequest)) {
+                return;
+            }
+
+            int count = stackModel.getCardCount();
+            if (count < 2) {
+                return;
+            }
+
+            try {
+                CardModel card = stackModel.getCardModel(Math.floorMod(cardIndex + offset, count));
+                if (!prepared.contains(card) && prepare(context, thisRequest, card)) {
+                    prepared.add(card);
+                }
+            } catch (RuntimeException e) {
+                // Preparation is only an optimization; whatever went wrong will happen again when the card is opened
+                LOG.debug("Failed to prepare card.", e);
+            }
+        }
+    }
+
+    /**
+     * Prepares a card to be opened.
+     *
+     * @return False if cancelled before the card was completely prepared
+     */
+    private boolean prepare(ExecutionContext context, long thisRequest, CardModel card) {
+        BackgroundModel background = card.getBackgroundModel();
+
+        decode(card.getStoredCardImage());
+        decode(background.getStoredBackgroundImage());
+
+        List<FieldModel> fields = new ArrayList<>(card.getFieldModels());
+        fields.addAll(background.getFieldModels());
+
+        for (FieldModel field : fields) {
+            if (isCancelled(thisRequest)) {
+                return false;
+            }
+
+            field.prepareText(context, card.getId());
+        }
+
+        List<PartModel> parts = new ArrayList<>();
+        parts.add(card);
+        parts.add(background);
+        parts.addAll(card.getPartModels(context));
+        parts.addAll(background.getPartModels(context));
+
+        for (PartModel part : parts) {
+            if (isCancelled(thisRequest)) {
+                return false;
+            }
+
+            part.precompileScript(context);
+        }
+
+        return true;
+    }
+
+    private boolean isCancelled(long thisRequest) {
+        return request.get() != thisRequest || stack.getCurtainManager().isScreenLocked();
+    }
+
+    private static void decode(LazyImage image) {
+        if (image != null) {
+            image.get();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.defano.wyldcard.part.stack;
+
+/**
+ * A lightweight stand-in for a card whose model has not yet been loaded into its stack (see {@link CardModelLoader}).
+ * Carries just enough about the card to answer questions about the stack's structure (like the number of cards in a
+ * background, or the position of a card with a given id) without loading the card itself.
+ */
+public class CardStub {
+
+    private final int id;
+    private final int backgroundId;
+    private final boolean marked;
+
+    public CardStub(int id, int backgroundId, boolean marked) {
+        this.id = id;
+        this.backgroundId = backgroundId;
+        this.marked = marked;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getBackgroundId() {
+        return backgroundId;
+    }
+
+    public boolean isMarked() {
+        return marked;
+    }
+}
@@ -17,7 +17,7 @@ import com.defano.wyldcard.part.finder.StackPartFinder;
 import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.pattern.WyldCardPatternFactory;
 import com.defano.wyldcard.runtime.ExecutionContext;
-import com.defano.wyldcard.serializer.Serializer;
+import com.defano.wyldcard.serializer.Detached;
 import io.reactivex.Observable;
 import io.reactivex.subjects.BehaviorSubject;
 import io.reactivex.subjects.Subject;
@@ -26,15 +26,13 @@ import javax.annotation.PostConstruct;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class StackModel extends PartModel implements StackPartFinder, NamedPart {
 
     public static final String FILE_EXTENSION = ".stack";
+    public static final String ARCHIVE_FILE_EXTENSION = ".stackz";
     public static final String PROP_CANTPEEK = "cantpeek";
     public static final String PROP_CANTABORT = "cantabort";
     public static final String PROP_RESIZABLE = "resizable";
@@ -43,18 +41,27 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     public static final String PROP_LONGNAME = "long name";
 
     private Value windowPosition;
-    private Map<Integer, BackgroundModel> backgroundModels = new HashMap<>();
+    @Detached private Map<Integer, BackgroundModel> backgroundModels = new HashMap<>();
     private Map<String, BufferedImage> userIcons;
     private Map<Integer, BufferedImage> userPatterns;
 
     // Model properties that are not HyperTalk-addressable
     private int currentCardIndex = 0;
-    private List<CardModel> cardModels = new ArrayList<>();
+    @Detached private List<CardModel> cardModels = new ArrayList<>();
+
+    // Cards that have not yet been loaded (null entries in cardModels); null when every card has been loaded
+    private transient List<CardStub> cardStubs;
+    // The source of unloaded cards; retained after every card is loaded to identify the file the cards came from
+    private transient CardModelLoader cardModelLoader;
+    private transient int unloadedCardCount;
+    private final transient Object cardLock = new Object();
 
     // The location where this stack was saved to, or opened from, on disk. Null if the stack has not been saved.
     private transient Subject<Optional<File>> savedStackFileProvider;
     private transient int nextPartId = new Random().nextInt();
     private transient boolean isBeingClosed = false;
+    private transient volatile long localGeneration;
+    private transient long savedGeneration;
 
     public StackModel() {
         super(PartType.STACK, Owner.HYPERCARD, null);
@@ -121,7 +128,9 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     @Override
     public void relinkParentPartModel(PartModel parentPartModel) {
         this.setParentPartModel(parentPartModel);
-        cardModels.forEach(model -> model.relinkParentPartModel(this));
+        synchronized (cardLock) {
+            cardModels.stream().filter(Objects::nonNull).forEach(model -> model.relinkParentPartModel(this));
+        }
         backgroundModels.values().forEach(model -> model.relinkParentPartModel(this));
     }
 
@@ -130,7 +139,10 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     }
 
     public void setWindowPosition(Value windowPosition) {
-        this.windowPosition = windowPosition;
+        if (!String.valueOf(windowPosition).equals(String.valueOf(this.windowPosition))) {
+            this.windowPosition = windowPosition;
+            markModified();
+        }
     }
 
     public Observable<Optional<File>> getSavedStackFileProvider() {
@@ -143,9 +155,12 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
         String filename = file.getName();
         if (filename.endsWith(FILE_EXTENSION)) {
             filename = filename.substring(0, filename.length() - FILE_EXTENSION.length());
+        } else if (filename.endsWith(ARCHIVE_FILE_EXTENSION)) {
+            filename = filename.substring(0, filename.length() - ARCHIVE_FILE_EXTENSION.length());
         }
 
         set(context, PROP_NAME, new Value(filename));
+        savedGeneration = getGeneration();
     }
 
     public int getNextButtonId(int parentPartId) {
@@ -173,25 +188,41 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     }
 
     public void addCard(CardModel cardModel) {
-        cardModels.add(cardModel);
+        synchronized (cardLock) {
+            addCard(cardModel, cardModels.size());
+        }
     }
 
     public void addCard(CardModel cardModel, int atIndex) {
-        cardModels.add(atIndex, cardModel);
+        modify(cardModel, () -> {
+            synchronized (cardLock) {
+                cardModels.add(atIndex, cardModel);
+                if (cardStubs != null) {
+                    cardStubs.add(atIndex, null);
+                }
+            }
+        });
     }
 
     public void addBackground(BackgroundModel backgroundModel) {
-        backgroundModels.put(backgroundModel.getId(), backgroundModel);
+        modify(backgroundModel, () -> backgroundModels.put(backgroundModel.getId(), backgroundModel));
     }
 
     public int newBackground() {
         int newBackgroundId = getNextBackgroundId();
-        backgroundModels.put(newBackgroundId, new BackgroundModelBuilder(this).withId(newBackgroundId).build());
+        addBackground(new BackgroundModelBuilder(this).withId(newBackgroundId).build());
         return newBackgroundId;
     }
 
     public void deleteCurrentCard() {
-        cardModels.remove(currentCardIndex);
+        modify(null, () -> {
+            synchronized (cardLock) {
+                cardModels.remove(currentCardIndex);
+                if (cardStubs != null && cardStubs.remove(currentCardIndex) != null) {
+                    unloadedCardCount--;
+                }
+            }
+        });
     }
 
     public String getStackName(ExecutionContext context) {
@@ -202,24 +233,133 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
         set(context, PROP_NAME, new Value(name));
     }
 
+    /**
+     * Gets the models of every card in this stack, in stack order. Loads any cards that have not yet been loaded; use
+     * {@link #getCardModel(int)} or {@link #getCardCount()} when only some cards are required.
+     *
+     * @return The cards in this stack
+     */
     public List<CardModel> getCardModels() {
-        return new ArrayList<>(cardModels);
+        synchronized (cardLock) {
+            loadAllCards();
+            return new ArrayList<>(cardModels);
+        }
     }
 
     public void setCardModels(List<CardModel> cardModels) {
-        this.cardModels = cardModels;
+        modify(null, () -> {
+            synchronized (cardLock) {
+                this.cardModels = cardModels;
+                this.cardStubs = null;
+                this.cardModelLoader = null;
+                this.unloadedCardCount = 0;
+            }
+        });
     }
 
+    /**
+     * Gets the model of the card at the given position in this stack, loading it first if needed.
+     *
+     * @param index The zero-based index of the card
+     * @return The card model
+     */
     public CardModel getCardModel(int index) {
-        return cardModels.get(index);
+        synchronized (cardLock) {
+            CardModel card = cardModels.get(index);
+            return card == null ? loadCard(index) : card;
+        }
+    }
+
+    /**
+     * Defers loading the cards of this stack; each card is loaded from the given loader the first time it is accessed.
+     * Replaces any cards presently in the stack.
+     *
+     * @param stubs  Stand-ins for each card in this stack, in stack order
+     * @param loader The source of card models
+     */
+    public void setCardStubs(List<CardStub> stubs, CardModelLoader loader) {
+        synchronized (cardLock) {
+            this.cardModels = new ArrayList<>(Collections.nCopies(stubs.size(), null));
+            this.cardStubs = new ArrayList<>(stubs);
+            this.cardModelLoader = loader;
+            this.unloadedCardCount = stubs.size();
+        }
+    }
+
+    /**
+     * Gets the stand-in for the card at the given position in this stack, if that card has not yet been loaded.
+     *
+     * @param index The zero-based index of the card
+     * @return The card's stub, or null if the card has been loaded
+     */
+    public CardStub getCardStub(int index) {
+        synchronized (cardLock) {
+            return cardStubs == null ? null : cardStubs.get(index);
+        }
+    }
+
+    /**
+     * Gets the loader from which this stack's cards are (or were) loaded. The loader is retained after every card has
+     * been loaded.
+     *
+     * @return The card loader, or null if this stack's cards were not loaded lazily
+     */
+    public CardModelLoader getCardModelLoader() {
+        synchronized (cardLock) {
+            return cardModelLoader;
+        }
+    }
+
+    /**
+     * Replaces the loader associated with this stack. Intended for use after every card has been written to a new
+     * location from which the given loader reads them; has no effect on cards that have already been loaded.
+     *
+     * @param loader The card loader
+     */
+    public void setCardModelLoader(CardModelLoader loader) {
+        synchronized (cardLock) {
+            this.cardModelLoader = loader;
+        }
+    }
+
+    /**
+     * Loads every card in this stack that has not yet been loaded. Has no effect if all cards are loaded.
+     */
+    public void loadAllCards() {
+        synchronized (cardLock) {
+            for (int index = 0; cardStubs != null && index < cardStubs.size(); index++) {
+                if (cardModels.get(index) == null) {
+                    loadCard(index);
+                }
+            }
+        }
+    }
+
+    private CardModel loadCard(int index) {
+        CardModel card = cardModelLoader.loadCard(cardStubs.get(index));
+        card.relinkParentPartModel(this);
+
+        cardModels.set(index, card);
+        cardStubs.set(index, null);
+
+        // Forget about stubs once every card has been loaded
+        if (--unloadedCardCount == 0) {
+            cardStubs = null;
+        }
+
+        return card;
     }
 
     public boolean hasCard(CardModel cardModel) {
-        return cardModels.contains(cardModel);
+        synchronized (cardLock) {
+            return cardModels.contains(cardModel);
+        }
     }
 
     public int getCardCount() {
-        return cardModels.size();
+        synchronized (cardLock) {
+            return cardModels.size();
+        }
     }
 
     public int getCurrentCardIndex() {
@@ -235,27 +375,43 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     }
 
     public int getIndexOfCard(CardModel card) {
-        return cardModels.indexOf(card);
+        synchronized (cardLock) {
+            return cardModels.indexOf(card);
+        }
     }
 
     public Integer getIndexOfCardId(int cardId) {
-        return cardModels.stream()
-                .filter(c -> c.getId() == cardId)
-                .map(c -> cardModels.indexOf(c))
-                .findFirst()
-                .orElse(null);
+        synchronized (cardLock) {
+            for (int index = 0; index < cardModels.size(); index++) {
+                if (getCardId(index) == cardId) {
+                    return index;
+                }
+            }
+        }
+
+        return null;
     }
 
     public int getIndexOfBackground(int backgroundId) {
-        Optional<CardModel> card = cardModels.stream()
-                .filter(c -> c.getBackgroundId() == backgroundId)
-                .findFirst();
-
-        if (card.isPresent()) {
-            return getIndexOfCard(card.get());
-        } else {
-            throw new IllegalArgumentException("No such background.");
+        synchronized (cardLock) {
+            for (int index = 0; index < cardModels.size(); index++) {
+                if (getCardBackgroundId(index) == backgroundId) {
+                    return index;
+                }
+            }
         }
+
+        throw new IllegalArgumentException("No such background.");
+    }
+
+    private int getCardId(int index) {
+        CardModel card = cardModels.get(index);
+        return card == null ? cardStubs.get(index).getId() : card.getId();
+    }
+
+    private int getCardBackgroundId(int index) {
+        CardModel card = cardModels.get(index);
+        return card == null ? cardStubs.get(index).getBackgroundId() : card.getBackgroundId();
     }
 
     public boolean isResizable(ExecutionContext context) {
@@ -291,20 +447,41 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
         return backgroundModels.get(backgroundId);
     }
 
+    public Collection<BackgroundModel> getBackgroundModels() {
+        return new ArrayList<>(backgroundModels.values());
+    }
+
     public int getBackgroundCount() {
         return backgroundModels.size();
     }
 
     public List<CardModel> getMarkedCards(ExecutionContext context) {
-        return getCardModels().stream()
-                .filter(c -> c.get(context, CardModel.PROP_MARKED).booleanValue())
-                .collect(Collectors.toList());
+        ArrayList<CardModel> marked = new ArrayList<>();
+
+        synchronized (cardLock) {
+            for (int index = 0; index < cardModels.size(); index++) {
+                CardModel card = cardModels.get(index);
+                if (card == null ? cardStubs.get(index).isMarked() : card.get(context, CardModel.PROP_MARKED).booleanValue()) {
+                    marked.add(getCardModel(index));
+                }
+            }
+        }
+
+        return marked;
     }
 
     public List<CardModel> getCardsInBackground(int backgroundId) {
-        return getCardModels().stream()
-                .filter(c -> c.getBackgroundId() == backgroundId)
-                .collect(Collectors.toList());
+        ArrayList<CardModel> cards = new ArrayList<>();
+
+        synchronized (cardLock) {
+            for (int index = 0; index < cardModels.size(); index++) {
+                if (getCardBackgroundId(index) == backgroundId) {
+                    cards.add(getCardModel(index));
+                }
+            }
+        }
+
+        return cards;
     }
 
     @Override
@@ -319,6 +496,7 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
 
     public void createIcon(String name, BufferedImage image) {
         userIcons.put(name, image);
+        markModified();
     }
 
     public List<ButtonIcon> getUserIcons() {
@@ -337,6 +515,30 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     public void setUserPattern(int patternId, BufferedImage pattern) {
         userPatterns.put(patternId, pattern);
         WyldCardPatternFactory.getInstance().invalidatePatternCache();
+        markModified();
+    }
+
+    /**
+     * Gets the generation of the stack itself: a count that increases each time the stack's own properties, icons or
+     * patterns are modified. Unlike {@link #getGeneration()}, modifications to the stack's cards and backgrounds are
+     * not counted.
+     *
+     * @return The local generation of this stack
+     */
+    public long getLocalGeneration() {
+        return localGeneration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void markModified(PartModel part) {
+        if (part == this) {
+            localGeneration++;
+        }
+
+        super.markModified(part);
     }
 
     /**
@@ -358,22 +560,16 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
     }
 
     /**
-     * A cheesy and expensive mechanism to determine if the user has made a change to the stack since it was last opened.
+     * Determines if the user has made a change to the stack since it was last opened or saved; that is, if the stack's
+     * generation has advanced since then. A stack that has never been saved is dirty unless it is empty.
+     * <p>
+     * Neither serializes the stack nor loads any card other than the current one.
      *
      * @return True if the stack has changes; false otherwise
      */
     public boolean isDirty() {
-        Optional<File> stackFile = savedStackFileProvider.blockingFirst();
-
-        if (stackFile.isPresent()) {
-            try {
-                String savedStack = new String(Files.readAllBytes(stackFile.get().toPath()), StandardCharsets.UTF_8);
-                String currentStack = Serializer.serialize(this);
-
-                return !isEmpty() && !savedStack.equalsIgnoreCase(currentStack);
-            } catch (Exception e) {
-                return true;
-            }
+        if (savedStackFileProvider.blockingFirst().isPresent()) {
+            return getGeneration() != savedGeneration && !isEmpty();
         }
 
         return !isEmpty();
@@ -457,6 +653,28 @@ public class StackModel extends PartModel implements StackPartFinder, NamedPart
                 .orElseGet(() -> getAbbreviatedName(context));
     }
 
+    /**
+     * Determines if the given file name has an extension identifying it as a stack (in either the JSON document or
+     * archive format).
+     *
+     * @param fileName The file name to test
+     * @return True if the name identifies a stack file; false otherwise
+     */
+    public static boolean isStackFileName(String fileName) {
+        return fileName.endsWith(FILE_EXTENSION) || isArchiveFileName(fileName);
+    }
+
+    /**
+     * Determines if the given file name identifies a stack saved in the archive format (see
+     * {@link com.defano.wyldcard.serializer.StackArchive}).
+     *
+     * @param fileName The file name to test
+     * @return True if the name identifies a stack archive; false otherwise
+     */
+    public static boolean isArchiveFileName(String fileName) {
+        return fileName.endsWith(ARCHIVE_FILE_EXTENSION);
+    }
+
     public String getStackPath(ExecutionContext context) {
         return savedStackFileProvider.blockingFirst()
                 .map(File::getAbsolutePath)
@@ -27,6 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -39,6 +42,7 @@ import java.util.Set;
 public class StackPart implements Part<StackModel>, PropertyChangeObserver {
 
     private static final Logger LOG = LoggerFactory.getLogger(StackPart.class);
+    private static final int MAX_CLOSED_CARDS = 4;
     private final NavigationManager navigationManager = WyldCard.getInstance().getNavigationManager();
 
     private final StackModel stackModel;
@@ -47,8 +51,12 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
     private final Set<StackNavigationObserver> stackNavigationObservers = new HashSet<>();
     private final Subject<Integer> cardCountProvider = BehaviorSubject.createDefault(0);
     private final Subject<Optional<CardPart>> cardClipboardProvider = BehaviorSubject.createDefault(Optional.empty());
+    private final CardPrefetcher cardPrefetcher = new CardPrefetcher(this);
     private CardPart currentCard;
 
+    // Cards last closed on each of the most recently displayed backgrounds, retained to be reopened (least recent first)
+    private final Map<BackgroundModel, CardPart> closedCards = new LinkedHashMap<>(MAX_CLOSED_CARDS + 1, 0.75f, true);
+
     private StackPart(StackModel stackModel) {
         this.stackModel = stackModel;
     }
@@ -302,6 +310,16 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
         stackNavigationObservers.remove(observer);
     }
 
+    /**
+     * Gets the prefetcher preparing the cards either side of the displayed card, from which hit rate and card opening
+     * time are available.
+     *
+     * @return The card prefetcher
+     */
+    public CardPrefetcher getCardPrefetcher() {
+        return cardPrefetcher;
+    }
+
     public CurtainManager getCurtainManager() {
         return curtainManager;
     }
@@ -369,8 +387,13 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
             // Stop editing background when card changes
             WyldCard.getInstance().getPaintManager().setIsEditingBackground(false);
 
-            // Close the currently displayed card
-            displayedCard.partClosed(context);
+            // Close the currently displayed card, retaining its background layer to be reopened on a later card
+            if (newCard == null) {
+                displayedCard.partClosed(context);
+            } else {
+                displayedCard.partClosed(context, true);
+                retainClosedCard(displayedCard);
+            }
 
             // Send 'closeBackground' message as needed
             if (newCard == null || (newCard.getBackgroundModel() != displayedCard.getPartModel().getBackgroundModel())) {
@@ -391,9 +414,11 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
     public CardPart openCard(ExecutionContext context, int cardIndex, CardModel oldCard) {
 
         try {
+            long openedAt = System.nanoTime();
+
             // Change card
             stackModel.setCurrentCardIndex(cardIndex);
-            currentCard = loadCard(context, cardIndex);
+            currentCard = reopenCard(context, cardIndex);
 
             // Notify observers of new card
             fireOnCardOpened(oldCard, currentCard);
@@ -406,6 +431,9 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
             // Reactivate paint tool on new card's canvas
             WyldCard.getInstance().getPaintManager().reactivateTool(currentCard.getActiveCanvas());
 
+            // Prepare the cards either side of this one
+            cardPrefetcher.onCardOpened(new ExecutionContext(currentCard), currentCard.getPartModel(), cardIndex, System.nanoTime() - openedAt);
+
             return currentCard;
 
         } catch (Exception e) {
@@ -413,6 +441,46 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
         }
     }
 
+    /**
+     * Reopens the card last closed on the identified card's background on the identified card, or loads the card
+     * anew if no such card can be reopened. Unlike {@link #loadCard(ExecutionContext, int)}, cards sharing a
+     * background thereby share their background graphics, buttons and fields, which are not rebuilt on each card.
+     */
+    private CardPart reopenCard(ExecutionContext context, int cardIndex) {
+        CardModel cardModel = stackModel.getCardModel(cardIndex);
+        CardPart closedCard = closedCards.remove(cardModel.getBackgroundModel());
+
+        if (closedCard != null) {
+            if (closedCard.canReopen(context, cardModel)) {
+                closedCard.reopen(context, cardModel);
+                return closedCard;
+            }
+
+            closedCard.discard();
+        }
+
+        return loadCard(context, cardIndex);
+    }
+
+    private void retainClosedCard(CardPart card) {
+        CardPart replaced = closedCards.put(card.getPartModel().getBackgroundModel(), card);
+        if (replaced != null && replaced != card) {
+            replaced.discard();
+        }
+
+        // Discard the cards of the least recently displayed backgrounds
+        Iterator<CardPart> iterator = closedCards.values().iterator();
+        while (closedCards.size() > MAX_CLOSED_CARDS) {
+            iterator.next().discard();
+            iterator.remove();
+        }
+    }
+
+    private void discardClosedCards() {
+        closedCards.values().forEach(CardPart::discard);
+        closedCards.clear();
+    }
+
     private void insertCard(CardModel cardModel) {
         getStackModel().addCard(cardModel, getStackModel().getCurrentCardIndex() + 1);
         getStackModel().receiveMessage(new ExecutionContext(), SystemMessage.NEW_CARD);
@@ -486,7 +554,10 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
 
     @Override
     public void partOpened(ExecutionContext context) {
+        long openedAt = System.nanoTime();
         currentCard = loadCard(context, getStackModel().getCurrentCardIndex());
+        cardPrefetcher.onCardOpened(new ExecutionContext(currentCard), currentCard.getPartModel(), getStackModel().getCurrentCardIndex(), System.nanoTime() - openedAt);
+
         getStackModel().receiveMessage(context.bindStack(this), SystemMessage.OPEN_STACK);
 
         fireOnCardOpened(null, getDisplayedCard());
@@ -495,7 +566,9 @@ public class StackPart implements Part<StackModel>, PropertyChangeObserver {
 
     @Override
     public void partClosed(ExecutionContext context) {
+        cardPrefetcher.cancel();
         closeCard(context, null);
+        Invoke.onDispatch(this::discardClosedCards);
         fireOnStackClosed();
     }
 }
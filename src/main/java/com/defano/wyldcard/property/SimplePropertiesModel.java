@@ -9,6 +9,7 @@ import com.defano.wyldcard.part.model.PropertyChangeObserver;
 import com.defano.wyldcard.property.builder.PropertyBuilder;
 import com.defano.wyldcard.property.builder.PropertyValueBuilder;
 import com.defano.wyldcard.property.value.BasicValue;
+import com.defano.wyldcard.property.value.ConcreteValue;
 import com.defano.wyldcard.runtime.ExecutionContext;
 import com.defano.wyldcard.thread.Invoke;
 
@@ -93,7 +94,14 @@ public class SimplePropertiesModel implements PropertiesModel, PropertyBuilder {
             throw new HtNoSuchPropertyException("No such property '" + propertyName + "'.");
         }
 
-        p.value().set(context, propertyValue, this);
+        Value oldValue = getRawValue(p);
+        onPropertyWriting(p.name());
+        try {
+            p.value().set(context, propertyValue, this);
+            fireOnPropertyModified(p, oldValue);
+        } finally {
+            onPropertyWritten(p.name());
+        }
         fireOnPropertyChanged(context, p.name(), get(context, propertyName), propertyValue);
     }
 
@@ -200,7 +208,14 @@ public class SimplePropertiesModel implements PropertiesModel, PropertyBuilder {
         }
 
         try {
-            p.value().set(context, propertyValue, this);
+            Value oldValue = getRawValue(p);
+            onPropertyWriting(p.name());
+            try {
+                p.value().set(context, propertyValue, this);
+                fireOnPropertyModified(p, oldValue);
+            } finally {
+                onPropertyWritten(p.name());
+            }
 
             if (notifyObservers) {
                 fireOnPropertyChanged(context, p.name(), get(context, propertyName), propertyValue);
@@ -211,6 +226,54 @@ public class SimplePropertiesModel implements PropertiesModel, PropertyBuilder {
         }
     }
 
+    /**
+     * Invoked after the value of a property in this model has been written, whether or not observers were notified of
+     * the change. Writes to a stored property that leave its value unchanged are not reported; writes to computed or
+     * delegated properties are always reported. Subclasses override this method to track modifications to the model;
+     * the default implementation does nothing.
+     *
+     * @param propertyName The name of the property that was written
+     */
+    protected void onPropertyModified(String propertyName) {
+        // Nothing to do
+    }
+
+    /**
+     * Invoked before the value of a property in this model is written. Each invocation is followed by one of
+     * {@link #onPropertyWritten(String)} once the write is complete, whether or not it succeeded or changed the
+     * property's value. The default implementation does nothing.
+     *
+     * @param propertyName The name of the property about to be written
+     */
+    protected void onPropertyWriting(String propertyName) {
+        // Nothing to do
+    }
+
+    /**
+     * Invoked after the value of a property in this model has been written (or the write failed); see
+     * {@link #onPropertyWriting(String)}. The default implementation does nothing.
+     *
+     * @param propertyName The name of the property that was written
+     */
+    protected void onPropertyWritten(String propertyName) {
+        // Nothing to do
+    }
+
+    private Value getRawValue(Property p) {
+        return p.value() instanceof ConcreteValue ? ((ConcreteValue) p.value()).rawValue() : null;
+    }
+
+    private void fireOnPropertyModified(Property p, Value oldValue) {
+        if (p.value() instanceof ConcreteValue) {
+            Value newValue = ((ConcreteValue) p.value()).rawValue();
+            if (String.valueOf(oldValue).equals(String.valueOf(newValue))) {
+                return;
+            }
+        }
+
+        onPropertyModified(p.name());
+    }
+
     /**
      * Notify all the observers that the given property has changed value.
      *
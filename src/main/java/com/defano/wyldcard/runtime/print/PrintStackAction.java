@@ -1,15 +1,15 @@
 package com.defano.wyldcard.runtime.print;
 
 import com.defano.wyldcard.WyldCard;
-import com.defano.wyldcard.part.stack.StackPart;
 import com.defano.wyldcard.runtime.ExecutionContext;
 
 import java.awt.*;
 import java.awt.print.PageFormat;
+import java.awt.print.PrinterException;
 
 public class PrintStackAction extends PrintActionDelegate {
 
-    private int currentCard;
+    private StackPrintable stackPrintable;
 
     @Override
     public void onPrintRequested() {
@@ -18,31 +18,21 @@ public class PrintStackAction extends PrintActionDelegate {
 
     @Override
     public void onPrintStarted() {
-        this.currentCard = WyldCard.getInstance().getStackManager().getFocusedCard().getPartModel().getCardIndexInStack();
+        // Cards are printed from their models; there's no need to navigate to each
+        this.stackPrintable = new StackPrintable(new ExecutionContext(), WyldCard.getInstance().getStackManager().getFocusedStack().getStackModel());
     }
 
     @Override
     protected void onPrintCompleted(boolean successfully) {
-        StackPart focusedStack = WyldCard.getInstance().getStackManager().getFocusedStack();
-        WyldCard.getInstance().getNavigationManager().goCard(new ExecutionContext(), focusedStack, currentCard, false);
+        if (stackPrintable != null) {
+            stackPrintable.close();
+            stackPrintable = null;
+        }
     }
 
     @Override
-    public int print(Graphics g, PageFormat pageFormat, int pageIndex) {
-        StackPart focusedStack = WyldCard.getInstance().getStackManager().getFocusedStack();
-
-        if (pageIndex < WyldCard.getInstance().getStackManager().getFocusedStack().getCardCountProvider().blockingFirst()) {
-            // Translate printable content to top-left printable coordinate of the page
-            Graphics2D g2d = (Graphics2D)g;
-            g2d.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
-
-            // Need to transition to card in order to print it
-            WyldCard.getInstance().getNavigationManager().goCard(new ExecutionContext(), focusedStack, pageIndex, false).printAll(g);
-
-            return PAGE_EXISTS;
-        } else {
-            return NO_SUCH_PAGE;
-        }
+    public int print(Graphics g, PageFormat pageFormat, int pageIndex) throws PrinterException {
+        return stackPrintable == null ? NO_SUCH_PAGE : stackPrintable.print(g, pageFormat, pageIndex);
     }
 
 }
@@ -0,0 +1,157 @@
+package com.defano.wyldcard.runtime.print;
+
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.card.CardRenderer;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prints each card of a stack on its own page, drawing each from the card's model (see {@link CardRenderer}) rather
+ * than navigating to it; no card is opened or closed and the displayed card is undisturbed.
+ * <p>
+ * Pages are rendered ahead of the printer, in parallel on background threads, into a spool of at most
+ * {@value #SPOOL_CAPACITY} pages; each page taken by the printer (in order) makes room for the next to be rendered.
+ * The printer may ask for the same page more than once; the page most recently taken is kept until the printer moves
+ * on.
+ */
+public class StackPrintable implements Printable, AutoCloseable {
+
+    private static final int SPOOL_CAPACITY = 4;
+    private static final int PRINT_SCALE = 2;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(SPOOL_CAPACITY, Runtime.getRuntime().availableProcessors() - 1)), runnable -> {
+        Thread thread = new Thread(runnable, "print-spooler-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutionContext context;
+    private final List<CardModel> cards;
+    private final Dimension cardSize;
+
+    private final Deque<Future<BufferedImage>> spool = new ArrayDeque<>();
+    private int spoolStart;
+    private int currentPageIndex = -1;
+    private BufferedImage currentPage;
+
+    /**
+     * Creates a printable of the given stack's cards, as they are now; cards added to the stack hereafter are not
+     * printed.
+     *
+     * @param context The execution context
+     * @param stack   The stack to print
+     */
+    public StackPrintable(ExecutionContext context, StackModel stack) {
+        this.context = context;
+        this.cards = new ArrayList<>(stack.getCardModels());
+        this.cardSize = stack.getSize(context);
+    }
+
+    /**
+     * Gets the number of pages to be printed; one for each card.
+     *
+     * @return The number of pages
+     */
+    public int getPageCount() {
+        return cards.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int print(Graphics g, PageFormat pageFormat, int pageIndex) throws PrinterException {
+        if (pageIndex < 0 || pageIndex >= cards.size()) {
+            return NO_SUCH_PAGE;
+        }
+
+        BufferedImage page = getPage(pageIndex);
+
+        // Translate printable content to top-left printable coordinate of the page
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
+        g2d.drawImage(page, 0, 0, cardSize.width, cardSize.height, null);
+
+        return PAGE_EXISTS;
+    }
+
+    /**
+     * Discards every spooled page, cancelling those not yet rendered.
+     */
+    @Override
+    public synchronized void close() {
+        while (!spool.isEmpty()) {
+            spool.poll().cancel(true);
+        }
+
+        currentPage = null;
+        currentPageIndex = -1;
+    }
+
+    /**
+     * Gets the image of the given page, waiting for it to be rendered if need be.
+     */
+    private synchronized BufferedImage getPage(int pageIndex) throws PrinterException {
+        if (pageIndex == currentPageIndex) {
+            return currentPage;
+        }
+
+        // Discard pages the printer has skipped, or everything if it has gone back to an earlier page
+        if (pageIndex < spoolStart) {
+            close();
+        }
+
+        while (spoolStart < pageIndex && !spool.isEmpty()) {
+            spool.poll().cancel(true);
+            spoolStart++;
+        }
+
+        if (spool.isEmpty()) {
+            spoolStart = pageIndex;
+        }
+
+        fill();
+
+        try {
+            currentPage = spool.poll().get();
+            currentPageIndex = pageIndex;
+            spoolStart++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PrinterException("Interrupted while printing card " + (pageIndex + 1) + ".");
+        } catch (ExecutionException e) {
+            PrinterException pe = new PrinterException("Failed to print card " + (pageIndex + 1) + ".");
+            pe.initCause(e.getCause());
+            throw pe;
+        }
+
+        fill();
+        return currentPage;
+    }
+
+    /**
+     * Queues the pages following those in the spool to be rendered, until the spool is full or every page is spooled.
+     */
+    private void fill() {
+        while (spool.size() < SPOOL_CAPACITY && spoolStart + spool.size() < cards.size()) {
+            CardModel card = cards.get(spoolStart + spool.size());
+            spool.add(executor.submit(() -> CardRenderer.render(context, card, cardSize.width * PRINT_SCALE, cardSize.height * PRINT_SCALE)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.defano.wyldcard.search;
+
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.serializer.LazyDocument;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The replacements made by {@link StackReplacer}, recorded as a single change that can be undone: undoing it restores
+ * the text of every field it changed.
+ * <p>
+ * A field changed again after the replacement (by the user, by a script, or by a later replacement) is not restored,
+ * as doing so would discard the later change.
+ */
+public class ReplaceEdit {
+
+    private final List<FieldEdit> fieldEdits = new ArrayList<>();
+    private final Map<FieldModel, Long> generations = new IdentityHashMap<>();     // Of each field changed, just after its last change
+    private int replacementCount;
+
+    /**
+     * Records the replacements made in a field.
+     *
+     * @param field        The field whose text was changed
+     * @param cardId       The id of the card whose text of the field was changed
+     * @param previous     The field's document prior to the change
+     * @param replacements The number of hits replaced
+     */
+    void add(FieldModel field, int cardId, LazyDocument previous, int replacements) {
+        fieldEdits.add(new FieldEdit(field, cardId, previous));
+        generations.put(field, field.getGeneration());
+        replacementCount += replacements;
+    }
+
+    /**
+     * Gets the number of hits replaced.
+     *
+     * @return The number of replacements made
+     */
+    public int getReplacementCount() {
+        return replacementCount;
+    }
+
+    /**
+     * Gets the number of fields changed; a background field whose text differs on each card is counted once for each
+     * card on which it was changed.
+     *
+     * @return The number of fields changed
+     */
+    public int getFieldCount() {
+        return fieldEdits.size();
+    }
+
+    /**
+     * Determines if undoing this edit would restore the text of any field.
+     *
+     * @return True if at least one field changed by this edit has not been changed since
+     */
+    public boolean canUndo() {
+        return fieldEdits.stream().anyMatch(this::isCurrent);
+    }
+
+    /**
+     * Undoes the replacements, restoring each field not changed since to its text and styles prior to the replacement.
+     * Has no effect if this edit has already been undone.
+     *
+     * @param context The execution context
+     */
+    public void undo(ExecutionContext context) {
+        // Restoring a background field's text on one card changes the field's generation; find them all first
+        List<FieldEdit> current = new ArrayList<>();
+        for (FieldEdit edit : fieldEdits) {
+            if (isCurrent(edit)) {
+                current.add(edit);
+            }
+        }
+
+        for (FieldEdit edit : current) {
+            edit.field.restoreDocument(context, edit.cardId, edit.previous);
+        }
+
+        fieldEdits.clear();
+        generations.clear();
+    }
+
+    private boolean isCurrent(FieldEdit edit) {
+        return generations.get(edit.field) == edit.field.getGeneration();
+    }
+
+    /**
+     * The text of a field on a card, prior to the replacement.
+     */
+    private static class FieldEdit {
+        private final FieldModel field;
+        private final int cardId;
+        private final LazyDocument previous;
+
+        private FieldEdit(FieldModel field, int cardId, LazyDocument previous) {
+            this.field = field;
+            this.cardId = cardId;
+            this.previous = previous;
+        }
+    }
+}
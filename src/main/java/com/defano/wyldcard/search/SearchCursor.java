@@ -0,0 +1,313 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.exception.HtException;
+import com.defano.hypertalk.exception.HtSemanticException;
+import com.defano.hypertalk.util.Range;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.hypertalk.ast.model.specifier.CompositePartSpecifier;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.search.strategy.PreparedSearch;
+import com.defano.wyldcard.search.strategy.SearchText;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A position in the search of a stack for a {@link SearchQuery}, from which each successive hit is found on demand.
+ * <p>
+ * Cards are searched in stack order, starting from the card that was current when the search began and wrapping
+ * around from the last card to the first; within a card, its fields are searched before its background's. Having
+ * found every hit in the stack, the cursor wraps around and finds them again, as HyperCard does when the same
+ * {@code find} command is repeated.
+ * <p>
+ * Text is read only as the cursor reaches it, so changes made to the stack while the cursor is held are seen: cards
+ * and fields not yet reached are searched as they are when reached, and a field whose text changes while the cursor
+ * is within it is re-read (and searched from the same position). Cards added or deleted are likewise found or
+ * skipped.
+ */
+public class SearchCursor {
+
+    private final SearchQuery query;
+    private final StackModel stack;
+    private final FieldModel onlyField;             // The field searched by a single-field search; null otherwise
+    private final PreparedSearch search;
+
+    private CardModel card;
+    private int cardIndex;
+    private List<FieldModel> fields = Collections.emptyList();
+    private int fieldIndex;
+
+    private SearchText fieldText;
+    private long fieldGeneration;
+    private int searchFrom;
+
+    private int cardsWithoutHit;                    // Cards entered since the last hit, or since the search began
+
+    private SearchIndex.Candidates candidates;
+    private long candidatesGeneration = -1;
+
+    private SearchCursor(SearchQuery query, StackModel stack, FieldModel onlyField, int cardIndex) {
+        this.query = query;
+        this.stack = stack;
+        this.onlyField = onlyField;
+        this.cardIndex = cardIndex;
+        this.search = SearchFactory.searchBy(query.getSearchType()).prepare(query.getSearchTerm());
+    }
+
+    /**
+     * Creates a cursor over the given query in the current stack, positioned before the first field of the current
+     * card (or before the field to be searched, for a single-field search).
+     *
+     * @param context The execution context
+     * @param query   The search query
+     * @return The cursor
+     * @throws HtException Thrown if the query names a field that cannot be searched
+     */
+    public static SearchCursor of(ExecutionContext context, SearchQuery query) throws HtException {
+        StackModel stack = context.getCurrentStack().getStackModel();
+
+        // Searching a single, user-specified field
+        if (query.isSingleFieldSearch()) {
+            FieldModel field = getSearchField(context, query);
+            return ofField(query, stack, field, getSearchFieldCard(context, query, stack).getCardIndexInStack());
+        }
+
+        // Searching all fields on all cards
+        return ofStack(query, stack, stack.getCurrentCardIndex());
+    }
+
+    /**
+     * Gets the field searched by a single-field query.
+     *
+     * @param context The execution context
+     * @param query   A single-field search query
+     * @return The field to search
+     * @throws HtException Thrown if the query names a part that is not a field
+     */
+    static FieldModel getSearchField(ExecutionContext context, SearchQuery query) throws HtException {
+        PartModel part = context.getPart(query.getSearchField());
+        if (!(part instanceof FieldModel)) {
+            throw new HtSemanticException("Can't search that.");
+        }
+
+        return (FieldModel) part;
+    }
+
+    /**
+     * Gets the card whose text of a single-field query's field is searched: the card named by the query, if any, or
+     * else the displayed card.
+     *
+     * @param context The execution context
+     * @param query   A single-field search query
+     * @param stack   The stack holding the field
+     * @return The card on which to search the field
+     * @throws HtException Thrown if the card named by the query does not exist
+     */
+    static CardModel getSearchFieldCard(ExecutionContext context, SearchQuery query, StackModel stack) throws HtException {
+        if (query.getSearchField() instanceof CompositePartSpecifier) {
+            return stack.findOwningCard(context, (CompositePartSpecifier) query.getSearchField());
+        }
+
+        return context.getCurrentStack().getDisplayedCard().getPartModel();
+    }
+
+    /**
+     * Creates a cursor over all fields on all cards of a stack.
+     *
+     * @param query     The search query
+     * @param stack     The stack to search
+     * @param cardIndex The index of the card on which to start searching
+     * @return The cursor
+     */
+    static SearchCursor ofStack(SearchQuery query, StackModel stack, int cardIndex) {
+        return new SearchCursor(query, stack, null, cardIndex);
+    }
+
+    /**
+     * Creates a cursor over a single field, as it appears on a single card.
+     *
+     * @param query     The search query
+     * @param stack     The stack holding the field
+     * @param field     The field to search
+     * @param cardIndex The index of the card whose text of the field is searched
+     * @return The cursor
+     */
+    static SearchCursor ofField(SearchQuery query, StackModel stack, FieldModel field, int cardIndex) {
+        return new SearchCursor(query, stack, field, cardIndex);
+    }
+
+    /**
+     * Gets the query this cursor searches for.
+     *
+     * @return The query
+     */
+    public SearchQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the stack this cursor searches.
+     *
+     * @return The stack
+     */
+    public StackModel getStack() {
+        return stack;
+    }
+
+    /**
+     * Finds the next hit, wrapping around to the first once the last has been found.
+     *
+     * @param context The execution context
+     * @return The next hit, or null if nothing in the stack matches the query
+     */
+    public SearchResult next(ExecutionContext context) {
+        updateCandidates(context);
+
+        if (card == null || !locateCard()) {
+            enterCard(context, card == null ? cardIndex : cardIndex + 1, card != null);
+        }
+
+        while (cardsWithoutHit <= stack.getCardCount()) {
+            if (fieldIndex < fields.size()) {
+                if (isFieldSearchable(context, fields.get(fieldIndex))) {
+                    SearchResult result = searchField(context);
+                    if (result != null) {
+                        cardsWithoutHit = 0;
+                        return result;
+                    }
+                }
+
+                enterField(fieldIndex + 1);
+            } else if (onlyField != null) {
+                // Wrap around the only field searched
+                enterField(0);
+                if (cardsWithoutHit++ > 0) {
+                    return null;
+                }
+            } else {
+                advanceCard(context);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Searches the field under the cursor from the end of the last hit found in it.
+     */
+    private SearchResult searchField(ExecutionContext context) {
+        FieldModel field = fields.get(fieldIndex);
+
+        // Read on first search, and again if the field was edited since
+        if (fieldText == null || field.getGeneration() != fieldGeneration) {
+            fieldGeneration = field.getGeneration();
+            fieldText = new SearchText(field.getText(context, card.getId()));
+            searchFrom = Math.min(searchFrom, fieldText.getText().length());
+        }
+
+        Range range = search.search(fieldText, searchFrom);
+        if (range == null) {
+            return null;
+        }
+
+        searchFrom = range.end;
+        return new SearchResult(fieldText.getText(), range, field, cardIndex);
+    }
+
+    /**
+     * Finds the card under the cursor, whose index may have changed if cards were added or deleted before it.
+     *
+     * @return False if the card has been deleted
+     */
+    private boolean locateCard() {
+        if (cardIndex < stack.getCardCount() && stack.getCardModel(cardIndex) == card) {
+            return true;
+        }
+
+        int index = stack.getIndexOfCard(card);
+        if (index < 0) {
+            // Resume from the card that took its place
+            cardIndex--;
+            return false;
+        }
+
+        cardIndex = index;
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the next card holding a match. Cards the word index cannot rule out are searched ahead in
+     * parallel (see {@link SearchIndexer#findCard(ExecutionContext, SearchQuery, PreparedSearch, StackModel, int, int)});
+     * those it can are skipped as they are reached.
+     */
+    private void advanceCard(ExecutionContext context) {
+        if (candidates != SearchIndex.Candidates.ALL) {
+            enterCard(context, cardIndex + 1, true);
+            return;
+        }
+
+        // The cards that may yet be entered before every card has been searched without a hit
+        int count = stack.getCardCount();
+        int remaining = count + 1 - cardsWithoutHit;
+        int offset = SearchIndexer.findCard(context, query, search, stack, cardIndex + 1, remaining);
+
+        if (offset < 0) {
+            fields = Collections.emptyList();
+            cardsWithoutHit = count + 1;
+        } else {
+            cardsWithoutHit += offset;
+            enterCard(context, cardIndex + 1 + offset, true);
+        }
+    }
+
+    private void enterCard(ExecutionContext context, int index, boolean advancing) {
+        int count = stack.getCardCount();
+        if (count == 0) {
+            fields = Collections.emptyList();
+            cardsWithoutHit = count + 1;
+            return;
+        }
+
+        cardIndex = Math.floorMod(index, count);
+        card = stack.getCardModel(cardIndex);
+        if (advancing) {
+            cardsWithoutHit++;
+        }
+
+        // Fields are filtered as they are reached, so that edits made in the meantime are seen
+        fields = new ArrayList<>();
+        if (SearchIndexer.isCardSearchable(context, query, card)) {
+            if (onlyField != null) {
+                fields.add(onlyField);
+            } else if (candidates.containsCard(card.getId())) {
+                fields.addAll(card.getFieldModels());
+                fields.addAll(stack.getBackground(card.getBackgroundId()).getFieldModels());
+            }
+        }
+
+        enterField(0);
+    }
+
+    private boolean isFieldSearchable(ExecutionContext context, FieldModel field) {
+        return candidates.contains(field, card.getId()) && !field.get(context, FieldModel.PROP_DONTSEARCH).booleanValue();
+    }
+
+    private void enterField(int index) {
+        fieldIndex = index;
+        fieldText = null;
+        searchFrom = 0;
+    }
+
+    private void updateCandidates(ExecutionContext context) {
+        if (onlyField != null) {
+            candidates = SearchIndex.Candidates.ALL;
+        } else if (stack.getGeneration() != candidatesGeneration) {
+            candidatesGeneration = stack.getGeneration();
+            candidates = SearchIndexer.getCandidates(context, query, stack);
+        }
+    }
+}
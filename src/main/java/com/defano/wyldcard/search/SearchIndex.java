@@ -0,0 +1,312 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.ast.model.enums.SearchType;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index of the words in a stack's fields, mapping each (lowercase) word to the fields holding it on each
+ * card. Used by {@link SearchCursor} to skip the cards and fields that cannot match a word or whole-word search;
+ * the fields that can (the candidates) are then searched as they otherwise would be, so the index never changes the
+ * results of a search.
+ * <p>
+ * The index is updated incrementally before each search: nothing is done if the stack has not been modified since
+ * the last search (see {@link StackModel#getGeneration()}), and otherwise only the text of fields modified since then
+ * is re-read. A field whose text cannot be tokenized exactly like its lowercase equivalent (such as one holding
+ * non-ASCII characters whose case mapping changes the length of the text) is not indexed, and is a candidate for
+ * every search.
+ */
+final class SearchIndex {
+
+    private static final Pattern WORDS = Pattern.compile("\\w+");
+
+    private final TreeMap<String, Set<Key>> index = new TreeMap<>();
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final Set<Key> unindexed = new HashSet<>();
+
+    private long generation = -1;
+    private long pass;
+
+    /**
+     * Brings the index up to date with the given stack, re-reading the text of each field modified since it was last
+     * indexed.
+     *
+     * @param context The execution context
+     * @param stack   The stack this index is of
+     */
+    synchronized void update(ExecutionContext context, StackModel stack) {
+        // Read before walking the stack, so that a change made during the walk is found by the next update
+        long generation = stack.getGeneration();
+        if (generation == this.generation) {
+            return;
+        }
+
+        pass++;
+        for (int cardIndex = 0; cardIndex < stack.getCardCount(); cardIndex++) {
+            CardModel card = stack.getCardModel(cardIndex);
+
+            for (FieldModel field : card.getFieldModels()) {
+                update(context, field, card.getId());
+            }
+
+            for (FieldModel field : card.getBackgroundModel().getFieldModels()) {
+                update(context, field, card.getId());
+            }
+        }
+
+        // Fields (and cards) deleted since the last update
+        entries.values().removeIf(entry -> {
+            if (entry.pass != pass) {
+                remove(entry);
+                return true;
+            }
+            return false;
+        });
+
+        this.generation = generation;
+    }
+
+    /**
+     * Gets the fields that may hold a match for the given search; those that do not are certain not to.
+     *
+     * @param type The type of search
+     * @param term The search term
+     * @return The candidate fields
+     */
+    synchronized Candidates getCandidates(SearchType type, String term) {
+        switch (type) {
+            case WORDS:
+                return getWordCandidates(term);
+            case WHOLE:
+                return getWholeCandidates(term);
+            default:
+                return Candidates.ALL;
+        }
+    }
+
+    /**
+     * A word search matches a word equal to the term, ignoring case.
+     */
+    private Candidates getWordCandidates(String term) {
+        // A non-ASCII term may equal an ASCII word ignoring case (the Kelvin sign 'K', for one)
+        if (!isAscii(term)) {
+            return Candidates.ALL;
+        }
+
+        return getCandidates(index.getOrDefault(term.toLowerCase(Locale.ROOT), Collections.emptySet()));
+    }
+
+    /**
+     * A whole search matches text beginning a word and equal to the term, ignoring case; the word must therefore begin
+     * with the word characters that the term begins with.
+     */
+    private Candidates getWholeCandidates(String term) {
+        String termLower = term.toLowerCase();
+        if (termLower.isEmpty()) {
+            return Candidates.ALL;
+        }
+
+        int length = 0;
+        while (length < termLower.length() && isAsciiWordChar(termLower.charAt(length))) {
+            length++;
+        }
+
+        // A term beginning with a non-ASCII character is never indexed; one beginning with a non-word character
+        // matches only where word characters are followed by it, which the regex that finds words never allows
+        if (length == 0) {
+            return termLower.charAt(0) < 0x80 ? getCandidates(Collections.emptySet()) : Candidates.ALL;
+        }
+
+        String prefix = termLower.substring(0, length);
+        Set<Key> keys = new HashSet<>();
+        for (Set<Key> postings : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            keys.addAll(postings);
+        }
+
+        return getCandidates(keys);
+    }
+
+    private Candidates getCandidates(Set<Key> keys) {
+        Set<Key> fields = new HashSet<>(keys);
+        fields.addAll(unindexed);
+
+        Set<Integer> cards = new HashSet<>();
+        for (Key field : fields) {
+            cards.add(field.cardId);
+        }
+
+        return new Candidates(fields, cards);
+    }
+
+    private void update(ExecutionContext context, FieldModel field, int cardId) {
+        Key key = new Key(field, cardId);
+        Entry entry = entries.get(key);
+
+        // Read before the text, so that a change made while it is read is found by the next update
+        long generation = field.getGeneration();
+
+        if (entry == null || entry.generation != generation) {
+            if (entry != null) {
+                remove(entry);
+            }
+
+            entry = new Entry(key, generation, getWords(field.getText(context, cardId)));
+            add(entry);
+            entries.put(key, entry);
+        }
+
+        entry.pass = pass;
+    }
+
+    private void add(Entry entry) {
+        if (entry.words == null) {
+            unindexed.add(entry.key);
+        } else {
+            for (String word : entry.words) {
+                index.computeIfAbsent(word, w -> new HashSet<>()).add(entry.key);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entry.words == null) {
+            unindexed.remove(entry.key);
+        } else {
+            for (String word : entry.words) {
+                Set<Key> postings = index.get(word);
+                postings.remove(entry.key);
+                if (postings.isEmpty()) {
+                    index.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the distinct words of the given text, in lowercase, as the search strategies find them.
+     *
+     * @param text The text to tokenize
+     * @return The words of the text, or null if the text cannot be indexed
+     */
+    private static Set<String> getWords(String text) {
+        String textLower = text.toLowerCase();
+
+        // Words must be found at the same positions in the text and its lowercase equivalent; this holds so long as
+        // each ASCII character lowers to an ASCII character, and each non-ASCII character to a non-ASCII character
+        if (textLower.length() != text.length()) {
+            return null;
+        }
+
+        for (int index = 0; index < text.length(); index++) {
+            if (text.charAt(index) < 0x80 != textLower.charAt(index) < 0x80) {
+                return null;
+            }
+        }
+
+        Set<String> words = new HashSet<>();
+        Matcher matcher = WORDS.matcher(textLower);
+        while (matcher.find()) {
+            words.add(matcher.group());
+        }
+
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int index = 0; index < text.length(); index++) {
+            if (text.charAt(index) >= 0x80) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAsciiWordChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    /**
+     * The fields that may hold a match for a search.
+     */
+    static class Candidates {
+        static final Candidates ALL = new Candidates(null, null);
+
+        private final Set<Key> fields;
+        private final Set<Integer> cards;
+
+        private Candidates(Set<Key> fields, Set<Integer> cards) {
+            this.fields = fields;
+            this.cards = cards;
+        }
+
+        /**
+         * Determines if any field on the given card (including those of its background) may hold a match.
+         *
+         * @param cardId The id of the card
+         * @return False if no field on the card holds a match
+         */
+        boolean containsCard(int cardId) {
+            return cards == null || cards.contains(cardId);
+        }
+
+        /**
+         * Determines if the given field may hold a match on the given card.
+         *
+         * @param field  The field
+         * @param cardId The id of the card on which the field's text is searched
+         * @return False if the field does not hold a match
+         */
+        boolean contains(FieldModel field, int cardId) {
+            return fields == null || fields.contains(new Key(field, cardId));
+        }
+    }
+
+    /**
+     * A field, as it appears on a given card; fields are compared by identity.
+     */
+    private static class Key {
+        private final FieldModel field;
+        private final int cardId;
+
+        private Key(FieldModel field, int cardId) {
+            this.field = field;
+            this.cardId = cardId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return field == key.field && cardId == key.cardId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(field) + cardId;
+        }
+    }
+
+    /**
+     * The words of a field on a card, as of a given generation of the field.
+     */
+    private static class Entry {
+        private final Key key;
+        private final long generation;
+        private final Set<String> words;            // Null if the field's text cannot be indexed
+        private long pass;                          // The last update that found this field in the stack
+
+        private Entry(Key key, long generation, Set<String> words) {
+            this.key = key;
+            this.generation = generation;
+            this.words = words;
+        }
+    }
+}
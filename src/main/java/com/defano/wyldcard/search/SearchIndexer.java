@@ -3,19 +3,27 @@ package com.defano.wyldcard.search;
 import com.defano.wyldcard.part.bkgnd.BackgroundModel;
 import com.defano.wyldcard.part.card.CardModel;
 import com.defano.wyldcard.part.field.FieldModel;
-import com.defano.wyldcard.part.model.PartModel;
 import com.defano.wyldcard.part.stack.StackModel;
-import com.defano.hypertalk.ast.model.specifier.CompositePartSpecifier;
-import com.defano.hypertalk.exception.HtException;
-import com.defano.hypertalk.exception.HtSemanticException;
+import com.defano.hypertalk.ast.model.enums.SearchType;
 import com.defano.hypertalk.util.Range;
 import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.search.strategy.PreparedSearch;
+import com.defano.wyldcard.search.strategy.SearchText;
+import com.google.common.collect.MapMaker;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 public class SearchIndexer {
 
+    // Runs of fewer cards than this are searched on the calling thread
+    private static final int PARALLEL_SEARCH_THRESHOLD = 32;
+
+    // The word index of each stack that has been searched; discarded along with the stack
+    private static final Map<StackModel, SearchIndex> indexes = new MapMaker().weakKeys().makeMap();
+
     /**
      * Executes a {@link SearchQuery} against a single, specified card in the current stack. Has no effect (returns an
      * empty list) if the specified card is eligible for searching (i.e., marked 'dontSearch')
@@ -36,69 +44,6 @@ public class SearchIndexer {
         return results;
     }
 
-    /**
-     * Executes a {@link SearchQuery} against qualifying cards in the current stack.
-     *
-     * @param context The execution context
-     * @param query The search query
-     * @return A list of zero or more search results (card, field and offsets of each "hit")
-     * @throws HtException Thrown if an error occurs executing the query
-     */
-    public static List<SearchResult> indexResults(ExecutionContext context, SearchQuery query) throws HtException {
-        List<SearchResult> results = new ArrayList<>();
-        StackModel thisStack = context.getCurrentStack().getStackModel();
-
-        // Indexing a single, user-specified field
-        if (query.isSingleFieldSearch()) {
-            PartModel part = context.getPart(query.getSearchField());
-            if (!(part instanceof FieldModel)) {
-                throw new HtSemanticException("Can't search that.");
-            }
-
-            FieldModel field = (FieldModel) part;
-            CardModel card = context.getCurrentStack().getDisplayedCard().getPartModel();
-
-            int cardIndex = card.getCardIndexInStack();
-            if (query.getSearchField() instanceof CompositePartSpecifier) {
-                card = context.getCurrentStack().getStackModel().findOwningCard(context, (CompositePartSpecifier) query.getSearchField());
-                cardIndex = card.getCardIndexInStack();
-            }
-
-            if (isCardSearchable(context, query, card)) {
-                indexField(context, query, field, cardIndex, results);
-            }
-        }
-
-        // Indexing all fields on all cards
-        else {
-            // Index this card to end of the stack...
-            indexCards(context, query, thisStack.getCurrentCardIndex(), thisStack.getCardCount(), thisStack, results);
-
-            // ... then index first card up to this card
-            indexCards(context, query, 0, thisStack.getCurrentCardIndex(), thisStack, results);
-        }
-
-        return results;
-    }
-
-    /**
-     * Executes a given {@link SearchQuery} against a range of cards in the current stack.
-     *
-     * @param context The execution context
-     * @param query The search query
-     * @param fromIndex The index of the first card in the stack to be indexed (inclusive)
-     * @param toIndex The index of the last card in the stack to be indexed (exclusive)
-     * @param thisStack The stack whose cards should be searched
-     * @param results A mutable list of search results; each hit in the indexed field will be appended to this list
-     */
-    private static void indexCards(ExecutionContext context, SearchQuery query, int fromIndex, int toIndex, StackModel thisStack, List<SearchResult> results) {
-        for (int thisCardIndex = fromIndex; thisCardIndex < toIndex; thisCardIndex++) {
-            CardModel thisCard = thisStack.getCardModel(thisCardIndex);
-
-            indexCard(context, query, thisStack, thisCard, thisCardIndex, results);
-        }
-    }
-
     /**
      * Executes a given {@link SearchQuery} against all the fields on a given card. Has no effect (returns an
      * empty list) if the specified card is eligible for searching (i.e., marked 'dontSearch')
@@ -148,19 +93,98 @@ public class SearchIndexer {
         Range result;
 
         int cardId = context.getCurrentStack().getStackModel().getCardModel(cardIndex).getId();
-        String fieldText = fieldModel.getText(context, cardId);
+        SearchText fieldText = new SearchText(fieldModel.getText(context, cardId));
+        PreparedSearch search = SearchFactory.searchBy(query.getSearchType()).prepare(query.getSearchTerm());
 
         do {
-            result = SearchFactory.searchBy(query.getSearchType()).search(fieldText, query.getSearchTerm(), searchFrom);
+            result = search.search(fieldText, searchFrom);
 
             if (result != null) {
                 searchFrom = result.end;
-                results.add(new SearchResult(fieldText, result, fieldModel, cardIndex));
+                results.add(new SearchResult(fieldText.getText(), result, fieldModel, cardIndex));
             }
 
         } while (result != null);
     }
 
+    /**
+     * Gets the fields of the given stack that may hold a match for a query, bringing the stack's word index up to date
+     * first.
+     *
+     * @param context The execution context
+     * @param query The search query
+     * @param stack The stack to be searched
+     * @return The candidate fields
+     */
+    static SearchIndex.Candidates getCandidates(ExecutionContext context, SearchQuery query, StackModel stack) {
+        // Characters and strings may be found anywhere within a word; only whole words are indexed
+        if (query.getSearchType() != SearchType.WORDS && query.getSearchType() != SearchType.WHOLE) {
+            return SearchIndex.Candidates.ALL;
+        }
+
+        SearchIndex index = indexes.computeIfAbsent(stack, s -> new SearchIndex());
+        index.update(context, stack);
+        return index.getCandidates(query.getSearchType(), query.getSearchTerm());
+    }
+
+    /**
+     * Finds the first of a run of cards in a stack that holds a match for a query, searching the cards in parallel
+     * (on the common {@link java.util.concurrent.ForkJoinPool}) when there are enough of them to be worth it. Cards are
+     * searched from their first character; the card found is the first in stack order, however the work was divided.
+     *
+     * @param context The execution context
+     * @param query The search query
+     * @param search The query's search, prepared
+     * @param stack The stack to be searched
+     * @param fromIndex The index of the first card to search; the run of cards wraps from the last card to the first
+     * @param count The number of cards to search
+     * @return The position of the first card holding a match, relative to fromIndex, or -1 if no card does
+     */
+    static int findCard(ExecutionContext context, SearchQuery query, PreparedSearch search, StackModel stack, int fromIndex, int count) {
+        int cardCount = stack.getCardCount();
+        if (cardCount == 0) {
+            return -1;
+        }
+
+        IntStream offsets = IntStream.range(0, count);
+        if (count >= PARALLEL_SEARCH_THRESHOLD) {
+            offsets = offsets.parallel();
+        }
+
+        return offsets
+                .filter(offset -> hasMatch(context, query, search, stack, stack.getCardModel(Math.floorMod(fromIndex + offset, cardCount))))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    /**
+     * Determines if any searchable field on a given card holds a match for a query.
+     *
+     * @param context The execution context
+     * @param query The search query
+     * @param search The query's search, prepared
+     * @param stack The stack whose card is to be searched
+     * @param card The card to be searched
+     * @return True if the card holds a match
+     */
+    private static boolean hasMatch(ExecutionContext context, SearchQuery query, PreparedSearch search, StackModel stack, CardModel card) {
+        if (!isCardSearchable(context, query, card)) {
+            return false;
+        }
+
+        List<FieldModel> fields = new ArrayList<>(card.getFieldModels());
+        fields.addAll(stack.getBackground(card.getBackgroundId()).getFieldModels());
+
+        for (FieldModel field : fields) {
+            if (!field.get(context, FieldModel.PROP_DONTSEARCH).booleanValue() &&
+                    search.search(new SearchText(field.getText(context, card.getId())), 0) != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Determines if a given card is eligible for searching based on its 'dontSearch' property and whether the search
      * query calls for searching only marked cards.
@@ -170,7 +194,7 @@ public class SearchIndexer {
      * @param cardModel The card whose search eligibility is being determined
      * @return True if the card should be searched; false otherwise
      */
-    private static boolean isCardSearchable(ExecutionContext context, SearchQuery query, CardModel cardModel) {
+    static boolean isCardSearchable(ExecutionContext context, SearchQuery query, CardModel cardModel) {
         return (!query.isSearchOnlyMarkedCards() || cardModel.isMarked(context)) &&
                 !cardModel.get(context, CardModel.PROP_DONTSEARCH).booleanValue()
                 && !cardModel.getBackgroundModel().get(context, BackgroundModel.PROP_DONTSEARCH).booleanValue();
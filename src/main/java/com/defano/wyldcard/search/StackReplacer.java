@@ -0,0 +1,134 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.hypertalk.exception.HtException;
+import com.defano.hypertalk.util.Range;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.defano.wyldcard.search.strategy.PreparedSearch;
+import com.defano.wyldcard.search.strategy.SearchText;
+import com.defano.wyldcard.serializer.LazyDocument;
+
+import java.util.*;
+
+/**
+ * Replaces every hit of a {@link SearchQuery} in a stack, in a single pass over the stack.
+ * <p>
+ * Replacing hits one at a time (finding each, then putting the replacement into the found chunk) searches the field
+ * again from its start and re-diffs its text after each replacement. Instead, the hits in each field are gathered
+ * first, then replaced together as a single change to the field (see
+ * {@link FieldModel#replaceRanges(ExecutionContext, int, List, String)}), and the changes to every field are recorded
+ * as a single {@link ReplaceEdit} that undoes them all.
+ */
+public class StackReplacer {
+
+    private StackReplacer() {
+    }
+
+    /**
+     * Replaces every hit of the given query in the current stack (or in the query's field, for a single-field search)
+     * with the given text.
+     * <p>
+     * Hits are found as the {@code find} command finds them, except that a hit overlapping the one before it in the
+     * same field is not replaced (replacing the string "aa" in "aaa" makes one replacement, not two), and text
+     * introduced by a replacement is never itself searched. The text of a background field shared by every card is
+     * replaced once.
+     *
+     * @param context     The execution context
+     * @param query       The search query
+     * @param replacement The text with which to replace each hit
+     * @return The replacements made, by which they may be undone
+     * @throws HtException Thrown if the query names a field that cannot be searched
+     */
+    public static ReplaceEdit replaceAll(ExecutionContext context, SearchQuery query, String replacement) throws HtException {
+        StackModel stack = context.getCurrentStack().getStackModel();
+
+        if (query.isSingleFieldSearch()) {
+            FieldModel field = SearchCursor.getSearchField(context, query);
+            CardModel card = SearchCursor.getSearchFieldCard(context, query, stack);
+
+            ReplaceEdit edit = new ReplaceEdit();
+            replaceInField(context, prepare(query), field, card.getId(), replacement, edit);
+            return edit;
+        }
+
+        return replaceInStack(context, query, stack, replacement);
+    }
+
+    /**
+     * Replaces every hit of the given query in all fields on all cards of a stack.
+     *
+     * @param context     The execution context
+     * @param query       The search query
+     * @param stack       The stack to search
+     * @param replacement The text with which to replace each hit
+     * @return The replacements made
+     */
+    static ReplaceEdit replaceInStack(ExecutionContext context, SearchQuery query, StackModel stack, String replacement) {
+        PreparedSearch search = prepare(query);
+        SearchIndex.Candidates candidates = SearchIndexer.getCandidates(context, query, stack);
+        Set<FieldModel> sharedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+        ReplaceEdit edit = new ReplaceEdit();
+
+        for (int cardIndex = 0; cardIndex < stack.getCardCount(); cardIndex++) {
+            CardModel card = stack.getCardModel(cardIndex);
+            if (!SearchIndexer.isCardSearchable(context, query, card) || !candidates.containsCard(card.getId())) {
+                continue;
+            }
+
+            List<FieldModel> fields = new ArrayList<>(card.getFieldModels());
+            fields.addAll(stack.getBackground(card.getBackgroundId()).getFieldModels());
+
+            for (FieldModel field : fields) {
+                if (candidates.contains(field, card.getId()) &&
+                        !field.get(context, FieldModel.PROP_DONTSEARCH).booleanValue() &&
+                        (!isSharedBackgroundField(context, field) || sharedFields.add(field))) {
+                    replaceInField(context, search, field, card.getId(), replacement, edit);
+                }
+            }
+        }
+
+        return edit;
+    }
+
+    /**
+     * Replaces every hit in a field's text on a given card, recording the change in the given edit.
+     */
+    private static void replaceInField(ExecutionContext context, PreparedSearch search, FieldModel field, int cardId, String replacement, ReplaceEdit edit) {
+        SearchText text = new SearchText(field.getText(context, cardId));
+        int length = text.getText().length();
+        List<Range> ranges = new ArrayList<>();
+
+        for (int searchFrom = 0; searchFrom < length; ) {
+            Range range = search.search(text, searchFrom);
+            if (range == null) {
+                break;
+            }
+
+            // A hit may extend past the end of the text when lowercasing the text changes its length
+            int end = Math.min(range.end, length);
+            if (end <= range.start) {
+                searchFrom = range.start + 1;
+                continue;
+            }
+
+            ranges.add(end == range.end ? range : new Range(range.start, end));
+            searchFrom = end;
+        }
+
+        if (!ranges.isEmpty()) {
+            LazyDocument previous = field.replaceRanges(context, cardId, ranges, replacement);
+            edit.add(field, cardId, previous, ranges.size());
+        }
+    }
+
+    private static PreparedSearch prepare(SearchQuery query) {
+        return SearchFactory.searchBy(query.getSearchType()).prepare(query.getSearchTerm());
+    }
+
+    private static boolean isSharedBackgroundField(ExecutionContext context, FieldModel field) {
+        return field.getOwner() == Owner.BACKGROUND && field.get(context, FieldModel.PROP_SHAREDTEXT).booleanValue();
+    }
+}
@@ -6,15 +6,11 @@ import com.defano.wyldcard.runtime.ExecutionContext;
 import com.google.inject.Singleton;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
 @Singleton
 public class WyldCardSearchManager implements SearchManager {
 
-    private SearchQuery lastQuery;
-    private List<SearchResult> results = new ArrayList<>();
-    private int nextResult = 0;
+    private SearchCursor cursor;
 
     private Value foundChunk = new Value();
     private Value foundField = new Value();
@@ -24,34 +20,23 @@ public class WyldCardSearchManager implements SearchManager {
     @Override
     public void find(ExecutionContext context, SearchQuery query) throws HtException {
 
-        // Wrap search results
-        if (nextResult >= results.size()) {
-            nextResult = 0;
+        // Start new query; otherwise, continue the last one from where it left off
+        if (!isResumingSearch(context, query)) {
+            cursor = SearchCursor.of(context, query);
         }
 
-        // Continue last query
-        if (isResumingSearch(query)) {
-            processSearchResult(context, results.get(nextResult++));
+        SearchResult result = cursor.next(context);
+        if (result == null) {
+            cursor = null;
         }
 
-        // Start new query
-        else {
-            lastQuery = query;
-            results = SearchIndexer.indexResults(context, query);
-            nextResult = 0;
-
-            if (results.isEmpty()) {
-                processSearchResult(context, null);
-            } else {
-                processSearchResult(context, results.get(nextResult++));
-            }
-        }
+        processSearchResult(context, result);
     }
 
     @Override
     public void reset() {
         clearSearchHighlights(new ExecutionContext());
-        results.clear();
+        cursor = null;
 
         foundChunk = new Value();
         foundField = new Value();
@@ -93,8 +78,8 @@ public class WyldCardSearchManager implements SearchManager {
         }
     }
 
-    private boolean isResumingSearch(SearchQuery query) {
-        return lastQuery != null && lastQuery.equals(query) && results.size() > 0;
+    private boolean isResumingSearch(ExecutionContext context, SearchQuery query) {
+        return cursor != null && cursor.getQuery().equals(query) && cursor.getStack() == context.getCurrentStack().getStackModel();
     }
 
 }
@@ -30,4 +30,30 @@ public class CharsSearchStrategy implements SearchStrategy {
 
         return null;
     }
-}
\ No newline at end of file
+
+    /** {@inheritDoc} */
+    @Override
+    public PreparedSearch prepare(String term) {
+        String termLower = term.trim().toLowerCase();
+        if (termLower.isEmpty()) {
+            return SearchStrategy.super.prepare(term);
+        }
+
+        // The term must lie within a word, and so can only be found if it consists of word characters; the first
+        // occurrence of such a term lies within the first word that contains it
+        if (!words.matcher(termLower).matches()) {
+            return (text, searchFrom) -> null;
+        }
+
+        TextMatcher matcher = new TextMatcher(termLower);
+        return (text, searchFrom) -> {
+            char[] textLower = text.getLowercaseChars();
+            if (textLower == null) {
+                return search(text.getText(), term, searchFrom);
+            }
+
+            int start = matcher.indexIn(textLower, searchFrom);
+            return start < 0 ? null : new Range(start, start + term.length());
+        };
+    }
+}
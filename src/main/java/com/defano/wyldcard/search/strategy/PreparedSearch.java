@@ -0,0 +1,20 @@
+package com.defano.wyldcard.search.strategy;
+
+import com.defano.hypertalk.util.Range;
+
+/**
+ * A {@link SearchStrategy} prepared to find a single term; see {@link SearchStrategy#prepare(String)}. A prepared
+ * search holds no mutable state and may be used from many threads at once.
+ */
+public interface PreparedSearch {
+
+    /**
+     * Search the text starting from a given offset for the prepared search term.
+     *
+     * @param text       The text to search
+     * @param searchFrom The first character (inclusive) from where to begin searching the search text.
+     * @return Null if the search term is not found, or a range of characters indicating the where in the text the
+     * search term was found.
+     */
+    Range search(SearchText text, int searchFrom);
+}
@@ -14,4 +14,16 @@ public interface SearchStrategy {
      * in the text the search term was found.
      */
     Range search(String text, String term, int searchFrom);
+
+    /**
+     * Prepares a search for the given term, to be run repeatedly (against the same or many texts). Strategies able to
+     * search more efficiently when the term is known ahead of time should override this method; by default, the
+     * prepared search simply invokes {@link #search(String, String, int)}.
+     *
+     * @param term The term to find
+     * @return The prepared search
+     */
+    default PreparedSearch prepare(String term) {
+        return (text, searchFrom) -> search(text.getText(), term, searchFrom);
+    }
 }
@@ -0,0 +1,42 @@
+package com.defano.wyldcard.search.strategy;
+
+/**
+ * Text to be searched by a {@link PreparedSearch}, together with its lowercase equivalent (computed once, when first
+ * needed, however many times the text is searched).
+ */
+public final class SearchText {
+
+    private static final char[] NOT_LOWERCASED = new char[0];
+
+    private final String text;
+    private char[] lowercase;
+
+    public SearchText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Gets the text.
+     *
+     * @return The text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the characters of the lowercase equivalent of the text, provided that each character of the text lowers
+     * independently of those around it, to a single character. Searches of other text (such as that holding a Greek
+     * capital sigma, or characters that lower to more than one character) must lowercase the text as they go.
+     *
+     * @return The lowercase characters, or null if the text cannot be lowercased character-by-character
+     */
+    public char[] getLowercaseChars() {
+        if (lowercase == null) {
+            String lower = text.toLowerCase();
+            lowercase = lower.length() != text.length() || text.indexOf('Σ') >= 0 ? NOT_LOWERCASED : lower.toCharArray();
+        }
+
+        return lowercase == NOT_LOWERCASED ? null : lowercase;
+    }
+}
@@ -19,4 +19,24 @@ public class StringSearchStrategy implements SearchStrategy {
             return new Range(searchFrom + start, searchFrom + start + term.length());
         }
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public PreparedSearch prepare(String term) {
+        String termLower = term.toLowerCase();
+        if (termLower.isEmpty()) {
+            return SearchStrategy.super.prepare(term);
+        }
+
+        TextMatcher matcher = new TextMatcher(termLower);
+        return (text, searchFrom) -> {
+            char[] textLower = text.getLowercaseChars();
+            if (textLower == null) {
+                return search(text.getText(), term, searchFrom);
+            }
+
+            int start = matcher.indexIn(textLower, searchFrom);
+            return start < 0 ? null : new Range(start, start + term.length());
+        };
+    }
 }
\ No newline at end of file
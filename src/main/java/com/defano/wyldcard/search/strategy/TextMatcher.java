@@ -0,0 +1,51 @@
+package com.defano.wyldcard.search.strategy;
+
+import java.util.Arrays;
+
+/**
+ * Finds occurrences of a lowercase term in lowercase text using the Boyer-Moore-Horspool algorithm, without copying
+ * or allocating anything per search.
+ * <p>
+ * The bad-character shift table is indexed by the low byte of each character; characters sharing a low byte share
+ * the smallest of their shifts, which keeps the table small without ever skipping a match.
+ */
+final class TextMatcher {
+
+    private final char[] term;
+    private final int[] shift = new int[256];
+
+    /**
+     * @param termLower The (lowercase) term to find; must not be empty
+     */
+    TextMatcher(String termLower) {
+        this.term = termLower.toCharArray();
+
+        int last = term.length - 1;
+        Arrays.fill(shift, term.length);
+        for (int index = 0; index < last; index++) {
+            shift[term[index] & 0xff] = last - index;
+        }
+    }
+
+    /**
+     * Finds the first occurrence of the term in the given text at or after a given offset.
+     *
+     * @param textLower  The (lowercase) text to search
+     * @param searchFrom The offset from which to search
+     * @return The offset of the first occurrence, or -1 if the term does not occur
+     */
+    int indexIn(char[] textLower, int searchFrom) {
+        int last = term.length - 1;
+
+        for (int start = searchFrom; start + last < textLower.length; start += shift[textLower[start + last] & 0xff]) {
+            int index = last;
+            while (textLower[start + index] == term[index]) {
+                if (index-- == 0) {
+                    return start;
+                }
+            }
+        }
+
+        return -1;
+    }
+}
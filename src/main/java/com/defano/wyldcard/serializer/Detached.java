@@ -0,0 +1,15 @@
+package com.defano.wyldcard.serializer;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field whose contents are stored in their own blocks of a {@link StackArchive} rather than inline with the
+ * object that declares it. Has no effect when the object is serialized as a single JSON document.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Detached {
+}
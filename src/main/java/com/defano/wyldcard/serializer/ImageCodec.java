@@ -0,0 +1,175 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.util.MonochromeImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+
+/**
+ * Formats in which images are stored in stack files.
+ */
+enum ImageCodec {
+
+    /**
+     * A PNG-encoded image; used when an image is stored inline in a JSON document.
+     */
+    PNG {
+        @Override
+        byte[] encode(BufferedImage image) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        @Override
+        BufferedImage decode(byte[] data) throws IOException {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if (image == null) {
+                throw new IOException("Not a PNG image.");
+            }
+            return image;
+        }
+    },
+
+    /**
+     * A run-length encoded ARGB raster; used when an image is stored in its own block of a {@link StackArchive} (which
+     * deflates it further). Painted cards are mostly transparent, so the raster is typically a few dozen runs, and
+     * can be written and read with little more than an array copy.
+     * <p>
+     * The data consists of a type byte, the image's width and height, and then a sequence of packets covering the
+     * image's pixels, left-to-right and top-to-bottom. A packet begins with a count; a positive count is followed by
+     * that many literal pixels, a negative count by a single pixel that is repeated that many times.
+     * <p>
+     * A packed monochrome image (see {@link MonochromeImageUtils}) is instead stored as its packed pixel data, as-is,
+     * following the type byte, width and height; it is decoded into a packed image.
+     */
+    RASTER {
+        private static final byte TYPE_ARGB = 1;
+        private static final byte TYPE_PACKED = 2;
+        private static final int MIN_RUN = 3;
+        private static final int MAX_PACKET = Short.MAX_VALUE;
+
+        @Override
+        byte[] encode(BufferedImage image) throws IOException {
+            int width = image.getWidth();
+            int height = image.getHeight();
+
+            if (MonochromeImageUtils.isPacked(image)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(TYPE_PACKED);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.write(MonochromeImageUtils.getData(image), 0, MonochromeImageUtils.getScanlineStride(width) * height);
+                out.flush();
+                return bytes.toByteArray();
+            }
+
+            int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(TYPE_ARGB);
+            out.writeInt(width);
+            out.writeInt(height);
+
+            for (int index = 0; index < pixels.length; ) {
+                int run = runLength(pixels, index);
+
+                if (run >= MIN_RUN) {
+                    out.writeInt(-run);
+                    out.writeInt(pixels[index]);
+                    index += run;
+                } else {
+                    int start = index;
+                    do {
+                        index++;
+                    } while (index < pixels.length && index - start < MAX_PACKET && !startsRun(pixels, index));
+
+                    out.writeInt(index - start);
+                    for (int literal = start; literal < index; literal++) {
+                        out.writeInt(pixels[literal]);
+                    }
+                }
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        @Override
+        BufferedImage decode(byte[] data) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+                byte type = in.readByte();
+                if (type != TYPE_ARGB && type != TYPE_PACKED) {
+                    throw new IOException("Unsupported image type.");
+                }
+
+                int width = in.readInt();
+                int height = in.readInt();
+
+                if (type == TYPE_PACKED) {
+                    return decodePacked(in, width, height, data.length);
+                }
+
+                long size = (long) width * height;
+                if (width <= 0 || height <= 0 || size > Integer.MAX_VALUE || size > data.length * (long) MAX_PACKET) {
+                    throw new IOException("Bogus image size.");
+                }
+
+                int[] pixels = new int[(int) size];
+                for (int index = 0; index < pixels.length; ) {
+                    int count = in.readInt();
+                    if (count == 0 || Math.abs(count) > pixels.length - index) {
+                        throw new IOException("Image data is corrupted.");
+                    }
+
+                    if (count < 0) {
+                        int pixel = in.readInt();
+                        for (int end = index - count; index < end; index++) {
+                            pixels[index] = pixel;
+                        }
+                    } else {
+                        for (int end = index + count; index < end; index++) {
+                            pixels[index] = in.readInt();
+                        }
+                    }
+                }
+
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                image.getRaster().setDataElements(0, 0, width, height, pixels);
+                return image;
+            } catch (EOFException e) {
+                throw new IOException("Image data is truncated.", e);
+            }
+        }
+
+        private BufferedImage decodePacked(DataInputStream in, int width, int height, int length) throws IOException {
+            if (width <= 0 || height <= 0 || ((long) width * 2 + 7) / 8 * height > length) {
+                throw new IOException("Bogus image size.");
+            }
+
+            BufferedImage image = MonochromeImageUtils.create(width, height);
+            in.readFully(MonochromeImageUtils.getData(image), 0, MonochromeImageUtils.getScanlineStride(width) * height);
+            return image;
+        }
+
+        private int runLength(int[] pixels, int index) {
+            int end = Math.min(pixels.length, index + MAX_PACKET);
+            int run = 1;
+            while (index + run < end && pixels[index + run] == pixels[index]) {
+                run++;
+            }
+            return run;
+        }
+
+        private boolean startsRun(int[] pixels, int index) {
+            return index + MIN_RUN <= pixels.length && pixels[index + 1] == pixels[index] && pixels[index + 2] == pixels[index];
+        }
+    };
+
+    abstract byte[] encode(BufferedImage image) throws IOException;
+
+    abstract BufferedImage decode(byte[] data) throws IOException;
+}
@@ -0,0 +1,221 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.util.Range;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.StyledDocument;
+import java.util.List;
+
+/**
+ * A field's styled text, held in the most compact form that its current use allows:
+ * <ul>
+ *     <li>As RTF, when read from a stack file and not yet used. The plain text is extracted directly from the RTF (see
+ *     {@link RtfText}), and the RTF is written back to a file as-is.</li>
+ *     <li>As {@link StyledText} (a plain string and a table of style runs), when not displayed or edited.</li>
+ *     <li>As a Swing {@link StyledDocument}, while displayed or edited. The document is edited in place.</li>
+ * </ul>
+ * A document is built by {@link #get()} and discarded (in favor of its StyledText) by {@link #release()}. Searching a
+ * stack or reading a field's text from a script never builds a document. RTF may be converted to StyledText ahead of
+ * the document being built (see {@link #prepare()}), in which case the RTF is retained until the document is built.
+ * Text may be drawn without building a document (see {@link #getParagraphs()}).
+ * <p>
+ * Unlike {@link LazyImage}, a LazyDocument is mutable while its document is built; a LazyDocument must therefore not
+ * be shared between models.
+ */
+public final class LazyDocument {
+
+    private StyledDocument document;
+    private StyledText styledText;
+    private byte[] rtf;
+    private String rtfText;
+
+    private LazyDocument(StyledDocument document, StyledText styledText, byte[] rtf) {
+        this.document = document;
+        this.styledText = styledText;
+        this.rtf = rtf;
+    }
+
+    /**
+     * Creates a LazyDocument of an already-built document.
+     *
+     * @param document The document
+     * @return The LazyDocument, or null if the document is null
+     */
+    public static LazyDocument of(StyledDocument document) {
+        return document == null ? null : new LazyDocument(document, null, null);
+    }
+
+    static LazyDocument decodedLazily(byte[] rtf) {
+        return new LazyDocument(null, null, rtf);
+    }
+
+    /**
+     * Gets the document, building it if it has not been built already.
+     *
+     * @return The document
+     */
+    public synchronized StyledDocument get() {
+        if (document == null) {
+            document = styledText != null ? styledText.toDocument() : StyledDocumentSerializer.convertRtfToDocument(rtf);
+            styledText = null;
+            rtf = null;
+            rtfText = null;
+        }
+
+        return document;
+    }
+
+    /**
+     * Converts RTF read from a stack file to StyledText, from which the document can be built quickly, without building
+     * the document. The RTF is retained (and written back to a file as-is) until the document is built. Has no effect
+     * unless this document holds RTF that has not yet been converted.
+     * <p>
+     * Intended for preparing text that is about to be displayed off the dispatch thread; see
+     * {@link com.defano.wyldcard.part.stack.CardPrefetcher}.
+     */
+    public void prepare() {
+        byte[] rtf;
+        synchronized (this) {
+            if (document != null || styledText != null || this.rtf == null) {
+                return;
+            }
+            rtf = this.rtf;
+        }
+
+        // Converted without holding this object's lock, which the dispatch thread may need in the meantime
+        StyledText converted = StyledText.of(StyledDocumentSerializer.convertRtfToDocument(rtf));
+
+        synchronized (this) {
+            if (document == null && styledText == null && this.rtf == rtf) {
+                styledText = converted;
+            }
+        }
+    }
+
+    /**
+     * Discards the document, if built, retaining only its text and styles. The document must no longer be used; a
+     * subsequent call to {@link #get()} builds a new one.
+     */
+    public synchronized void release() {
+        if (document != null) {
+            styledText = StyledText.of(document);
+            document = null;
+        }
+    }
+
+    /**
+     * Gets the plain text of the document, without building the document.
+     *
+     * @return The document's text
+     */
+    public synchronized String getText() {
+        if (document != null) {
+            try {
+                return document.getText(0, document.getLength());
+            } catch (BadLocationException e) {
+                return "";
+            }
+        }
+
+        if (styledText == null && rtfText == null) {
+            rtfText = RtfText.extract(rtf);
+
+            // RTF that cannot be read directly is converted to styled text (once), by way of a transient document
+            if (rtfText == null) {
+                styledText = StyledText.of(StyledDocumentSerializer.convertRtfToDocument(rtf));
+                rtf = null;
+            }
+        }
+
+        return styledText != null ? styledText.getText() : rtfText;
+    }
+
+    /**
+     * Gets the text and styles of the document, paragraph by paragraph, without building the document. RTF is first
+     * converted to StyledText, as by {@link #prepare()}. May be called from any thread.
+     *
+     * @return The document's paragraphs
+     */
+    public List<StyledParagraph> getParagraphs() {
+        prepare();
+
+        StyledDocument document;
+        StyledText styledText;
+        synchronized (this) {
+            document = this.document;
+            styledText = this.styledText;
+        }
+
+        // A built document is captured without holding this object's lock, as it is by copy()
+        return (document != null ? StyledText.of(document) : styledText).toParagraphs();
+    }
+
+    /**
+     * Determines if the document has been built.
+     *
+     * @return True if the document is built
+     */
+    public synchronized boolean isDecoded() {
+        return document != null;
+    }
+
+    /**
+     * Encodes the document as RTF; the RTF of a document that has not been used since it was read is returned as-is.
+     */
+    synchronized byte[] encode() {
+        if (rtf != null) {
+            return rtf;
+        }
+
+        return StyledDocumentSerializer.convertDocumentToRtf(document != null ? document : styledText.toDocument());
+    }
+
+    /**
+     * Creates a copy of this document in which each of the given ranges of text is replaced, leaving this document
+     * unchanged. The ranges are replaced in a single pass over the document's text and styles (see
+     * {@link StyledText#replace(List, String)}) rather than by editing a Swing document once per range, and the copy's
+     * document is not built.
+     *
+     * @param ranges      The ranges of text to replace, in ascending order, not overlapping and not empty
+     * @param replacement The text to replace each range with
+     * @return The document with every range replaced
+     */
+    public LazyDocument replace(List<Range> ranges, String replacement) {
+        StyledDocument document;
+        StyledText styledText;
+        byte[] rtf;
+        synchronized (this) {
+            document = this.document;
+            styledText = this.styledText;
+            rtf = this.rtf;
+        }
+
+        // A built document is captured without holding this object's lock, as it is by copy()
+        if (document != null) {
+            styledText = StyledText.of(document);
+        } else if (styledText == null) {
+            styledText = StyledText.of(StyledDocumentSerializer.convertRtfToDocument(rtf));
+        }
+
+        return new LazyDocument(null, styledText.replace(ranges, replacement), null);
+    }
+
+    /**
+     * Copies this document; see {@link ModelCopier}. The copy shares this document's RTF or styled text, if it has not
+     * been built, or else a snapshot of its text and styles. In no case is the copy's document built.
+     */
+    LazyDocument copy() {
+        StyledDocument document;
+        synchronized (this) {
+            document = this.document;
+            if (document == null) {
+                LazyDocument copy = new LazyDocument(null, styledText, rtf);
+                copy.rtfText = rtfText;
+                return copy;
+            }
+        }
+
+        // Captured without holding this object's lock, which may be needed by whoever is editing the document
+        return new LazyDocument(null, StyledText.of(document), null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.defano.wyldcard.serializer;
+
+import com.google.gson.*;
+
+import java.lang.reflect.Type;
+import java.util.Base64;
+
+/**
+ * Used to serialize/deserialize a {@link LazyDocument} into Base64-encoded RTF; the same form in which a
+ * {@link javax.swing.text.StyledDocument} is serialized. Deserialized documents are not built until they are needed.
+ */
+class LazyDocumentSerializer implements JsonSerializer<LazyDocument>, JsonDeserializer<LazyDocument> {
+
+    @Override
+    public LazyDocument deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
+        return LazyDocument.decodedLazily(Base64.getDecoder().decode(json.getAsString()));
+    }
+
+    @Override
+    public JsonElement serialize(LazyDocument src, Type typeOfSrc, JsonSerializationContext context) {
+        return new JsonPrimitive(Base64.getEncoder().encodeToString(src.encode()));
+    }
+}
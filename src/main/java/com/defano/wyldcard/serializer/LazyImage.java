@@ -0,0 +1,86 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.util.MonochromeImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * An image that, when read from a stack file, is not decoded until it is first drawn.
+ * <p>
+ * A LazyImage is immutable and may be shared freely, including between a model and its copies. An image read from a
+ * file retains its encoded form until it is decoded, and can be written back to a file in that form without being
+ * decoded or re-encoded.
+ */
+public final class LazyImage {
+
+    private BufferedImage image;
+    private byte[] encoded;
+    private ImageCodec codec;
+
+    private LazyImage(BufferedImage image, byte[] encoded, ImageCodec codec) {
+        this.image = image;
+        this.encoded = encoded;
+        this.codec = codec;
+    }
+
+    /**
+     * Creates a LazyImage of an already-decoded image.
+     *
+     * @param image The image
+     * @return The LazyImage, or null if the image is null
+     */
+    public static LazyImage of(BufferedImage image) {
+        return image == null ? null : new LazyImage(image, null, null);
+    }
+
+    static LazyImage decodedLazily(byte[] encoded, ImageCodec codec) {
+        return new LazyImage(null, encoded, codec);
+    }
+
+    /**
+     * Gets the image, decoding it if it has not been decoded already.
+     *
+     * @return The image
+     * @throws IllegalStateException If the image cannot be decoded
+     */
+    public synchronized BufferedImage get() {
+        if (image == null) {
+            try {
+                image = codec.decode(encoded);
+                encoded = null;
+                codec = null;
+            } catch (IOException e) {
+                throw new IllegalStateException("An error occurred decoding an image. This stack is corrupted.", e);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Determines if the image has been decoded.
+     *
+     * @return True if the image has been decoded (or never was encoded)
+     */
+    public synchronized boolean isDecoded() {
+        return image != null;
+    }
+
+    /**
+     * Encodes the image in the given format. If the image has not yet been decoded and is held in the requested
+     * format, its encoded form is returned as-is.
+     * <p>
+     * An image that is entirely black, white and transparent is packed (see {@link MonochromeImageUtils}) when it is
+     * first encoded, and held packed thereafter; images are encoded on the serializer's threads, so painting an image
+     * need not wait for it to be packed.
+     */
+    synchronized byte[] encode(ImageCodec codec) throws IOException {
+        if (image == null && this.codec == codec) {
+            return encoded;
+        }
+
+        image = MonochromeImageUtils.pack(get());
+        return codec.encode(image);
+    }
+}
@@ -0,0 +1,34 @@
+package com.defano.wyldcard.serializer;
+
+import com.google.gson.*;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Base64;
+
+/**
+ * Used to serialize/deserialize a {@link LazyImage} into a Base64-encoded PNG; the same form in which a
+ * {@link java.awt.image.BufferedImage} is serialized. Deserialized images are not decoded until they are first used.
+ */
+class LazyImageSerializer implements JsonSerializer<LazyImage>, JsonDeserializer<LazyImage> {
+
+    @Override
+    public LazyImage deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
+        byte[] imageData = Base64.getDecoder().decode(json.getAsString());
+
+        if (imageData.length == 0) {
+            throw new IllegalStateException("Bogus image size");
+        }
+
+        return LazyImage.decodedLazily(imageData, ImageCodec.PNG);
+    }
+
+    @Override
+    public JsonElement serialize(LazyImage src, Type typeOfSrc, JsonSerializationContext context) {
+        try {
+            return new JsonPrimitive(Base64.getEncoder().encodeToString(src.encode(ImageCodec.PNG)));
+        } catch (IOException e) {
+            throw new JsonIOException("An error occurred while trying to save the image.", e);
+        }
+    }
+}
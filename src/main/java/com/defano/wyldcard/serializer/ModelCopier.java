@@ -0,0 +1,212 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.wyldcard.property.Property;
+import com.defano.wyldcard.property.PropertyList;
+import com.defano.wyldcard.property.value.BasicValue;
+import com.defano.wyldcard.property.value.ConstantValue;
+import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.reflect.TypeToken;
+
+import javax.annotation.PostConstruct;
+import javax.swing.text.StyledDocument;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes deep copies of model objects without serializing them.
+ * <p>
+ * A copy is equivalent to serializing an object to JSON and deserializing the result: objects are constructed as Gson
+ * would construct them, every non-transient field is copied (a null field keeps the value assigned by the
+ * constructor), and the object's @PostConstruct method is invoked once its fields have been copied. Property lists
+ * retain only their basic and constant values, just as they do when serialized.
+ * <p>
+ * Immutable data (strings, primitive wrappers, enums and {@link Value}s) is shared between the original and the copy.
+ * Images are shared too; models never draw into an image once it has been assigned to them, but replace it instead.
+ * Styled documents are copied by way of their {@link StyledText} rather than RTF; see {@link LazyDocument#copy()}.
+ */
+class ModelCopier {
+
+    private static final ConstructorConstructor constructors = new ConstructorConstructor(Collections.emptyMap());
+    private static final Map<Class<?>, List<Field>> fields = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Optional<Method>> postConstructors = new ConcurrentHashMap<>();
+
+    private ModelCopier() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T object) {
+        if (object == null || isShareable(object)) {
+            return object;
+        } else if (object instanceof StyledDocument) {
+            return (T) copyDocument((StyledDocument) object);
+        } else if (object instanceof LazyDocument) {
+            return (T) ((LazyDocument) object).copy();
+        } else if (object instanceof PropertyList) {
+            return (T) copyProperties((PropertyList) object);
+        } else if (object.getClass().isArray()) {
+            return (T) copyArray(object);
+        } else if (object instanceof Collection) {
+            return (T) copyCollection((Collection<?>) object);
+        } else if (object instanceof Map) {
+            return (T) copyMap((Map<?, ?>) object);
+        } else {
+            return copyObject(object, false);
+        }
+    }
+
+    /**
+     * Copies an object as {@link #copy(Object)} does, except that its fields annotated {@link Detached} are not copied
+     * (just as they are not written when the object is saved to a stack archive); they keep the values assigned by the
+     * object's constructor. Objects referenced by the copied fields are copied in full.
+     */
+    static <T> T copyDetached(T object) {
+        return object == null ? null : copyObject(object, true);
+    }
+
+    private static boolean isShareable(Object object) {
+        return object instanceof String ||
+                object instanceof Number ||
+                object instanceof Boolean ||
+                object instanceof Character ||
+                object instanceof Enum ||
+                object instanceof Class ||
+                object instanceof Value ||
+                object instanceof BufferedImage ||
+                object instanceof LazyImage;
+    }
+
+    private static <T> T copyObject(T object, boolean detached) {
+        T copy = construct(object.getClass());
+
+        try {
+            for (Field field : getFields(object.getClass())) {
+                if (detached && field.isAnnotationPresent(Detached.class)) {
+                    continue;
+                }
+
+                Object value = field.get(object);
+                if (value != null) {
+                    field.set(copy, copy(value));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to copy " + object.getClass().getName() + ".", e);
+        }
+
+        postConstruct(copy);
+        return copy;
+    }
+
+    private static Object copyArray(Object array) {
+        int length = Array.getLength(array);
+        Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+
+        if (array.getClass().getComponentType().isPrimitive()) {
+            System.arraycopy(array, 0, copy, 0, length);
+        } else {
+            for (int index = 0; index < length; index++) {
+                Array.set(copy, index, copy(Array.get(array, index)));
+            }
+        }
+
+        return copy;
+    }
+
+    private static Collection<Object> copyCollection(Collection<?> collection) {
+        Collection<Object> copy = construct(collection.getClass());
+        for (Object element : collection) {
+            copy.add(copy(element));
+        }
+
+        return copy;
+    }
+
+    private static Map<Object, Object> copyMap(Map<?, ?> map) {
+        Map<Object, Object> copy = construct(map.getClass());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(copy(entry.getKey()), copy(entry.getValue()));
+        }
+
+        return copy;
+    }
+
+    private static PropertyList copyProperties(PropertyList properties) {
+        PropertyList copy = new PropertyList();
+
+        for (Property property : properties) {
+            if (property.value() instanceof BasicValue) {
+                copy.add(new Property(new BasicValue(((BasicValue) property.value()).rawValue()), property.name()));
+            } else if (property.value() instanceof ConstantValue) {
+                copy.add(new Property(new ConstantValue(((ConstantValue) property.value()).rawValue()), property.name()));
+            }
+        }
+
+        return copy;
+    }
+
+    private static StyledDocument copyDocument(StyledDocument document) {
+        return StyledText.of(document).toDocument();
+    }
+
+    /**
+     * Constructs an instance of the given class as Gson would; collections and maps lacking a no-arg constructor are
+     * replaced with a default implementation.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T construct(Class<?> clazz) {
+        return (T) constructors.get(TypeToken.get(clazz)).construct();
+    }
+
+    private static void postConstruct(Object object) {
+        Optional<Method> method = postConstructors.computeIfAbsent(object.getClass(), ModelCopier::findPostConstruct);
+
+        if (method.isPresent()) {
+            try {
+                method.get().invoke(object);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Finds the @PostConstruct method that deserialization would invoke; see {@link PostConstructAdapterFactory}.
+     */
+    private static Optional<Method> findPostConstruct(Class<?> clazz) {
+        for (Class<?> t = clazz; (t != Object.class) && (t.getSuperclass() != null); t = t.getSuperclass()) {
+            for (Method m : t.getDeclaredMethods()) {
+                if (m.isAnnotationPresent(PostConstruct.class)) {
+                    m.setAccessible(true);
+                    return Optional.of(m);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the fields that Gson serializes: every non-static, non-transient field declared by the class or its
+     * superclasses.
+     */
+    private static List<Field> getFields(Class<?> clazz) {
+        return fields.computeIfAbsent(clazz, c -> {
+            List<Field> serialized = new ArrayList<>();
+            for (Class<?> t = c; t != null && t != Object.class; t = t.getSuperclass()) {
+                for (Field field : t.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        serialized.add(field);
+                    }
+                }
+            }
+            return serialized;
+        });
+    }
+}
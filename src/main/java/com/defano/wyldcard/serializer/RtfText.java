@@ -0,0 +1,211 @@
+package com.defano.wyldcard.serializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extracts the plain text of an RTF document without building a {@link javax.swing.text.StyledDocument}.
+ * <p>
+ * This understands the subset of RTF written by Swing's {@link javax.swing.text.rtf.RTFEditorKit} (which is how
+ * field text is stored) and produces the same text that reading the document with the editor kit would. Anything
+ * outside that subset (a character whose meaning depends on the document's character set, an ignorable destination,
+ * binary data and the like) is reported as unsupported rather than guessed at; the caller should then read the
+ * document with the editor kit instead.
+ */
+final class RtfText {
+
+    private static final Map<String, Character> TEXT_KEYWORDS = new HashMap<>();
+    private static final String[] DESTINATIONS = {"fonttbl", "colortbl", "stylesheet", "info"};
+    private static final String[] UNSUPPORTED = {"bin", "mac", "pc", "pca", "next", "ansicpg", "line", "sect", "page", "cell", "row"};
+
+    static {
+        // Control words and symbols that Swing reads as text; see javax.swing.text.rtf.RTFReader
+        TEXT_KEYWORDS.put("\\", '\\');
+        TEXT_KEYWORDS.put("{", '{');
+        TEXT_KEYWORDS.put("}", '}');
+        TEXT_KEYWORDS.put(" ", '\u00A0');
+        TEXT_KEYWORDS.put("~", '\u00A0');
+        TEXT_KEYWORDS.put("_", '\u2011');
+        TEXT_KEYWORDS.put("-", '\u2027');
+        TEXT_KEYWORDS.put("bullet", '\u2022');
+        TEXT_KEYWORDS.put("emdash", '\u2014');
+        TEXT_KEYWORDS.put("emspace", '\u2003');
+        TEXT_KEYWORDS.put("endash", '\u2013');
+        TEXT_KEYWORDS.put("enspace", '\u2002');
+        TEXT_KEYWORDS.put("ldblquote", '\u201C');
+        TEXT_KEYWORDS.put("lquote", '\u2018');
+        TEXT_KEYWORDS.put("ltrmark", '\u200E');
+        TEXT_KEYWORDS.put("rdblquote", '\u201D');
+        TEXT_KEYWORDS.put("rquote", '\u2019');
+        TEXT_KEYWORDS.put("rtlmark", '\u200F');
+        TEXT_KEYWORDS.put("tab", '\t');
+        TEXT_KEYWORDS.put("zwj", '\u200D');
+        TEXT_KEYWORDS.put("zwnj", '\u200C');
+        TEXT_KEYWORDS.put("par", '\n');
+    }
+
+    private final byte[] rtf;
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int depth;
+    private int skippedDepth = Integer.MAX_VALUE;
+    private int unicodeSkip = 1;
+    private int skipping;
+
+    private RtfText(byte[] rtf) {
+        this.rtf = rtf;
+    }
+
+    /**
+     * Extracts the text of an RTF document, as {@link StyledDocumentSerializer} would deserialize it.
+     *
+     * @param rtf The RTF document
+     * @return The document's text, or null if the document uses RTF that this class does not understand
+     */
+    static String extract(byte[] rtf) {
+        try {
+            return new RtfText(rtf).extract();
+        } catch (UnsupportedRtfException e) {
+            return null;
+        }
+    }
+
+    private String extract() {
+        while (position < rtf.length) {
+            char ch = next();
+
+            if (ch == '{') {
+                depth++;
+                skipping = 0;
+            } else if (ch == '}') {
+                if (depth == 0) {
+                    throw new UnsupportedRtfException();
+                }
+                if (--depth < skippedDepth) {
+                    skippedDepth = Integer.MAX_VALUE;
+                }
+                skipping = 0;
+            } else if (ch == '\\') {
+                readControl();
+            } else if (ch > 0x7F) {
+                throw new UnsupportedRtfException();
+            } else if (ch != '\n' && ch != '\r') {
+                append(ch);
+            }
+        }
+
+        // The editor kit reads a trailing newline that the deserializer removes; see StyledDocumentSerializer
+        return text.length() == 0 ? "" : text.substring(0, text.length() - 1);
+    }
+
+    private void readControl() {
+        if (position >= rtf.length) {
+            throw new UnsupportedRtfException();
+        }
+
+        char ch = next();
+
+        if (ch == '\'') {
+            int value = hexDigit() * 16 + hexDigit();
+            // Only the upper half of Latin-1 is read as itself under \ansi
+            if (value <= 0xA0) {
+                throw new UnsupportedRtfException();
+            }
+            append((char) value);
+        } else if (!Character.isLetter(ch)) {
+            Character symbol = TEXT_KEYWORDS.get(String.valueOf(ch));
+            if (symbol == null) {
+                throw new UnsupportedRtfException();      // Includes \* (ignorable destination)
+            }
+            append(symbol);
+        } else {
+            readControlWord(ch);
+        }
+    }
+
+    private void readControlWord(char first) {
+        StringBuilder word = new StringBuilder().append(first);
+        while (position < rtf.length && Character.isLetter(peek())) {
+            word.append(next());
+        }
+
+        Integer parameter = null;
+        if (position < rtf.length && (peek() == '-' || Character.isDigit(peek()))) {
+            StringBuilder digits = new StringBuilder().append(next());
+            while (position < rtf.length && Character.isDigit(peek())) {
+                digits.append(next());
+            }
+            try {
+                parameter = Integer.parseInt(digits.toString());
+            } catch (NumberFormatException e) {
+                throw new UnsupportedRtfException();
+            }
+        }
+
+        // Whitespace delimiting the control word is not part of the text
+        if (position < rtf.length && Character.isWhitespace(peek())) {
+            position++;
+        }
+
+        String keyword = word.toString();
+        for (String unsupported : UNSUPPORTED) {
+            if (unsupported.equals(keyword)) {
+                throw new UnsupportedRtfException();
+            }
+        }
+
+        if (skipping > 0) {
+            skipping--;
+        } else if (parameter == null && TEXT_KEYWORDS.containsKey(keyword)) {
+            append(TEXT_KEYWORDS.get(keyword));
+        } else if (parameter != null && keyword.equals("uc")) {
+            unicodeSkip = parameter;
+        } else if (parameter != null && keyword.equals("u")) {
+            append((char) (parameter < 0 ? parameter + 65536 : parameter));
+            skipping = unicodeSkip;
+        } else if (isDestination(keyword)) {
+            skippedDepth = Math.min(skippedDepth, depth);
+        }
+
+        // All other control words affect only formatting
+    }
+
+    private void append(char ch) {
+        if (skipping > 0) {
+            skipping--;
+        } else if (depth < skippedDepth) {
+            text.append(ch);
+        }
+    }
+
+    private int hexDigit() {
+        int digit = position < rtf.length ? Character.digit(next(), 16) : -1;
+        if (digit < 0) {
+            throw new UnsupportedRtfException();
+        }
+        return digit;
+    }
+
+    private static boolean isDestination(String keyword) {
+        for (String destination : DESTINATIONS) {
+            if (destination.equals(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private char next() {
+        return (char) (rtf[position++] & 0xFF);
+    }
+
+    private char peek() {
+        return (char) (rtf[position] & 0xFF);
+    }
+
+    private static class UnsupportedRtfException extends RuntimeException {
+        private UnsupportedRtfException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -4,19 +4,34 @@ import com.defano.hypertalk.ast.model.Value;
 import com.defano.wyldcard.property.PropertyList;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import javax.swing.text.StyledDocument;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A utility for serializing/de-serializing WyldCard objects.
+ * <p>
+ * Files are streamed directly to and from disk; the serialized form of a stack is never held in memory as a single
+ * string. Stacks are written in compact (not pretty-printed) form, but any well-formed JSON, including stacks saved
+ * by earlier versions, can be read.
  */
 public class Serializer {
 
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final String TEMP_FILE_SUFFIX = ".tmp";
+
     private Serializer() {
     }
 
@@ -25,15 +40,27 @@ public class Serializer {
             .registerTypeAdapter(Value.class, new ValueSerializer())
             .registerTypeAdapter(byte[].class, new ByteArraySerializer())
             .registerTypeAdapter(BufferedImage.class, new BufferedImageSerializer())
+            .registerTypeAdapter(LazyImage.class, new LazyImageSerializer())
             .registerTypeAdapter(StyledDocument.class, new StyledDocumentSerializer())
+            .registerTypeAdapter(LazyDocument.class, new LazyDocumentSerializer())
             .registerTypeAdapter(PropertyList.class, new PropertyListSerializer())
             .enableComplexMapKeySerialization()
-            .setPrettyPrinting()
             .create();
 
-    @SuppressWarnings("unchecked")
+    static Gson getGson() {
+        return gson;
+    }
+
+    /**
+     * Makes a deep copy of an object graph. The copy is equivalent to the result of serializing and deserializing the
+     * object, but is made directly, without encoding images or styled text; see {@link ModelCopier}.
+     *
+     * @param t The object to copy
+     * @param <T> The type of object being copied
+     * @return A copy of the object
+     */
     public static <T> T copy(T t) {
-        return (T) deserialize(serialize(t), t.getClass());
+        return ModelCopier.copy(t);
     }
 
     /**
@@ -48,29 +75,38 @@ public class Serializer {
 
     /**
      * Serializes the contents of an Object to a file.
+     * <p>
+     * The JSON is streamed into a temporary file in the same directory as the given file, which is then moved over
+     * the given file once completely written and flushed to disk. Thus, a failure while saving never leaves a
+     * partially written file in place of the original.
      *
      * @param file The file that should be written with the JSON-formatted serialization data.
      * @param object The object graph to be serialized. Object graph cannot contain cycles!
      * @throws IOException Thrown if an error occurs serializing the data or writing it to the file.
      */
     public static void serialize (File file, Object object) throws IOException {
-        Files.write(file.toPath(), serialize(object).getBytes(StandardCharsets.UTF_8));
-    }
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = target.resolveSibling(file.getName() + TEMP_FILE_SUFFIX);
 
-    /**
-     * Attempts to deserialize a JSON-formatted string into an Object of the requested type.
-     *
-     * @param json A JSON string to deserialize; typically generated using the {@link #serialize(Object)} method.
-     * @param clazz The class of object to deserialize into.
-     * @param <T> A type representing the deserialized object class.
-     * @return A deserialized representation of the given file.
-     */
-    private static <T> T deserialize(String json, Class<T> clazz) {
-        return gson.fromJson(json, clazz);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE));
+                gson.toJson(object, object.getClass(), writer);
+                writer.flush();
+                channel.force(true);
+            } catch (JsonParseException e) {
+                throw new IOException("Failed to serialize the stack.", e);
+            }
+
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
     /**
-     * Attempts to deserialize the contents of a file into an Object of the requested type.
+     * Attempts to deserialize the contents of a file into an Object of the requested type. The file is parsed as it
+     * is read; it is never buffered into memory in its entirety.
      *
      * @param file The file to deserialize; should a plain-text, JSON-formatted file generated using the
      *             {@link #serialize(File, Object)} method.
@@ -79,11 +115,25 @@ public class Serializer {
      * @return A deserialized representation of the given file.
      */
     public static <T> T deserialize (File file, Class<T> clazz) {
-        try {
-            return deserialize(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), clazz);
+        try (JsonReader reader = gson.newJsonReader(new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            return gson.fromJson(reader, clazz);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read the file. The file may be corrupted.", e);
         }
     }
 
+    /**
+     * Replaces the target file with the source file, atomically when the underlying file system supports it.
+     *
+     * @param source The file to move
+     * @param target The file to be replaced
+     * @throws IOException Thrown if the file cannot be moved
+     */
+    static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 }
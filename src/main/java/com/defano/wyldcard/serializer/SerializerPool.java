@@ -0,0 +1,129 @@
+package com.defano.wyldcard.serializer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.*;
+
+/**
+ * A bounded pool of threads on which the CPU-bound work of saving, loading and importing a stack (encoding and decoding
+ * images, converting styled text to and from RTF, compressing blocks, and building the models of imported cards) is
+ * performed.
+ * <p>
+ * The pool's parallelism defaults to the number of available processors and may be configured with the
+ * {@value #PARALLELISM_PROPERTY} system property or {@link #setParallelism(int)}. With a parallelism of one, tasks
+ * are run on the calling thread as they are submitted. Parallelism never affects what is written: callers consume
+ * results in the order in which tasks were submitted, not the order in which they complete.
+ */
+public final class SerializerPool {
+
+    /**
+     * The system property specifying the number of threads used to save and load stacks.
+     */
+    public static final String PARALLELISM_PROPERTY = "wyldcard.serializer.parallelism";
+
+    private static int parallelism = Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    private static ForkJoinPool pool;
+
+    private SerializerPool() {
+    }
+
+    /**
+     * Gets the number of threads used to save and load stacks.
+     *
+     * @return The pool's parallelism
+     */
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to save and load stacks. Tasks already submitted run to completion on the
+     * threads they were submitted to.
+     *
+     * @param parallelism The number of threads; one to perform all work on the thread saving or loading the stack
+     * @throws IllegalArgumentException If parallelism is less than one
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least one.");
+        }
+
+        if (parallelism != SerializerPool.parallelism && pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+
+        SerializerPool.parallelism = parallelism;
+    }
+
+    /**
+     * Submits a task to the pool; when the pool's parallelism is one, the task is run before this method returns.
+     *
+     * @param task The task to run
+     * @param <T>  The type of the task's result
+     * @return A future of the task's result; see {@link #await(Future)}
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ForkJoinPool pool = getPool();
+
+        if (pool != null) {
+            try {
+                pool.execute(() -> run(task, result));
+                return result;
+            } catch (RejectedExecutionException e) {
+                // The pool was shut down by a change in parallelism; run the task here instead
+            }
+        }
+
+        run(task, result);
+        return result;
+    }
+
+    /**
+     * Waits for a submitted task to complete, rethrowing any exception the task threw.
+     *
+     * @param future The future returned by {@link #submit(Callable)}
+     * @param <T>    The type of the task's result
+     * @return The task's result
+     * @throws IOException Thrown if the task threw an IOException, or if interrupted while waiting
+     */
+    public static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new InterruptedIOException("Interrupted while saving or loading the stack.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private static <T> void run(Callable<T> task, CompletableFuture<T> result) {
+        if (!result.isDone()) {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                // Including errors; otherwise the future is never completed and its waiter never returns
+                result.completeExceptionally(t);
+            }
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (parallelism > 1 && pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,642 @@
+package com.defano.wyldcard.serializer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A binary container of independently addressable, optionally compressed blocks of data, indexed by a table of
+ * contents. Used to store a stack such that each of its cards and backgrounds can be read without reading (or parsing)
+ * the rest of the stack.
+ * <p>
+ * The container is laid out as:
+ * <pre>
+ *     header:   magic (8 bytes), version (int)
+ *     blocks:   block data, back to back
+ *     contents: entry count (int), then for each entry its name (UTF), offset (long), stored length (int),
+ *               length (int), flags (byte) and CRC-32 of the stored bytes (int)
+ *     trailer:  offset of contents (long), length of contents (int), CRC-32 of contents (int), magic (8 bytes)
+ * </pre>
+ * An archive may also be updated in place by appending new blocks followed by a new table of contents and trailer (a
+ * "commit") to the end of the file; the new table of contents may refer to blocks written by earlier commits. Blocks no
+ * longer referenced by the latest table of contents are wasted space, which is recovered only by rewriting the archive.
+ * If an append is interrupted, the archive is read as of its last complete commit.
+ * <p>
+ * Written blocks are never modified; blocks are read with positional reads through a single channel held open until
+ * the archive is closed, so a single archive may be read from multiple threads, even while it is being appended to.
+ */
+public class StackArchive implements Closeable {
+
+    private static final byte[] HEADER_MAGIC = "WYLDSTAK".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRAILER_MAGIC = "WYLDTOC!".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = HEADER_MAGIC.length + Integer.BYTES;
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES + Integer.BYTES + TRAILER_MAGIC.length;
+    private static final byte FLAG_COMPRESSED = 0x01;
+
+    private final Path path;
+    private final Map<String, Entry> contents;
+    private final long length;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+
+    private StackArchive(Path path, FileChannel channel, Map<String, Entry> contents, long length) {
+        this.path = path;
+        this.channel = channel;
+        this.contents = contents;
+        this.length = length;
+    }
+
+    /**
+     * Determines if the given file appears to be a stack archive (that is, it begins with the archive's magic number).
+     *
+     * @param file The file to test
+     * @return True if the file is a stack archive; false otherwise
+     */
+    public static boolean isArchive(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] magic = new byte[HEADER_MAGIC.length];
+            return in.read(magic) == magic.length && Arrays.equals(magic, HEADER_MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens an existing archive, reading its table of contents. No block data is read. If the last commit to the
+     * archive is incomplete, the archive is opened as of the commit before it. The file remains open until the archive
+     * is closed.
+     *
+     * @param file The archive file to open
+     * @return The opened archive
+     * @throws IOException Thrown if the file cannot be read or is not a valid archive
+     */
+    public static StackArchive open(File file) throws IOException {
+        Path path = file.toPath();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+                throw new IOException("Not a stack archive; file is too short.");
+            }
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(channel, 0, HEADER_LENGTH)));
+            byte[] magic = new byte[HEADER_MAGIC.length];
+            header.readFully(magic);
+            if (!Arrays.equals(magic, HEADER_MAGIC)) {
+                throw new IOException("Not a stack archive.");
+            }
+            if (header.readInt() > VERSION) {
+                throw new IOException("This stack was saved by a newer version of WyldCard.");
+            }
+
+            Map<String, Entry> contents = readCommit(channel, size);
+            if (contents != null) {
+                return new StackArchive(path, channel, contents, size);
+            }
+
+            // Last commit is incomplete; fall back to the most recent one that is intact
+            long end = size - 1;
+            while ((end = findTrailer(channel, end)) > 0) {
+                if ((contents = readCommit(channel, end)) != null) {
+                    return new StackArchive(path, channel, contents, end);
+                }
+                end--;
+            }
+
+            throw new IOException("The stack archive is incomplete or corrupted.");
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new archive. The archive is written to a temporary file and is moved into place only once
+     * {@link Writer#close()} completes successfully.
+     *
+     * @param file The file to create (or replace)
+     * @return A writer to which blocks should be added
+     * @throws IOException Thrown if the file cannot be created
+     */
+    public static Writer create(File file) throws IOException {
+        return new Writer(file.toPath().toAbsolutePath());
+    }
+
+    /**
+     * Opens this archive for appending. Blocks written to the returned writer are added to the end of the archive file
+     * and blocks copied from this archive are referenced in place; the archive is committed when
+     * {@link Writer#close()} completes. Blocks not written or copied to the writer are dropped from the archive.
+     * <p>
+     * This archive object continues to reflect the archive's contents as they were before the append; re-open the file
+     * to read the appended blocks.
+     *
+     * @return A writer to which blocks should be added
+     * @throws IOException Thrown if the archive cannot be opened for writing
+     */
+    public Writer append() throws IOException {
+        return new Writer(this);
+    }
+
+    /**
+     * Gets the file holding this archive.
+     *
+     * @return The archive file
+     */
+    public File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * Determines if this archive contains a block with the given name.
+     *
+     * @param name The name of the block
+     * @return True if the block exists; false otherwise
+     */
+    public boolean contains(String name) {
+        return contents.containsKey(name);
+    }
+
+    /**
+     * Gets the names of all blocks in this archive, in the order in which they were written.
+     *
+     * @return The block names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(contents.keySet());
+    }
+
+    /**
+     * Gets the length of this archive, in bytes, through the end of its last complete commit.
+     *
+     * @return The length of the archive
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of bytes in this archive that are not part of any block in its table of contents, nor of the
+     * table of contents itself; that is, space occupied by blocks and tables of contents superseded by later commits.
+     *
+     * @return The number of wasted bytes
+     */
+    public long getWastedLength() {
+        long used = HEADER_LENGTH + TRAILER_LENGTH + getContentsLength(contents.values());
+        for (Entry entry : contents.values()) {
+            used += entry.storedLength;
+        }
+        return length - used;
+    }
+
+    /**
+     * Reads (and decompresses, as required) the named block.
+     *
+     * @param name The name of the block to read
+     * @return The contents of the block
+     * @throws IOException Thrown if the block does not exist, cannot be read, or fails its integrity check
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = getEntry(name);
+        byte[] stored = readStored(entry);
+
+        if ((entry.flags & FLAG_COMPRESSED) == 0) {
+            return stored;
+        }
+
+        byte[] data = new byte[entry.length];
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(stored)))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    /**
+     * Closes the archive file. Blocks can no longer be read from (or copied from) this archive once it is closed, but
+     * writers already opened by {@link #append()} are unaffected.
+     *
+     * @throws IOException Thrown if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private Entry getEntry(String name) throws IOException {
+        Entry entry = contents.get(name);
+        if (entry == null) {
+            throw new FileNotFoundException("No such block in stack archive: " + name);
+        }
+        return entry;
+    }
+
+    private byte[] readStored(Entry entry) throws IOException {
+        byte[] stored;
+        try {
+            stored = read(getChannel(), entry.offset, entry.storedLength);
+        } catch (ClosedByInterruptException e) {
+            throw e;
+        } catch (AsynchronousCloseException e) {
+            // Another thread was interrupted while reading, which closes the channel for every thread; read again
+            stored = read(getChannel(), entry.offset, entry.storedLength);
+        }
+
+        if (crc(stored) != entry.crc) {
+            throw new IOException("Block " + entry.name + " of the stack archive is corrupted.");
+        }
+
+        return stored;
+    }
+
+    /**
+     * Gets the channel through which blocks are read. A file channel is closed when a thread reading from it is
+     * interrupted; if that has happened (and this archive has not been closed), the file is opened again.
+     */
+    private FileChannel getChannel() throws IOException {
+        FileChannel channel = this.channel;
+        if (channel.isOpen()) {
+            return channel;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            if (!this.channel.isOpen()) {
+                this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            }
+            return this.channel;
+        }
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of stack archive.");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads the table of contents of the commit ending at the given position.
+     *
+     * @return The table of contents, or null if there is no intact commit ending at the given position
+     */
+    private static Map<String, Entry> readCommit(FileChannel channel, long end) throws IOException {
+        if (end < HEADER_LENGTH + TRAILER_LENGTH) {
+            return null;
+        }
+
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(read(channel, end - TRAILER_LENGTH, TRAILER_LENGTH)));
+        long contentsOffset = trailer.readLong();
+        int contentsLength = trailer.readInt();
+        int contentsCrc = trailer.readInt();
+        byte[] magic = new byte[TRAILER_MAGIC.length];
+        trailer.readFully(magic);
+        if (!Arrays.equals(magic, TRAILER_MAGIC) || contentsOffset < HEADER_LENGTH || contentsLength < 0 || contentsOffset + contentsLength != end - TRAILER_LENGTH) {
+            return null;
+        }
+
+        byte[] contents = read(channel, contentsOffset, contentsLength);
+        if (crc(contents) != contentsCrc) {
+            return null;
+        }
+
+        Map<String, Entry> entries = readContents(contents);
+        for (Entry entry : entries.values()) {
+            if (entry.offset < HEADER_LENGTH || entry.offset + entry.storedLength > contentsOffset) {
+                return null;
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Searches backwards from the given position for the end of a trailer; that is, for the last occurrence of the
+     * trailer magic ending at or before the position.
+     *
+     * @return The position immediately following the trailer magic, or -1 if there is none
+     */
+    private static long findTrailer(FileChannel channel, long end) throws IOException {
+        long chunkEnd = end;
+        while (chunkEnd - HEADER_LENGTH >= TRAILER_MAGIC.length) {
+            long chunkStart = Math.max(HEADER_LENGTH, chunkEnd - Serializer.BUFFER_SIZE);
+            byte[] chunk = read(channel, chunkStart, (int) (chunkEnd - chunkStart));
+
+            for (int index = chunk.length - TRAILER_MAGIC.length; index >= 0; index--) {
+                if (regionMatches(chunk, index, TRAILER_MAGIC)) {
+                    return chunkStart + index + TRAILER_MAGIC.length;
+                }
+            }
+
+            if (chunkStart == HEADER_LENGTH) {
+                break;
+            }
+
+            // Overlap chunks so that a trailer straddling them is found
+            chunkEnd = chunkStart + TRAILER_MAGIC.length - 1;
+        }
+
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] data, int offset, byte[] pattern) {
+        for (int index = 0; index < pattern.length; index++) {
+            if (data[offset + index] != pattern[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Entry> readContents(byte[] contents) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+        int count = in.readInt();
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (int index = 0; index < count; index++) {
+            Entry entry = new Entry(in.readUTF(), in.readLong(), in.readInt(), in.readInt(), in.readByte(), in.readInt());
+            entries.put(entry.name, entry);
+        }
+
+        return entries;
+    }
+
+    private static byte[] writeContents(Collection<Entry> entries) throws IOException {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(contents);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.name);
+            out.writeLong(entry.offset);
+            out.writeInt(entry.storedLength);
+            out.writeInt(entry.length);
+            out.writeByte(entry.flags);
+            out.writeInt(entry.crc);
+        }
+        return contents.toByteArray();
+    }
+
+    private static long getContentsLength(Collection<Entry> entries) {
+        long length = Integer.BYTES;
+        for (Entry entry : entries) {
+            length += 2 + entry.name.getBytes(StandardCharsets.UTF_8).length + Long.BYTES + Integer.BYTES * 3 + 1;
+        }
+        return length;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a new stack archive, or appends a commit to an existing one. Blocks are streamed to disk as they are added;
+     * only the table of contents is held in memory.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temp;
+        private final StackArchive base;
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final Map<String, Entry> contents = new LinkedHashMap<>();
+        private final long start;
+        private long position;
+        private boolean closed;
+
+        private Writer(Path target) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + Serializer.TEMP_FILE_SUFFIX);
+            this.base = null;
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), Serializer.BUFFER_SIZE);
+            this.start = 0;
+
+            DataOutputStream header = new DataOutputStream(out);
+            header.write(HEADER_MAGIC);
+            header.writeInt(VERSION);
+            position = HEADER_LENGTH;
+        }
+
+        private Writer(StackArchive base) throws IOException {
+            this.target = base.path;
+            this.temp = null;
+            this.base = base;
+            this.channel = FileChannel.open(base.path, StandardOpenOption.WRITE);
+            this.start = base.length;
+
+            // Anything following the last complete commit is the remains of an interrupted append; overwrite it
+            channel.position(start);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), Serializer.BUFFER_SIZE);
+            position = start;
+        }
+
+        /**
+         * Adds a block to the archive.
+         *
+         * @param name     The name of the block; must be unique within the archive
+         * @param data     The block's data
+         * @param compress When true, the block is deflated before being written
+         * @throws IOException Thrown if the block cannot be written
+         */
+        public void write(String name, byte[] data, boolean compress) throws IOException {
+            write(Block.of(name, data, compress));
+        }
+
+        /**
+         * Adds a block, previously prepared with {@link Block#of(String, byte[], boolean)}, to the archive.
+         *
+         * @param block The block to write; its name must be unique within the archive
+         * @throws IOException Thrown if the block cannot be written
+         */
+        public void write(Block block) throws IOException {
+            append(new Entry(block.name, position, block.stored.length, block.length, block.flags, block.crc), block.stored);
+        }
+
+        /**
+         * Copies a block, as stored, from another archive into this one. The block is neither decompressed nor parsed.
+         * When appending to the archive holding the block, the block is not copied at all; the new table of contents
+         * simply continues to refer to it.
+         *
+         * @param source The archive holding the block
+         * @param name   The name of the block to copy
+         * @throws IOException Thrown if the block cannot be read or written
+         */
+        public void copy(StackArchive source, String name) throws IOException {
+            Entry entry = source.getEntry(name);
+
+            if (base != null && source.path.equals(base.path) && entry.offset + entry.storedLength <= start) {
+                add(entry);
+            } else {
+                byte[] stored = source.readStored(entry);
+                append(new Entry(name, position, entry.storedLength, entry.length, entry.flags, entry.crc), stored);
+            }
+        }
+
+        private void append(Entry entry, byte[] stored) throws IOException {
+            add(entry);
+            out.write(stored);
+            position += stored.length;
+        }
+
+        private void add(Entry entry) {
+            if (contents.containsKey(entry.name)) {
+                throw new IllegalArgumentException("Bug! Duplicate block in stack archive: " + entry.name);
+            }
+
+            contents.put(entry.name, entry);
+        }
+
+        /**
+         * Writes the table of contents and commits the archive: a new archive is moved into place; an appended archive
+         * is made durable.
+         *
+         * @throws IOException Thrown if the archive cannot be completed
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                // Make blocks durable before writing the table of contents that refers to them
+                out.flush();
+                channel.force(false);
+
+                byte[] tocBytes = writeContents(contents.values());
+
+                DataOutputStream trailer = new DataOutputStream(out);
+                trailer.write(tocBytes);
+                trailer.writeLong(position);
+                trailer.writeInt(tocBytes.length);
+                trailer.writeInt(crc(tocBytes));
+                trailer.write(TRAILER_MAGIC);
+                trailer.flush();
+
+                channel.truncate(position + tocBytes.length + TRAILER_LENGTH);
+                channel.force(true);
+                channel.close();
+
+                if (temp != null) {
+                    Serializer.replace(temp, target);
+                }
+            } finally {
+                channel.close();
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+
+        /**
+         * Abandons the archive being written. Any existing archive file is left as it was before this writer was
+         * created.
+         */
+        public void abort() {
+            closed = true;
+            try {
+                try {
+                    if (temp == null) {
+                        channel.truncate(start);
+                    }
+                } finally {
+                    channel.close();
+                }
+
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                // Nothing to do; an incomplete commit is ignored when the archive is next opened
+            }
+        }
+
+    }
+
+    /**
+     * A block that has been compressed and checksummed, ready to be written to an archive. Preparing a block does not
+     * touch the archive, so blocks may be prepared on any thread (and in any order) and then written in sequence.
+     */
+    public static final class Block {
+        private final String name;
+        private final byte[] stored;
+        private final int length;
+        private final byte flags;
+        private final int crc;
+
+        private Block(String name, byte[] stored, int length, byte flags) {
+            this.name = name;
+            this.stored = stored;
+            this.length = length;
+            this.flags = flags;
+            this.crc = crc(stored);
+        }
+
+        /**
+         * Prepares a block to be written to an archive.
+         *
+         * @param name     The name of the block
+         * @param data     The block's data
+         * @param compress When true, the block is deflated
+         * @return The prepared block
+         * @throws IOException Thrown if the data cannot be compressed
+         */
+        public static Block of(String name, byte[] data, boolean compress) throws IOException {
+            return compress ?
+                    new Block(name, deflate(data), data.length, FLAG_COMPRESSED) :
+                    new Block(name, data, data.length, (byte) 0);
+        }
+
+        private static byte[] deflate(byte[] data) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 16);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+                out.write(data);
+            } finally {
+                deflater.end();
+            }
+            return compressed.toByteArray();
+        }
+    }
+
+    private static class Entry {
+        private final String name;
+        private final long offset;
+        private final int storedLength;
+        private final int length;
+        private final byte flags;
+        private final int crc;
+
+        private Entry(String name, long offset, int storedLength, int length, byte flags, int crc) {
+            this.name = name;
+            this.offset = offset;
+            this.storedLength = storedLength;
+            this.length = length;
+            this.flags = flags;
+            this.crc = crc;
+        }
+    }
+}
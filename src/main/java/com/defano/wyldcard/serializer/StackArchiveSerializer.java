@@ -0,0 +1,521 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.stack.CardModelLoader;
+import com.defano.wyldcard.part.stack.CardStub;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and writes stacks in the {@link StackArchive} format. The stack, its card index, each background and each
+ * card are stored as independent JSON blocks so that a stack can be opened by reading only the stack, its backgrounds
+ * and the card to be displayed; all other cards are loaded as they are first accessed.
+ * <p>
+ * Card and background images are stored in blocks of their own as {@link ImageCodec#RASTER} data, and are not decoded
+ * until they are drawn. Archives in which images are stored inline in the JSON, as PNG, remain readable.
+ * <p>
+ * Serializing, encoding and compressing blocks is performed on the {@link SerializerPool}, as is reading backgrounds
+ * and decoding the images displayed when a stack opens. Blocks are always written in the same order regardless of
+ * the pool's parallelism, so a given stack is always saved to the same bytes.
+ */
+public class StackArchiveSerializer {
+
+    private static final String STACK_BLOCK = "stack";
+    private static final String CARDS_BLOCK = "cards";
+    private static final String BACKGROUND_BLOCK_PREFIX = "background/";
+    private static final String CARD_BLOCK_PREFIX = "card/";
+    private static final String IMAGE_BLOCK_PREFIX = "image/";
+
+    private static final Gson gson = Serializer.getGson();
+    private static final Gson detachedGson = gson.newBuilder()
+            .addSerializationExclusionStrategy(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes f) {
+                    return f.getAnnotation(Detached.class) != null;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            })
+            .create();
+
+    private StackArchiveSerializer() {
+    }
+
+    /**
+     * Opens a stack archive. Only the stack, its backgrounds and its current card are read; every other card is read
+     * from the archive the first time it is accessed. The archive remains open until the stack is closed (see
+     * {@link #close(StackModel)}) or is next saved, after which its cards are loaded from the archive it was saved to.
+     *
+     * @param file The stack archive to read
+     * @return The stack model
+     * @throws IOException Thrown if the archive cannot be read
+     */
+    public static StackModel deserialize(File file) throws IOException {
+        StackArchive archive = StackArchive.open(file);
+        try {
+            ArchiveCardLoader loader = new ArchiveCardLoader(archive, new HashMap<>());
+            StackModel stack = fromJson(archive.read(STACK_BLOCK), StackModel.class);
+
+            // Read backgrounds in parallel, but add them to the stack in the order they were saved
+            Map<String, Future<BackgroundModel>> backgrounds = new LinkedHashMap<>();
+            for (String name : archive.getNames()) {
+                if (name.startsWith(BACKGROUND_BLOCK_PREFIX)) {
+                    backgrounds.put(name, SerializerPool.submit(() -> loader.readBackground(name)));
+                }
+            }
+
+            for (Map.Entry<String, Future<BackgroundModel>> entry : backgrounds.entrySet()) {
+                BackgroundModel background = SerializerPool.await(entry.getValue());
+                stack.addBackground(background);
+                loader.savedGenerations.put(entry.getKey(), background.getGeneration());
+            }
+
+            List<CardStub> stubs = Arrays.asList(fromJson(archive.read(CARDS_BLOCK), CardStub[].class));
+            stack.setCardStubs(stubs, loader);
+            stack.relinkParentPartModel(null);
+
+            // Load the card that will be displayed when the stack opens
+            if (stack.getCurrentCardIndex() >= stack.getCardCount()) {
+                stack.setCurrentCardIndex(0);
+            }
+            CardModel card = stack.getCardModel(stack.getCurrentCardIndex());
+
+            // Decode the images of the card being opened while the rest of the stack is readied for display
+            prefetch(card.getStoredCardImage());
+            prefetch(card.getBackgroundModel().getStoredBackgroundImage());
+
+            loader.savedGenerations.put(STACK_BLOCK, stack.getLocalGeneration());
+            loader.savedCurrentCardIndex = stack.getCurrentCardIndex();
+
+            return stack;
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a stack to an archive.
+     * <p>
+     * Cards and backgrounds that have not been modified since they were loaded from (or last saved to) an archive are
+     * copied from that archive as-is, without being serialized. When saving to the archive the stack was opened from,
+     * only modified cards and backgrounds are written; they are appended to the archive, along with a new table of
+     * contents that supersedes the old one. The archive is rewritten in full (and thereby compacted) when too much of
+     * it is occupied by superseded data.
+     *
+     * @param file  The file to write
+     * @param stack The stack to write
+     * @throws IOException Thrown if the archive cannot be written
+     */
+    public static void serialize(File file, StackModel stack) throws IOException {
+        CardModelLoader loader = stack.getCardModelLoader();
+        ArchiveCardLoader source = loader instanceof ArchiveCardLoader ? (ArchiveCardLoader) loader : null;
+
+        StackArchive.Writer writer = source != null && source.isAppendable(file) ? source.archive.append() : StackArchive.create(file);
+        BlockQueue blocks = new BlockQueue(writer);
+        Map<String, Long> savedGenerations = new HashMap<>();
+        Map<String, LazyImage> savedImages = new HashMap<>();
+        int currentCardIndex = stack.getCurrentCardIndex();
+
+        try {
+            // The current card is saved with the stack, but changing cards does not count as modifying the stack
+            ArchiveCardLoader stackSource = source != null && source.savedCurrentCardIndex == currentCardIndex ? source : null;
+            write(blocks, stackSource, savedGenerations, STACK_BLOCK, stack.getLocalGeneration(), () -> toJson(detachedGson, stack));
+
+            for (BackgroundModel background : stack.getBackgroundModels()) {
+                String name = BACKGROUND_BLOCK_PREFIX + background.getId();
+                boolean copied = write(blocks, source, savedGenerations, name, background.getGeneration(), () -> toJson(detachedGson, background));
+                writeImage(blocks, source, savedImages, name, background.getStoredBackgroundImage(), copied);
+            }
+
+            ExecutionContext context = new ExecutionContext();
+            List<CardStub> stubs = new ArrayList<>();
+            for (int index = 0; index < stack.getCardCount(); index++) {
+                CardStub stub = stack.getCardStub(index);
+
+                if (stub != null && source != null) {
+                    String name = CARD_BLOCK_PREFIX + stub.getId();
+                    blocks.copy(source.archive, name);
+                    if (source.archive.contains(IMAGE_BLOCK_PREFIX + name)) {
+                        blocks.copy(source.archive, IMAGE_BLOCK_PREFIX + name);
+                    }
+                    stubs.add(stub);
+                } else {
+                    CardModel card = stack.getCardModel(index);
+                    String name = CARD_BLOCK_PREFIX + card.getId();
+                    boolean copied = write(blocks, source, savedGenerations, name, card.getGeneration(), () -> toJson(detachedGson, card));
+                    writeImage(blocks, source, savedImages, name, card.getStoredCardImage(), copied);
+                    stubs.add(new CardStub(card.getId(), card.getBackgroundId(), card.isMarked(context)));
+                }
+            }
+
+            blocks.write(CARDS_BLOCK, () -> toJson(gson, stubs));
+            blocks.flush();
+        } catch (IOException | RuntimeException e) {
+            blocks.cancel();
+            writer.abort();
+            throw e;
+        }
+
+        if (source == null) {
+            writer.close();
+            source = new ArchiveCardLoader(StackArchive.open(file), savedGenerations);
+            source.savedImages.putAll(savedImages);
+            stack.setCardModelLoader(source);
+        } else {
+            // Cards yet to be loaded now live in the new archive; don't let them be read while it replaces the old one
+            synchronized (source) {
+                writer.close();
+                StackArchive superseded = source.archive;
+                source.archive = StackArchive.open(file);
+                source.savedGenerations = new ConcurrentHashMap<>(savedGenerations);
+                source.savedImages = new ConcurrentHashMap<>(savedImages);
+                superseded.close();
+            }
+        }
+
+        source.savedCurrentCardIndex = currentCardIndex;
+    }
+
+    /**
+     * Closes the archive from which the given stack's cards are loaded, if any. Cards not yet loaded can no longer be
+     * loaded once it is closed.
+     *
+     * @param stack The stack being closed
+     * @throws IOException Thrown if the archive cannot be closed
+     */
+    static void close(StackModel stack) throws IOException {
+        CardModelLoader loader = stack.getCardModelLoader();
+        if (loader instanceof ArchiveCardLoader) {
+            ((ArchiveCardLoader) loader).archive.close();
+        }
+    }
+
+    /**
+     * Takes a snapshot of a stack, to be written by {@link #serialize(File, StackSnapshot)}. Cards not yet loaded from
+     * a stack archive remain unloaded; they are copied from the archive when the snapshot is written.
+     *
+     * @param stack    The stack to snapshot
+     * @param previous The snapshot last taken of the same stack, or null
+     * @return The snapshot
+     * @throws java.util.ConcurrentModificationException Thrown if the stack was modified each time a snapshot was
+     *                                                   attempted
+     */
+    static StackSnapshot snapshot(StackModel stack, StackSnapshot previous) {
+        CardModelLoader loader = stack.getCardModelLoader();
+        StackArchive source = loader instanceof ArchiveCardLoader ? ((ArchiveCardLoader) loader).archive : null;
+        return StackSnapshot.of(stack, previous, source);
+    }
+
+    /**
+     * Writes a snapshot of a stack to a new archive; see {@link StackSnapshot}. Unlike
+     * {@link #serialize(File, StackModel)}, this does not associate the stack with the written archive. A card or
+     * background already written by an earlier snapshot that it shares with this one is not serialized again.
+     *
+     * @param file     The file to write
+     * @param snapshot The snapshot to write
+     * @throws IOException Thrown if the archive cannot be written
+     */
+    static void serialize(File file, StackSnapshot snapshot) throws IOException {
+        StackArchive.Writer writer = StackArchive.create(file);
+        BlockQueue blocks = new BlockQueue(writer);
+
+        try {
+            write(blocks, STACK_BLOCK, snapshot.stack);
+
+            for (StackSnapshot.PartSnapshot<BackgroundModel> background : snapshot.backgrounds) {
+                write(blocks, BACKGROUND_BLOCK_PREFIX + background.copy.getId(), background);
+            }
+
+            for (Object card : snapshot.cards) {
+                if (card instanceof CardStub) {
+                    String name = CARD_BLOCK_PREFIX + ((CardStub) card).getId();
+                    blocks.copy(snapshot.source, name);
+                    if (snapshot.source.contains(IMAGE_BLOCK_PREFIX + name)) {
+                        blocks.copy(snapshot.source, IMAGE_BLOCK_PREFIX + name);
+                    }
+                } else {
+                    StackSnapshot.PartSnapshot<?> cardSnapshot = (StackSnapshot.PartSnapshot<?>) card;
+                    write(blocks, CARD_BLOCK_PREFIX + cardSnapshot.copy.getId(), cardSnapshot);
+                }
+            }
+
+            blocks.write(CARDS_BLOCK, () -> toJson(gson, snapshot.getCardStubs()));
+            blocks.flush();
+        } catch (IOException | RuntimeException e) {
+            blocks.cancel();
+            writer.abort();
+            throw e;
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Writes the block (and image block, if any) of a part of a snapshot, serializing them only if they were not
+     * written by an earlier snapshot.
+     */
+    private static void write(BlockQueue blocks, String name, StackSnapshot.PartSnapshot<?> part) throws IOException {
+        if (part.block != null) {
+            blocks.write(CompletableFuture.completedFuture(part.block));
+        } else {
+            blocks.write(SerializerPool.submit(() -> part.block = StackArchive.Block.of(name, toJson(detachedGson, part.copy), true)));
+        }
+
+        LazyImage image = part.image;
+        if (image != null && part.imageBlock != null) {
+            blocks.write(CompletableFuture.completedFuture(part.imageBlock));
+        } else if (image != null) {
+            String imageName = IMAGE_BLOCK_PREFIX + name;
+            blocks.write(SerializerPool.submit(() -> part.imageBlock = StackArchive.Block.of(imageName, image.encode(ImageCodec.RASTER), true)));
+        }
+    }
+
+    /**
+     * Writes a block representing a card, background or stack to the archive, unless the block saved in the source
+     * archive is of the same generation, in which case the saved block is copied instead.
+     *
+     * @return True if the saved block was copied
+     */
+    private static boolean write(BlockQueue blocks, ArchiveCardLoader source, Map<String, Long> savedGenerations, String name, long generation, Callable<byte[]> json) throws IOException {
+        // Read the generation before serializing; a change made while serializing will be saved next time
+        boolean saved = source != null && source.isSaved(name, generation);
+        if (saved) {
+            blocks.copy(source.archive, name);
+        } else {
+            blocks.write(name, json);
+        }
+
+        savedGenerations.put(name, generation);
+        return saved;
+    }
+
+    /**
+     * Writes the image of the card or background saved in the named block to a block of its own, unless the image is
+     * the one that was read from (or last saved to) the source archive, in which case the saved block is copied.
+     * Nothing is written for an unmodified card or background whose image was saved inline, by an earlier version.
+     */
+    private static void writeImage(BlockQueue blocks, ArchiveCardLoader source, Map<String, LazyImage> savedImages, String owner, LazyImage image, boolean ownerCopied) throws IOException {
+        String name = IMAGE_BLOCK_PREFIX + owner;
+
+        if (image != null && (!ownerCopied || source.archive.contains(name))) {
+            if (source != null && source.savedImages.get(name) == image && source.archive.contains(name)) {
+                blocks.copy(source.archive, name);
+            } else {
+                blocks.write(name, () -> image.encode(ImageCodec.RASTER));
+            }
+
+            savedImages.put(name, image);
+        }
+    }
+
+    /**
+     * Starts decoding an image on the {@link SerializerPool}, if it has not been decoded already. A failure to decode
+     * the image is reported when the image is drawn.
+     */
+    private static void prefetch(LazyImage image) {
+        if (image != null && !image.isDecoded()) {
+            SerializerPool.submit(() -> {
+                try {
+                    return image.get();
+                } catch (IllegalStateException e) {
+                    return null;
+                }
+            });
+        }
+    }
+
+    private static byte[] toJson(Gson gson, Object object) {
+        return gson.toJson(object).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <T> T fromJson(byte[] json, Class<T> clazz) throws IOException {
+        try {
+            return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8), clazz);
+        } catch (JsonParseException e) {
+            throw new IOException("The stack archive is corrupted.", e);
+        }
+    }
+
+    /**
+     * Writes blocks to an archive in the order in which they are queued, while the blocks themselves are serialized
+     * and compressed on the {@link SerializerPool}. At most a few blocks per thread are held in memory awaiting their
+     * turn to be written.
+     */
+    private static class BlockQueue {
+
+        private static final int BLOCKS_PER_THREAD = 4;
+
+        private final StackArchive.Writer writer;
+        private final Deque<PendingBlock> pending = new ArrayDeque<>();
+        private final int capacity = SerializerPool.getParallelism() * BLOCKS_PER_THREAD;
+
+        private BlockQueue(StackArchive.Writer writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Queues a block to be copied, as stored, from another archive.
+         */
+        private void copy(StackArchive source, String name) throws IOException {
+            enqueue(new PendingBlock(null, () -> writer.copy(source, name)));
+        }
+
+        /**
+         * Queues a block whose data is produced by the given task; the task is run on the {@link SerializerPool}.
+         */
+        private void write(String name, Callable<byte[]> data) throws IOException {
+            write(SerializerPool.submit(() -> StackArchive.Block.of(name, data.call(), true)));
+        }
+
+        /**
+         * Queues a block that is being (or has been) prepared elsewhere.
+         */
+        private void write(Future<StackArchive.Block> block) throws IOException {
+            enqueue(new PendingBlock(block, () -> writer.write(SerializerPool.await(block))));
+        }
+
+        /**
+         * Writes every queued block to the archive.
+         */
+        private void flush() throws IOException {
+            while (!pending.isEmpty()) {
+                pending.remove().write.run();
+            }
+        }
+
+        /**
+         * Discards every queued block, cancelling any that have yet to be serialized.
+         */
+        private void cancel() {
+            while (!pending.isEmpty()) {
+                PendingBlock block = pending.remove();
+                if (block.future != null) {
+                    block.future.cancel(false);
+                }
+            }
+        }
+
+        private void enqueue(PendingBlock block) throws IOException {
+            pending.add(block);
+            while (pending.size() > capacity) {
+                pending.remove().write.run();
+            }
+        }
+    }
+
+    private static class PendingBlock {
+        private final Future<?> future;
+        private final IOAction write;
+
+        private PendingBlock(Future<?> future, IOAction write) {
+            this.future = future;
+            this.write = write;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Loads cards from the stack archive they were opened from (or last saved to), and keeps track of the generation of
+     * each card, background and stack block most recently saved there.
+     */
+    private static class ArchiveCardLoader implements CardModelLoader {
+
+        private static final double COMPACTION_THRESHOLD = 0.5;
+
+        private volatile StackArchive archive;
+        private volatile Map<String, Long> savedGenerations;
+        private volatile Map<String, LazyImage> savedImages = new ConcurrentHashMap<>();
+        private volatile int savedCurrentCardIndex;
+
+        private ArchiveCardLoader(StackArchive archive, Map<String, Long> savedGenerations) {
+            this.archive = archive;
+            this.savedGenerations = new ConcurrentHashMap<>(savedGenerations);
+        }
+
+        @Override
+        public synchronized CardModel loadCard(CardStub stub) {
+            String name = CARD_BLOCK_PREFIX + stub.getId();
+            try {
+                CardModel card = fromJson(archive.read(name), CardModel.class);
+                LazyImage image = readImage(name);
+                if (image != null) {
+                    card.setStoredCardImage(image);
+                }
+                savedGenerations.put(name, card.getGeneration());
+                return card;
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load card id " + stub.getId() + " from " + archive.getFile().getName() + ".", e);
+            }
+        }
+
+        /**
+         * Reads the background held in the named block, along with its image.
+         */
+        private BackgroundModel readBackground(String name) throws IOException {
+            BackgroundModel background = fromJson(archive.read(name), BackgroundModel.class);
+            LazyImage image = readImage(name);
+            if (image != null) {
+                background.setStoredBackgroundImage(image);
+            }
+            return background;
+        }
+
+        /**
+         * Reads the image of the card or background held in the named block, if it has one stored apart from it. The
+         * image is not decoded until it is drawn.
+         */
+        private LazyImage readImage(String owner) throws IOException {
+            String name = IMAGE_BLOCK_PREFIX + owner;
+            if (!archive.contains(name)) {
+                return null;
+            }
+
+            LazyImage image = LazyImage.decodedLazily(archive.read(name), ImageCodec.RASTER);
+            savedImages.put(name, image);
+            return image;
+        }
+
+        /**
+         * Determines if the given generation of the named block is the one held in the archive.
+         */
+        private boolean isSaved(String name, long generation) {
+            Long saved = savedGenerations.get(name);
+            return saved != null && saved == generation && archive.contains(name);
+        }
+
+        /**
+         * Determines if saving to the given file can be accomplished by appending to the archive, rather than by
+         * rewriting it; that is, if the file is this archive and not too much of the archive is wasted space.
+         */
+        private boolean isAppendable(File file) {
+            StackArchive archive = this.archive;
+            return file.getAbsoluteFile().equals(archive.getFile().getAbsoluteFile()) &&
+                    file.length() >= archive.getLength() &&
+                    archive.getWastedLength() <= archive.getLength() * COMPACTION_THRESHOLD;
+        }
+    }
+}
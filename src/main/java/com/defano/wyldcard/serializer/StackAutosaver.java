@@ -0,0 +1,254 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically saves a copy of each modified stack to a recovery file beside its stack file, from which unsaved
+ * changes can be recovered should WyldCard quit without saving them.
+ * <p>
+ * Each autosave takes a {@link StackSnapshot} of the stack and writes it on a low-priority background thread (with
+ * blocks serialized on the {@link SerializerPool}); neither the dispatch thread nor the script executor waits on an
+ * autosave, and the stack is never locked. A recovery file is written in full (as a stack archive) to a temporary file
+ * before replacing the previous one, so it always holds a complete snapshot. Only stacks that have been saved to a
+ * file are autosaved.
+ * <p>
+ * Autosave is disabled unless an interval is configured with the {@value #INTERVAL_PROPERTY} system property or
+ * {@link #setInterval(int)}.
+ */
+public class StackAutosaver {
+
+    /**
+     * The system property specifying the number of seconds between autosaves; zero (the default) disables autosave.
+     */
+    public static final String INTERVAL_PROPERTY = "wyldcard.autosave.interval";
+
+    private static final Logger LOG = LoggerFactory.getLogger(StackAutosaver.class);
+    private static final String RECOVERY_FILE_SUFFIX = ".recovery";
+
+    private final Map<StackModel, Autosave> stacks = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private int interval = Math.max(0, Integer.getInteger(INTERVAL_PROPERTY, 0));
+    private ScheduledFuture<?> schedule;
+
+    /**
+     * Starts autosaving at the configured interval, if any.
+     */
+    public synchronized void start() {
+        setInterval(interval);
+    }
+
+    /**
+     * Gets the number of seconds between autosaves.
+     *
+     * @return The interval, or zero if autosave is disabled
+     */
+    public synchronized int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets the number of seconds between autosaves. An autosave in progress is not interrupted.
+     *
+     * @param interval The interval in seconds, or zero to disable autosave
+     * @throws IllegalArgumentException If the interval is negative
+     */
+    public synchronized void setInterval(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Autosave interval cannot be negative.");
+        }
+
+        if (schedule != null) {
+            schedule.cancel(false);
+            schedule = null;
+        }
+
+        this.interval = interval;
+        if (interval > 0) {
+            schedule = executor.scheduleWithFixedDelay(this::autosaveAll, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Begins autosaving the given stack.
+     *
+     * @param stack The stack to autosave
+     */
+    public void add(StackModel stack) {
+        stacks.putIfAbsent(stack, new Autosave());
+    }
+
+    /**
+     * Reads the unsaved changes to the given stack file from its recovery file, and begins autosaving the recovered
+     * stack. The recovered changes remain unsaved until the stack is saved; the recovery file is treated as if it had
+     * been autosaved by this autosaver, and is deleted when the stack is saved or closed.
+     *
+     * @param context   The execution context
+     * @param stackFile The stack file whose changes are recovered
+     * @return The recovered stack
+     * @throws IOException Thrown if the recovery file cannot be read
+     */
+    public StackModel recover(ExecutionContext context, File stackFile) throws IOException {
+        File recoveryFile = getRecoveryFile(stackFile);
+        StackModel stack = StackSerializer.deserialize(recoveryFile);
+
+        // Each autosave replaces the recovery file; read every card from it now, and never copy blocks from it later
+        stack.loadAllCards();
+        StackSerializer.close(stack);
+        stack.setCardModelLoader(null);
+
+        stack.setSavedStackFile(context, stackFile);
+        stack.markModified();
+        add(stack, recoveryFile);
+
+        return stack;
+    }
+
+    /**
+     * Begins autosaving a stack whose changes were recovered from the given recovery file.
+     */
+    private void add(StackModel stack, File recoveryFile) {
+        Autosave autosave = new Autosave();
+        autosave.recoveryFile = recoveryFile;
+        stacks.put(stack, autosave);
+    }
+
+    /**
+     * Stops autosaving the given stack (as when it is closed), deleting its recovery file.
+     *
+     * @param stack The stack to stop autosaving
+     */
+    public void remove(StackModel stack) {
+        Autosave autosave = stacks.remove(stack);
+        if (autosave != null) {
+            autosave.discard(stack);
+        }
+    }
+
+    /**
+     * Deletes the given stack's recovery file, as when the stack has been saved. Waits for an autosave of the stack
+     * in progress to complete.
+     *
+     * @param stack The stack whose recovery file should be deleted
+     */
+    public void discard(StackModel stack) {
+        Autosave autosave = stacks.get(stack);
+        if (autosave != null) {
+            autosave.discard(stack);
+        }
+    }
+
+    /**
+     * Autosaves the given stack now, on the calling thread, if it has been modified since it was last saved or
+     * autosaved.
+     *
+     * @param stack The stack to autosave
+     * @return True if the stack was autosaved; false if it is not being autosaved or has no changes to save
+     * @throws IOException                     Thrown if the recovery file cannot be written
+     * @throws ConcurrentModificationException Thrown if the stack was modified each time a snapshot was attempted
+     */
+    public boolean autosave(StackModel stack) throws IOException {
+        Autosave autosave = stacks.get(stack);
+        return autosave != null && autosave.save(stack);
+    }
+
+    /**
+     * Gets the file to which a stack saved in the given file is autosaved.
+     *
+     * @param stackFile The stack file
+     * @return The recovery file
+     */
+    public static File getRecoveryFile(File stackFile) {
+        return new File(stackFile.getAbsoluteFile().getParentFile(), stackFile.getName() + RECOVERY_FILE_SUFFIX);
+    }
+
+    /**
+     * Determines if the stack in the given file has unsaved changes that can be recovered; that is, if it has a
+     * recovery file written since the stack file was last saved.
+     *
+     * @param stackFile The stack file
+     * @return True if changes can be recovered from the stack's recovery file
+     */
+    public static boolean isRecoverable(File stackFile) {
+        File recoveryFile = getRecoveryFile(stackFile);
+        return recoveryFile.isFile() && recoveryFile.lastModified() >= stackFile.lastModified();
+    }
+
+    private void autosaveAll() {
+        List<StackModel> autosaved;
+        synchronized (stacks) {
+            autosaved = new ArrayList<>(stacks.keySet());
+        }
+
+        for (StackModel stack : autosaved) {
+            try {
+                if (autosave(stack)) {
+                    LOG.debug("Autosaved stack {}.", stack);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to autosave stack {}; will try again.", stack, e);
+            }
+        }
+    }
+
+    /**
+     * The autosave state of a single stack; autosaves of a stack are serialized by locking this object.
+     */
+    private static class Autosave {
+        private StackSnapshot snapshot;
+        private long savedGeneration = -1;
+        private File recoveryFile;
+
+        private synchronized boolean save(StackModel stack) throws IOException {
+            Optional<File> stackFile = stack.getSavedStackFileProvider().blockingFirst();
+            long generation = stack.getGeneration();
+
+            if (!stackFile.isPresent() || generation == savedGeneration || !stack.isDirty()) {
+                return false;
+            }
+
+            File file = getRecoveryFile(stackFile.get());
+            snapshot = StackArchiveSerializer.snapshot(stack, snapshot);
+            StackArchiveSerializer.serialize(file, snapshot);
+
+            // The stack was saved to a different file since it was last autosaved
+            if (recoveryFile != null && !recoveryFile.equals(file)) {
+                Files.deleteIfExists(recoveryFile.toPath());
+            }
+
+            recoveryFile = file;
+            savedGeneration = generation;
+            return true;
+        }
+
+        private synchronized void discard(StackModel stack) {
+            try {
+                if (recoveryFile != null) {
+                    Files.deleteIfExists(recoveryFile.toPath());
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to delete recovery file {}.", recoveryFile, e);
+            }
+
+            recoveryFile = null;
+            savedGeneration = stack.getGeneration();
+        }
+    }
+}
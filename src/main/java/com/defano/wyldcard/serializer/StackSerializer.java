@@ -0,0 +1,99 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.stack.StackModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Reads and writes stack files in either of the formats WyldCard supports: a single JSON document (files ending in
+ * {@link StackModel#FILE_EXTENSION}) or a {@link StackArchive} of independently loadable blocks (files ending in
+ * {@link StackModel#ARCHIVE_FILE_EXTENSION}).
+ */
+public class StackSerializer {
+
+    private StackSerializer() {
+    }
+
+    /**
+     * Reads a stack from a file in either format; the format is determined by the file's contents, not its name.
+     *
+     * @param file The stack file to read
+     * @return The stack model
+     * @throws IOException Thrown if the file cannot be read
+     */
+    public static StackModel deserialize(File file) throws IOException {
+        if (StackArchive.isArchive(file)) {
+            return StackArchiveSerializer.deserialize(file);
+        } else {
+            return Serializer.deserialize(file, StackModel.class);
+        }
+    }
+
+    /**
+     * Writes a stack to a file, choosing the format based on the file's extension.
+     *
+     * @param file  The file to write
+     * @param stack The stack to write
+     * @throws IOException Thrown if the file cannot be written
+     */
+    public static void serialize(File file, StackModel stack) throws IOException {
+        if (StackModel.isArchiveFileName(file.getName())) {
+            StackArchiveSerializer.serialize(file, stack);
+        } else {
+            stack.loadAllCards();
+            Serializer.serialize(file, stack);
+        }
+    }
+
+    /**
+     * Converts a stack file from one format to the other (or rewrites it in the same format), choosing the format of
+     * the destination based on its extension.
+     *
+     * @param source      The stack file to convert
+     * @param destination The file to be written
+     * @throws IOException Thrown if the source cannot be read or the destination cannot be written
+     */
+    public static void convert(File source, File destination) throws IOException {
+        StackModel stack = deserialize(source);
+        try {
+            serialize(destination, stack);
+        } finally {
+            close(stack);
+        }
+    }
+
+    /**
+     * Closes the file from which a stack's cards are loaded on demand, if it has one; see
+     * {@link StackArchiveSerializer#deserialize(File)}. Cards not yet loaded can no longer be loaded once it is closed.
+     *
+     * @param stack The stack being closed
+     * @throws IOException Thrown if the file cannot be closed
+     */
+    public static void close(StackModel stack) throws IOException {
+        StackArchiveSerializer.close(stack);
+    }
+
+    /**
+     * Estimates the size, in bytes, of the given stack. A stack that has been saved is measured by the size of its file;
+     * the size of a stack that has not is extrapolated from the serialized size of its current card and background.
+     * In neither case is the whole stack serialized or loaded.
+     *
+     * @param stack The stack whose size should be estimated
+     * @return The estimated size of the stack, in bytes
+     */
+    public static long estimateSize(StackModel stack) {
+        Optional<File> file = stack.getSavedStackFileProvider().blockingFirst();
+        if (file.isPresent() && file.get().isFile()) {
+            return file.get().length();
+        }
+
+        CardModel card = stack.getCurrentCard();
+        long cardSize = Serializer.serialize(card).length();
+        long backgroundSize = Serializer.serialize(card.getBackgroundModel()).length();
+
+        return cardSize * stack.getCardCount() + backgroundSize * stack.getBackgroundCount();
+    }
+}
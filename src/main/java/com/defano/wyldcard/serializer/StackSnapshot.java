@@ -0,0 +1,182 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.wyldcard.part.stack.CardStub;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.runtime.ExecutionContext;
+
+import java.util.*;
+
+/**
+ * An immutable, point-in-time copy of a stack that can be written to a file while the stack itself goes on being
+ * modified; see {@link StackAutosaver}.
+ * <p>
+ * A snapshot shares structure with the snapshot taken before it: a card or background that has not been modified
+ * since then is not copied again, but shared (along with the blocks it was serialized to, once written). Images are
+ * always shared with the stack, as models replace their images rather than drawing into them. Cards that the stack
+ * has not yet loaded are not loaded; they are copied, as stored, from the archive the stack was opened from.
+ * <p>
+ * Taking a snapshot does not lock the stack. Each part is copied and the copy is kept only if the part was not being
+ * modified when the copy began or ended, and its generation did not change in between (see
+ * {@link PartModel#beginModification()}); likewise, the snapshot as a whole is retaken if the stack was modified while
+ * it was being taken. A stack that is modified continuously may therefore fail to be snapshot.
+ */
+final class StackSnapshot {
+
+    private static final int ATTEMPTS = 3;
+
+    final PartSnapshot<StackModel> stack;
+    final List<PartSnapshot<BackgroundModel>> backgrounds;
+    final List<Object> cards;               // A PartSnapshot of each loaded card, or the CardStub of an unloaded one
+    final StackArchive source;              // The archive from which unloaded cards are read, if any
+
+    private StackSnapshot(PartSnapshot<StackModel> stack, List<PartSnapshot<BackgroundModel>> backgrounds, List<Object> cards, StackArchive source) {
+        this.stack = stack;
+        this.backgrounds = backgrounds;
+        this.cards = cards;
+        this.source = source;
+    }
+
+    /**
+     * Takes a snapshot of the given stack.
+     *
+     * @param stack    The stack to snapshot
+     * @param previous The snapshot last taken of the same stack, whose unmodified parts are shared; may be null
+     * @param source   The archive from which the stack's unloaded cards are read, or null if they must be loaded
+     * @return The snapshot
+     * @throws ConcurrentModificationException Thrown if the stack was modified each time a snapshot was attempted
+     */
+    static StackSnapshot of(StackModel stack, StackSnapshot previous, StackArchive source) {
+        Map<PartModel, PartSnapshot<?>> reusable = new IdentityHashMap<>();
+        if (previous != null) {
+            previous.backgrounds.forEach(background -> reusable.put(background.original, background));
+            previous.cards.stream()
+                    .filter(card -> card instanceof PartSnapshot)
+                    .forEach(card -> reusable.put(((PartSnapshot<?>) card).original, (PartSnapshot<?>) card));
+        }
+
+        RuntimeException failure = null;
+        for (int attempt = 1; ; attempt++) {
+            long generation = stack.getGeneration();
+
+            try {
+                if (stack.isBeingModified()) {
+                    throw new ConcurrentModificationException();
+                }
+
+                // Changing cards does not modify the stack, but the current card is saved with it
+                long localGeneration = stack.getLocalGeneration();
+                PartSnapshot<StackModel> stackSnapshot = previous != null && previous.stack.generation == localGeneration &&
+                        previous.stack.copy.getCurrentCardIndex() == stack.getCurrentCardIndex() ?
+                        previous.stack :
+                        new PartSnapshot<>(stack, ModelCopier.copyDetached(stack), localGeneration);
+
+                List<PartSnapshot<BackgroundModel>> backgrounds = new ArrayList<>();
+                for (BackgroundModel background : new ArrayList<>(stack.getBackgroundModels())) {
+                    backgrounds.add(snapshot(reusable, background));
+                }
+
+                List<Object> cards = new ArrayList<>();
+                for (int index = 0; index < stack.getCardCount(); index++) {
+                    CardStub stub = stack.getCardStub(index);
+                    if (stub != null && source != null) {
+                        cards.add(stub);
+                    } else {
+                        cards.add(snapshot(reusable, stack.getCardModel(index)));
+                    }
+                }
+
+                if (!stack.isBeingModified() && stack.getGeneration() == generation) {
+                    return new StackSnapshot(stackSnapshot, backgrounds, cards, source);
+                }
+            } catch (RuntimeException e) {
+                // The stack was modified while it was being copied (and the copy failed as a result); try again
+                failure = e;
+            }
+
+            if (attempt == ATTEMPTS) {
+                throw new ConcurrentModificationException("The stack was modified while it was being copied.", failure);
+            }
+
+            // Give a modification in progress the chance to complete
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Gets a stand-in for each card in the snapshot, to be saved as the stack's card index.
+     */
+    List<CardStub> getCardStubs() {
+        ExecutionContext context = new ExecutionContext();
+        List<CardStub> stubs = new ArrayList<>();
+
+        for (Object card : cards) {
+            if (card instanceof CardStub) {
+                stubs.add((CardStub) card);
+            } else {
+                @SuppressWarnings("unchecked")
+                CardModel copy = ((PartSnapshot<CardModel>) card).copy;
+                stubs.add(new CardStub(copy.getId(), copy.getBackgroundId(), copy.isMarked(context)));
+            }
+        }
+
+        return stubs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends PartModel> PartSnapshot<T> snapshot(Map<PartModel, PartSnapshot<?>> reusable, T part) {
+        PartSnapshot<T> previous = (PartSnapshot<T>) reusable.get(part);
+        long generation = part.getGeneration();
+
+        if (part.isBeingModified()) {
+            throw new ConcurrentModificationException();
+        }
+
+        if (previous != null && previous.generation == generation) {
+            return previous;
+        }
+
+        PartSnapshot<T> snapshot = new PartSnapshot<>(part, ModelCopier.copy(part), generation);
+        if (part.isBeingModified() || part.getGeneration() != generation) {
+            throw new ConcurrentModificationException();
+        }
+
+        if (previous != null && previous.image == snapshot.image) {
+            snapshot.imageBlock = previous.imageBlock;
+        }
+
+        // Should the snapshot be retaken, this part need not be copied again
+        reusable.put(part, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * A copy of a card, background or stack (less its cards and backgrounds), as of a given generation of the original.
+     */
+    static class PartSnapshot<T extends PartModel> {
+        final T original;
+        final T copy;
+        final long generation;
+        final LazyImage image;              // The card or background image, shared with the original
+
+        // The blocks this copy was serialized to, once it has been written; reused by later snapshots
+        volatile StackArchive.Block block;
+        volatile StackArchive.Block imageBlock;
+
+        private PartSnapshot(T original, T copy, long generation) {
+            this.original = original;
+            this.copy = copy;
+            this.generation = generation;
+
+            if (copy instanceof CardModel) {
+                this.image = ((CardModel) copy).getStoredCardImage();
+            } else if (copy instanceof BackgroundModel) {
+                this.image = ((BackgroundModel) copy).getStoredBackgroundImage();
+            } else {
+                this.image = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.defano.wyldcard.serializer;
+
+import javax.swing.text.AttributeSet;
+
+/**
+ * A paragraph of a field's styled text, as read without building a Swing document (see
+ * {@link LazyDocument#getParagraphs()}): its text (less the newline ending it) and the runs of character attributes
+ * covering its text.
+ * <p>
+ * Attributes are those of a {@link javax.swing.text.StyledDocument} (see {@link javax.swing.text.StyleConstants}),
+ * less any style they resolve against; an attribute that is not defined takes the field's default. Paragraph
+ * attributes are not included, as a field's text alignment is a property of the field.
+ */
+public final class StyledParagraph {
+
+    private final String text;
+    private final int[] runLengths;
+    private final AttributeSet[] runAttributes;
+
+    StyledParagraph(String text, int[] runLengths, AttributeSet[] runAttributes) {
+        this.text = text;
+        this.runLengths = runLengths;
+        this.runAttributes = runAttributes;
+    }
+
+    /**
+     * Gets the text of the paragraph.
+     *
+     * @return The paragraph's text, not including the newline ending it; empty for an empty paragraph
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the number of runs of character attributes; the runs cover the paragraph's text, in order.
+     *
+     * @return The number of runs; zero for an empty paragraph
+     */
+    public int getRunCount() {
+        return runLengths.length;
+    }
+
+    /**
+     * Gets the number of characters in a run.
+     *
+     * @param run The index of the run
+     * @return The length of the run
+     */
+    public int getRunLength(int run) {
+        return runLengths[run];
+    }
+
+    /**
+     * Gets the character attributes of a run.
+     *
+     * @param run The index of the run
+     * @return The run's attributes
+     */
+    public AttributeSet getRunAttributes(int run) {
+        return runAttributes[run];
+    }
+}
@@ -0,0 +1,290 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.util.Range;
+
+import javax.swing.text.*;
+import java.util.*;
+
+/**
+ * An immutable, compact representation of a styled document: its plain text plus a table of style runs.
+ * <p>
+ * Each instance holds its own run tables, in which each run is recorded as a length and a reference to its attributes.
+ * A field's text typically uses a handful of distinct styles; runs of one document having equal attributes share one
+ * attribute set (nothing is shared between documents, other than by copies of the same instance), so a run costs an
+ * int and a reference rather than the element tree, content buffer and attribute sets of a
+ * {@link DefaultStyledDocument}. Character runs cover the document's text; paragraph runs cover each paragraph
+ * (including the document's implied final newline).
+ */
+final class StyledText {
+
+    private final String text;
+    private final Runs characterRuns;
+    private final Runs paragraphRuns;
+
+    private StyledText(String text, Runs characterRuns, Runs paragraphRuns) {
+        this.text = text;
+        this.characterRuns = characterRuns;
+        this.paragraphRuns = paragraphRuns;
+    }
+
+    /**
+     * Captures the text and styles of a document. Styles that attributes resolve against belong to the document and
+     * are not captured (nor are they when a document is serialized as RTF).
+     *
+     * @param document The document to capture
+     * @return The document's text and styles
+     */
+    static StyledText of(StyledDocument document) {
+        // The document may be in use by a field while it is captured (as when a stack is autosaved)
+        AbstractDocument lockable = document instanceof AbstractDocument ? (AbstractDocument) document : null;
+        if (lockable != null) {
+            lockable.readLock();
+        }
+
+        try {
+            int length = document.getLength();
+            Map<AttributeSet, AttributeSet> interned = new HashMap<>();
+            RunBuilder characterRuns = new RunBuilder();
+            RunBuilder paragraphRuns = new RunBuilder();
+
+            for (int offset = 0; offset < length; ) {
+                Element run = document.getCharacterElement(offset);
+                int end = Math.min(run.getEndOffset(), length);
+                characterRuns.add(end - offset, intern(interned, run.getAttributes()));
+                offset = end;
+            }
+
+            for (int offset = 0; offset <= length; ) {
+                Element paragraph = document.getParagraphElement(offset);
+                paragraphRuns.add(paragraph.getEndOffset() - offset, intern(interned, paragraph.getAttributes()));
+                offset = paragraph.getEndOffset();
+            }
+
+            return new StyledText(document.getText(0, length), characterRuns.build(), paragraphRuns.build());
+        } catch (BadLocationException e) {
+            throw new IllegalStateException("Failed to read field contents.", e);
+        } finally {
+            if (lockable != null) {
+                lockable.readUnlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the plain text of the document.
+     *
+     * @return The document's text
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Builds a Swing document having this text and styles.
+     *
+     * @return A new document
+     */
+    StyledDocument toDocument() {
+        StyledDocument document = new DefaultStyledDocument();
+
+        try {
+            document.insertString(0, text, null);
+
+            for (int run = 0, offset = 0; run < characterRuns.lengths.length; run++) {
+                document.setCharacterAttributes(offset, characterRuns.lengths[run], characterRuns.attributes[run], true);
+                offset += characterRuns.lengths[run];
+            }
+
+            for (int run = 0, offset = 0; run < paragraphRuns.lengths.length; run++) {
+                document.setParagraphAttributes(offset, paragraphRuns.lengths[run], paragraphRuns.attributes[run], false);
+                offset += paragraphRuns.lengths[run];
+            }
+        } catch (BadLocationException e) {
+            throw new IllegalStateException("Failed to restore field contents.", e);
+        }
+
+        return document;
+    }
+
+    /**
+     * Splits this text into its paragraphs, each with the character runs covering it; see {@link StyledParagraph}.
+     *
+     * @return The paragraphs, in order; a text ending with a newline ends with an empty paragraph
+     */
+    List<StyledParagraph> toParagraphs() {
+        List<StyledParagraph> paragraphs = new ArrayList<>();
+        RunCursor characters = new RunCursor(characterRuns);
+
+        // Paragraph runs are merged when adjacent paragraphs share their attributes; paragraphs end at each newline
+        for (int start = 0; start <= text.length(); ) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline;
+
+            RunBuilder runs = new RunBuilder();
+            for (int from = start; from < end; ) {
+                int runEnd = Math.min(characters.runEnd(from), end);
+                runs.add(runEnd - from, characters.attributesAt(from));
+                from = runEnd;
+            }
+
+            Runs paragraphRuns = runs.build();
+            paragraphs.add(new StyledParagraph(text.substring(start, end), paragraphRuns.lengths, paragraphRuns.attributes));
+            start = end + 1;
+        }
+
+        return paragraphs;
+    }
+
+    /**
+     * Replaces each of the given ranges of the text with the given replacement, in a single pass over the text and its
+     * runs. Each replacement takes the character style of the first character it replaces; a paragraph begun by a
+     * newline in a replacement takes the style of the paragraph in which the replaced range begins, and a paragraph
+     * joined to its predecessor (when a range spans a newline) takes its predecessor's style.
+     *
+     * @param ranges      The ranges of text to replace, in ascending order, not overlapping and not empty
+     * @param replacement The text to replace each range with
+     * @return The text and styles with every range replaced
+     */
+    StyledText replace(List<Range> ranges, String replacement) {
+        StringBuilder newText = new StringBuilder(text.length() + ranges.size() * replacement.length());
+        RunBuilder newCharacterRuns = new RunBuilder();
+        RunBuilder newParagraphRuns = new RunBuilder();
+        RunCursor characters = new RunCursor(characterRuns);
+        RunCursor paragraphs = new RunCursor(paragraphRuns);
+
+        int paragraphStart = 0;
+        AttributeSet paragraphAttributes = paragraphs.attributesAt(0);
+        int offset = 0;
+
+        for (int index = 0; index <= ranges.size(); index++) {
+            int copyEnd = index < ranges.size() ? ranges.get(index).start : text.length();
+
+            // The text preceding the range, unchanged
+            for (int from = offset; from < copyEnd; ) {
+                int end = Math.min(characters.runEnd(from), copyEnd);
+                newCharacterRuns.add(end - from, characters.attributesAt(from));
+                from = end;
+            }
+
+            for (int position = offset; position < copyEnd; position++) {
+                if (text.charAt(position) == '\n') {
+                    int end = newText.length() + position - offset + 1;
+                    newParagraphRuns.add(end - paragraphStart, paragraphAttributes);
+                    paragraphStart = end;
+                    paragraphAttributes = paragraphs.attributesAt(position + 1);
+                }
+            }
+
+            newText.append(text, offset, copyEnd);
+            if (index == ranges.size()) {
+                break;
+            }
+
+            // The range itself
+            Range range = ranges.get(index);
+            if (!replacement.isEmpty()) {
+                newCharacterRuns.add(replacement.length(), characters.attributesAt(range.start));
+            }
+
+            for (int position = 0; position < replacement.length(); position++) {
+                if (replacement.charAt(position) == '\n') {
+                    int end = newText.length() + position + 1;
+                    newParagraphRuns.add(end - paragraphStart, paragraphAttributes);
+                    paragraphStart = end;
+                    paragraphAttributes = paragraphs.attributesAt(range.start);
+                }
+            }
+
+            newText.append(replacement);
+            offset = range.end;
+        }
+
+        // The document's implied final newline ends the last paragraph
+        newParagraphRuns.add(newText.length() + 1 - paragraphStart, paragraphAttributes);
+
+        return new StyledText(newText.toString(), newCharacterRuns.build(), newParagraphRuns.build());
+    }
+
+    /**
+     * Gets the given attributes, less any style they resolve against; runs captured from the same document having
+     * equal attributes share the first such set captured.
+     */
+    private static AttributeSet intern(Map<AttributeSet, AttributeSet> interned, AttributeSet attributes) {
+        SimpleAttributeSet key = new SimpleAttributeSet(attributes);
+        key.removeAttribute(AttributeSet.ResolveAttribute);
+        return interned.computeIfAbsent(key, k -> k);
+    }
+
+    /**
+     * The runs of a StyledText: the length of each run and the attributes applied to it.
+     */
+    private static class Runs {
+        private final int[] lengths;
+        private final AttributeSet[] attributes;
+
+        private Runs(int[] lengths, AttributeSet[] attributes) {
+            this.lengths = lengths;
+            this.attributes = attributes;
+        }
+    }
+
+    /**
+     * Accumulates runs, merging each with its predecessor when they share the same attributes.
+     */
+    private static class RunBuilder {
+        private int[] lengths = new int[4];
+        private AttributeSet[] attributes = new AttributeSet[4];
+        private int size;
+
+        private void add(int length, AttributeSet attributes) {
+            if (size > 0 && isEqual(this.attributes[size - 1], attributes)) {
+                lengths[size - 1] += length;
+            } else {
+                if (size == lengths.length) {
+                    lengths = Arrays.copyOf(lengths, size * 2);
+                    this.attributes = Arrays.copyOf(this.attributes, size * 2);
+                }
+                lengths[size] = length;
+                this.attributes[size++] = attributes;
+            }
+        }
+
+        private static boolean isEqual(AttributeSet a, AttributeSet b) {
+            return a == b || a.isEqual(b);
+        }
+
+        private Runs build() {
+            return new Runs(Arrays.copyOf(lengths, size), Arrays.copyOf(attributes, size));
+        }
+    }
+
+    /**
+     * Finds the run holding each of a series of ascending offsets, without searching the runs from the start for each.
+     */
+    private static class RunCursor {
+        private final Runs runs;
+        private int run;
+        private int runStart;
+
+        private RunCursor(Runs runs) {
+            this.runs = runs;
+        }
+
+        private AttributeSet attributesAt(int offset) {
+            seek(offset);
+            return runs.attributes[run];
+        }
+
+        private int runEnd(int offset) {
+            seek(offset);
+            return runStart + runs.lengths[run];
+        }
+
+        private void seek(int offset) {
+            while (run + 1 < runs.lengths.length && runStart + runs.lengths[run] <= offset) {
+                runStart += runs.lengths[run];
+                run++;
+            }
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.defano.wyldcard.stackreader;
 
 import com.defano.wyldcard.stackreader.block.*;
 import com.defano.wyldcard.stackreader.misc.ImportException;
-import com.defano.wyldcard.stackreader.misc.StackInputStream;
 import com.defano.wyldcard.stackreader.misc.UnsupportedVersionException;
+import com.defano.wyldcard.stackreader.record.PageEntryRecord;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.slf4j.Logger;
@@ -11,26 +11,68 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
 
 /**
  * Represents a HyperCard stack file.
+ * <p>
+ * Blocks are indexed by type and by id as they are unpacked, so that looking up a block (as cards do their
+ * backgrounds and bitmaps, for example) does not require a scan of every block in the stack.
+ * <p>
+ * A stack file is memory-mapped rather than read, and each block's data is a read-only view of the mapped file (see
+ * {@link Block#getBlockData()}); block data is not copied.
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class HyperCardStack {
 
     private static final Logger LOG = LoggerFactory.getLogger(HyperCardStack.class);
+    private static final int BLOCK_HEADER_SIZE = 16;
+
     private final List<Block> blocks = new ArrayList<>();
+    private final Map<BlockType, List<Block>> blocksByType = new EnumMap<>(BlockType.class);
+    private final Map<BlockType, Map<Integer, Block>> blocksById = new EnumMap<>(BlockType.class);
+    private final Map<Integer, PageEntryRecord> pageEntries = new HashMap<>();
 
     public static HyperCardStack fromFile(File f) throws FileNotFoundException, ImportException {
-        return fromInputStream(new FileInputStream(f));
+        try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+            FileChannel channel = file.getChannel();
+
+            // The mapping remains valid after the file is closed
+            return fromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ImportException("Cannot read the stack file.", e);
+        }
     }
 
     public static HyperCardStack fromInputStream(InputStream sis) throws ImportException {
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int count; (count = sis.read(buffer)) != -1; ) {
+                data.write(buffer, 0, count);
+            }
+
+            return fromBuffer(ByteBuffer.wrap(data.toByteArray()));
+        } catch (IOException e) {
+            throw new ImportException("Cannot read the stack file.", e);
+        }
+    }
+
+    /**
+     * Unpacks a stack from the given buffer, which holds the stack file from its position to its limit. Blocks are
+     * views of the buffer, which must therefore not be modified.
+     *
+     * @param data The stack file data
+     * @return The unpacked stack
+     * @throws ImportException Thrown if the data is not a valid stack
+     */
+    public static HyperCardStack fromBuffer(ByteBuffer data) throws ImportException {
         HyperCardStack stack = new HyperCardStack();
-        stack.unpack(new StackInputStream(sis));
+        stack.unpack(data.slice().asReadOnlyBuffer());
         return stack;
     }
 
@@ -50,9 +92,7 @@ public class HyperCardStack {
      * @return The list of matching blocks.
      */
     public List<Block> getBlocks(BlockType type) {
-        return blocks.stream()
-                .filter(b -> b.getBlockType() == type)
-                .collect(Collectors.toList());
+        return Collections.unmodifiableList(blocksByType.getOrDefault(type, Collections.emptyList()));
     }
 
     /**
@@ -62,17 +102,17 @@ public class HyperCardStack {
      * @param <T>   Any subclass of {@link Block} representing the type of the block to return.
      * @return The first block of the requested type; throws IllegalArgumentException if no such block is found.
      */
-    @SuppressWarnings("unchecked")
     public <T extends Block> T getBlock(Class<T> klass) {
-        return blocks.stream()
-                .filter(b -> b.getClass() == klass)
-                .map(b -> (T) b)
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No block matching type " + klass));
+        List<T> matching = getBlocks(klass);
+        if (matching.isEmpty()) {
+            throw new IllegalArgumentException("No block matching type " + klass);
+        }
+
+        return matching.get(0);
     }
 
     public <T extends Block> boolean hasBlock(Class<T> klass) {
-        return blocks.stream().anyMatch(b -> b.getClass() == klass);
+        return !getBlocks(klass).isEmpty();
     }
 
     /**
@@ -84,10 +124,8 @@ public class HyperCardStack {
      */
     @SuppressWarnings("unchecked")
     public <T extends Block> List<T> getBlocks(Class<T> klass) {
-        return blocks.stream()
-                .filter(b -> b.getClass() == klass)
-                .map(b -> (T) b)
-                .collect(Collectors.toList());
+        BlockType type = typeOf(klass);
+        return type == null ? Collections.emptyList() : (List<T>) getBlocks(type);
     }
 
     /**
@@ -102,12 +140,12 @@ public class HyperCardStack {
      */
     @SuppressWarnings("unchecked")
     public <T extends Block> T getBlock(Class<T> klass, int blockId) {
-        return blocks.stream()
-                .filter(b -> b.getBlockId() == blockId)
-                .filter(b -> b.getClass() == klass)
-                .map(b -> (T) b)
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No block matching type " + klass + " and id " + blockId));
+        T block = (T) findBlock(typeOf(klass), blockId);
+        if (block == null) {
+            throw new IllegalArgumentException("No block matching type " + klass + " and id " + blockId);
+        }
+
+        return block;
     }
 
     /**
@@ -126,42 +164,84 @@ public class HyperCardStack {
     }
 
     public BufferedImage getImage(int bitmapId) {
-        return blocks.stream()
-                .filter(b -> b.getBlockId() == bitmapId)
-                .filter(b -> b.getClass() == ImageBlock.class)
-                .map(b -> ((ImageBlock) b).getImage())
-                .findFirst()
-                .orElse(null);
+        ImageBlock block = (ImageBlock) findBlock(BlockType.BMAP, bitmapId);
+        return block == null ? null : block.getImage();
     }
 
-    private void unpack(StackInputStream fis) throws ImportException {
-        BlockType blockType = null;
+    /**
+     * Gets the entry for the given card in the stack's page index.
+     *
+     * @param cardId The id of the card whose page entry should be returned.
+     * @return The card's page entry, or null if the card does not appear in any {@link PageBlock}.
+     */
+    public PageEntryRecord getPageEntry(int cardId) {
+        return pageEntries.get(cardId);
+    }
 
-        try {
+    private Block findBlock(BlockType type, int blockId) {
+        return type == null ? null : blocksById.getOrDefault(type, Collections.emptyMap()).get(blockId);
+    }
+
+    private static BlockType typeOf(Class<? extends Block> klass) {
+        for (BlockType type : BlockType.values()) {
+            if (type.blockClass() == klass) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds a newly-unpacked block to this stack. Blocks are indexed as they are added because blocks unpacked later
+     * may refer to those unpacked earlier.
+     */
+    private void add(Block block) {
+        blocks.add(block);
+        blocksByType.computeIfAbsent(block.getBlockType(), type -> new ArrayList<>()).add(block);
+
+        // Where ids are duplicated, the first block in the file wins
+        blocksById.computeIfAbsent(block.getBlockType(), type -> new HashMap<>()).putIfAbsent(block.getBlockId(), block);
+
+        if (block instanceof PageBlock) {
+            for (PageEntryRecord entry : ((PageBlock) block).getPageEntries()) {
+                pageEntries.putIfAbsent(entry.getCardId(), entry);
+            }
+        }
+    }
 
-            do {
-                int blockSize = fis.readInt() & 0xffff;     // 4-byte block size, but never > 64KB
-                int blockTypeId = fis.readInt();            // 4-byte block identifier (i.e, 'STAK')
-                int blockId = fis.readInt();                // 4-byte block id number
-                fis.readInt();                              // 4-byte padding, ignored
+    private void unpack(ByteBuffer data) throws ImportException {
+        BlockType blockType = null;
+        int offset = 0;
 
-                LOG.debug("Unpacking {} bytes of block {}, id={}", blockSize, BlockType.fromBlockId(blockTypeId), blockId);
+        do {
+            if (data.limit() - offset < BLOCK_HEADER_SIZE) {
+                throw new ImportException("Malformed block following block of type " + blockType + "; stack structure is corrupt.");
+            }
 
-                byte[] blockData = fis.readBytes(blockSize - 16);
-                blockType = BlockType.fromBlockId(blockTypeId);
-                Block block = blockType.instantiate(this, blockId, blockSize, blockData);
+            int blockSize = data.getInt(offset) & 0xffff;       // 4-byte block size, but never > 64KB
+            int blockTypeId = data.getInt(offset + 4);          // 4-byte block identifier (i.e, 'STAK')
+            int blockId = data.getInt(offset + 8);              // 4-byte block id number, then 4 bytes of padding
+            blockType = BlockType.fromBlockId(blockTypeId);
+            LOG.debug("Unpacking {} bytes of block {}, id={}", blockSize, blockType, blockId);
 
-                blocks.add(block);
+            if (blockSize < BLOCK_HEADER_SIZE || blockSize > data.limit() - offset) {
+                throw new ImportException("Malformed block of type " + blockType + "; stack structure is corrupt.");
+            }
 
-                if (block instanceof StackBlock && block.getMajorVersion(((StackBlock) block).getModifyVersion()) < 2) {
-                    throw new UnsupportedVersionException(block, "Cannot import stacks from HyperCard 1.x. Please use the \"Convert Stack...\" command in HyperCard 2.x to update this stack.");
-                }
+            ByteBuffer blockData = data.duplicate();
+            blockData.position(offset + BLOCK_HEADER_SIZE);
+            blockData.limit(offset + blockSize);
 
-            } while (blockType != BlockType.TAIL);
+            Block block = blockType.instantiate(this, blockId, blockSize, blockData.slice());
+            add(block);
+            offset += blockSize;
 
-        } catch (IOException e) {
-            throw new ImportException("Malformed block of type " + blockType + "; stack structure is corrupt.", e);
-        }
+            if (block instanceof StackBlock && block.getMajorVersion(((StackBlock) block).getModifyVersion()) < 2) {
+                throw new UnsupportedVersionException(block, "Cannot import stacks from HyperCard 1.x. Please use the \"Convert Stack...\" command in HyperCard 2.x to update this stack.");
+            }
+
+        } while (blockType != BlockType.TAIL);
     }
 
     @Override
@@ -7,6 +7,7 @@ import com.defano.wyldcard.stackreader.misc.StackInputStream;
 import com.defano.wyldcard.stackreader.record.PartContentRecord;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -22,7 +23,7 @@ public class BackgroundBlock extends CardLayerBlock {
     private int prevBkgndId;
     private short partCount;
 
-    public BackgroundBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public BackgroundBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(stack, blockType, blockSize, blockId, blockData);
     }
 
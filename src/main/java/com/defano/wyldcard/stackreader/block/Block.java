@@ -11,6 +11,7 @@ import org.apache.commons.lang.builder.ToStringStyle;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a "block" structure, an array of which comprise the HyperCard stack file format.
@@ -24,9 +25,11 @@ public abstract class Block implements PatternDecoder, VersionDecoder, WOBAImage
     private final BlockType blockType;
     private final int blockSize;
     private final int blockId;
-    private final byte[] blockData;
 
-    public Block(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    // Not serialized; a view of the stack file, which is not copied
+    private final transient ByteBuffer blockData;
+
+    public Block(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         if (stack == null) {
             throw new IllegalArgumentException("Stack value cannot be null; each block must belong to a parent stack object.");
         }
@@ -88,11 +91,13 @@ public abstract class Block implements PatternDecoder, VersionDecoder, WOBAImage
      * Gets the data associated with the block, consisting of all of the bytes directly following the block header (the
      * block type, length and id). The size of the block data is equal to {@link #getBlockSize()} - 16 bytes (accounting
      * for the type, size and id fields).
+     * <p>
+     * The data is a read-only view of the stack file, positioned at its start; it is not copied.
      *
      * @return The block data
      */
-    public byte[] getBlockData() {
-        return blockData;
+    public ByteBuffer getBlockData() {
+        return blockData.duplicate();
     }
 
     /**
@@ -6,6 +6,7 @@ import com.defano.wyldcard.stackreader.misc.ImportException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 
 /**
  * An enumeration of block types that comprise a HyperCard stack.
@@ -126,16 +127,16 @@ public enum BlockType {
      * @param stack     The stack to which the block belongs.
      * @param blockId   The ID of the block.
      * @param blockSize The size (in bytes) of the block.
-     * @param blockData The block data array, containing all the bytes following the block type, id, size, and 4-byte
-     *                  padding. Therefore, the size of this array must equal the blockSize - 16 (the 16 bytes account
-     *                  for the type, id, size and padding not present in the array).
+     * @param blockData The block data buffer, containing all the bytes following the block type, id, size, and 4-byte
+     *                  padding. Therefore, the size of this buffer must equal the blockSize - 16 (the 16 bytes account
+     *                  for the type, id, size and padding not present in the buffer).
      * @return The instantiated block object, unpacked (that is, the block data has been parsed into individual fields
      * and is available from the block's getter methods.
      * @throws ImportException Thrown if an error occurs while unpacking the blockData.
      */
-    public Block instantiate(HyperCardStack stack, int blockId, int blockSize, byte[] blockData) throws ImportException {
+    public Block instantiate(HyperCardStack stack, int blockId, int blockSize, ByteBuffer blockData) throws ImportException {
         try {
-            Constructor constructor = klass.getConstructor(HyperCardStack.class, BlockType.class, int.class, int.class, byte[].class);
+            Constructor constructor = klass.getConstructor(HyperCardStack.class, BlockType.class, int.class, int.class, ByteBuffer.class);
             Block b = (Block) constructor.newInstance(stack, this, blockSize, blockId, blockData);
             b.unpack();
             return b;
@@ -7,6 +7,7 @@ import com.defano.wyldcard.stackreader.misc.StackInputStream;
 import com.defano.wyldcard.stackreader.record.PartContentRecord;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -21,7 +22,7 @@ public class CardBlock extends CardLayerBlock {
     private int bkgndId; // ID number of the card's background
     private short partCount; // number of parts (buttons and fields) on this card
 
-    public CardBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public CardBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(stack, blockType, blockSize, blockId, blockData);
     }
 
@@ -33,10 +33,12 @@ package com.defano.wyldcard.stackreader.block;
 import com.defano.wyldcard.stackreader.HyperCardStack;
 import com.defano.wyldcard.stackreader.decoder.WOBAImageDecoder;
 import com.defano.wyldcard.stackreader.misc.StackInputStream;
+import com.defano.wyldcard.util.MonochromeImageUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 @SuppressWarnings("unused")
 public class ImageBlock extends Block implements WOBAImageDecoder {
@@ -55,15 +57,15 @@ public class ImageBlock extends Block implements WOBAImageDecoder {
     private short imageBoundRight;   // right of the image bounding rectangle
     private int maskSize;            // size of the mask data
     private int imageSize;           // size of the image data
-    private byte[] maskData;         // the WOBA-compressed mask data
-    private byte[] imageData;        // the WOBA-compressed image data
+    private transient ByteBuffer maskData;   // the WOBA-compressed mask data (a view of the block data)
+    private transient ByteBuffer imageData;  // the WOBA-compressed image data (a view of the block data)
 
     private Rectangle boundRect;     // the image bounding rectangle
     private Rectangle maskRect;      // the image mask rectangle
     private Rectangle imageRect;     // the image rectangle
     private BufferedImage image;     // the decoded image
 
-    public ImageBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public ImageBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(root, blockType, blockSize, blockId, blockData);
     }
 
@@ -123,12 +125,12 @@ public class ImageBlock extends Block implements WOBAImageDecoder {
         return imageSize;
     }
 
-    public byte[] getMaskData() {
-        return maskData;
+    public ByteBuffer getMaskData() {
+        return maskData.duplicate();
     }
 
-    public byte[] getImageData() {
-        return imageData;
+    public ByteBuffer getImageData() {
+        return imageData.duplicate();
     }
 
     public Rectangle getBoundRect() {
@@ -144,11 +146,23 @@ public class ImageBlock extends Block implements WOBAImageDecoder {
     }
 
     /**
-     * The decoded image represented by this block, in {@link BufferedImage#TYPE_INT_ARGB} format. Returns an empty,
-     * 0x0 BufferedImage if the image data cannot be decoded.
+     * The decoded image represented by this block, packed two bits to a pixel in {@link BufferedImage#TYPE_BYTE_BINARY}
+     * format (see {@link MonochromeImageUtils}). Returns an empty (1x1, transparent) image of the same format if the
+     * image data cannot be decoded.
+     * <p>
+     * The image is decoded when first requested (rather than when the block is unpacked) so that the images of a stack
+     * may be decoded in parallel, by the threads that need them.
      * @return The decoded BufferedImage.
      */
-    public BufferedImage getImage() {
+    public synchronized BufferedImage getImage() {
+        if (image == null) {
+            image = decodeImage(boundRect, maskRect, imageRect, imageSize, imageData, maskSize, maskData);
+
+            if (image == null) {
+                image = MonochromeImageUtils.create(1, 1);
+            }
+        }
+
         return image;
     }
 
@@ -192,14 +206,8 @@ public class ImageBlock extends Block implements WOBAImageDecoder {
 
             maskSize = sis.readInt();
             imageSize = sis.readInt();
-            maskData = sis.readBytes(maskSize);
-            imageData = sis.readBytes(imageSize);
-
-            image = decodeImage(boundRect, maskRect, imageRect, imageSize, imageData, maskSize, maskData);
-
-            if (image == null) {
-                image = new BufferedImage(0, 0, BufferedImage.TYPE_INT_ARGB);
-            }
+            maskData = sis.readBuffer(maskSize);
+            imageData = sis.readBuffer(imageSize);
         }
     }
 }
@@ -8,6 +8,7 @@ import com.defano.wyldcard.stackreader.record.PageBlockIndexRecord;
 import com.defano.wyldcard.stackreader.record.PageEntryRecord;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -26,7 +27,7 @@ public class ListBlock extends Block implements ChecksumDecoder {
     private short searchHashValueCount;
     private int checksum;
 
-    public ListBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public ListBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(root, blockType, blockSize, blockId, blockData);
     }
 
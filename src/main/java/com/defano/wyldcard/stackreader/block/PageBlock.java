@@ -8,6 +8,7 @@ import com.defano.wyldcard.stackreader.misc.StackInputStream;
 import com.defano.wyldcard.stackreader.record.PageEntryRecord;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 @SuppressWarnings("unused")
@@ -17,7 +18,7 @@ public class PageBlock extends Block implements ChecksumDecoder {
     private int checksum;
     private PageEntryRecord[] pageEntries = new PageEntryRecord[0];
 
-    public PageBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public PageBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(root, blockType, blockSize, blockId, blockData);
     }
 
@@ -7,6 +7,7 @@ import com.defano.wyldcard.stackreader.misc.StackInputStream;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 @SuppressWarnings("unused")
 public class StackBlock extends Block {
@@ -51,7 +52,7 @@ public class StackBlock extends Block {
     private long[] patternData = new long[40];
     private String stackScript;
 
-    public StackBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public StackBlock(HyperCardStack root, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(root, blockType, blockSize, blockId, blockData);
     }
 
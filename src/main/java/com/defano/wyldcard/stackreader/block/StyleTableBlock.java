@@ -6,6 +6,7 @@ import com.defano.wyldcard.stackreader.misc.StackInputStream;
 import com.defano.wyldcard.stackreader.record.StyleRecord;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 @SuppressWarnings("unused")
@@ -15,7 +16,7 @@ public class StyleTableBlock extends Block {
     private int nextStyleId;
     private StyleRecord[] styles;
 
-    public StyleTableBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public StyleTableBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(stack, blockType, blockSize, blockId, blockData);
     }
 
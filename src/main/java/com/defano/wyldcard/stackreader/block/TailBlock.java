@@ -4,6 +4,7 @@ import com.defano.wyldcard.stackreader.HyperCardStack;
 import com.defano.wyldcard.stackreader.misc.StackInputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 @SuppressWarnings("unused")
 public class TailBlock extends Block {
@@ -11,7 +12,7 @@ public class TailBlock extends Block {
     private int tailStringLength;
     private String tailString;
 
-    public TailBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, byte[] blockData) {
+    public TailBlock(HyperCardStack stack, BlockType blockType, int blockSize, int blockId, ByteBuffer blockData) {
         super(stack, blockType, blockSize, blockId, blockData);
     }
 
@@ -30,42 +30,59 @@
 
 package com.defano.wyldcard.stackreader.decoder;
 
+import com.defano.wyldcard.util.MonochromeImageUtils;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 
 public interface WOBAImageDecoder {
 
-    @SuppressWarnings("PointlessArithmeticExpression")
-    default BufferedImage decodeImage(Rectangle boundRect, Rectangle maskRect, Rectangle imageRect, int imageSize, byte[] imageData, int maskSize, byte[] maskData) {
+    /**
+     * Decodes a WOBA-encoded bitmap and mask into a packed monochrome image (see {@link MonochromeImageUtils}); each
+     * pixel is black where the bitmap is set, white where only the mask is set, and transparent elsewhere. Returns null
+     * if the data is truncated or corrupt.
+     */
+    default BufferedImage decodeImage(Rectangle boundRect, Rectangle maskRect, Rectangle imageRect, int imageSize, ByteBuffer imageData, int maskSize, ByteBuffer maskData) {
         BufferedImage image;
 
         try {
             byte[] maskBytes = decodeWOBA(boundRect, maskRect, maskData, 0, maskSize);
             byte[] imageBytes = decodeWOBA(boundRect, imageRect, imageData, 0, imageSize);
-            int[] pixels = new int[imageBytes.length * 8];
-            for (int ii = 0, mi = 0, pi = 0; ii < imageBytes.length && mi < maskBytes.length && pi < pixels.length; ii++, mi++, pi += 8) {
-                byte ibt = imageBytes[ii];
-                byte mbt = maskBytes[mi];
-                pixels[pi + 0] = ((ibt & 0x80) > 0) ? 0xFF000000 : ((mbt & 0x80) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 1] = ((ibt & 0x40) > 0) ? 0xFF000000 : ((mbt & 0x40) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 2] = ((ibt & 0x20) > 0) ? 0xFF000000 : ((mbt & 0x20) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 3] = ((ibt & 0x10) > 0) ? 0xFF000000 : ((mbt & 0x10) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 4] = ((ibt & 0x08) > 0) ? 0xFF000000 : ((mbt & 0x08) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 5] = ((ibt & 0x04) > 0) ? 0xFF000000 : ((mbt & 0x04) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 6] = ((ibt & 0x02) > 0) ? 0xFF000000 : ((mbt & 0x02) > 0) ? 0xFFFFFFFF : 0;
-                pixels[pi + 7] = ((ibt & 0x01) > 0) ? 0xFF000000 : ((mbt & 0x01) > 0) ? 0xFFFFFFFF : 0;
+            int rowBytes = snap32(boundRect).width >> 3;
+
+            image = MonochromeImageUtils.create(boundRect.width, boundRect.height);
+            byte[] pixels = MonochromeImageUtils.getData(image);
+            int stride = MonochromeImageUtils.getScanlineStride(boundRect.width);
+
+            for (int y = 0; y < boundRect.height; y++) {
+                for (int x = 0; x < boundRect.width; x++) {
+                    int bi = y * rowBytes + (x >> 3);
+                    int bit = 0x80 >> (x & 7);
+                    int argb = (imageBytes[bi] & bit) != 0 ? MonochromeImageUtils.BLACK :
+                            (maskBytes[bi] & bit) != 0 ? MonochromeImageUtils.WHITE :
+                            MonochromeImageUtils.CLEAR;
+
+                    if (argb != MonochromeImageUtils.CLEAR) {
+                        MonochromeImageUtils.setPixel(pixels, stride, x, y, argb);
+                    }
+                }
             }
 
-            image = new BufferedImage(boundRect.width, boundRect.height, BufferedImage.TYPE_INT_ARGB);
-            image.setRGB(0, 0, boundRect.width, boundRect.height, pixels, 0, snap32(boundRect).width);
             return image;
 
-        } catch (ArrayIndexOutOfBoundsException e) {
+        } catch (IndexOutOfBoundsException e) {
             return null;
         }
     }
 
-    default byte[] decodeWOBA(Rectangle totr, Rectangle r, byte[] data, int offset, int l) throws ArrayIndexOutOfBoundsException {
+    /**
+     * Decodes WOBA-encoded data, read in place from the given buffer (using absolute positions, so the buffer's own
+     * position is not changed), into a packed 1-bit bitmap of the bounding rectangle.
+     *
+     * @throws IndexOutOfBoundsException Thrown if the data is truncated or corrupt
+     */
+    default byte[] decodeWOBA(Rectangle totr, Rectangle r, ByteBuffer data, int offset, int l) throws IndexOutOfBoundsException {
         Rectangle tr = snap32(totr);
         int trw = tr.width >> 3;
         Rectangle rf = snap32(r);
@@ -98,36 +115,41 @@ public interface WOBAImageDecoder {
                     (byte) 0xAA, (byte) 0x55, (byte) 0xAA, (byte) 0x55,
                     (byte) 0xAA, (byte) 0x55, (byte) 0xAA, (byte) 0x55
             };
-            while (y < rf.y - tr.y + rf.height && p < data.length) {
-                byte opcode = data[p++];
+            byte[] row = new byte[rw];      // Scratch row, reused for each diagonal XOR
+            int length = data.limit();
+            while (y < rf.y - tr.y + rf.height && p < length) {
+                byte opcode = data.get(p++);
                 if ((opcode & 0x80) == 0) {
                     int d = (opcode & 0x70) >> 4;
                     int z = opcode & 0x0F;
-                    byte[] dat = new byte[d];
-                    for (int i = 0; i < d; i++) dat[i] = data[p++];
+                    int dat = p;
+                    p += d;
+                    if (p > length) throw new IndexOutOfBoundsException();
                     while ((repeat--) > 0) {
                         pp += z;
-                        for (int i = 0; i < d; i++) stuff[pp++] = dat[i];
+                        for (int i = 0; i < d; i++) stuff[pp++] = data.get(dat + i);
                     }
                 } else if ((opcode & 0xE0) == 0xA0) {
                     repeat = (opcode & 0x1F);
                     continue;
                 } else if ((opcode & 0xE0) == 0xC0) {
                     int d = (opcode & 0x1F) << 3;
-                    byte[] dat = new byte[d];
-                    for (int i = 0; i < d; i++) dat[i] = data[p++];
+                    int dat = p;
+                    p += d;
+                    if (p > length) throw new IndexOutOfBoundsException();
                     while ((repeat--) > 0) {
-                        for (int i = 0; i < d; i++) stuff[pp++] = dat[i];
+                        for (int i = 0; i < d; i++) stuff[pp++] = data.get(dat + i);
                     }
                 } else if ((opcode & 0xE0) == 0xE0) {
                     pp += ((opcode & 0x1F) << 4) * repeat;
                 } else {
                     switch (opcode) {
                         case (byte) 0x80: {
-                            byte[] dat = new byte[rw];
-                            for (int i = 0; i < rw; i++) dat[i] = data[p++];
+                            int dat = p;
+                            p += rw;
+                            if (p > length) throw new IndexOutOfBoundsException();
                             while ((repeat--) > 0) {
-                                for (int i = 0; i < rw; i++) stuff[pp++] = dat[i];
+                                for (int i = 0; i < rw; i++) stuff[pp++] = data.get(dat + i);
                                 y++;
                                 base += trw;
                                 pp = base;
@@ -153,7 +175,7 @@ public interface WOBAImageDecoder {
                         }
                         break;
                         case (byte) 0x83: {
-                            byte pb = data[p++];
+                            byte pb = data.get(p++);
                             while ((repeat--) > 0) {
                                 patt[y & 0x7] = pb;
                                 for (int i = 0; i < rw; i++) stuff[pp++] = pb;
@@ -253,8 +275,7 @@ public interface WOBAImageDecoder {
                 repeat = 1;
                 if (pp >= base + rw) {
                     if (dh != 0) {
-                        byte[] row = new byte[rw];
-                        for (int i = 0; i < rw; i++) row[i] = stuff[base + i];
+                        System.arraycopy(stuff, base, row, 0, rw);
                         int numshifts = (rw << 3) / dh;
                         while ((numshifts--) > 0) {
                             int acc = 0;
@@ -3,12 +3,18 @@ package com.defano.wyldcard.stackreader.misc;
 import com.defano.wyldcard.stackreader.decoder.MacRomanDecoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * An input stream with helper methods intended to simplify parsing a HyperCard stack file.
+ * <p>
+ * A StackInputStream created from a {@link ByteBuffer} reads the buffer in place; data read with
+ * {@link #readBuffer(int)} is a view of the buffer rather than a copy.
  */
 public class StackInputStream extends DataInputStream implements MacRomanDecoder {
 
+    private final ByteBuffer buffer;
+
     /**
      * Create a StackInputStream from an InputStream.
      *
@@ -16,6 +22,22 @@ public class StackInputStream extends DataInputStream implements MacRomanDecoder
      */
     public StackInputStream(InputStream is) {
         super(is);
+        this.buffer = null;
+    }
+
+    /**
+     * Create a StackInputStream that reads a buffer, from its current position to its limit. Reading the stream
+     * advances the buffer's position.
+     *
+     * @param buffer The buffer that the StackInputStream will stream.
+     */
+    public StackInputStream(ByteBuffer buffer) {
+        this(new ByteBufferInputStream(buffer), buffer);
+    }
+
+    private StackInputStream(ByteBufferInputStream is, ByteBuffer buffer) {
+        super(is);
+        this.buffer = buffer;
     }
 
     /**
@@ -91,6 +113,31 @@ public class StackInputStream extends DataInputStream implements MacRomanDecoder
         return buffer;
     }
 
+    /**
+     * Reads zero or more bytes (8-bit values) from the input stream into a buffer. When this stream was created from a
+     * {@link ByteBuffer}, the returned buffer is a read-only view of it (and no data is copied).
+     *
+     * @param count The number of bytes to read.
+     * @return A buffer whose position is zero and whose limit is equal to count.
+     * @throws IOException Thrown if the input stream cannot produce the data.
+     */
+    public ByteBuffer readBuffer(int count) throws IOException {
+        if (buffer == null) {
+            return ByteBuffer.wrap(readBytes(count)).asReadOnlyBuffer();
+        }
+
+        if (count < 0) {
+            throw new IOException("Cannot read a negative number of bytes.");
+        } else if (count > buffer.remaining()) {
+            throw new EOFException();
+        }
+
+        ByteBuffer view = buffer.slice().asReadOnlyBuffer();
+        view.limit(count);
+        buffer.position(buffer.position() + count);
+        return view;
+    }
+
     /**
      * Reads a fixed number of MacRoman charset-encoded characters (Pascal-style).
      *
@@ -142,4 +189,63 @@ public class StackInputStream extends DataInputStream implements MacRomanDecoder
         reset();
         skipBytes(offset);
     }
+
+    /**
+     * An InputStream that reads a ByteBuffer in place. Marks (and resets to) positions of the buffer; unless marked,
+     * the stream resets to the buffer's position when the stream was created.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int mark;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.mark = buffer.position();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            mark = buffer.position();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.position(mark);
+        }
+    }
 }
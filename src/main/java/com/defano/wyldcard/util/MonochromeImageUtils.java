@@ -0,0 +1,143 @@
+package com.defano.wyldcard.util;
+
+import java.awt.image.*;
+
+/**
+ * Utilities for images whose pixels are each black, white or transparent, as are those of imported HyperCard stacks
+ * and of cards painted only with black-and-white tools.
+ * <p>
+ * Such an image is held packed, two bits to a pixel, in a {@link BufferedImage#TYPE_BYTE_BINARY} image; a sixteenth
+ * the size of the same image in {@link BufferedImage#TYPE_INT_ARGB} format. A packed image reads (via
+ * {@link BufferedImage#getRGB(int, int)}) exactly as its ARGB equivalent, but must be promoted to ARGB (see
+ * {@link #toArgb(BufferedImage)}) before it is painted into.
+ */
+public class MonochromeImageUtils {
+
+    public static final int CLEAR = 0x00000000;
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private static final byte INDEX_CLEAR = 0;
+    private static final byte INDEX_BLACK = 1;
+    private static final byte INDEX_WHITE = 2;
+
+    private static final IndexColorModel COLOR_MODEL = new IndexColorModel(2, 3,
+            new byte[]{0, 0, (byte) 0xff},
+            new byte[]{0, 0, (byte) 0xff},
+            new byte[]{0, 0, (byte) 0xff},
+            new byte[]{0, (byte) 0xff, (byte) 0xff});
+
+    private MonochromeImageUtils() {
+    }
+
+    /**
+     * Creates a transparent, packed monochrome image.
+     *
+     * @param width  The width of the image
+     * @param height The height of the image
+     * @return The image
+     */
+    public static BufferedImage create(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, COLOR_MODEL);
+    }
+
+    /**
+     * Determines if the given image is a packed monochrome image.
+     *
+     * @param image The image to test
+     * @return True if the image was created by {@link #create(int, int)} (or is otherwise of the same format)
+     */
+    public static boolean isPacked(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_BINARY && COLOR_MODEL.equals(image.getColorModel());
+    }
+
+    /**
+     * Gets the number of bytes holding each row of a packed image's pixels.
+     *
+     * @param width The width of the image
+     * @return The number of bytes in each row
+     */
+    public static int getScanlineStride(int width) {
+        return (width * 2 + 7) / 8;
+    }
+
+    /**
+     * Gets the array holding a packed image's pixels, four to a byte (most significant bits first) with each row
+     * beginning on a byte boundary. Changes to the array change the image.
+     *
+     * @param image A packed image
+     * @return The image's pixel data
+     */
+    public static byte[] getData(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Sets the pixel of a packed image's data to black, white or transparent; other colors are treated as transparent.
+     *
+     * @param data   The image data; see {@link #getData(BufferedImage)}
+     * @param stride The number of bytes in each row; see {@link #getScanlineStride(int)}
+     * @param x      The x coordinate of the pixel
+     * @param y      The y coordinate of the pixel
+     * @param argb   The color of the pixel
+     */
+    public static void setPixel(byte[] data, int stride, int x, int y, int argb) {
+        int index = argb == BLACK ? INDEX_BLACK : argb == WHITE ? INDEX_WHITE : INDEX_CLEAR;
+        int shift = 6 - (x & 3) * 2;
+        int offset = y * stride + (x >> 2);
+        data[offset] = (byte) (data[offset] & ~(3 << shift) | index << shift);
+    }
+
+    /**
+     * Packs the given image, if every one of its pixels is black, white or transparent.
+     *
+     * @param image The image to pack
+     * @return A packed copy of the image, or the image itself if it is already packed or has pixels of other colors
+     */
+    public static BufferedImage pack(BufferedImage image) {
+        if (image == null || isPacked(image) || image.getWidth() == 0 || image.getHeight() == 0) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+
+        BufferedImage packed = create(width, height);
+        byte[] data = getData(packed);
+        int stride = getScanlineStride(width);
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                if (argb != CLEAR && argb != BLACK && argb != WHITE) {
+                    return image;
+                }
+
+                setPixel(data, stride, x, y, argb);
+            }
+        }
+
+        return packed;
+    }
+
+    /**
+     * Promotes the given image to {@link BufferedImage#TYPE_INT_ARGB} format, as must be done before painting into a
+     * packed image.
+     *
+     * @param image The image to promote
+     * @return An ARGB copy of the image, or the image itself if it is already in ARGB format
+     */
+    public static BufferedImage toArgb(BufferedImage image) {
+        if (image == null || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage argb = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        argb.setRGB(0, 0, width, height, image.getRGB(0, 0, width, height, null, 0, width), 0, width);
+        return argb;
+    }
+}
@@ -117,7 +117,7 @@ public class WyldCardDialogManager implements DialogManager, Hashable {
             fd.setVisible(true);
             if (fd.getFiles().length > 0) {
                 File f = fd.getFiles()[0];
-                String path = f.getAbsolutePath().endsWith(StackModel.FILE_EXTENSION) ?
+                String path = StackModel.isStackFileName(f.getAbsolutePath()) ?
                         f.getAbsolutePath() :
                         f.getAbsolutePath() + StackModel.FILE_EXTENSION;
 
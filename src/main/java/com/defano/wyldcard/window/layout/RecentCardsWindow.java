@@ -1,23 +1,31 @@
 package com.defano.wyldcard.window.layout;
 
 import com.defano.hypertalk.ast.model.Destination;
-import com.defano.jmonet.transform.image.ScaleTransform;
 import com.defano.wyldcard.WyldCard;
-import com.defano.wyldcard.part.card.CardPart;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.card.CardThumbnailCache;
 import com.defano.wyldcard.part.stack.StackPart;
 import com.defano.wyldcard.runtime.ExecutionContext;
 import com.defano.wyldcard.awt.WrapLayout;
 import com.defano.wyldcard.window.WyldCardDialog;
 import com.intellij.uiDesigner.core.GridConstraints;
 import com.intellij.uiDesigner.core.GridLayoutManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class RecentCardsWindow extends WyldCardDialog<Object> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(RecentCardsWindow.class);
+    private static final double THUMBNAIL_SCALE = .1;
+
     private JPanel windowPanel;
     private JPanel thumbnailsPanel;
     private JScrollPane scrollPane;
@@ -42,9 +50,16 @@ public class RecentCardsWindow extends WyldCardDialog<Object> {
         );
 
         // Generate thumbnails for each card
+        long openedAt = System.nanoTime();
+        List<CompletableFuture<BufferedImage>> thumbnails = new ArrayList<>();
         for (Destination thisCard : recentCards) {
-            addDestinationThumbnail(thisCard, thisCard.equals(focusedCard));
+            addDestinationThumbnail(thisCard, thisCard.equals(focusedCard), thumbnails);
         }
+
+        CompletableFuture.allOf(thumbnails.toArray(new CompletableFuture[0])).whenComplete((ignored, e) ->
+                LOG.debug("Drew {} recent card thumbnails in {} ms; thumbnail cache hit rate {}%.", thumbnails.size(),
+                        String.format("%.1f", (System.nanoTime() - openedAt) / 1e6),
+                        Math.round(CardThumbnailCache.getInstance().getHitRate() * 100)));
     }
 
     @Override
@@ -62,29 +77,30 @@ public class RecentCardsWindow extends WyldCardDialog<Object> {
         // Nothing to do
     }
 
-    private void addDestinationThumbnail(Destination destination, boolean focused) {
+    private void addDestinationThumbnail(Destination destination, boolean focused, List<CompletableFuture<BufferedImage>> thumbnails) {
         StackPart stack = WyldCard.getInstance().getStackManager().getOpenStack(destination.getStack());
         Integer cardNumber = stack.getStackModel().getIndexOfCardId(destination.getCardIndex());
 
         // Null means card doesn't exist (likely deleted)
         if (cardNumber != null) {
-            CardPart loadedCard = stack.loadCard(new ExecutionContext(), cardNumber);
+            ExecutionContext context = new ExecutionContext();
+            CardModel card = stack.getStackModel().getCardModel(cardNumber);
+            Dimension cardSize = stack.getStackModel().getSize(context);
+            int width = Math.max(1, (int) (cardSize.width * THUMBNAIL_SCALE));
+            int height = Math.max(1, (int) (cardSize.height * THUMBNAIL_SCALE));
 
-            SwingUtilities.invokeLater(() -> {
-                int cardWidth = loadedCard.getWidth();
-                int cardHeight = loadedCard.getHeight();
+            // Rendered from the card's model off the dispatch thread, unless a thumbnail of the card as it is now is cached
+            CompletableFuture<BufferedImage> thumbnail = CardThumbnailCache.getInstance().getThumbnail(context, card, width, height);
+            thumbnails.add(thumbnail);
 
-                BufferedImage image = loadedCard.getScreenshot();
-                image = new ScaleTransform(new Dimension((int) (cardWidth * .1), (int) (cardHeight * .1))).apply(image);
-
-                ImageIcon icon = new ImageIcon(image);
+            SwingUtilities.invokeLater(() -> {
                 JButton button = new JButton();
                 button.addActionListener(e -> {
                     WyldCard.getInstance().getNavigationManager().goCard(new ExecutionContext(), stack, cardNumber, true);
                     stack.getOwningStackWindow().requestFocus();
                     RecentCardsWindow.this.dispose();
                 });
-                button.setIcon(icon);
+                button.setIcon(new ImageIcon(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)));
 
                 thumbnailsPanel.add(button);
 
@@ -92,7 +108,7 @@ public class RecentCardsWindow extends WyldCardDialog<Object> {
                     button.requestFocus();
                 }
 
-                loadedCard.dispose();
+                thumbnail.thenAccept(image -> SwingUtilities.invokeLater(() -> button.setIcon(new ImageIcon(image))));
             });
         }
     }
@@ -2,7 +2,7 @@ package com.defano.wyldcard.window.layout;
 
 import com.defano.wyldcard.part.stack.StackModel;
 import com.defano.wyldcard.runtime.ExecutionContext;
-import com.defano.wyldcard.serializer.Serializer;
+import com.defano.wyldcard.serializer.StackSerializer;
 import com.defano.wyldcard.util.StringUtils;
 import com.defano.wyldcard.window.WyldCardDialog;
 import com.intellij.uiDesigner.core.GridConstraints;
@@ -66,7 +66,7 @@ public class StackPropertyEditor extends WyldCardDialog<StackModel> {
         cardCountLabel.setText(StringUtils.pluralize(model.getCardCount(), "Stack contains %d card.", "Stack contains %d cards."));
         backgroundCountLabel.setText(StringUtils.pluralize(model.getBackgroundCount(), "Stack contains %d background.", "Stack contains %d backgrounds."));
         locationLabel.setText(stackFile.map(File::getAbsolutePath).orElse("(Not saved)"));
-        sizeLabel.setText(StringUtils.humanReadableFileSize(Serializer.serialize(model).length()));
+        sizeLabel.setText(StringUtils.humanReadableFileSize(StackSerializer.estimateSize(model)));
         resizableCheckBox.setSelected(model.get(new ExecutionContext(), StackModel.PROP_RESIZABLE).booleanValue());
     }
 
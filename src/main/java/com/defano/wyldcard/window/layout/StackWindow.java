@@ -28,6 +28,9 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
 import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class StackWindow extends WyldCardWindow<StackPart> implements StackObserver, StackNavigationObserver, CurtainObserver {
 
@@ -41,6 +44,7 @@ public class StackWindow extends WyldCardWindow<StackPart> implements StackObser
     private final CardResizeObserver cardResizeObserver = new CardResizeObserver();
     private final WindowMovementObserver windowMovementObserver = new WindowMovementObserver();
     private final StackFocusObserver stackFocusObserver = new StackFocusObserver();
+    private final Set<CardPart> dropTargets = Collections.newSetFromMap(new WeakHashMap<>());     // Cards accepting dropped files
 
     private StackPart displayedStack;       // Stack displayed in window
     private CardPart displayedCard;         // Card of stack displayed in window
@@ -186,8 +190,10 @@ public class StackWindow extends WyldCardWindow<StackPart> implements StackObser
     @RunOnDispatch
     public void onDisplayedCardChanged(CardModel prevCard, CardPart nextCard) {
 
-        // Listen for image files that are dropped onto the card
-        new FileDrop(displayedCard, ArtVandelay::importPaint);
+        // Listen for image files that are dropped onto the card (once; cards are reused as they are navigated)
+        if (dropTargets.add(nextCard)) {
+            new FileDrop(nextCard, ArtVandelay::importPaint);
+        }
 
         // Do this last; let card fully initialize/render itself before displaying in the window
         SwingUtilities.invokeLater(() -> {
@@ -0,0 +1,234 @@
+package com.defano.wyldcard.importer;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.wyldcard.part.stack.StackModel;
+import com.defano.wyldcard.serializer.Serializer;
+import com.defano.wyldcard.serializer.SerializerPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackFormatConverterTest extends GuiceTest<StackFormatConverter> {
+
+    private static final int BACKGROUND_COUNT = 3;
+    private static final int CARD_COUNT = 12;
+
+    private final int parallelism = SerializerPool.getParallelism();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SerializerPool.setParallelism(parallelism);
+    }
+
+    @Test
+    public void testThatImportedStackDoesNotDependOnParallelism() throws Exception {
+        File file = tempDir.resolve("Stack").toFile();
+        Files.write(file.toPath(), stackData());
+
+        SerializerPool.setParallelism(1);
+        StackModel serial = convert(file);
+
+        SerializerPool.setParallelism(4);
+        StackModel parallel = convert(file);
+
+        assertEquals(CARD_COUNT, serial.getCardCount());
+        assertEquals(BACKGROUND_COUNT, serial.getBackgroundModels().size());
+        assertEquals(Serializer.serialize(serial), Serializer.serialize(parallel));
+    }
+
+    private static StackModel convert(File file) throws Exception {
+        CompletableFuture<StackModel> imported = new CompletableFuture<>();
+
+        StackFormatConverter.convert(file, new ConversionStatusObserver() {
+            @Override
+            public void onConversionFailed(String message, Exception cause) {
+                imported.completeExceptionally(cause);
+            }
+
+            @Override
+            public void onConversionSucceeded(StackModel importedStack) {
+                imported.complete(importedStack);
+            }
+        }, (cardsImported, totalCards, message) -> {});
+
+        return imported.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A HyperCard 2 stack of several backgrounds, each with a field, and cards alternating between them; each card has
+     * a field of its own and its own text in its background's field.
+     */
+    private static byte[] stackData() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeBlock(out, "STAK", -1, stackBlock());
+        writeBlock(out, "FTBL", 1, fontTableBlock());
+
+        for (int bkgnd = 0; bkgnd < BACKGROUND_COUNT; bkgnd++) {
+            writeBlock(out, "BKGD", 2000 + bkgnd, bkgndBlock(bkgnd));
+        }
+
+        for (int card = 0; card < CARD_COUNT; card++) {
+            writeBlock(out, "CARD", 3000 + card, cardBlock(card));
+        }
+
+        writeBlock(out, "TAIL", -1, tailBlock());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] stackBlock() {
+        ByteBuffer data = ByteBuffer.allocate(0x600 - 16 + 1);
+        data.putInt(0, 10);                         // HyperCard 2.x format
+        data.putInt(88, 0x02418000);                // Last modified by HyperCard 2.41
+        data.putShort(0x1b0 - 16 + 8, (short) 342); // Height
+        data.putShort(0x1b0 - 16 + 10, (short) 512);// Width
+        return data.array();
+    }
+
+    private static byte[] fontTableBlock() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeShort(3);
+        writeString(out, "Geneva");
+        out.writeByte(0);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] bkgndBlock(int bkgnd) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);                            // No bitmap
+        out.writeShort(0);                          // Flags
+        out.writeShort(0);
+        out.writeInt(CARD_COUNT / BACKGROUND_COUNT);
+        out.writeInt(2000 + (bkgnd + 1) % BACKGROUND_COUNT);
+        out.writeInt(2000 + (bkgnd + BACKGROUND_COUNT - 1) % BACKGROUND_COUNT);
+        out.writeShort(1);                          // Part count
+        writeLayer(out, "Background " + bkgnd, 1, 1, "", "on openBackground\nend openBackground");
+        return bytes.toByteArray();
+    }
+
+    private static byte[] cardBlock(int card) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);                            // No bitmap
+        out.writeShort(0);                          // Flags
+        out.write(new byte[10]);
+        out.writeInt(0);                            // Page id
+        out.writeInt(2000 + card % BACKGROUND_COUNT);
+        out.writeShort(1);                          // Part count
+        writeLayer(out, "Card " + card, 2, -2, "Card field of card " + card, "on openCard\nend openCard",
+                1, "Background field of card " + card);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] tailBlock() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] chars = "That's all folks".getBytes(StandardCharsets.US_ASCII);
+        out.writeByte(chars.length);
+        out.write(chars);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the part list, part contents, name and script common to cards and backgrounds: a single field, the
+     * contents of that field, and the contents of any other parts (as pairs of raw part id and text).
+     */
+    private static void writeLayer(DataOutputStream out, String name, int fieldId, int rawFieldId, String fieldText, String script, Object... otherContents) throws IOException {
+        byte[] part = fieldRecord(fieldId);
+
+        out.writeShort(fieldId + 1);                // Next part id
+        out.writeInt(part.length + 2);
+        out.writeShort(1 + otherContents.length / 2);
+        out.writeInt(0);
+
+        out.writeShort(part.length + 2);
+        out.write(part);
+
+        writeContents(out, rawFieldId, fieldText);
+        for (int content = 0; content < otherContents.length; content += 2) {
+            writeContents(out, (int) otherContents[content], (String) otherContents[content + 1]);
+        }
+
+        writeString(out, name);
+        writeString(out, script);
+    }
+
+    private static byte[] fieldRecord(int fieldId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(fieldId);
+        out.writeByte(2);                           // Field
+        out.writeByte(0);                           // Flags
+        out.writeShort(10 * fieldId);               // Top, left, bottom, right
+        out.writeShort(10);
+        out.writeShort(10 * fieldId + 40);
+        out.writeShort(210);
+        out.writeByte(0);                           // Extended flags
+        out.writeByte(2);                           // Rectangle style
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);                          // Left aligned
+        out.writeShort(3);                          // Geneva
+        out.writeShort(12);
+        out.writeByte(0);                           // Plain
+        out.writeByte(0);
+        out.writeShort(16);
+        writeString(out, "Field " + fieldId);
+        out.writeByte(0);
+        writeString(out, "");
+        return bytes.toByteArray();
+    }
+
+    private static void writeContents(DataOutputStream out, int rawPartId, String text) throws IOException {
+        byte[] chars = text.getBytes(StandardCharsets.US_ASCII);
+
+        out.writeShort(rawPartId);
+        out.writeShort(chars.length + 1);
+        out.writeByte(0);                           // Plain text
+        out.write(chars);
+
+        if ((chars.length + 1) % 2 != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.writeByte(0);
+    }
+
+    private static void writeBlock(DataOutputStream out, String type, int id, byte[] data) throws IOException {
+        out.writeInt(16 + data.length);
+        out.write(type.getBytes(StandardCharsets.US_ASCII));
+        out.writeInt(id);
+        out.writeInt(0);
+        out.write(data);
+    }
+}
@@ -0,0 +1,177 @@
+package com.defano.wyldcard.part.card;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.builder.ButtonModelBuilder;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.button.ButtonModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardRendererTest extends GuiceTest<CardRenderer> {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    private StackModel stack;
+    private BackgroundModel background;
+    private CardModel first;
+    private CardModel second;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        first = stack.getCardModel(0);
+        background = first.getBackgroundModel();
+        second = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(background.getId()).build();
+        stack.addCard(second);
+    }
+
+    @Test
+    public void testThatEmptyCardIsWhite() {
+        BufferedImage image = CardRenderer.render(mockExecutionContext, first);
+
+        assertEquals(640, image.getWidth());
+        assertEquals(480, image.getHeight());
+        assertEquals(0, countDarkPixels(image, new Rectangle(0, 0, 640, 480)));
+        assertEquals(WHITE, image.getRGB(320, 240));
+    }
+
+    @Test
+    public void testThatCardGraphicsAreDrawnAboveBackgroundGraphics() {
+        background.setBackgroundImage(image(new Rectangle(0, 0, 100, 100), Color.BLACK));
+        first.setCardImage(image(new Rectangle(50, 50, 100, 100), Color.WHITE));
+
+        BufferedImage image = CardRenderer.render(mockExecutionContext, first);
+        assertEquals(BLACK, image.getRGB(10, 10));
+        assertEquals(WHITE, image.getRGB(60, 60));
+        assertEquals(WHITE, image.getRGB(120, 120));
+
+        // The card's graphics are hidden when its showPict is false
+        first.set(mockExecutionContext, CardModel.PROP_SHOWPICT, new Value(false));
+        assertEquals(BLACK, CardRenderer.render(mockExecutionContext, first).getRGB(60, 60));
+    }
+
+    @Test
+    public void testThatPartsAreDrawnAboveGraphicsOfTheirLayer() {
+        background.setBackgroundImage(image(new Rectangle(0, 0, 640, 480), Color.BLACK));
+        ButtonModel button = addButton(new Rectangle(10, 10, 40, 40), "opaque");
+
+        BufferedImage image = CardRenderer.render(mockExecutionContext, first);
+        assertEquals(WHITE, image.getRGB(30, 30));
+        assertEquals(BLACK, image.getRGB(60, 60));
+
+        // Card graphics cover background parts
+        first.setCardImage(image(new Rectangle(0, 0, 640, 480), Color.BLACK));
+        assertEquals(BLACK, CardRenderer.render(mockExecutionContext, first).getRGB(30, 30));
+
+        // Hidden parts are not drawn
+        first.setCardImage(image(new Rectangle(0, 0, 1, 1), Color.BLACK));
+        button.set(mockExecutionContext, ButtonModel.PROP_VISIBLE, new Value(false));
+        assertEquals(BLACK, CardRenderer.render(mockExecutionContext, first).getRGB(30, 30));
+    }
+
+    @Test
+    public void testThatButtonHiliteIsDrawnForEachCard() {
+        ButtonModel button = addButton(new Rectangle(10, 10, 40, 40), "rectangle");
+        button.set(mockExecutionContext, ButtonModel.PROP_SHOWNAME, new Value(false));
+        button.set(mockExecutionContext, ButtonModel.PROP_SHAREDHILITE, new Value(false));
+
+        button.setCurrentCardId(second.getId());
+        button.set(mockExecutionContext, ButtonModel.PROP_HIGHLIGHT, new Value(true));
+        button.setCurrentCardId(first.getId());
+
+        assertEquals(WHITE, CardRenderer.render(mockExecutionContext, first).getRGB(30, 30));
+        assertEquals(BLACK, CardRenderer.render(mockExecutionContext, second).getRGB(30, 30));
+
+        // Drawing another card does not bind the button to it
+        assertEquals(first.getId(), button.getCurrentCardId(mockExecutionContext));
+    }
+
+    @Test
+    public void testThatFieldTextIsDrawnForEachCard() {
+        Rectangle bounds = new Rectangle(100, 100, 200, 100);
+        FieldModel field = new FieldModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextFieldId(background.getId())).withBounds(bounds).withShowLines(false).build();
+        background.addPartModel(field);
+
+        field.setCurrentCardId(second.getId());
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value("Wyld\nCard"));
+
+        Rectangle inside = new Rectangle(bounds.x + 2, bounds.y + 2, bounds.width - 4, bounds.height - 4);
+        assertEquals(0, countDarkPixels(CardRenderer.render(mockExecutionContext, first), inside));
+        assertTrue(countDarkPixels(CardRenderer.render(mockExecutionContext, second), inside) > 0);
+
+        // Text scrolled out of view is not drawn
+        field.set(mockExecutionContext, FieldModel.PROP_SCROLL, new Value(500));
+        assertEquals(0, countDarkPixels(CardRenderer.render(mockExecutionContext, second), inside));
+    }
+
+    @Test
+    public void testThatFieldStyleIsDrawn() {
+        Rectangle bounds = new Rectangle(100, 100, 200, 100);
+        background.setBackgroundImage(image(new Rectangle(0, 0, 640, 480), Color.BLACK));
+        FieldModel field = new FieldModelBuilder(Owner.CARD, first).withId(stack.getNextFieldId(first.getId())).withBounds(bounds).withShowLines(false).build();
+        first.addPartModel(field);
+
+        // Transparent fields show the graphics beneath them; rectangle fields are opaque and framed
+        assertEquals(BLACK, CardRenderer.render(mockExecutionContext, first).getRGB(150, 150));
+
+        field.set(mockExecutionContext, FieldModel.PROP_STYLE, new Value("rectangle"));
+        BufferedImage image = CardRenderer.render(mockExecutionContext, first);
+        assertEquals(WHITE, image.getRGB(150, 150));
+        assertTrue(isDark(image.getRGB(100, 150)));
+    }
+
+    @Test
+    public void testThatCardIsRenderedToScale() {
+        background.setBackgroundImage(image(new Rectangle(0, 0, 320, 480), Color.BLACK));
+
+        BufferedImage image = CardRenderer.render(mockExecutionContext, first, 64, 48);
+        assertEquals(64, image.getWidth());
+        assertEquals(48, image.getHeight());
+        assertEquals(BLACK, image.getRGB(10, 24));
+        assertEquals(WHITE, image.getRGB(54, 24));
+    }
+
+    private ButtonModel addButton(Rectangle bounds, String style) {
+        ButtonModel button = new ButtonModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextButtonId(background.getId())).withBounds(bounds).withPartStyle(style).build();
+        background.addPartModel(button);
+        return button;
+    }
+
+    private static BufferedImage image(Rectangle rect, Color color) {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fill(rect);
+        g.dispose();
+        return image;
+    }
+
+    private static int countDarkPixels(BufferedImage image, Rectangle rect) {
+        int count = 0;
+        for (int y = rect.y; y < rect.y + rect.height; y++) {
+            for (int x = rect.x; x < rect.x + rect.width; x++) {
+                count += isDark(image.getRGB(x, y)) ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isDark(int rgb) {
+        return (rgb & 0xFF) < 0x80;
+    }
+}
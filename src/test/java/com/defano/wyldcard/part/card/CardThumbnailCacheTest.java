@@ -0,0 +1,97 @@
+package com.defano.wyldcard.part.card;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardThumbnailCacheTest extends GuiceTest<CardThumbnailCache> {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final long THUMBNAIL_BYTES = WIDTH * HEIGHT * 4;
+
+    private StackModel stack;
+    private BackgroundModel background;
+    private CardModel first;
+    private CardModel second;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        first = stack.getCardModel(0);
+        background = first.getBackgroundModel();
+        second = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(background.getId()).build();
+        stack.addCard(second);
+    }
+
+    @Test
+    public void testThatUnchangedCardIsCached() {
+        CardThumbnailCache cache = new CardThumbnailCache(THUMBNAIL_BYTES * 10);
+
+        BufferedImage thumbnail = cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join();
+        assertEquals(WIDTH, thumbnail.getWidth());
+        assertEquals(HEIGHT, thumbnail.getHeight());
+
+        assertSame(thumbnail, cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join());
+        assertEquals(.5, cache.getHitRate());
+
+        // A thumbnail of another size is not the same thumbnail
+        assertEquals(WIDTH / 2, cache.getThumbnail(mockExecutionContext, first, WIDTH / 2, HEIGHT / 2).join().getWidth());
+    }
+
+    @Test
+    public void testThatChangedCardIsRenderedAnew() {
+        CardThumbnailCache cache = new CardThumbnailCache(THUMBNAIL_BYTES * 10);
+        BufferedImage thumbnail = cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join();
+
+        first.set(mockExecutionContext, CardModel.PROP_NAME, new Value("Changed"));
+        BufferedImage changed = cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join();
+        assertNotSame(thumbnail, changed);
+
+        // The card's thumbnail shows its text in a background field
+        FieldModel field = new FieldModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextFieldId(background.getId())).withBounds(new Rectangle(0, 0, 640, 480)).build();
+        background.addPartModel(field);
+        field.setCurrentCardId(first.getId());
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value("Text"));
+
+        assertNotSame(changed, cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join());
+    }
+
+    @Test
+    public void testThatCacheIsBoundedByBytes() {
+        CardThumbnailCache cache = new CardThumbnailCache(THUMBNAIL_BYTES);
+
+        BufferedImage thumbnail = cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join();
+        cache.getThumbnail(mockExecutionContext, second, WIDTH, HEIGHT).join();
+        assertEquals(THUMBNAIL_BYTES, cache.getBytes());
+
+        // The first card's thumbnail was evicted to make room for the second's
+        assertNotSame(thumbnail, cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join());
+    }
+
+    @Test
+    public void testThatClosedStackIsDiscarded() {
+        CardThumbnailCache cache = new CardThumbnailCache(THUMBNAIL_BYTES * 10);
+        cache.getThumbnail(mockExecutionContext, first, WIDTH, HEIGHT).join();
+        cache.getThumbnail(mockExecutionContext, second, WIDTH, HEIGHT).join();
+        assertEquals(THUMBNAIL_BYTES * 2, cache.getBytes());
+
+        cache.invalidate(stack);
+        assertEquals(0, cache.getBytes());
+    }
+}
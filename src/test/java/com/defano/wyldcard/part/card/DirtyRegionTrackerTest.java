@@ -0,0 +1,120 @@
+package com.defano.wyldcard.part.card;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirtyRegionTrackerTest {
+
+    private static final Rectangle CARD = new Rectangle(0, 0, 640, 480);
+
+    private final List<Rectangle> repainted = new ArrayList<>();
+    private boolean screenLocked;
+    private DirtyRegionTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        tracker = new DirtyRegionTracker(repainted::add, () -> screenLocked, 0);
+    }
+
+    @Test
+    public void testThatOverlappingDamageIsMerged() {
+        tracker.damage(new Rectangle(10, 10, 20, 20));
+        tracker.damage(new Rectangle(20, 20, 20, 20));
+        tracker.damage(new Rectangle(15, 15, 5, 5));
+        tracker.damage(new Rectangle(100, 100, 10, 10));
+
+        tracker.flush();
+        assertEquals(2, repainted.size());
+        assertTrue(repainted.contains(new Rectangle(10, 10, 30, 30)));
+        assertTrue(repainted.contains(new Rectangle(100, 100, 10, 10)));
+        assertEquals(1, tracker.getFrameCount());
+
+        // Nothing is repainted when nothing is damaged
+        tracker.flush();
+        assertEquals(2, repainted.size());
+        assertEquals(1, tracker.getFrameCount());
+    }
+
+    @Test
+    public void testThatManyRegionsAreMergedIntoOne() {
+        for (int region = 0; region < 20; region++) {
+            tracker.damage(new Rectangle(region * 30, 0, 10, 10));
+        }
+
+        assertTrue(tracker.getDamagedRegions().size() < 20);
+
+        tracker.flush();
+        Rectangle union = new Rectangle();
+        for (Rectangle region : repainted) {
+            union = union.isEmpty() ? region : union.union(region);
+        }
+        assertEquals(new Rectangle(0, 0, 580, 10), union);
+    }
+
+    @Test
+    public void testThatNothingIsRepaintedWhileScreenIsLocked() {
+        screenLocked = true;
+        tracker.damage(new Rectangle(10, 10, 20, 20));
+        tracker.flush();
+        tracker.damage(new Rectangle(20, 20, 20, 20));
+        tracker.flush();
+
+        assertTrue(repainted.isEmpty());
+        assertEquals(0, tracker.getFrameCount());
+
+        // Everything damaged while locked is repainted once unlocked
+        screenLocked = false;
+        tracker.flush();
+        assertEquals(1, repainted.size());
+        assertEquals(new Rectangle(10, 10, 30, 30), repainted.get(0));
+    }
+
+    @Test
+    public void testThatAnimatingFiftyButtonsRepaintsEachFrameOnce() {
+        final int buttons = 50, frames = 60, changesPerFrame = 4;
+        Rectangle[] bounds = new Rectangle[buttons];
+        for (int button = 0; button < buttons; button++) {
+            bounds[button] = new Rectangle((button % 10) * 60, (button / 10) * 90, 40, 20);
+        }
+
+        long naiveArea = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            // A script moves each button a pixel at a time, several times between frames
+            for (int change = 0; change < changesPerFrame; change++) {
+                for (int button = 0; button < buttons; button++) {
+                    Rectangle moved = new Rectangle(bounds[button]);
+                    moved.translate(1, 0);
+                    tracker.damage(bounds[button].union(moved));
+                    bounds[button] = moved;
+
+                    // ... where each move would have repainted the whole card
+                    naiveArea += CARD.width * CARD.height;
+                }
+            }
+
+            tracker.flush();
+        }
+
+        assertEquals(buttons * frames * changesPerFrame, tracker.getDamageCount());
+        assertEquals(frames, tracker.getFrameCount());
+        assertTrue(tracker.getRepaintCount() <= frames * 8);
+        assertTrue(tracker.getRepaintedArea() <= (long) frames * CARD.width * CARD.height);
+        assertTrue(tracker.getRepaintedArea() * 100 < naiveArea);
+    }
+
+    @Test
+    public void testThatClearedDamageIsNotRepainted() {
+        tracker.damage(new Rectangle(10, 10, 20, 20));
+        tracker.clear();
+        tracker.flush();
+
+        assertTrue(repainted.isEmpty());
+        assertTrue(tracker.getDamagedRegions().isEmpty());
+    }
+}
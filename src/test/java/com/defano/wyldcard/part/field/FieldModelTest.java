@@ -0,0 +1,104 @@
+package com.defano.wyldcard.part.field;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldModelTest extends GuiceTest<FieldModel> {
+
+    private FieldModel field;
+
+    @BeforeEach
+    public void setUp() throws BadLocationException {
+        initialize();
+
+        field = new FieldModelBuilder(Owner.CARD, new StackModelBuilder().withInitialCard().build().getCurrentCard()).withId(1).build();
+
+        StyledDocument document = new DefaultStyledDocument();
+        document.insertString(0, "plain ", null);
+        document.insertString(document.getLength(), "bold", bold());
+        document.insertString(document.getLength(), " plain", null);
+        field.setStyledDocument(mockExecutionContext, document);
+    }
+
+    @Test
+    public void testThatAppendedTextTakesStyleOfLastCharacter() {
+        setText("plain bold plain and more");
+        assertEquals("plain bold plain and more", field.getText(mockExecutionContext));
+        assertFalse(isBold(20));
+    }
+
+    @Test
+    public void testThatTextInsertedAfterStyledTextTakesItsStyle() {
+        setText("plain bolder plain");
+        assertEquals("plain bolder plain", field.getText(mockExecutionContext));
+        assertTrue(isBold(9));
+        assertTrue(isBold(10));
+        assertFalse(isBold(12));
+    }
+
+    @Test
+    public void testThatPrependedTextTakesStyleOfFirstCharacter() {
+        setText("very plain bold plain");
+        assertEquals("very plain bold plain", field.getText(mockExecutionContext));
+        assertFalse(isBold(0));
+        assertTrue(isBold(11));
+    }
+
+    @Test
+    public void testThatDeletedTextLeavesRemainingStyles() {
+        setText("plain bold");
+        assertEquals("plain bold", field.getText(mockExecutionContext));
+        assertTrue(isBold(9));
+    }
+
+    @Test
+    public void testThatReplacedRangeKeepsSurroundingStyles() {
+        setText("plain BOLD plain");
+        assertEquals("plain BOLD plain", field.getText(mockExecutionContext));
+        assertFalse(isBold(0));
+        assertTrue(isBold(6));
+        assertTrue(isBold(9));
+        assertFalse(isBold(11));
+    }
+
+    @Test
+    public void testThatWholeReplacementReplacesText() {
+        setText("something else entirely");
+        assertEquals("something else entirely", field.getText(mockExecutionContext));
+    }
+
+    @Test
+    public void testThatRepeatedAppendsAccumulate() {
+        StringBuilder expected = new StringBuilder(field.getText(mockExecutionContext));
+        for (int line = 0; line < 1000; line++) {
+            expected.append("\nLine ").append(line);
+            setText(expected.toString());
+        }
+
+        assertEquals(expected.toString(), field.getText(mockExecutionContext));
+        assertTrue(isBold(6));
+    }
+
+    private void setText(String text) {
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value(text));
+    }
+
+    private boolean isBold(int position) {
+        return StyleConstants.isBold(field.getStyledDocument(mockExecutionContext).getCharacterElement(position).getAttributes());
+    }
+
+    private static AttributeSet bold() {
+        SimpleAttributeSet attributes = new SimpleAttributeSet();
+        StyleConstants.setBold(attributes, true);
+        return attributes;
+    }
+}
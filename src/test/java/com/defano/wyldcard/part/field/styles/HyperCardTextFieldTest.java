@@ -0,0 +1,134 @@
+package com.defano.wyldcard.part.field.styles;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.hypertalk.util.Range;
+import com.defano.wyldcard.paint.ToolMode;
+import com.defano.wyldcard.part.ToolEditablePart;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import io.reactivex.subjects.BehaviorSubject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import javax.swing.text.*;
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HyperCardTextFieldTest extends GuiceTest<HyperCardTextField> {
+
+    private StackModel stack;
+    private FieldModel field;
+    private StyledDocument document;
+    private HyperCardTextField textField;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() throws BadLocationException {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        field = new FieldModelBuilder(Owner.CARD, stack.getCurrentCard()).withId(1).build();
+
+        document = new DefaultStyledDocument();
+        document.insertString(0, "plain text", null);
+        field.setStyledDocument(mockExecutionContext, document);
+
+        ToolEditablePart<FieldModel> part = mock(ToolEditablePart.class);
+        when(part.getPartModel()).thenReturn(field);
+
+        // Listen to the displayed document, as the field does once it's open
+        textField = new TransparentField(part);
+        document.addDocumentListener(textField);
+    }
+
+    @Test
+    public void testThatRestylingTextMarksFieldModified() {
+        long fieldGeneration = field.getGeneration();
+        long stackGeneration = stack.getGeneration();
+
+        SimpleAttributeSet bold = new SimpleAttributeSet();
+        StyleConstants.setBold(bold, true);
+        document.setCharacterAttributes(0, 5, bold, false);
+
+        assertTrue(field.getGeneration() > fieldGeneration);
+        assertTrue(stack.getGeneration() > stackGeneration);
+    }
+
+    @Test
+    public void testThatTypingMarksFieldModified() throws BadLocationException {
+        long fieldGeneration = field.getGeneration();
+
+        document.insertString(document.getLength(), " and more", null);
+
+        assertTrue(field.getGeneration() > fieldGeneration);
+    }
+
+    @Test
+    public void testThatOpeningFieldDoesNotMarkItModified() {
+        // Displaying the field's alignment restyles its document
+        field.set(mockExecutionContext, FieldModel.PROP_TEXTALIGN, new Value("center"));
+        stack.setSavedStackFile(mockExecutionContext, new File("Stack"));
+
+        long fieldGeneration = field.getGeneration();
+        long stackGeneration = stack.getGeneration();
+
+        open();
+
+        assertEquals(fieldGeneration, field.getGeneration());
+        assertEquals(stackGeneration, stack.getGeneration());
+        assertFalse(stack.isDirty());
+
+        // ... but edits made once it's open do
+        SimpleAttributeSet bold = new SimpleAttributeSet();
+        StyleConstants.setBold(bold, true);
+        document.setCharacterAttributes(0, 5, bold, false);
+
+        assertTrue(field.getGeneration() > fieldGeneration);
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatTextReplacedWhileDisplayedIsNotOverwritten() throws Exception {
+        open();
+
+        SwingUtilities.invokeAndWait(() -> {
+            field.replaceRanges(mockExecutionContext, 0, Collections.singletonList(new Range(0, 5)), "fancy");
+
+            // The user restyles the displayed text before the field displays the replacement
+            SimpleAttributeSet bold = new SimpleAttributeSet();
+            StyleConstants.setBold(bold, true);
+            document.setCharacterAttributes(0, 5, bold, false);
+        });
+
+        // Let the field display the replacement
+        SwingUtilities.invokeAndWait(() -> {});
+
+        assertEquals("fancy text", field.getText(mockExecutionContext));
+        assertEquals("fancy text", textField.getTextPane().getText());
+        assertNotSame(document, textField.getTextPane().getStyledDocument());
+    }
+
+    /**
+     * Opens the field, as when the card it's on is displayed.
+     */
+    private void open() {
+        when(mockPaintManager.getToolModeProvider()).thenReturn(BehaviorSubject.<ToolMode>create());
+        when(mockFontManager.getSelectedTextAlignProvider()).thenReturn(BehaviorSubject.<Value>create());
+        when(mockFontManager.getSelectedFontFamilyProvider()).thenReturn(BehaviorSubject.<Value>create());
+        when(mockFontManager.getSelectedFontStyleProvider()).thenReturn(BehaviorSubject.<Value>create());
+        when(mockFontManager.getSelectedFontSizeProvider()).thenReturn(BehaviorSubject.<Value>create());
+
+        // The field listens to the document it displays once opened
+        document.removeDocumentListener(textField);
+        textField.partOpened(mockExecutionContext);
+    }
+}
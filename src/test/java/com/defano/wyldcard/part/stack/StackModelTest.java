@@ -0,0 +1,142 @@
+package com.defano.wyldcard.part.stack;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.model.PartModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.DefaultStyledDocument;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackModelTest extends GuiceTest<StackModel> {
+
+    private StackModel stack;
+    private CardModel card;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        stack.addCard(new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(stack.getCurrentCard().getBackgroundId()).build());
+        card = stack.getCurrentCard();
+
+        save();
+    }
+
+    @Test
+    public void testThatSavedStackIsNotDirty() {
+        assertFalse(stack.isDirty());
+    }
+
+    @Test
+    public void testThatStackPropertyChangeMarksStackDirty() {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatRewritingPropertyValueLeavesStackClean() {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, stack.get(mockExecutionContext, StackModel.PROP_RESIZABLE));
+        card.set(mockExecutionContext, PartModel.PROP_VISIBLE, card.get(mockExecutionContext, PartModel.PROP_VISIBLE));
+        assertFalse(stack.isDirty());
+    }
+
+    @Test
+    public void testThatCardPropertyChangeMarksStackDirty() {
+        card.set(mockExecutionContext, CardModel.PROP_MARKED, new Value(true));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatScriptChangeMarksStackDirty() {
+        card.set(mockExecutionContext, PartModel.PROP_SCRIPT, new Value("on mouseUp\nend mouseUp"));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatCardImageChangeMarksStackDirty() {
+        card.setCardImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatBackgroundImageChangeMarksStackDirty() {
+        card.getBackgroundModel().setBackgroundImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatIconChangeMarksStackDirty() {
+        stack.createIcon("icon", new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatAddingAndDeletingCardsMarksStackDirty() {
+        stack.addCard(new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(card.getBackgroundId()).build());
+        assertTrue(stack.isDirty());
+
+        save();
+        stack.deleteCurrentCard();
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatFieldChangesMarkStackDirty() {
+        FieldModel field = new FieldModelBuilder(Owner.CARD, card).withId(1).build();
+        card.addPartModel(field);
+        assertTrue(stack.isDirty());
+
+        save();
+        field.set(mockExecutionContext, FieldModel.PROP_LOCKTEXT, new Value(true));
+        assertTrue(stack.isDirty());
+
+        save();
+        field.setStyledDocument(mockExecutionContext, new DefaultStyledDocument());
+        assertTrue(stack.isDirty());
+
+        save();
+        card.removePartModel(mockExecutionContext, field);
+        assertTrue(stack.isDirty());
+    }
+
+    @Test
+    public void testThatDirtyCheckDoesNotLoadCards() {
+        AtomicInteger loads = new AtomicInteger();
+        List<CardStub> stubs = new ArrayList<>();
+        for (int index = 0; index < 1000; index++) {
+            stubs.add(new CardStub(index + 1, card.getBackgroundId(), false));
+        }
+
+        stack.setCardStubs(stubs, stub -> {
+            loads.incrementAndGet();
+            return new CardModelBuilder(stack).withId(stub.getId()).withBackgroundId(stub.getBackgroundId()).build();
+        });
+        save();
+
+        assertFalse(stack.isDirty());
+        assertEquals(0, loads.get());
+
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        assertTrue(stack.isDirty());
+        assertTrue(loads.get() <= 1);
+    }
+
+    private void save() {
+        stack.setSavedStackFile(mockExecutionContext, new File("Test" + StackModel.FILE_EXTENSION));
+    }
+}
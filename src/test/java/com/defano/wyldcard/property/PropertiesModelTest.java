@@ -6,7 +6,13 @@ import com.defano.wyldcard.runtime.ExecutionContext;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PropertiesModelTest extends GuiceTest {
 
@@ -60,4 +66,38 @@ public class PropertiesModelTest extends GuiceTest {
         assertEquals(new Value(20), model.get(context, "that"));
     }
 
+    @Test
+    public void testThatChangingPropertyIsReportedAsModification() {
+        List<String> modified = new ArrayList<>();
+        SimplePropertiesModel model = new SimplePropertiesModel() {
+            @Override
+            protected void onPropertyModified(String propertyName) {
+                modified.add(propertyName);
+            }
+        };
+
+        model.define("basic").asValue(10);
+        model.set(context, "basic", new Value(20));
+        model.setQuietly(context, "basic", new Value(30));
+        assertEquals(Arrays.asList("basic", "basic"), modified);
+    }
+
+    @Test
+    public void testThatRewritingSameValueIsNotReportedAsModification() {
+        List<String> modified = new ArrayList<>();
+        SimplePropertiesModel model = new SimplePropertiesModel() {
+            @Override
+            protected void onPropertyModified(String propertyName) {
+                modified.add(propertyName);
+            }
+        };
+
+        model.define("basic").asValue("text");
+        model.set(context, "basic", new Value("text"));
+        assertTrue(modified.isEmpty());
+
+        model.set(context, "basic", new Value("TEXT"));
+        assertEquals(Collections.singletonList("basic"), modified);
+    }
+
 }
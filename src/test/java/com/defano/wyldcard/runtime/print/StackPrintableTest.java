@@ -0,0 +1,117 @@
+package com.defano.wyldcard.runtime.print;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.print.DocFlavor;
+import javax.print.StreamPrintService;
+import javax.print.StreamPrintServiceFactory;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Paper;
+import java.awt.print.Printable;
+import java.awt.print.PrinterJob;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StackPrintableTest extends GuiceTest<StackPrintable> {
+
+    private static final int CARD_COUNT = 10;
+
+    private StackModel stack;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        CardModel first = stack.getCardModel(0);
+        for (int card = 1; card < CARD_COUNT; card++) {
+            stack.addCard(new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(first.getBackgroundModel().getId()).build());
+        }
+
+        // Mark each card with a black square in a position unique to it
+        for (int card = 0; card < CARD_COUNT; card++) {
+            BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(Color.BLACK);
+            g.fillRect(card * 20, 0, 20, 20);
+            g.dispose();
+            stack.getCardModel(card).setCardImage(image);
+        }
+    }
+
+    @Test
+    public void testThatEachCardIsPrintedInOrder() throws Exception {
+        try (StackPrintable printable = new StackPrintable(mockExecutionContext, stack)) {
+            assertEquals(CARD_COUNT, printable.getPageCount());
+
+            for (int page = 0; page < CARD_COUNT; page++) {
+                // Printers may draw the same page more than once
+                for (int pass = 0; pass < 2; pass++) {
+                    BufferedImage paper = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+                    Graphics2D g = paper.createGraphics();
+                    assertEquals(Printable.PAGE_EXISTS, printable.print(g, pageFormat(), page));
+                    g.dispose();
+
+                    for (int card = 0; card < CARD_COUNT; card++) {
+                        assertEquals(card == page, (paper.getRGB(card * 20 + 10, 10) & 0xFF) < 0x80);
+                    }
+                }
+            }
+
+            assertEquals(Printable.NO_SUCH_PAGE, printable.print(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics(), pageFormat(), CARD_COUNT));
+        }
+    }
+
+    @Test
+    public void testThatPagesMayBeSkippedOrRevisited() throws Exception {
+        try (StackPrintable printable = new StackPrintable(mockExecutionContext, stack)) {
+            for (int page : new int[]{7, 2, 9, 0}) {
+                BufferedImage paper = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+                printable.print(paper.createGraphics(), pageFormat(), page);
+                assertEquals(0xFF000000, paper.getRGB(page * 20 + 10, 10));
+            }
+        }
+    }
+
+    @Test
+    public void testThatStackIsPrintedToFile() throws Exception {
+        StreamPrintServiceFactory[] factories = StreamPrintServiceFactory.lookupStreamPrintServiceFactories(DocFlavor.SERVICE_FORMATTED.PRINTABLE, "application/postscript");
+        assumeTrue(factories.length > 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamPrintService service = factories[0].getPrintService(out);
+
+        try (StackPrintable printable = new StackPrintable(mockExecutionContext, stack)) {
+            PrinterJob job = PrinterJob.getPrinterJob();
+            job.setPrintService(service);
+            job.setPrintable(printable);
+            job.print();
+        } finally {
+            service.dispose();
+        }
+
+        String postscript = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(postscript.startsWith("%!PS"));
+        assertTrue(postscript.contains("%%Page: " + CARD_COUNT + " " + CARD_COUNT));
+        assertFalse(postscript.contains("%%Page: " + (CARD_COUNT + 1) + " "));
+    }
+
+    private static PageFormat pageFormat() {
+        PageFormat pageFormat = new PageFormat();
+        Paper paper = new Paper();
+        paper.setImageableArea(0, 0, paper.getWidth(), paper.getHeight());
+        pageFormat.setPaper(paper);
+        return pageFormat;
+    }
+}
@@ -0,0 +1,162 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.hypertalk.ast.model.enums.SearchType;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchCursorTest extends GuiceTest<SearchCursor> {
+
+    private static final String[] TEXTS = {"pear", "apple", "plum", "apple and apple", "fig"};
+
+    private StackModel stack;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        addField(stack.getCardModel(0), TEXTS[0]);
+
+        for (int index = 1; index < TEXTS.length; index++) {
+            CardModel card = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(stack.getCurrentCard().getBackgroundId()).build();
+            stack.addCard(card);
+            addField(card, TEXTS[index]);
+        }
+    }
+
+    @Test
+    public void testThatSearchStartsOnCurrentCardAndWrapsAround() {
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.WORDS, "apple", false), stack, 2);
+
+        for (int pass = 0; pass < 2; pass++) {
+            assertHit(cursor.next(mockExecutionContext), 3, 0);
+            assertHit(cursor.next(mockExecutionContext), 3, 10);
+            assertHit(cursor.next(mockExecutionContext), 1, 0);
+        }
+    }
+
+    @Test
+    public void testThatHitsOnCurrentCardAreFoundFirst() {
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.STRING, "apple", false), stack, 3);
+
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+        assertHit(cursor.next(mockExecutionContext), 3, 10);
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+    }
+
+    @Test
+    public void testThatMissingTermIsNotFound() {
+        assertNull(SearchCursor.ofStack(query(SearchType.WHOLE, "banana", false), stack, 0).next(mockExecutionContext));
+        assertNull(SearchCursor.ofStack(query(SearchType.CHARS, "banana", false), stack, 4).next(mockExecutionContext));
+    }
+
+    @Test
+    public void testThatOnlyMarkedCardsAreSearched() {
+        stack.getCardModel(1).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(true));
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.WORDS, "apple", true), stack, 2);
+
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+
+        stack.getCardModel(1).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(false));
+        assertNull(SearchCursor.ofStack(query(SearchType.WORDS, "apple", true), stack, 2).next(mockExecutionContext));
+    }
+
+    @Test
+    public void testThatFieldSearchWrapsAroundWithinField() {
+        FieldModel field = stack.getCardModel(3).getFieldModels().iterator().next();
+        SearchCursor cursor = SearchCursor.ofField(query(SearchType.WORDS, "apple", false), stack, field, 3);
+
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+        assertHit(cursor.next(mockExecutionContext), 3, 10);
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+
+        FieldModel other = stack.getCardModel(4).getFieldModels().iterator().next();
+        assertNull(SearchCursor.ofField(query(SearchType.WORDS, "apple", false), stack, other, 4).next(mockExecutionContext));
+    }
+
+    @Test
+    public void testThatEditsAheadOfCursorAreFound() {
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.WORDS, "apple", false), stack, 0);
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+
+        setText(stack.getCardModel(2), "apple crumble");
+        setText(stack.getCardModel(3), "no more");
+
+        assertHit(cursor.next(mockExecutionContext), 2, 0);
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+    }
+
+    @Test
+    public void testThatEditedFieldUnderCursorIsReread() {
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.WORDS, "apple", false), stack, 3);
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+
+        setText(stack.getCardModel(3), "apple, apple and apple");
+
+        assertHit(cursor.next(mockExecutionContext), 3, 7);
+        assertHit(cursor.next(mockExecutionContext), 3, 17);
+    }
+
+    @Test
+    public void testThatDeletedCardIsSkipped() {
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.WORDS, "apple", false), stack, 3);
+        assertHit(cursor.next(mockExecutionContext), 3, 0);
+
+        stack.setCurrentCardIndex(3);
+        stack.deleteCurrentCard();
+
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+        assertHit(cursor.next(mockExecutionContext), 1, 0);
+    }
+
+    @Test
+    public void testThatParallelSearchFindsCardsInStackOrder() {
+        for (int index = 0; index < 200; index++) {
+            CardModel card = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(stack.getCurrentCard().getBackgroundId()).build();
+            stack.addCard(card);
+            addField(card, index % 7 == 0 ? "a needle in a haystack" : "just hay");
+        }
+
+        SearchCursor cursor = SearchCursor.ofStack(query(SearchType.STRING, "NEEDLE", false), stack, 100);
+
+        // Cards 103, 110, ... 201, then (wrapping around) 5, 12, ... 96, and 103 again
+        for (int cardIndex = 103; cardIndex < stack.getCardCount(); cardIndex += 7) {
+            assertHit(cursor.next(mockExecutionContext), cardIndex, 2);
+        }
+        for (int cardIndex = 5; cardIndex < 100; cardIndex += 7) {
+            assertHit(cursor.next(mockExecutionContext), cardIndex, 2);
+        }
+        assertHit(cursor.next(mockExecutionContext), 103, 2);
+    }
+
+    private void addField(CardModel card, String text) {
+        card.addPartModel(new FieldModelBuilder(Owner.CARD, card).withId(stack.getNextFieldId(card.getId())).withText(text).build());
+    }
+
+    private void setText(CardModel card, String text) {
+        card.getFieldModels().iterator().next().set(mockExecutionContext, FieldModel.PROP_TEXT, new Value(text));
+    }
+
+    private static SearchQuery query(SearchType type, String term, boolean onlyMarkedCards) {
+        return new SearchQuery(type, term, onlyMarkedCards);
+    }
+
+    private static void assertHit(SearchResult result, int cardIndex, int start) {
+        assertNotNull(result);
+        assertEquals(cardIndex, result.getCardIndex());
+        assertEquals(start, result.getRange().start);
+    }
+}
@@ -0,0 +1,179 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.hypertalk.ast.model.enums.SearchType;
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest extends GuiceTest<SearchIndex> {
+
+    private static final String[] WORDS = {
+            "cat", "Cat", "CATALOG", "catalogs", "dog", "dogma", "do", "hyper_card", "42", "4th", "x",
+            "Ärger", "ärgerlich", "İstanbul", "straße", "Kelvin", "kelvin", "Ǆ", "-", ", ", "\n", "  "
+    };
+
+    private static final String[] TERMS = {
+            "cat", "CAT", "catalog", "cata", "dog", "do", "d", "o", "hyper_card", "hyper", "4", "42", "4th", "x",
+            "cat do", "cat dog", "ärger", "ÄRGER", "istanbul", "i̇stanbul", "strasse", "straße", "kelvin",
+            "Kelvin", "ǆ", "-", " cat", "missing", ""
+    };
+
+    private final Random random = new Random(0);
+    private StackModel stack;
+    private BackgroundModel background;
+
+    @BeforeEach
+    public void setUp() {
+        initialize(new SearchIndex());
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        background = stack.getCurrentCard().getBackgroundModel();
+        background.addPartModel(new FieldModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextFieldId(background.getId())).build());
+        background.addPartModel(new FieldModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextFieldId(background.getId())).withSharedText(true).build());
+        addCardField(stack.getCurrentCard());
+
+        for (int card = 0; card < 20; card++) {
+            addCard();
+        }
+    }
+
+    @Test
+    public void testThatMatchingFieldsAreCandidatesAfterRandomEdits() {
+        for (int round = 0; round < 50; round++) {
+            for (int edit = random.nextInt(10); edit >= 0; edit--) {
+                edit();
+            }
+
+            uut.update(mockExecutionContext, stack);
+            assertMatchesAreCandidates();
+        }
+    }
+
+    @Test
+    public void testThatCandidatesExcludeNonMatchingFields() {
+        FieldModel field = stack.getCardModel(3).getFieldModels().iterator().next();
+        setText(field, stack.getCardModel(3).getId(), "The catalog of unusual words");
+
+        uut.update(mockExecutionContext, stack);
+        assertCandidateCards(SearchType.WORDS, "unusual", stack.getCardModel(3).getId());
+        assertCandidateCards(SearchType.WHOLE, "unusual wor", stack.getCardModel(3).getId());
+        assertCandidateCards(SearchType.WORDS, "unusualness");
+
+        setText(field, stack.getCardModel(3).getId(), "Nothing to see here");
+        uut.update(mockExecutionContext, stack);
+        assertCandidateCards(SearchType.WORDS, "unusual");
+    }
+
+    @Test
+    public void testThatDeletedCardsAreNotCandidates() {
+        CardModel card = stack.getCardModel(5);
+        setText(card.getFieldModels().iterator().next(), card.getId(), "ephemeral");
+        uut.update(mockExecutionContext, stack);
+        assertCandidateCards(SearchType.WORDS, "ephemeral", card.getId());
+
+        stack.setCurrentCardIndex(5);
+        stack.deleteCurrentCard();
+        uut.update(mockExecutionContext, stack);
+        assertCandidateCards(SearchType.WORDS, "ephemeral");
+    }
+
+    @Test
+    public void testThatCharsAndStringSearchesConsiderAllFields() {
+        uut.update(mockExecutionContext, stack);
+        assertSame(SearchIndex.Candidates.ALL, uut.getCandidates(SearchType.CHARS, "at"));
+        assertSame(SearchIndex.Candidates.ALL, uut.getCandidates(SearchType.STRING, "at"));
+    }
+
+    private void edit() {
+        int operation = random.nextInt(10);
+
+        if (operation == 0) {
+            addCard();
+        } else if (operation == 1 && stack.getCardCount() > 1) {
+            stack.setCurrentCardIndex(random.nextInt(stack.getCardCount()));
+            stack.deleteCurrentCard();
+            stack.setCurrentCardIndex(0);
+        } else {
+            CardModel card = stack.getCardModel(random.nextInt(stack.getCardCount()));
+            FieldModel field = random.nextBoolean() ?
+                    card.getFieldModels().iterator().next() :
+                    background.getFieldModels().stream().skip(random.nextInt(2)).findFirst().get();
+            setText(field, card.getId(), randomText());
+        }
+    }
+
+    private void addCard() {
+        CardModel card = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(background.getId()).build();
+        stack.addCard(card);
+        addCardField(card);
+
+        for (FieldModel field : background.getFieldModels()) {
+            setText(field, card.getId(), randomText());
+        }
+    }
+
+    private void addCardField(CardModel card) {
+        card.addPartModel(new FieldModelBuilder(Owner.CARD, card).withId(stack.getNextFieldId(card.getId())).withText(randomText()).build());
+    }
+
+    private void setText(FieldModel field, int cardId, String text) {
+        field.setCurrentCardId(cardId);
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value(text));
+    }
+
+    private String randomText() {
+        StringBuilder text = new StringBuilder();
+        for (int word = random.nextInt(8); word > 0; word--) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : "");
+        }
+        return text.toString();
+    }
+
+    private void assertMatchesAreCandidates() {
+        for (SearchType type : new SearchType[]{SearchType.WORDS, SearchType.WHOLE}) {
+            for (String term : TERMS) {
+                SearchIndex.Candidates candidates = uut.getCandidates(type, term);
+
+                for (int index = 0; index < stack.getCardCount(); index++) {
+                    CardModel card = stack.getCardModel(index);
+                    for (FieldModel field : card.getFieldModels()) {
+                        assertCandidate(candidates, type, term, field, card.getId());
+                    }
+                    for (FieldModel field : background.getFieldModels()) {
+                        assertCandidate(candidates, type, term, field, card.getId());
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertCandidate(SearchIndex.Candidates candidates, SearchType type, String term, FieldModel field, int cardId) {
+        String text = field.getText(mockExecutionContext, cardId);
+        if (SearchFactory.searchBy(type).search(text, term, 0) != null) {
+            assertTrue(candidates.containsCard(cardId), () -> type + " '" + term + "' in '" + text + "'");
+            assertTrue(candidates.contains(field, cardId), () -> type + " '" + term + "' in '" + text + "'");
+        }
+    }
+
+    private void assertCandidateCards(SearchType type, String term, Integer... cardIds) {
+        SearchIndex.Candidates candidates = uut.getCandidates(type, term);
+        for (int index = 0; index < stack.getCardCount(); index++) {
+            int cardId = stack.getCardModel(index).getId();
+            assertEquals(Arrays.asList(cardIds).contains(cardId), candidates.containsCard(cardId), "card " + cardId);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.defano.wyldcard.search;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.hypertalk.ast.model.enums.SearchType;
+import com.defano.wyldcard.part.bkgnd.BackgroundModel;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackReplacerTest extends GuiceTest<StackReplacer> {
+
+    private StackModel stack;
+    private BackgroundModel background;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        background = stack.getCurrentCard().getBackgroundModel();
+        addField(stack.getCardModel(0), "");
+
+        for (int index = 1; index < 4; index++) {
+            CardModel card = new CardModelBuilder(stack).withId(stack.getNextCardId()).withBackgroundId(background.getId()).build();
+            stack.addCard(card);
+            addField(card, "");
+        }
+    }
+
+    @Test
+    public void testThatOverlappingHitsAreReplacedOnce() {
+        FieldModel field = setText(0, "aaaa aaa");
+
+        ReplaceEdit edit = replace(SearchType.STRING, "aa", "X");
+
+        assertEquals("XX Xa", getText(field, 0));
+        assertEquals(3, edit.getReplacementCount());
+        assertEquals(1, edit.getFieldCount());
+    }
+
+    @Test
+    public void testThatEveryHitInFieldIsReplacedAsOneChange() {
+        FieldModel field = setText(1, "apple and apple, apple");
+        long generation = field.getGeneration();
+
+        ReplaceEdit edit = replace(SearchType.WORDS, "apple", "apple pie");
+
+        // Text introduced by a replacement is not itself replaced
+        assertEquals("apple pie and apple pie, apple pie", getText(field, 1));
+        assertEquals(3, edit.getReplacementCount());
+        assertEquals(generation + 1, field.getGeneration());
+    }
+
+    @Test
+    public void testThatHitsAreFoundAsFindFindsThem() {
+        FieldModel first = setText(0, "cat catalog Cat");
+        FieldModel second = setText(2, "concatenate\nthe cat");
+
+        replace(SearchType.WORDS, "cat", "dog");
+        assertEquals("dog catalog dog", getText(first, 0));
+        assertEquals("concatenate\nthe dog", getText(second, 2));
+
+        replace(SearchType.CHARS, "cat", "CAT");
+        assertEquals("dog CATalog dog", getText(first, 0));
+        assertEquals("conCATenate\nthe dog", getText(second, 2));
+    }
+
+    @Test
+    public void testThatReplacementMayBeEmptyOrLonger() {
+        FieldModel field = setText(3, "a-b-c-d");
+
+        replace(SearchType.STRING, "-", "");
+        assertEquals("abcd", getText(field, 3));
+
+        replace(SearchType.STRING, "b", "\n\n\n");
+        assertEquals("a\n\n\ncd", getText(field, 3));
+    }
+
+    @Test
+    public void testThatBackgroundFieldsAreReplacedOnEachCard() {
+        FieldModel unshared = addBackgroundField(false);
+        FieldModel shared = addBackgroundField(true);
+
+        for (int index = 0; index < stack.getCardCount(); index++) {
+            setText(unshared, index, "plum " + index);
+        }
+        setText(shared, 0, "plum");
+
+        ReplaceEdit edit = replace(SearchType.WORDS, "plum", "plum plum");
+
+        for (int index = 0; index < stack.getCardCount(); index++) {
+            assertEquals("plum plum " + index, getText(unshared, index));
+        }
+
+        // Text shared by every card is replaced once, not once per card
+        assertEquals("plum plum", getText(shared, 2));
+        assertEquals(stack.getCardCount() + 1, edit.getReplacementCount());
+    }
+
+    @Test
+    public void testThatUnsearchableFieldsAndCardsAreSkipped() {
+        FieldModel hidden = setText(0, "fig");
+        FieldModel unmarked = setText(1, "fig");
+        FieldModel marked = setText(2, "fig");
+
+        hidden.set(mockExecutionContext, FieldModel.PROP_DONTSEARCH, new Value(true));
+        stack.getCardModel(2).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(true));
+
+        ReplaceEdit edit = StackReplacer.replaceInStack(mockExecutionContext, new SearchQuery(SearchType.WORDS, "fig", true), stack, "date");
+
+        assertEquals("fig", getText(hidden, 0));
+        assertEquals("fig", getText(unmarked, 1));
+        assertEquals("date", getText(marked, 2));
+        assertEquals(1, edit.getReplacementCount());
+    }
+
+    @Test
+    public void testThatUndoRestoresEveryField() {
+        FieldModel unshared = addBackgroundField(false);
+        FieldModel first = setText(0, "one two one");
+        FieldModel second = setText(3, "one");
+        setText(unshared, 1, "one");
+        setText(unshared, 2, "one, one");
+
+        ReplaceEdit edit = replace(SearchType.STRING, "one", "three");
+        assertEquals("three two three", getText(first, 0));
+        assertEquals("three, three", getText(unshared, 2));
+        assertTrue(edit.canUndo());
+
+        edit.undo(mockExecutionContext);
+
+        assertEquals("one two one", getText(first, 0));
+        assertEquals("one", getText(second, 3));
+        assertEquals("one", getText(unshared, 1));
+        assertEquals("one, one", getText(unshared, 2));
+        assertFalse(edit.canUndo());
+    }
+
+    @Test
+    public void testThatUndoLeavesFieldsChangedSince() {
+        FieldModel first = setText(0, "one");
+        FieldModel second = setText(1, "one");
+
+        ReplaceEdit edit = replace(SearchType.STRING, "one", "two");
+        setText(second, 1, "edited");
+
+        edit.undo(mockExecutionContext);
+
+        assertEquals("one", getText(first, 0));
+        assertEquals("edited", getText(second, 1));
+    }
+
+    private ReplaceEdit replace(SearchType type, String term, String replacement) {
+        return StackReplacer.replaceInStack(mockExecutionContext, new SearchQuery(type, term, false), stack, replacement);
+    }
+
+    private void addField(CardModel card, String text) {
+        card.addPartModel(new FieldModelBuilder(Owner.CARD, card).withId(stack.getNextFieldId(card.getId())).withText(text).build());
+    }
+
+    private FieldModel addBackgroundField(boolean sharedText) {
+        FieldModel field = new FieldModelBuilder(Owner.BACKGROUND, background).withId(stack.getNextFieldId(background.getId())).withSharedText(sharedText).build();
+        background.addPartModel(field);
+        return field;
+    }
+
+    private FieldModel setText(int cardIndex, String text) {
+        FieldModel field = stack.getCardModel(cardIndex).getFieldModels().iterator().next();
+        setText(field, cardIndex, text);
+        return field;
+    }
+
+    private void setText(FieldModel field, int cardIndex, String text) {
+        field.setCurrentCardId(stack.getCardModel(cardIndex).getId());
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value(text));
+    }
+
+    private String getText(FieldModel field, int cardIndex) {
+        return field.getText(mockExecutionContext, stack.getCardModel(cardIndex).getId());
+    }
+}
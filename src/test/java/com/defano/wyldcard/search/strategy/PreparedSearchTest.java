@@ -0,0 +1,82 @@
+package com.defano.wyldcard.search.strategy;
+
+import com.defano.hypertalk.util.Range;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreparedSearchTest {
+
+    private static final String ALPHABET = "aAbBcC _-.,\nΣσςİiIßSs1";
+    private static final String[] TERMS = {"a", "ab", "AB", "abc", "b c", "a-", "ss", "ß", "σ", "i", "İ", " ab ", "_", "1a", "Σ"};
+
+    private final Random random = new Random(0);
+
+    @Test
+    public void testThatPreparedStringSearchMatchesStrategy() {
+        assertPreparedSearchMatchesStrategy(new StringSearchStrategy());
+    }
+
+    @Test
+    public void testThatPreparedCharsSearchMatchesStrategy() {
+        assertPreparedSearchMatchesStrategy(new CharsSearchStrategy());
+    }
+
+    @Test
+    public void testThatMatcherFindsEveryOccurrence() {
+        TextMatcher matcher = new TextMatcher("abab");
+        char[] text = "xababababx".toCharArray();
+
+        assertEquals(1, matcher.indexIn(text, 0));
+        assertEquals(3, matcher.indexIn(text, 2));
+        assertEquals(5, matcher.indexIn(text, 4));
+        assertEquals(-1, matcher.indexIn(text, 6));
+    }
+
+    @Test
+    public void testThatMatcherDistinguishesCharactersSharingLowByte() {
+        // U+0161 and 'a' (U+0061) share a low byte; neither may hide the other
+        TextMatcher matcher = new TextMatcher("ša");
+        assertEquals(2, matcher.indexIn("aaša".toCharArray(), 0));
+        assertEquals(-1, matcher.indexIn("ššaa".toCharArray(), 2));
+    }
+
+    private void assertPreparedSearchMatchesStrategy(SearchStrategy strategy) {
+        for (int trial = 0; trial < 20_000; trial++) {
+            String text = randomText();
+            String term = random.nextBoolean() || text.length() < 2 ?
+                    TERMS[random.nextInt(TERMS.length)] :
+                    text.substring(random.nextInt(text.length() / 2), text.length() / 2 + 1 + random.nextInt(text.length() / 2));
+
+            PreparedSearch search = strategy.prepare(term);
+            SearchText searchText = new SearchText(text);
+
+            int searchFrom = 0;
+            Range expected;
+            do {
+                expected = strategy.search(text, term, searchFrom);
+                Range actual = search.search(searchText, searchFrom);
+
+                String message = "'" + term + "' in '" + text + "' from " + searchFrom;
+                if (expected == null) {
+                    assertNull(actual, message);
+                } else {
+                    assertNotNull(actual, message);
+                    assertEquals(expected.start, actual.start, message);
+                    assertEquals(expected.end, actual.end, message);
+                    searchFrom = expected.end;
+                }
+            } while (expected != null && searchFrom <= Math.min(text.length(), text.toLowerCase().length()) && expected.end > expected.start);
+        }
+    }
+
+    private String randomText() {
+        StringBuilder text = new StringBuilder();
+        for (int length = random.nextInt(30); length > 0; length--) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.wyldcard.util.MonochromeImageUtils;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageCodecTest {
+
+    @Test
+    public void testThatRasterRoundTripsPaintedImage() throws IOException {
+        BufferedImage image = paintedImage();
+        assertPixelsEqual(image, ImageCodec.RASTER.decode(ImageCodec.RASTER.encode(image)));
+    }
+
+    @Test
+    public void testThatRasterRoundTripsNoise() throws IOException {
+        BufferedImage image = new BufferedImage(97, 31, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(1);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(4) == 0 ? 0 : random.nextInt());
+            }
+        }
+
+        assertPixelsEqual(image, ImageCodec.RASTER.decode(ImageCodec.RASTER.encode(image)));
+    }
+
+    @Test
+    public void testThatRasterOfBlankImageIsSmall() throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+        assertTrue(ImageCodec.RASTER.encode(image).length < 1024);
+    }
+
+    @Test
+    public void testThatRasterMatchesPng() throws IOException {
+        BufferedImage image = paintedImage();
+        assertPixelsEqual(ImageCodec.PNG.decode(ImageCodec.PNG.encode(image)), ImageCodec.RASTER.decode(ImageCodec.RASTER.encode(image)));
+    }
+
+    @Test
+    public void testThatRasterRoundTripsPackedImage() throws IOException {
+        BufferedImage image = MonochromeImageUtils.create(97, 31);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(10, 5, 40, 20);
+        g.setColor(Color.BLACK);
+        g.drawLine(0, 0, 96, 30);
+        g.dispose();
+
+        BufferedImage decoded = ImageCodec.RASTER.decode(ImageCodec.RASTER.encode(image));
+        assertTrue(MonochromeImageUtils.isPacked(decoded));
+        assertPixelsEqual(image, decoded);
+    }
+
+    @Test
+    public void testThatCorruptRasterIsRejected() throws IOException {
+        byte[] data = ImageCodec.RASTER.encode(paintedImage());
+
+        assertThrows(IOException.class, () -> ImageCodec.RASTER.decode(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(IOException.class, () -> ImageCodec.RASTER.decode(Arrays.copyOf(data, 5)));
+
+        byte[] badCount = data.clone();
+        badCount[9] = 0x7f;
+        assertThrows(IOException.class, () -> ImageCodec.RASTER.decode(badCount));
+
+        byte[] badType = data.clone();
+        badType[0] = 9;
+        assertThrows(IOException.class, () -> ImageCodec.RASTER.decode(badType));
+    }
+
+    @Test
+    public void testThatLazyImageIsDecodedOnFirstUse() throws IOException {
+        BufferedImage image = paintedImage();
+        byte[] encoded = ImageCodec.RASTER.encode(image);
+        LazyImage lazyImage = LazyImage.decodedLazily(encoded, ImageCodec.RASTER);
+
+        assertFalse(lazyImage.isDecoded());
+        assertSame(encoded, lazyImage.encode(ImageCodec.RASTER));
+
+        assertPixelsEqual(image, lazyImage.get());
+        assertTrue(lazyImage.isDecoded());
+        assertSame(lazyImage.get(), lazyImage.get());
+    }
+
+    @Test
+    public void testThatLazyImageIsPackedWhenEncoded() throws IOException {
+        BufferedImage image = new BufferedImage(97, 31, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.drawLine(0, 0, 96, 30);
+        g.dispose();
+
+        // Not packed as it's set (as when a card is painted) ...
+        LazyImage lazyImage = LazyImage.of(image);
+        assertSame(image, lazyImage.get());
+
+        // ... but once saved
+        BufferedImage decoded = ImageCodec.RASTER.decode(lazyImage.encode(ImageCodec.RASTER));
+        assertTrue(MonochromeImageUtils.isPacked(decoded));
+        assertTrue(MonochromeImageUtils.isPacked(lazyImage.get()));
+        assertPixelsEqual(image, lazyImage.get());
+
+        // Images of other colors are held as they are
+        LazyImage painted = LazyImage.of(paintedImage());
+        BufferedImage paintedImage = painted.get();
+        painted.encode(ImageCodec.RASTER);
+        assertSame(paintedImage, painted.get());
+    }
+
+    private static BufferedImage paintedImage() {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillOval(100, 100, 200, 120);
+        g.setColor(new Color(255, 0, 0, 128));
+        g.drawLine(0, 0, 639, 479);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertArrayEquals(
+                expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth()),
+                actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.defano.wyldcard.serializer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.*;
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyDocumentTest {
+
+    private static final String SAMPLES = "\n\t\\{}\u00A0\u00E9\u00FF\u0160\u2014\u2013\u2018\u2019\u201C\u201D\u2022\u2011\u2027\u20AC\u65E5\u672C";
+
+    @Test
+    public void testThatExtractedTextMatchesDeserializedText() throws BadLocationException {
+        Random random = new Random(1);
+
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            byte[] rtf = StyledDocumentSerializer.convertDocumentToRtf(randomDocument(random));
+            StyledDocument expected = StyledDocumentSerializer.convertRtfToDocument(rtf);
+            String extracted = RtfText.extract(rtf);
+
+            // Characters whose meaning depends on the character set are left to the editor kit
+            if (extracted != null) {
+                assertEquals(expected.getText(0, expected.getLength()), extracted, new String(rtf, StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+    @Test
+    public void testThatUnsupportedRtfIsNotExtracted() {
+        assertNull(RtfText.extract(bytes("{\\rtf1\\ansi {\\*\\generator Word;}Hello\\par}")));
+        assertNull(RtfText.extract(bytes("{\\rtf1\\ansi caf\\'8e\\par}")));
+        assertNull(RtfText.extract(bytes("{\\rtf1\\ansi one\\line two\\par}")));
+        assertNull(RtfText.extract(bytes("{\\rtf1\\ansi Hello}}")));
+    }
+
+    @Test
+    public void testThatEmptyDocumentIsExtractedAsEmpty() {
+        byte[] rtf = StyledDocumentSerializer.convertDocumentToRtf(new DefaultStyledDocument());
+        assertEquals("", RtfText.extract(rtf));
+        assertEquals("", RtfText.extract(new byte[0]));
+    }
+
+    @Test
+    public void testThatLazyDocumentIsBuiltOnFirstUse() throws BadLocationException {
+        StyledDocument document = new DefaultStyledDocument();
+        document.insertString(0, "Hello\nworld", null);
+        byte[] rtf = StyledDocumentSerializer.convertDocumentToRtf(document);
+        LazyDocument lazyDocument = LazyDocument.decodedLazily(rtf);
+
+        assertEquals("Hello\nworld", lazyDocument.getText());
+        assertFalse(lazyDocument.isDecoded());
+        assertSame(rtf, lazyDocument.encode());
+
+        StyledDocument built = lazyDocument.get();
+        assertTrue(lazyDocument.isDecoded());
+        assertSame(built, lazyDocument.get());
+
+        built.insertString(0, "Oh, ", null);
+        assertEquals("Oh, Hello\nworld", lazyDocument.getText());
+    }
+
+    @Test
+    public void testThatPreparedDocumentRetainsRtfUntilBuilt() throws BadLocationException {
+        StyledDocument document = new DefaultStyledDocument();
+        document.insertString(0, "Hello\nworld", null);
+        byte[] rtf = StyledDocumentSerializer.convertDocumentToRtf(document);
+        LazyDocument lazyDocument = LazyDocument.decodedLazily(rtf);
+
+        lazyDocument.prepare();
+        assertFalse(lazyDocument.isDecoded());
+        assertEquals("Hello\nworld", lazyDocument.getText());
+        assertSame(rtf, lazyDocument.encode());
+
+        StyledDocument built = lazyDocument.get();
+        assertEquals("Hello\nworld", built.getText(0, built.getLength()));
+
+        built.insertString(0, "Oh, ", null);
+        assertNotSame(rtf, lazyDocument.encode());
+        assertEquals("Oh, Hello\nworld", lazyDocument.getText());
+    }
+
+    @Test
+    public void testThatCopyOfUnbuiltDocumentIsNotBuilt() throws BadLocationException {
+        StyledDocument document = new DefaultStyledDocument();
+        document.insertString(0, "Hello", null);
+        LazyDocument original = LazyDocument.decodedLazily(StyledDocumentSerializer.convertDocumentToRtf(document));
+
+        LazyDocument copy = Serializer.copy(original);
+        assertNotSame(original, copy);
+        assertFalse(copy.isDecoded());
+        assertNotSame(original.get(), copy.get());
+        assertEquals("Hello", copy.getText());
+    }
+
+    private static StyledDocument randomDocument(Random random) throws BadLocationException {
+        String[] fonts = {"Chicago", "Geneva", "Monaco", "Times New Roman"};
+        StyledDocument document = new DefaultStyledDocument();
+
+        for (int run = random.nextInt(6); run > 0; run--) {
+            StringBuilder text = new StringBuilder();
+            for (int length = random.nextInt(20); length > 0; length--) {
+                text.append(random.nextInt(3) == 0 ? SAMPLES.charAt(random.nextInt(SAMPLES.length())) : (char) (32 + random.nextInt(95)));
+            }
+
+            SimpleAttributeSet attributes = new SimpleAttributeSet();
+            StyleConstants.setBold(attributes, random.nextBoolean());
+            StyleConstants.setItalic(attributes, random.nextBoolean());
+            StyleConstants.setFontFamily(attributes, fonts[random.nextInt(fonts.length)]);
+            StyleConstants.setFontSize(attributes, 9 + random.nextInt(20));
+            StyleConstants.setForeground(attributes, new Color(random.nextInt(0xFFFFFF)));
+            document.insertString(document.getLength(), text.toString(), attributes);
+        }
+
+        return document;
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
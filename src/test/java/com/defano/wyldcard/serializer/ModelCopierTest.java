@@ -0,0 +1,204 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.PostConstruct;
+import javax.swing.text.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelCopierTest extends GuiceTest<CardModel> {
+
+    private CardModel card;
+
+    @BeforeEach
+    public void setUp() {
+        initialize();
+
+        StackModel stack = new StackModelBuilder().withInitialCard().build();
+        card = stack.getCurrentCard();
+    }
+
+    @Test
+    public void testThatCopyMatchesSerializedCopy() {
+        TestObject original = TestObject.sample();
+        assertEquals(Serializer.serialize(jsonCopy(original)), Serializer.serialize(Serializer.copy(original)));
+    }
+
+    @Test
+    public void testThatCopyIsDeep() {
+        TestObject original = TestObject.sample();
+        TestObject copy = Serializer.copy(original);
+
+        copy.items.add("card 3");
+        copy.children.get("first").items.clear();
+        copy.data[0] = 0;
+
+        assertEquals(Serializer.serialize(TestObject.sample()), Serializer.serialize(original));
+    }
+
+    @Test
+    public void testThatCopyHonorsTransientFieldsAndPostConstruct() {
+        TestObject copy = Serializer.copy(TestObject.sample());
+
+        assertNull(copy.cache);
+        assertTrue(copy.constructed);
+        assertTrue(copy.children.get("first").constructed);
+    }
+
+    @Test
+    public void testThatImmutableDataIsShared() {
+        TestObject original = TestObject.sample();
+        TestObject copy = Serializer.copy(original);
+
+        assertSame(original.name, copy.name);
+        assertSame(original.value, copy.value);
+        assertSame(original.image, copy.image);
+    }
+
+    @Test
+    public void testThatDocumentCopyPreservesTextAndStyles() throws BadLocationException {
+        StyledDocument original = styledDocument();
+        StyledDocument copy = Serializer.copy(original);
+
+        assertNotSame(original, copy);
+        assertEquivalent(original, copy);
+        assertEquivalent(jsonCopy(original), copy);
+
+        copy.insertString(0, "Changed ", null);
+        assertEquals("Hello world\nCentered bold", original.getText(0, original.getLength()));
+    }
+
+    @Test
+    public void testThatCardCopyMatchesSerializedCopy() {
+        card.setCardImage(new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB));
+        for (int id = 1; id <= 10; id++) {
+            FieldModel field = new FieldModelBuilder(Owner.CARD, card).withId(id).build();
+            field.setStyledDocument(mockExecutionContext, styledDocument());
+            card.addPartModel(field);
+        }
+        card.set(mockExecutionContext, PartModel.PROP_NAME, new Value("Original"));
+
+        CardModel copy = card.copyOf();
+        CardModel jsonCopy = jsonCopy(card);
+
+        // The JSON path spells out default text styles when it re-reads RTF; the direct copy is exact
+        assertEquals(Serializer.serialize(card), Serializer.serialize(copy));
+        assertSame(card.getCardImage(null), copy.getCardImage(null));
+
+        List<FieldModel> fields = new ArrayList<>(copy.getFieldModels());
+        List<FieldModel> jsonFields = new ArrayList<>(jsonCopy.getFieldModels());
+        assertEquals(jsonFields.size(), fields.size());
+
+        for (int index = 0; index < fields.size(); index++) {
+            FieldModel field = fields.get(index);
+            FieldModel jsonField = jsonFields.get(index);
+            assertEquals(jsonField.getId(), field.getId());
+            assertEquals(jsonField.get(mockExecutionContext, PartModel.PROP_NAME), field.get(mockExecutionContext, PartModel.PROP_NAME));
+            assertEquivalent(jsonField.getStyledDocument(mockExecutionContext), field.getStyledDocument(mockExecutionContext));
+        }
+
+        copy.set(mockExecutionContext, PartModel.PROP_NAME, new Value("Copy"));
+        assertEquals("Original", card.get(mockExecutionContext, PartModel.PROP_NAME).toString());
+    }
+
+    private static void assertEquivalent(StyledDocument expected, StyledDocument actual) {
+        try {
+            assertEquals(expected.getText(0, expected.getLength()), actual.getText(0, actual.getLength()));
+        } catch (BadLocationException e) {
+            throw new AssertionError(e);
+        }
+
+        for (int index = 0; index < expected.getLength(); index++) {
+            AttributeSet expectedRun = expected.getCharacterElement(index).getAttributes();
+            AttributeSet actualRun = actual.getCharacterElement(index).getAttributes();
+            assertEquals(StyleConstants.isBold(expectedRun), StyleConstants.isBold(actualRun));
+            assertEquals(StyleConstants.isItalic(expectedRun), StyleConstants.isItalic(actualRun));
+            assertEquals(StyleConstants.isUnderline(expectedRun), StyleConstants.isUnderline(actualRun));
+            assertEquals(StyleConstants.getFontFamily(expectedRun), StyleConstants.getFontFamily(actualRun));
+            assertEquals(StyleConstants.getFontSize(expectedRun), StyleConstants.getFontSize(actualRun));
+            assertEquals(StyleConstants.getForeground(expectedRun), StyleConstants.getForeground(actualRun));
+
+            AttributeSet expectedParagraph = expected.getParagraphElement(index).getAttributes();
+            AttributeSet actualParagraph = actual.getParagraphElement(index).getAttributes();
+            assertEquals(StyleConstants.getAlignment(expectedParagraph), StyleConstants.getAlignment(actualParagraph));
+        }
+    }
+
+    private static <T> T jsonCopy(T original) {
+        @SuppressWarnings("unchecked") Class<T> clazz = (Class<T>) original.getClass();
+        return Serializer.getGson().fromJson(Serializer.serialize(original), clazz);
+    }
+
+    private static StyledDocument styledDocument() {
+        StyledDocument doc = new DefaultStyledDocument();
+        SimpleAttributeSet bold = new SimpleAttributeSet();
+        StyleConstants.setBold(bold, true);
+        StyleConstants.setFontFamily(bold, "Serif");
+        StyleConstants.setFontSize(bold, 18);
+        StyleConstants.setForeground(bold, Color.RED);
+
+        try {
+            doc.insertString(0, "Hello world\nCentered ", null);
+            doc.insertString(21, "bold", bold);
+
+            SimpleAttributeSet centered = new SimpleAttributeSet();
+            StyleConstants.setAlignment(centered, StyleConstants.ALIGN_CENTER);
+            doc.setParagraphAttributes(12, 13, centered, false);
+        } catch (BadLocationException e) {
+            throw new AssertionError(e);
+        }
+
+        return doc;
+    }
+
+    private static class TestObject {
+        private String name;
+        private Value value;
+        private BufferedImage image;
+        private byte[] data;
+        private List<String> items = new ArrayList<>();
+        private Map<String, TestObject> children = new HashMap<>();
+        private transient String cache;
+        private transient boolean constructed;
+
+        static TestObject sample() {
+            TestObject object = new TestObject();
+            object.name = "Home";
+            object.value = new Value("a value");
+            object.image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            object.data = new byte[]{1, 2, 3, -1};
+            object.items.add("card 1");
+            object.items.add("card 2");
+            object.cache = "cached";
+
+            TestObject child = new TestObject();
+            child.name = "Child";
+            child.items.add("card 1");
+            object.children.put("first", child);
+
+            return object;
+        }
+
+        @PostConstruct
+        public void postConstructTestObject() {
+            constructed = true;
+        }
+    }
+}
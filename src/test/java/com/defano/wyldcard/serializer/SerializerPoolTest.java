@@ -0,0 +1,72 @@
+package com.defano.wyldcard.serializer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerializerPoolTest {
+
+    private final int parallelism = SerializerPool.getParallelism();
+
+    @AfterEach
+    public void tearDown() {
+        SerializerPool.setParallelism(parallelism);
+    }
+
+    @Test
+    public void testThatTasksRunOnCallingThreadWithParallelismOfOne() throws IOException {
+        SerializerPool.setParallelism(1);
+
+        Thread caller = Thread.currentThread();
+        Future<Thread> thread = SerializerPool.submit(Thread::currentThread);
+
+        assertTrue(thread.isDone());
+        assertSame(caller, SerializerPool.await(thread));
+    }
+
+    @Test
+    public void testThatResultsAreAwaitedInSubmissionOrder() throws IOException {
+        SerializerPool.setParallelism(4);
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int index = 0; index < 100; index++) {
+            int value = index;
+            futures.add(SerializerPool.submit(() -> {
+                Thread.sleep((100 - value) % 7);
+                return value;
+            }));
+        }
+
+        for (int index = 0; index < futures.size(); index++) {
+            assertEquals(index, (int) SerializerPool.await(futures.get(index)));
+        }
+    }
+
+    @Test
+    public void testThatTaskExceptionsAreRethrown() {
+        for (int parallelism : new int[]{1, 4}) {
+            SerializerPool.setParallelism(parallelism);
+
+            assertThrows(IOException.class, () -> SerializerPool.await(SerializerPool.submit(() -> {
+                throw new IOException("Bad block");
+            })));
+            assertThrows(IllegalStateException.class, () -> SerializerPool.await(SerializerPool.submit(() -> {
+                throw new IllegalStateException("Bad image");
+            })));
+            assertThrows(OutOfMemoryError.class, () -> SerializerPool.await(SerializerPool.submit(() -> {
+                throw new OutOfMemoryError("Image too large");
+            })));
+        }
+    }
+
+    @Test
+    public void testThatParallelismMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> SerializerPool.setParallelism(0));
+    }
+}
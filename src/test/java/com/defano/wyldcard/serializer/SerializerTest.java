@@ -0,0 +1,112 @@
+package com.defano.wyldcard.serializer;
+
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerializerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatObjectRoundTripsThroughFile() throws IOException {
+        File file = tempDir.resolve("test.stack").toFile();
+        TestObject original = TestObject.sample();
+
+        Serializer.serialize(file, original);
+
+        assertEquals(original, Serializer.deserialize(file, TestObject.class));
+    }
+
+    @Test
+    public void testThatPrettyPrintedFilesCanBeRead() throws IOException {
+        File file = tempDir.resolve("legacy.stack").toFile();
+        TestObject original = TestObject.sample();
+
+        // Stacks saved by earlier versions were pretty-printed
+        String legacy = new GsonBuilder()
+                .registerTypeAdapter(byte[].class, new ByteArraySerializer())
+                .setPrettyPrinting()
+                .create()
+                .toJson(original);
+        Files.write(file.toPath(), legacy.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(original, Serializer.deserialize(file, TestObject.class));
+    }
+
+    @Test
+    public void testThatFileIsWrittenCompactly() throws IOException {
+        File file = tempDir.resolve("compact.stack").toFile();
+
+        Serializer.serialize(file, TestObject.sample());
+
+        String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(Serializer.serialize(TestObject.sample()), written);
+        assertFalse(written.contains("\n"));
+    }
+
+    @Test
+    public void testThatExistingFileIsReplacedWithoutLeavingTempFiles() throws IOException {
+        File file = tempDir.resolve("replaced.stack").toFile();
+        Files.write(file.toPath(), "garbage".getBytes(StandardCharsets.UTF_8));
+
+        Serializer.serialize(file, TestObject.sample());
+
+        assertEquals(TestObject.sample(), Serializer.deserialize(file, TestObject.class));
+        assertArrayEquals(new String[]{"replaced.stack"}, tempDir.toFile().list());
+    }
+
+    @Test
+    public void testThatCorruptFileCannotBeDeserialized() throws IOException {
+        File file = tempDir.resolve("corrupt.stack").toFile();
+        Files.write(file.toPath(), "{\"name\": \"trunc".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(RuntimeException.class, () -> Serializer.deserialize(file, TestObject.class));
+    }
+
+    private static class TestObject {
+        private String name;
+        private int count;
+        private byte[] data;
+        private List<String> items = new ArrayList<>();
+
+        static TestObject sample() {
+            TestObject object = new TestObject();
+            object.name = "Home \u00e9 \"stack\"";
+            object.count = 42;
+            object.data = new byte[]{1, 2, 3, -1};
+            object.items.add("card 1");
+            object.items.add("card 2");
+            return object;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TestObject that = (TestObject) o;
+            return count == that.count &&
+                    Objects.equals(name, that.name) &&
+                    Arrays.equals(data, that.data) &&
+                    Objects.equals(items, that.items);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, count, items);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.defano.wyldcard.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatBlocksRoundTrip() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("stack", bytes("{\"name\":\"Home\"}"), true);
+            writer.write("card/1", bytes("card one"), false);
+            writer.write("card/2", new byte[0], true);
+        }
+
+        StackArchive archive = StackArchive.open(file);
+        assertEquals(Arrays.asList("stack", "card/1", "card/2"), Arrays.asList(archive.getNames().toArray()));
+        assertArrayEquals(bytes("{\"name\":\"Home\"}"), archive.read("stack"));
+        assertArrayEquals(bytes("card one"), archive.read("card/1"));
+        assertArrayEquals(new byte[0], archive.read("card/2"));
+        assertTrue(archive.contains("card/1"));
+        assertFalse(archive.contains("card/3"));
+        assertThrows(IOException.class, () -> archive.read("card/3"));
+    }
+
+    @Test
+    public void testThatArchivesAreRecognized() throws IOException {
+        File archiveFile = tempDir.resolve("test.stackz").toFile();
+        File jsonFile = tempDir.resolve("test.stack").toFile();
+
+        StackArchive.create(archiveFile).close();
+        Files.write(jsonFile.toPath(), bytes("{}"));
+
+        assertTrue(StackArchive.isArchive(archiveFile));
+        assertFalse(StackArchive.isArchive(jsonFile));
+        assertFalse(StackArchive.isArchive(tempDir.resolve("missing.stackz").toFile()));
+    }
+
+    @Test
+    public void testThatBlocksCopyBetweenArchives() throws IOException {
+        File source = tempDir.resolve("source.stackz").toFile();
+        File destination = tempDir.resolve("destination.stackz").toFile();
+        byte[] large = new byte[100_000];
+        Arrays.fill(large, (byte) 'x');
+
+        try (StackArchive.Writer writer = StackArchive.create(source)) {
+            writer.write("card/1", large, true);
+        }
+
+        try (StackArchive.Writer writer = StackArchive.create(destination)) {
+            writer.write("stack", bytes("stack"), true);
+            writer.copy(StackArchive.open(source), "card/1");
+        }
+
+        assertArrayEquals(large, StackArchive.open(destination).read("card/1"));
+    }
+
+    @Test
+    public void testThatArchiveCanReplaceItself() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+
+        StackArchive original = StackArchive.open(file);
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("stack", bytes("stack"), true);
+            writer.copy(original, "card/1");
+        }
+
+        assertArrayEquals(bytes("one"), StackArchive.open(file).read("card/1"));
+        assertArrayEquals(new String[]{"test.stackz"}, tempDir.toFile().list());
+    }
+
+    @Test
+    public void testThatAbortedArchiveLeavesOriginalInPlace() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+
+        StackArchive.Writer writer = StackArchive.create(file);
+        writer.write("card/1", bytes("two"), true);
+        writer.abort();
+
+        assertArrayEquals(bytes("one"), StackArchive.open(file).read("card/1"));
+        assertArrayEquals(new String[]{"test.stackz"}, tempDir.toFile().list());
+    }
+
+    @Test
+    public void testThatPreparedBlocksMatchWrittenBlocks() throws IOException {
+        File written = tempDir.resolve("written.stackz").toFile();
+        File prepared = tempDir.resolve("prepared.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(written)) {
+            writer.write("stack", bytes("stack"), true);
+            writer.write("card/1", bytes("card one"), false);
+        }
+
+        // Prepare blocks out of order, but write them in order
+        StackArchive.Block card = StackArchive.Block.of("card/1", bytes("card one"), false);
+        StackArchive.Block stack = StackArchive.Block.of("stack", bytes("stack"), true);
+        try (StackArchive.Writer writer = StackArchive.create(prepared)) {
+            writer.write(stack);
+            writer.write(card);
+        }
+
+        assertArrayEquals(Files.readAllBytes(written.toPath()), Files.readAllBytes(prepared.toPath()));
+        assertArrayEquals(bytes("card one"), StackArchive.open(prepared).read("card/1"));
+    }
+
+    @Test
+    public void testThatCorruptBlockIsDetected() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("card one"), false);
+        }
+
+        // Flip a byte in the block's data (which immediately follows the 12-byte header)
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            raf.write('X');
+        }
+
+        StackArchive archive = StackArchive.open(file);
+        assertThrows(IOException.class, () -> archive.read("card/1"));
+    }
+
+    @Test
+    public void testThatTruncatedArchiveIsRejected() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("card one"), true);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        assertThrows(IOException.class, () -> StackArchive.open(file));
+    }
+
+    @Test
+    public void testThatAppendWritesOnlyNewBlocks() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+        byte[] large = new byte[100_000];
+        new Random(0).nextBytes(large);
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", large, true);
+            writer.write("card/2", bytes("two"), true);
+            writer.write("card/3", bytes("three"), true);
+        }
+        long originalLength = file.length();
+
+        StackArchive original = StackArchive.open(file);
+        try (StackArchive.Writer writer = original.append()) {
+            writer.copy(original, "card/1");
+            writer.write("card/2", bytes("two, edited"), true);
+        }
+
+        StackArchive appended = StackArchive.open(file);
+        assertArrayEquals(large, appended.read("card/1"));
+        assertArrayEquals(bytes("two, edited"), appended.read("card/2"));
+        assertFalse(appended.contains("card/3"));
+        assertTrue(file.length() - originalLength < large.length);
+        assertTrue(appended.getWastedLength() > 0);
+        assertEquals(file.length(), appended.getLength());
+    }
+
+    @Test
+    public void testThatInterruptedAppendRecoversLastCommit() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+            writer.write("card/2", bytes("two"), false);
+        }
+        int committedLength = (int) file.length();
+
+        StackArchive original = StackArchive.open(file);
+        try (StackArchive.Writer writer = original.append()) {
+            writer.copy(original, "card/1");
+            writer.write("card/2", bytes("two, edited"), false);
+            writer.write("card/3", bytes("three"), true);
+        }
+        byte[] appended = Files.readAllBytes(file.toPath());
+
+        // Simulate a crash at every point during the append
+        for (int length = committedLength; length < appended.length; length++) {
+            Files.write(file.toPath(), Arrays.copyOf(appended, length));
+
+            StackArchive recovered = StackArchive.open(file);
+            assertEquals(committedLength, recovered.getLength());
+            assertArrayEquals(bytes("one"), recovered.read("card/1"));
+            assertArrayEquals(bytes("two"), recovered.read("card/2"));
+            assertFalse(recovered.contains("card/3"));
+        }
+
+        Files.write(file.toPath(), appended);
+        assertArrayEquals(bytes("three"), StackArchive.open(file).read("card/3"));
+    }
+
+    @Test
+    public void testThatAppendOverwritesIncompleteCommit() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+        int committedLength = (int) file.length();
+
+        // Leave garbage from an interrupted append at the end of the file
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(committedLength);
+            raf.write(new byte[1000]);
+        }
+
+        StackArchive recovered = StackArchive.open(file);
+        try (StackArchive.Writer writer = recovered.append()) {
+            writer.copy(recovered, "card/1");
+            writer.write("card/2", bytes("two"), true);
+        }
+
+        StackArchive appended = StackArchive.open(file);
+        assertArrayEquals(bytes("one"), appended.read("card/1"));
+        assertArrayEquals(bytes("two"), appended.read("card/2"));
+        assertEquals(file.length(), appended.getLength());
+        assertTrue(file.length() < committedLength + 1000);
+    }
+
+    @Test
+    public void testThatAbortedAppendLeavesArchiveUnchanged() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+        byte[] committed = Files.readAllBytes(file.toPath());
+
+        StackArchive original = StackArchive.open(file);
+        StackArchive.Writer writer = original.append();
+        writer.write("card/1", bytes("two"), true);
+        writer.abort();
+
+        assertArrayEquals(committed, Files.readAllBytes(file.toPath()));
+        assertArrayEquals(bytes("one"), StackArchive.open(file).read("card/1"));
+    }
+
+    @Test
+    public void testThatInterruptedReadDoesNotCloseArchive() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+
+        StackArchive archive = StackArchive.open(file);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IOException.class, () -> archive.read("card/1"));
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertArrayEquals(bytes("one"), archive.read("card/1"));
+    }
+
+    @Test
+    public void testThatClosedArchiveCannotBeRead() throws IOException {
+        File file = tempDir.resolve("test.stackz").toFile();
+
+        try (StackArchive.Writer writer = StackArchive.create(file)) {
+            writer.write("card/1", bytes("one"), true);
+        }
+
+        StackArchive archive = StackArchive.open(file);
+        assertArrayEquals(bytes("one"), archive.read("card/1"));
+        archive.close();
+
+        assertThrows(IOException.class, () -> archive.read("card/1"));
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
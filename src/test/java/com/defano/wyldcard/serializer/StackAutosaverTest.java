@@ -0,0 +1,282 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.GuiceTest;
+import com.defano.hypertalk.ast.model.Value;
+import com.defano.hypertalk.ast.model.enums.Owner;
+import com.defano.wyldcard.part.builder.CardModelBuilder;
+import com.defano.wyldcard.part.builder.FieldModelBuilder;
+import com.defano.wyldcard.part.builder.StackModelBuilder;
+import com.defano.wyldcard.part.card.CardModel;
+import com.defano.wyldcard.part.field.FieldModel;
+import com.defano.wyldcard.part.model.PartModel;
+import com.defano.wyldcard.part.stack.StackModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackAutosaverTest extends GuiceTest<StackModel> {
+
+    private static final int FIRST_ADDED_CARD_ID = 100_000;      // Greater than any id the stack generates
+
+    @TempDir
+    Path tempDir;
+
+    private StackModel stack;
+    private File file;
+    private StackAutosaver autosaver;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        initialize();
+
+        stack = new StackModelBuilder().withInitialCard().build();
+        for (int card = 0; card < 10; card++) {
+            addCard(stack.getNextCardId());
+        }
+
+        file = tempDir.resolve("test" + StackModel.ARCHIVE_FILE_EXTENSION).toFile();
+        StackSerializer.serialize(file, stack);
+        stack.setSavedStackFile(mockExecutionContext, file);
+
+        autosaver = new StackAutosaver();
+        autosaver.add(stack);
+    }
+
+    @Test
+    public void testThatUnmodifiedStackIsNotAutosaved() throws IOException {
+        assertFalse(autosaver.autosave(stack));
+        assertFalse(StackAutosaver.getRecoveryFile(file).exists());
+    }
+
+    @Test
+    public void testThatUnsavedStackIsNotAutosaved() throws IOException {
+        StackModel unsaved = new StackModelBuilder().withInitialCard().build();
+        unsaved.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        autosaver.add(unsaved);
+
+        assertFalse(autosaver.autosave(unsaved));
+    }
+
+    @Test
+    public void testThatModifiedStackIsRecoverable() throws IOException {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        addCard(FIRST_ADDED_CARD_ID);
+
+        assertTrue(autosaver.autosave(stack));
+        assertTrue(StackAutosaver.isRecoverable(file));
+        assertFalse(autosaver.autosave(stack));
+
+        StackModel recovered = StackSerializer.deserialize(StackAutosaver.getRecoveryFile(file));
+        assertTrue(recovered.isResizable(mockExecutionContext));
+        assertCardIds(stack, recovered);
+    }
+
+    @Test
+    public void testThatUnloadedCardsAreRecovered() throws IOException {
+        StackModel opened = StackSerializer.deserialize(file);
+        opened.setSavedStackFile(mockExecutionContext, file);
+        opened.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        autosaver.add(opened);
+
+        assertTrue(autosaver.autosave(opened));
+        assertNotNull(opened.getCardStub(opened.getCardCount() - 1));
+
+        StackModel recovered = StackSerializer.deserialize(StackAutosaver.getRecoveryFile(file));
+        recovered.loadAllCards();
+        assertCardIds(stack, recovered);
+    }
+
+    @Test
+    public void testThatUnmodifiedCardsAreShared() {
+        StackSnapshot first = StackArchiveSerializer.snapshot(stack, null);
+        stack.getCardModel(1).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(true));
+        StackSnapshot second = StackArchiveSerializer.snapshot(stack, first);
+
+        assertSame(first.stack, second.stack);
+        assertSame(first.cards.get(0), second.cards.get(0));
+        assertNotSame(first.cards.get(1), second.cards.get(1));
+        assertSame(first.cards.get(2), second.cards.get(2));
+    }
+
+    @Test
+    public void testThatDiscardDeletesRecoveryFile() throws IOException {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        assertTrue(autosaver.autosave(stack));
+
+        StackSerializer.serialize(file, stack);
+        stack.setSavedStackFile(mockExecutionContext, file);
+        autosaver.discard(stack);
+
+        assertFalse(StackAutosaver.getRecoveryFile(file).exists());
+        assertFalse(StackAutosaver.isRecoverable(file));
+    }
+
+    @Test
+    public void testThatDiscardDeletesFileRecoveredFrom() throws IOException {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        assertTrue(autosaver.autosave(stack));
+
+        // WyldCard quits without saving; the stack is recovered the next time it's opened
+        StackAutosaver nextAutosaver = new StackAutosaver();
+        StackModel recovered = nextAutosaver.recover(mockExecutionContext, file);
+        nextAutosaver.add(recovered);
+
+        StackSerializer.serialize(file, recovered);
+        nextAutosaver.discard(recovered);
+
+        assertFalse(StackAutosaver.getRecoveryFile(file).exists());
+    }
+
+    @Test
+    public void testThatRecoveredStackIsSavedAfterRecoveryFileIsReplaced() throws IOException {
+        stack.set(mockExecutionContext, StackModel.PROP_RESIZABLE, new Value(true));
+        addCard(FIRST_ADDED_CARD_ID);
+        assertTrue(autosaver.autosave(stack));
+
+        StackAutosaver nextAutosaver = new StackAutosaver();
+        StackModel recovered = nextAutosaver.recover(mockExecutionContext, file);
+        assertTrue(recovered.isDirty());
+
+        // Autosaving the recovered stack replaces the file it was recovered from
+        recovered.getCardModel(1).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(true));
+        assertTrue(nextAutosaver.autosave(recovered));
+
+        StackSerializer.serialize(file, recovered);
+        recovered.setSavedStackFile(mockExecutionContext, file);
+        nextAutosaver.discard(recovered);
+
+        StackModel reopened = StackSerializer.deserialize(file);
+        reopened.loadAllCards();
+        assertTrue(reopened.isResizable(mockExecutionContext));
+        assertTrue(reopened.getCardModel(1).get(mockExecutionContext, CardModel.PROP_MARKED).booleanValue());
+        assertCardIds(stack, reopened);
+    }
+
+    @Test
+    public void testThatConcurrentModificationNeverTearsRecoveryFile() throws Exception {
+        int cardsToAdd = 500;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread script = new Thread(() -> {
+            for (int card = 0; card < cardsToAdd; card++) {
+                addCard(FIRST_ADDED_CARD_ID + card);
+                stack.getCardModel(0).set(mockExecutionContext, CardModel.PROP_MARKED, new Value(card % 2 == 0));
+            }
+            done.set(true);
+        });
+        script.start();
+
+        File recoveryFile = StackAutosaver.getRecoveryFile(file);
+        while (!done.get()) {
+            try {
+                if (autosaver.autosave(stack)) {
+                    assertConsistent(StackSerializer.deserialize(recoveryFile));
+                }
+            } catch (ConcurrentModificationException e) {
+                // The script kept modifying the stack; the recovery file is left as it was
+            }
+        }
+        script.join();
+
+        assertTrue(autosaver.autosave(stack));
+        StackModel recovered = StackSerializer.deserialize(recoveryFile);
+        assertConsistent(recovered);
+        assertCardIds(stack, recovered);
+    }
+
+    @Test
+    public void testThatConcurrentFieldChangesNeverTearRecoveryFile() throws Exception {
+        FieldModel field = new FieldModelBuilder(Owner.CARD, stack.getCardModel(0)).withId(1).build();
+        stack.getCardModel(0).addPartModel(field);
+        setField(field, 0);
+
+        int changes = 500;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread script = new Thread(() -> {
+            for (int change = 1; change <= changes; change++) {
+                setField(field, change);
+            }
+            done.set(true);
+        });
+        script.start();
+
+        File recoveryFile = StackAutosaver.getRecoveryFile(file);
+        while (!done.get()) {
+            try {
+                if (autosaver.autosave(stack)) {
+                    assertFieldConsistent(StackSerializer.deserialize(recoveryFile));
+                }
+            } catch (ConcurrentModificationException e) {
+                // The script kept modifying the field; the recovery file is left as it was
+            }
+        }
+        script.join();
+
+        assertTrue(autosaver.autosave(stack));
+        StackModel recovered = StackSerializer.deserialize(recoveryFile);
+        assertEquals(changes, assertFieldConsistent(recovered));
+    }
+
+    /**
+     * Sets the field's rect and text, each of which is written as several changes to the field, to values derived
+     * from the given change number.
+     */
+    private void setField(FieldModel field, int change) {
+        field.set(mockExecutionContext, PartModel.PROP_RECT, new Value(new Rectangle(change, change, 50 + change, 50 + change)));
+        field.set(mockExecutionContext, FieldModel.PROP_TEXT, new Value(change + "," + change + "," + change));
+    }
+
+    /**
+     * Asserts that the rect and text of the field on the first card of a recovered stack were each written entirely
+     * by one change, and returns the number of the change that wrote its text.
+     */
+    private int assertFieldConsistent(StackModel recovered) {
+        FieldModel field = recovered.getCardModel(0).getFieldModels().iterator().next();
+
+        int left = field.get(mockExecutionContext, PartModel.PROP_LEFT).integerValue();
+        assertEquals(left, field.get(mockExecutionContext, PartModel.PROP_TOP).integerValue());
+        assertEquals(left + 50, field.get(mockExecutionContext, PartModel.PROP_WIDTH).integerValue());
+        assertEquals(left + 50, field.get(mockExecutionContext, PartModel.PROP_HEIGHT).integerValue());
+
+        String[] items = field.getText(mockExecutionContext).split(",");
+        assertEquals(3, items.length);
+        assertEquals(items[0], items[1]);
+        assertEquals(items[0], items[2]);
+        return Integer.parseInt(items[0]);
+    }
+
+    private void addCard(int id) {
+        stack.addCard(new CardModelBuilder(stack).withId(id).withBackgroundId(stack.getCurrentCard().getBackgroundId()).build());
+    }
+
+    /**
+     * Asserts that the added cards of a recovered stack are those the script had added when the stack was autosaved;
+     * that is, that they are in order, with none missing.
+     */
+    private static void assertConsistent(StackModel recovered) {
+        recovered.loadAllCards();
+
+        int expectedId = FIRST_ADDED_CARD_ID;
+        for (int index = 0; index < recovered.getCardCount(); index++) {
+            int id = recovered.getCardModel(index).getId();
+            if (id >= FIRST_ADDED_CARD_ID) {
+                assertEquals(expectedId++, id);
+            }
+        }
+    }
+
+    private static void assertCardIds(StackModel expected, StackModel actual) {
+        assertEquals(expected.getCardCount(), actual.getCardCount());
+        for (int index = 0; index < expected.getCardCount(); index++) {
+            assertEquals(expected.getCardModel(index).getId(), actual.getCardModel(index).getId());
+        }
+    }
+}
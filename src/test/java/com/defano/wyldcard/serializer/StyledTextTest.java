@@ -0,0 +1,192 @@
+package com.defano.wyldcard.serializer;
+
+import com.defano.hypertalk.util.Range;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.*;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StyledTextTest {
+
+    @Test
+    public void testThatEveryTextStyleRoundTrips() throws BadLocationException {
+        StyledDocument document = styledDocument();
+        assertEquivalent(document, StyledText.of(document).toDocument());
+    }
+
+    @Test
+    public void testThatStyledTextMatchesRtf() throws BadLocationException {
+        StyledDocument document = StyledDocumentSerializer.convertRtfToDocument(StyledDocumentSerializer.convertDocumentToRtf(styledDocument()));
+        StyledText styledText = StyledText.of(document);
+
+        assertEquivalent(document, styledText.toDocument());
+        assertArrayEquals(StyledDocumentSerializer.convertDocumentToRtf(document), StyledDocumentSerializer.convertDocumentToRtf(styledText.toDocument()));
+    }
+
+    @Test
+    public void testThatEmptyDocumentRoundTrips() throws BadLocationException {
+        StyledText styledText = StyledText.of(new DefaultStyledDocument());
+        assertEquals("", styledText.getText());
+        assertEquals(0, styledText.toDocument().getLength());
+    }
+
+    @Test
+    public void testThatReleasedDocumentIsRebuilt() throws BadLocationException {
+        LazyDocument lazyDocument = LazyDocument.of(styledDocument());
+        StyledDocument original = lazyDocument.get();
+
+        lazyDocument.release();
+        assertFalse(lazyDocument.isDecoded());
+        assertEquals(original.getText(0, original.getLength()), lazyDocument.getText());
+        assertFalse(lazyDocument.isDecoded());
+
+        StyledDocument rebuilt = lazyDocument.get();
+        assertNotSame(original, rebuilt);
+        assertEquivalent(original, rebuilt);
+    }
+
+    @Test
+    public void testThatCopyOfBuiltDocumentIsNotBuilt() throws BadLocationException {
+        LazyDocument original = LazyDocument.of(styledDocument());
+        LazyDocument copy = Serializer.copy(original);
+
+        assertFalse(copy.isDecoded());
+        assertEquivalent(original.get(), copy.get());
+        assertNotSame(original.get(), copy.get());
+    }
+
+    @Test
+    public void testThatReplacedTextMatchesEditedDocument() throws BadLocationException {
+        Random random = new Random(0);
+        StyledText styledText = StyledText.of(styledDocument());
+        int length = styledText.getText().length();
+
+        for (int iteration = 0; iteration < 500; iteration++) {
+            List<Range> ranges = new ArrayList<>();
+            for (int start = random.nextInt(6); start < length; start += random.nextInt(6)) {
+                int end = Math.min(length, start + 1 + random.nextInt(4));
+                ranges.add(new Range(start, end));
+                start = end;
+            }
+
+            String replacement = new String[]{"", "x", "XYZ", "\n", "a\nb\n"}[random.nextInt(5)];
+
+            // Edit a document in place, from the last range to the first, as a field's text is edited
+            StyledDocument expected = styledText.toDocument();
+            for (int index = ranges.size() - 1; index >= 0; index--) {
+                Range range = ranges.get(index);
+                AttributeSet style = expected.getCharacterElement(range.start).getAttributes().copyAttributes();
+                expected.remove(range.start, range.end - range.start);
+                expected.insertString(range.start, replacement, style);
+            }
+
+            assertEquivalent(expected, styledText.replace(ranges, replacement).toDocument());
+        }
+    }
+
+    @Test
+    public void testThatReplacedDocumentIsNotBuilt() throws BadLocationException {
+        LazyDocument original = LazyDocument.of(styledDocument());
+        LazyDocument replaced = original.replace(Collections.singletonList(new Range(0, 5)), "styled");
+
+        assertFalse(replaced.isDecoded());
+        assertTrue(replaced.getText().startsWith("styled bold "));
+        assertTrue(original.get().getText(0, original.get().getLength()).startsWith("plain bold "));
+    }
+
+    @Test
+    public void testThatParagraphsMatchDocument() throws BadLocationException {
+        byte[] rtf = StyledDocumentSerializer.convertDocumentToRtf(styledDocument());
+        StyledDocument document = StyledDocumentSerializer.convertRtfToDocument(rtf);
+        LazyDocument lazyDocument = LazyDocument.decodedLazily(rtf);
+        List<StyledParagraph> paragraphs = lazyDocument.getParagraphs();
+
+        assertFalse(lazyDocument.isDecoded());
+        assertEquals(3, paragraphs.size());
+        assertEquals("plain bold italic underline strike", paragraphs.get(0).getText());
+        assertEquals("centered", paragraphs.get(2).getText());
+
+        int offset = 0;
+        for (StyledParagraph paragraph : paragraphs) {
+            for (int run = 0; run < paragraph.getRunCount(); run++) {
+                for (int index = 0; index < paragraph.getRunLength(run); index++, offset++) {
+                    AttributeSet expected = document.getCharacterElement(offset).getAttributes();
+                    assertEquals(StyleConstants.isBold(expected), StyleConstants.isBold(paragraph.getRunAttributes(run)), "Character " + offset);
+                    assertEquals(StyleConstants.getFontSize(expected), StyleConstants.getFontSize(paragraph.getRunAttributes(run)), "Character " + offset);
+                    assertEquals(StyleConstants.getForeground(expected), StyleConstants.getForeground(paragraph.getRunAttributes(run)), "Character " + offset);
+                }
+            }
+
+            // Each paragraph but the last ends with a newline, which is not part of any run
+            offset++;
+        }
+
+        assertEquals(document.getLength() + 1, offset);
+    }
+
+    @Test
+    public void testThatTrailingNewlineEndsWithEmptyParagraph() throws BadLocationException {
+        StyledDocument document = new DefaultStyledDocument();
+        assertEquals(1, LazyDocument.of(document).getParagraphs().size());
+
+        document.insertString(0, "one\n", null);
+        List<StyledParagraph> paragraphs = LazyDocument.of(document).getParagraphs();
+
+        assertEquals(2, paragraphs.size());
+        assertEquals("one", paragraphs.get(0).getText());
+        assertEquals(1, paragraphs.get(0).getRunCount());
+        assertEquals("", paragraphs.get(1).getText());
+        assertEquals(0, paragraphs.get(1).getRunCount());
+    }
+
+    private static StyledDocument styledDocument() throws BadLocationException {
+        StyledDocument document = new DefaultStyledDocument();
+        document.insertString(0, "plain ", null);
+        document.insertString(document.getLength(), "bold ", style(StyleConstants.Bold, true));
+        document.insertString(document.getLength(), "italic ", style(StyleConstants.Italic, true));
+        document.insertString(document.getLength(), "underline ", style(StyleConstants.Underline, true));
+        document.insertString(document.getLength(), "strike\n", style(StyleConstants.StrikeThrough, true));
+        document.insertString(document.getLength(), "sub ", style(StyleConstants.Subscript, true));
+        document.insertString(document.getLength(), "super ", style(StyleConstants.Superscript, true));
+        document.insertString(document.getLength(), "Chicago ", style(StyleConstants.FontFamily, "Chicago"));
+        document.insertString(document.getLength(), "24pt ", style(StyleConstants.FontSize, 24));
+        document.insertString(document.getLength(), "red\n", style(StyleConstants.Foreground, Color.RED));
+        document.insertString(document.getLength(), "centered", null);
+
+        SimpleAttributeSet centered = new SimpleAttributeSet();
+        StyleConstants.setAlignment(centered, StyleConstants.ALIGN_CENTER);
+        document.setParagraphAttributes(document.getLength() - 1, 1, centered, false);
+
+        return document;
+    }
+
+    private static AttributeSet style(Object attribute, Object value) {
+        SimpleAttributeSet attributes = new SimpleAttributeSet();
+        attributes.addAttribute(attribute, value);
+        return attributes;
+    }
+
+    private static void assertEquivalent(StyledDocument expected, StyledDocument actual) throws BadLocationException {
+        assertEquals(expected.getText(0, expected.getLength()), actual.getText(0, actual.getLength()));
+
+        for (int offset = 0; offset < expected.getLength(); offset++) {
+            assertTrue(expected.getCharacterElement(offset).getAttributes().isEqual(actual.getCharacterElement(offset).getAttributes()), "Character " + offset);
+        }
+
+        for (int offset = 0; offset <= expected.getLength(); offset++) {
+            assertTrue(paragraphAttributes(expected, offset).isEqual(paragraphAttributes(actual, offset)), "Paragraph at " + offset);
+        }
+    }
+
+    private static AttributeSet paragraphAttributes(StyledDocument document, int offset) {
+        SimpleAttributeSet attributes = new SimpleAttributeSet(document.getParagraphElement(offset).getAttributes());
+        attributes.removeAttribute(AttributeSet.ResolveAttribute);
+        return attributes;
+    }
+}
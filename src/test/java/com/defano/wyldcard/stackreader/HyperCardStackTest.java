@@ -0,0 +1,113 @@
+package com.defano.wyldcard.stackreader;
+
+import com.defano.wyldcard.stackreader.block.BlockType;
+import com.defano.wyldcard.stackreader.block.FreeBlock;
+import com.defano.wyldcard.stackreader.block.TailBlock;
+import com.defano.wyldcard.stackreader.misc.ImportException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperCardStackTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testThatBlocksAreUnpacked() throws Exception {
+        HyperCardStack stack = HyperCardStack.fromInputStream(new ByteArrayInputStream(stackData()));
+        assertBlocks(stack);
+    }
+
+    @Test
+    public void testThatMappedFileIsUnpacked() throws Exception {
+        File file = tempDir.resolve("Stack").toFile();
+        Files.write(file.toPath(), stackData());
+
+        assertBlocks(HyperCardStack.fromFile(file));
+    }
+
+    @Test
+    public void testThatBlockDataIsAViewOfTheStack() throws Exception {
+        byte[] data = stackData();
+        HyperCardStack stack = HyperCardStack.fromBuffer(ByteBuffer.wrap(data));
+        ByteBuffer blockData = stack.getBlock(FreeBlock.class, 1).getBlockData();
+
+        assertTrue(blockData.isReadOnly());
+        assertEquals(0, blockData.position());
+        assertEquals("free".length() + 1, blockData.remaining());
+
+        // Reading block data does not disturb the data seen by others
+        blockData.get();
+        assertEquals(0, stack.getBlock(FreeBlock.class, 1).getBlockData().position());
+
+        data[16 + 1] = 'F';
+        assertEquals('F', stack.getBlock(FreeBlock.class, 1).getBlockData().get(1));
+    }
+
+    @Test
+    public void testThatTruncatedStackIsRejected() throws IOException {
+        byte[] data = stackData();
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(ImportException.class, () -> HyperCardStack.fromBuffer(ByteBuffer.wrap(truncated)), "Length " + length);
+        }
+    }
+
+    @Test
+    public void testThatCorruptBlockSizeIsRejected() throws IOException {
+        ByteBuffer tooSmall = ByteBuffer.wrap(stackData());
+        tooSmall.putInt(0, 15);
+        assertThrows(ImportException.class, () -> HyperCardStack.fromBuffer(tooSmall));
+
+        ByteBuffer tooLarge = ByteBuffer.wrap(stackData());
+        tooLarge.putInt(0, 0xffff);
+        assertThrows(ImportException.class, () -> HyperCardStack.fromBuffer(tooLarge));
+    }
+
+    @Test
+    public void testThatCorruptBlockTypeIsRejected() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(stackData());
+        data.putInt(4, 0x58585858);
+        assertThrows(ImportException.class, () -> HyperCardStack.fromBuffer(data));
+    }
+
+    private static void assertBlocks(HyperCardStack stack) {
+        assertEquals(2, stack.getBlocks().size());
+        assertEquals("free", stack.getBlock(FreeBlock.class, 1).getMarkerText());
+        assertEquals("That's all folks", stack.getBlock(TailBlock.class).getTailString());
+        assertEquals(1, stack.getBlocks(BlockType.TAIL).size());
+    }
+
+    private static byte[] stackData() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeBlock(out, "FREE", 1, "free");
+        writeBlock(out, "TAIL", 2, "That's all folks");
+        return bytes.toByteArray();
+    }
+
+    private static void writeBlock(DataOutputStream out, String type, int id, String text) throws IOException {
+        byte[] chars = text.getBytes(StandardCharsets.US_ASCII);
+
+        out.writeInt(16 + 1 + chars.length);
+        out.write(type.getBytes(StandardCharsets.US_ASCII));
+        out.writeInt(id);
+        out.writeInt(0);
+        out.writeByte(chars.length);
+        out.write(chars);
+    }
+}
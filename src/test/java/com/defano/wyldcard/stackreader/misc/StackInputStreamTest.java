@@ -0,0 +1,64 @@
+package com.defano.wyldcard.stackreader.misc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackInputStreamTest {
+
+    private static final byte[] DATA = {0, 0, 0, 42, 1, 2, 3, 4, 5, 6, 7, 8};
+
+    @Test
+    public void testThatBufferIsReadInPlace() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(DATA.clone());
+
+        try (StackInputStream sis = new StackInputStream(buffer)) {
+            assertEquals(42, sis.readInt());
+
+            ByteBuffer view = sis.readBuffer(4);
+            assertEquals(8, buffer.position());
+            assertTrue(view.isReadOnly());
+            assertEquals(0, view.position());
+            assertEquals(4, view.limit());
+            assertEquals(1, view.get(0));
+
+            buffer.put(4, (byte) 9);
+            assertEquals(9, view.get(0));
+
+            assertEquals(5, sis.readByte());
+        }
+    }
+
+    @Test
+    public void testThatStreamSkipsToOffsetOfBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(DATA);
+        buffer.position(4);
+
+        try (StackInputStream sis = new StackInputStream(buffer.slice())) {
+            sis.readInt();
+            sis.skipToOffset(2);
+            assertEquals(3, sis.readByte());
+        }
+    }
+
+    @Test
+    public void testThatReadingPastEndOfBufferFails() throws IOException {
+        try (StackInputStream sis = new StackInputStream(ByteBuffer.wrap(DATA))) {
+            assertThrows(EOFException.class, () -> sis.readBuffer(DATA.length + 1));
+            sis.readBuffer(DATA.length - 2);
+            assertThrows(EOFException.class, sis::readInt);
+        }
+    }
+
+    @Test
+    public void testThatStreamsReadBuffersAlike() throws IOException {
+        try (StackInputStream sis = new StackInputStream(DATA)) {
+            assertEquals(42, sis.readInt());
+            assertEquals(ByteBuffer.wrap(DATA, 4, 4), sis.readBuffer(4));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.defano.wyldcard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonochromeImageUtilsTest {
+
+    @Test
+    public void testThatMonochromeImageIsPacked() {
+        BufferedImage image = monochromeImage();
+        BufferedImage packed = MonochromeImageUtils.pack(image);
+
+        assertTrue(MonochromeImageUtils.isPacked(packed));
+        assertPixelsEqual(image, packed);
+    }
+
+    @Test
+    public void testThatColorImageIsNotPacked() {
+        BufferedImage image = monochromeImage();
+        image.setRGB(10, 10, Color.RED.getRGB());
+
+        assertSame(image, MonochromeImageUtils.pack(image));
+    }
+
+    @Test
+    public void testThatPackedImageIsPromotedToArgb() {
+        BufferedImage image = monochromeImage();
+        BufferedImage promoted = MonochromeImageUtils.toArgb(MonochromeImageUtils.pack(image));
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB, promoted.getType());
+        assertPixelsEqual(image, promoted);
+        assertSame(promoted, MonochromeImageUtils.toArgb(promoted));
+    }
+
+    @Test
+    public void testThatPackedImageIsSmaller() {
+        BufferedImage packed = MonochromeImageUtils.pack(monochromeImage());
+        assertEquals(MonochromeImageUtils.getScanlineStride(packed.getWidth()) * packed.getHeight(), MonochromeImageUtils.getData(packed).length);
+        assertTrue(MonochromeImageUtils.getData(packed).length * 16 <= 4 * (packed.getWidth() + 3) * packed.getHeight());
+    }
+
+    private static BufferedImage monochromeImage() {
+        BufferedImage image = new BufferedImage(641, 479, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(50, 50, 300, 200);
+        g.setColor(Color.BLACK);
+        g.drawLine(0, 0, 640, 478);
+        g.drawRect(100, 100, 33, 17);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertArrayEquals(
+                expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth()),
+                actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth()));
+    }
+}